@@ -0,0 +1,84 @@
+package com.amazon.s3.v2.benchmark;
+
+import com.amazon.s3.v2.utils.BucketUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.model.CORSRule;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description BucketUtil的基准测试：桶名称校验、CORS规则解析
+ * @since 2023/6/22 11:02:51
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketUtilBenchmark {
+    private static final String XML_CORS_RULES = "<CORSConfiguration>"
+            + "<CORSRule>"
+            + "<ID>ecf61fee281342d69005831895e36afd</ID>"
+            + "<AllowedOrigin>http://www.example.com</AllowedOrigin>"
+            + "<AllowedOrigin>http://www.example2.com</AllowedOrigin>"
+            + "<AllowedMethod>PUT</AllowedMethod>"
+            + "<AllowedMethod>POST</AllowedMethod>"
+            + "<AllowedMethod>DELETE</AllowedMethod>"
+            + "<AllowedHeader>*</AllowedHeader>"
+            + "<ExposeHeader>x-amz-server-side-encryption</ExposeHeader>"
+            + "<ExposeHeader>x-amz-request-id</ExposeHeader>"
+            + "<ExposeHeader>x-amz-id-2</ExposeHeader>"
+            + "<MaxAgeSeconds>3000</MaxAgeSeconds>"
+            + "</CORSRule>"
+            + "<CORSRule>"
+            + "<ID>ecf61fee281342d69004323232436afd</ID>"
+            + "<AllowedOrigin>*</AllowedOrigin>"
+            + "<AllowedMethod>GET</AllowedMethod>"
+            + "<MaxAgeSeconds>3000</MaxAgeSeconds>"
+            + "</CORSRule>"
+            + "</CORSConfiguration>";
+
+    private static final String JSON_CORS_RULES = "["
+            + "{\"AllowedMethod\":[\"PUT\",\"POST\",\"DELETE\"],\"MaxAgeSeconds\":\"3000\","
+            + "\"ExposeHeader\":[\"x-amz-server-side-encryption\",\"x-amz-request-id\",\"x-amz-id-2\"],"
+            + "\"ID\":\"ecf61fee281342d69005831895e36afd\","
+            + "\"AllowedOrigin\":[\"http://www.example.com\",\"http://www.example2.com\"],\"AllowedHeader\":\"*\"},"
+            + "{\"AllowedMethod\":\"GET\",\"MaxAgeSeconds\":\"3000\","
+            + "\"ID\":\"ecf61fee281342d69004323232436afd\",\"AllowedOrigin\":\"*\"}"
+            + "]";
+
+    @Param({"my-test-bucket", "my-test-bucket-1234567890.example.com", "192.168.5.4"})
+    public String bucketName;
+
+    @Benchmark
+    public boolean isValid() {
+        return BucketUtil.isValid(bucketName);
+    }
+
+    @Benchmark
+    public boolean isLikeHost() {
+        return BucketUtil.isLikeHost(bucketName);
+    }
+
+    @Benchmark
+    public List<CORSRule> xmlToCorsRules() {
+        return BucketUtil.xmlToCorsRules(XML_CORS_RULES);
+    }
+
+    @Benchmark
+    public List<CORSRule> jsonToCorsRules() {
+        return BucketUtil.jsonToCorsRules(JSON_CORS_RULES);
+    }
+}
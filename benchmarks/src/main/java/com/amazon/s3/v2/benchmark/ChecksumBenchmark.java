@@ -0,0 +1,120 @@
+package com.amazon.s3.v2.benchmark;
+
+import com.amazon.s3.v2.benchmark.server.S3StandInConfig;
+import com.amazon.s3.v2.benchmark.server.S3StandInServer;
+import com.amazon.s3.v2.benchmark.support.BenchmarkTemplates;
+import com.amazon.s3.v2.checksum.PartChecksum;
+import com.amazon.s3.v2.config.S3V2Base;
+import com.amazon.s3.v2.config.S3V2ChecksumConfig;
+import com.amazon.s3.v2.template.AmazonS3V2Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description 完整性校验的吞吐量基准测试，对比不校验、CRC32C、CRC32和SHA256
+ * <p>
+ * uploadStream/getObject 通过替身服务分片上传和下载，替身服务同样会重新计算校验和，结果包含了两端的开销；
+ * checksum 只计算一个分片的校验和，可以看出CRC32C在当前JDK上是否使用了硬件加速(JDK 9+的 java.util.zip.CRC32C)。
+ * @since 2023/7/1 14:06:41
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChecksumBenchmark {
+    private static final String OBJECT_NAME = "benchmark/checksum.bin";
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
+    @Param({"none", "CRC32C", "CRC32", "SHA256"})
+    public String algorithm;
+
+    @Param({"16777216"})
+    public int objectSize;
+
+    private S3StandInServer server;
+    private AmazonS3V2Template template;
+    private byte[] content;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = S3StandInServer.start(S3StandInConfig.builder().build());
+        server.createBucket(BenchmarkTemplates.BUCKET);
+
+        S3V2Base s3V2Base = BenchmarkTemplates.s3V2Base(server.getEndpoint());
+        if (!"none".equals(algorithm)) {
+            s3V2Base.setChecksum(S3V2ChecksumConfig.builder().enabled(true).algorithm(algorithm).build());
+        }
+        template = BenchmarkTemplates.create(null, s3V2Base);
+
+        content = new byte[objectSize];
+        new Random(20230703L).nextBytes(content);
+        buffer = new byte[8192];
+        template.uploadStream(template.getDefaultBucket(), OBJECT_NAME, CONTENT_TYPE, new ByteArrayInputStream(content));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        template.getS3Client().close();
+        server.close();
+    }
+
+    @Benchmark
+    public Optional<String> uploadStream() {
+        return template.uploadStream(template.getDefaultBucket(), "benchmark/upload/checksum.bin", CONTENT_TYPE,
+                new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public long getObject() throws IOException {
+        Optional<ResponseInputStream<GetObjectResponse>> responseInputStream = template.getObject(template.getDefaultBucket(), OBJECT_NAME);
+        if (!responseInputStream.isPresent()) {
+            throw new IllegalStateException("object not found");
+        }
+        long total = 0;
+        try (InputStream inputStream = responseInputStream.get()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        if (total != content.length) {
+            throw new IllegalStateException("content length mismatch " + total);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public byte[] checksum() {
+        if ("none".equals(algorithm)) {
+            return buffer;
+        }
+        PartChecksum partChecksum = PartChecksum.create(ChecksumAlgorithm.fromValue(algorithm));
+        partChecksum.update(content, 0, content.length);
+        return partChecksum.finish();
+    }
+}
@@ -0,0 +1,140 @@
+package com.amazon.s3.v2.benchmark;
+
+import com.amazon.s3.v2.benchmark.server.S3StandInConfig;
+import com.amazon.s3.v2.benchmark.server.S3StandInServer;
+import com.amazon.s3.v2.benchmark.support.BenchmarkTemplates;
+import com.amazon.s3.v2.config.S3V2Base;
+import com.amazon.s3.v2.config.S3V2CompressionConfig;
+import com.amazon.s3.v2.template.AmazonS3V2Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description 透明压缩的吞吐量基准测试，对比不压缩、gzip和zstd
+ * <p>
+ * 内容是模拟的CSV数据，替身服务限制带宽后可以观察压缩节省的传输时间能否抵消压缩本身的CPU开销：
+ * -p bandwidthBytesPerSecond=0 时只剩下压缩的开销，-p bandwidthBytesPerSecond=12500000 约等于100Mbps的公网带宽。
+ * 上传和下载的字节数都按照原始数据计算。
+ * @since 2023/6/28 14:12:09
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+    private static final String OBJECT_NAME = "benchmark/compression.csv";
+    private static final String CONTENT_TYPE = "text/csv";
+
+    @Param({"none", "gzip", "zstd"})
+    public String codec;
+
+    @Param({"0", "12500000"})
+    public long bandwidthBytesPerSecond;
+
+    @Param({"4194304"})
+    public int objectSize;
+
+    private S3StandInServer server;
+    private AmazonS3V2Template template;
+    private byte[] content;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = S3StandInServer.start(S3StandInConfig.builder()
+                .bandwidthBytesPerSecond(bandwidthBytesPerSecond)
+                .build());
+        server.createBucket(BenchmarkTemplates.BUCKET);
+
+        S3V2Base s3V2Base = BenchmarkTemplates.s3V2Base(server.getEndpoint());
+        if (!"none".equals(codec)) {
+            s3V2Base.setCompression(S3V2CompressionConfig.builder().enabled(true).codec(codec).build());
+        }
+        template = BenchmarkTemplates.create(null, s3V2Base);
+
+        content = csv(objectSize);
+        buffer = new byte[8192];
+        template.putObject(template.getDefaultBucket(), OBJECT_NAME, CONTENT_TYPE, new ByteArrayInputStream(content), content.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        template.getS3Client().close();
+        server.close();
+    }
+
+    @Benchmark
+    public Optional<PutObjectResponse> putObject() throws IOException {
+        return template.putObject(template.getDefaultBucket(), "benchmark/put/compression.csv", CONTENT_TYPE,
+                new ByteArrayInputStream(content), content.length);
+    }
+
+    @Benchmark
+    public long getObject() throws IOException {
+        Optional<ResponseInputStream<GetObjectResponse>> responseInputStream = template.getObject(template.getDefaultBucket(), OBJECT_NAME);
+        if (!responseInputStream.isPresent()) {
+            throw new IllegalStateException("object not found");
+        }
+        long total = 0;
+        try (InputStream inputStream = responseInputStream.get()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        if (total != content.length) {
+            throw new IllegalStateException("content length mismatch " + total);
+        }
+        return total;
+    }
+
+    /**
+     * 生成固定随机种子的CSV数据，压缩率接近真实的业务数据(3~6倍)
+     */
+    private static byte[] csv(int size) {
+        Random random = new Random(20230628L);
+        String[] cities = {"Beijing", "Shanghai", "Hangzhou", "Shenzhen", "Chengdu", "Wuhan"};
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(size + 128);
+        StringBuilder line = new StringBuilder(128);
+        long id = 1;
+        while (outputStream.size() < size) {
+            line.setLength(0);
+            line.append(id++).append(',')
+                    .append("user_").append(random.nextInt(100000)).append(',')
+                    .append(cities[random.nextInt(cities.length)]).append(',')
+                    .append(random.nextInt(1000000) / 100.0).append(',')
+                    .append(1687900000L + random.nextInt(10000000)).append('\n');
+            outputStream.write(line.toString().getBytes(StandardCharsets.UTF_8), 0, line.length());
+        }
+        byte[] bytes = outputStream.toByteArray();
+        byte[] content = new byte[size];
+        System.arraycopy(bytes, 0, content, 0, size);
+        return content;
+    }
+}
@@ -0,0 +1,70 @@
+package com.amazon.s3.v2.benchmark;
+
+import com.amazon.s3.v2.benchmark.support.BenchmarkTemplates;
+import com.amazon.s3.v2.benchmark.support.StubS3HttpClient;
+import com.amazon.s3.v2.template.AmazonS3V2Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description 分片上传的基准测试，覆盖文件切片循环和完整的分片上传流程
+ * <p>
+ * 使用 -prof gc 可以观察切片循环每个分片的内存分配情况
+ * @since 2023/6/22 11:52:30
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultipartUploadBenchmark {
+    private static final int SLICE_SIZE = 5 * 1024 * 1024;
+
+    @Param({"33554432"})
+    public long fileSize;
+
+    private StubS3HttpClient httpClient;
+    private AmazonS3V2Template template;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        httpClient = new StubS3HttpClient();
+        template = BenchmarkTemplates.create(httpClient);
+        file = Files.createTempFile("multipart-benchmark", ".bin").toFile();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(fileSize);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        template.getS3Client().close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public Optional<CompleteMultipartUploadResponse> multipartUpload() {
+        return template.multipartUpload(template.getDefaultBucket(), "benchmark/multipart.bin", file, SLICE_SIZE);
+    }
+}
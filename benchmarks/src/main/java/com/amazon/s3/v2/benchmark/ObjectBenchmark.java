@@ -0,0 +1,88 @@
+package com.amazon.s3.v2.benchmark;
+
+import com.amazon.s3.v2.benchmark.support.BenchmarkTemplates;
+import com.amazon.s3.v2.benchmark.support.StubS3HttpClient;
+import com.amazon.s3.v2.template.AmazonS3V2Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description putObject、getObject的端到端基准测试
+ * <p>
+ * 请求经过完整的SDK流程(序列化、签名、拦截器、响应解析)，HTTP层由进程内的桩替代
+ * @since 2023/6/22 11:35:44
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectBenchmark {
+    private static final String OBJECT_NAME = "benchmark/object.bin";
+
+    @Param({"1024", "1048576"})
+    public int objectSize;
+
+    private StubS3HttpClient httpClient;
+    private AmazonS3V2Template template;
+    private byte[] content;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() {
+        httpClient = new StubS3HttpClient();
+        template = BenchmarkTemplates.create(httpClient);
+        content = new byte[objectSize];
+        ThreadLocalRandom.current().nextBytes(content);
+        buffer = new byte[8192];
+        httpClient.putObject(template.getDefaultBucket(), OBJECT_NAME, content);
+    }
+
+    @TearDown
+    public void tearDown() {
+        template.getS3Client().close();
+    }
+
+    @Benchmark
+    public Optional<PutObjectResponse> putObject() throws IOException {
+        return template.putObject(OBJECT_NAME, "application/octet-stream", new ByteArrayInputStream(content), content.length);
+    }
+
+    @Benchmark
+    public long getObject() throws IOException {
+        Optional<ResponseInputStream<GetObjectResponse>> responseInputStream = template.getObject(template.getDefaultBucket(), OBJECT_NAME);
+        if (!responseInputStream.isPresent()) {
+            throw new IllegalStateException("object not found");
+        }
+        long total = 0;
+        try (InputStream inputStream = responseInputStream.get()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,119 @@
+package com.amazon.s3.v2.benchmark;
+
+import com.amazon.s3.v2.benchmark.server.S3StandInConfig;
+import com.amazon.s3.v2.benchmark.server.S3StandInServer;
+import com.amazon.s3.v2.benchmark.support.BenchmarkTemplates;
+import com.amazon.s3.v2.template.AmazonS3V2Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description 通过真实的HTTP连接访问进程内S3替身服务的端到端基准测试
+ * <p>
+ * 与 {@link ObjectBenchmark} 相比多了连接池、HTTP编解码和可配置的服务端延迟，
+ * 多线程运行时可以观察模板在并发下的吞吐量：-t 16 -p latencyMillis=20
+ * @since 2023/6/22 16:20:45
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class StandInBenchmark {
+    private static final String OBJECT_NAME = "benchmark/object.bin";
+    private static final int SLICE_SIZE = 5 * 1024 * 1024;
+
+    @Param({"0"})
+    public long latencyMillis;
+
+    @Param({"65536"})
+    public int objectSize;
+
+    private S3StandInServer server;
+    private AmazonS3V2Template template;
+    private byte[] content;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = S3StandInServer.start(S3StandInConfig.builder()
+                .latencyMillis(latencyMillis)
+                .build());
+        server.createBucket(BenchmarkTemplates.BUCKET);
+        template = BenchmarkTemplates.create(null, server.getEndpoint());
+
+        content = new byte[objectSize];
+        ThreadLocalRandom.current().nextBytes(content);
+        template.putObject(template.getDefaultBucket(), OBJECT_NAME, "application/octet-stream", RequestBody.fromBytes(content));
+
+        file = Files.createTempFile("stand-in-benchmark", ".bin").toFile();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(2L * SLICE_SIZE + objectSize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        template.getS3Client().close();
+        server.close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public Optional<PutObjectResponse> putObject() {
+        String objectName = "benchmark/put/" + Thread.currentThread().getId();
+        return template.putObject(template.getDefaultBucket(), objectName, "application/octet-stream", RequestBody.fromBytes(content));
+    }
+
+    @Benchmark
+    public long getObject() throws IOException {
+        Optional<ResponseInputStream<GetObjectResponse>> responseInputStream = template.getObject(template.getDefaultBucket(), OBJECT_NAME);
+        if (!responseInputStream.isPresent()) {
+            throw new IllegalStateException("object not found");
+        }
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        try (InputStream inputStream = responseInputStream.get()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Optional<CompleteMultipartUploadResponse> multipartUpload() {
+        String objectName = "benchmark/multipart/" + Thread.currentThread().getId();
+        return template.multipartUpload(template.getDefaultBucket(), objectName, file, SLICE_SIZE);
+    }
+}
@@ -0,0 +1,70 @@
+package com.amazon.s3.v2.benchmark;
+
+import com.amazon.s3.v2.benchmark.support.BenchmarkTemplates;
+import com.amazon.s3.v2.benchmark.support.StubS3HttpClient;
+import com.amazon.s3.v2.naming.DefaultObjectKeyStrategy;
+import com.amazon.s3.v2.template.AmazonS3V2Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description AmazonS3V2Template中桶名称、对象名称处理的基准测试
+ * <p>
+ * handlerBucketName为私有方法，通过getDefaultBucket测量；shardedObjectNamePrefix测量16个分片时的对象名称前缀
+ * @since 2023/6/22 11:20:07
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateNamingBenchmark {
+    private StubS3HttpClient httpClient;
+    private AmazonS3V2Template template;
+    private DefaultObjectKeyStrategy shardedStrategy;
+
+    @Setup
+    public void setup() {
+        httpClient = new StubS3HttpClient();
+        template = BenchmarkTemplates.create(httpClient);
+        shardedStrategy = new DefaultObjectKeyStrategy(16);
+    }
+
+    @TearDown
+    public void tearDown() {
+        template.getS3Client().close();
+    }
+
+    @Benchmark
+    public String handlerBucketName() {
+        return template.getDefaultBucket();
+    }
+
+    @Benchmark
+    public String getUploadObjectNamePrefix() {
+        return template.getUploadObjectNamePrefix();
+    }
+
+    @Benchmark
+    public String shardedObjectNamePrefix() {
+        return shardedStrategy.getUploadObjectNamePrefix("benchmark");
+    }
+
+    @Benchmark
+    public String handlerUploadObjectName() {
+        return template.handlerUploadObjectName("benchmark.txt");
+    }
+}
@@ -0,0 +1,121 @@
+package com.amazon.s3.v2.benchmark.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @author liuyangfang
+ * @description aws-chunked 编码的请求体解码
+ * <p>
+ * 格式为 {十六进制长度}[;chunk-signature=...]\r\n{数据}\r\n ... 0[;chunk-signature=...]\r\n[尾部校验头]\r\n
+ * 签名不做校验，尾部校验头(例如x-amz-checksum-crc32c)在读取完数据后可以通过getTrailers获取
+ * @since 2023/6/22 14:26:03
+ */
+final class AwsChunkedInputStream extends InputStream {
+    private final InputStream inputStream;
+
+    /**
+     * 当前分块剩余未读的字节数
+     */
+    private long remaining;
+
+    private boolean finished;
+
+    private final Map<String, String> trailers = new HashMap<>(4);
+
+    AwsChunkedInputStream(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            return -1;
+        }
+        if (remaining == 0 && !nextChunk()) {
+            return -1;
+        }
+
+        int read = inputStream.read(b, off, (int) Math.min(len, remaining));
+        if (read < 0) {
+            throw new EOFException("unexpected end of aws-chunked stream");
+        }
+        remaining -= read;
+        if (remaining == 0) {
+            // 数据后面的\r\n
+            readLine();
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    /**
+     * 读取下一个分块的头
+     *
+     * @return 是否还有数据
+     */
+    private boolean nextChunk() throws IOException {
+        String header = readLine();
+        if (header == null) {
+            throw new EOFException("unexpected end of aws-chunked stream");
+        }
+        int semicolon = header.indexOf(';');
+        long size = Long.parseLong((semicolon < 0 ? header : header.substring(0, semicolon)).trim(), 16);
+        if (size > 0) {
+            remaining = size;
+            return true;
+        }
+
+        // 最后一个分块，读取尾部校验头直到空行
+        String trailer;
+        while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+            int colon = trailer.indexOf(':');
+            if (colon > 0) {
+                trailers.put(trailer.substring(0, colon).trim().toLowerCase(Locale.ENGLISH), trailer.substring(colon + 1).trim());
+            }
+        }
+        finished = true;
+        return false;
+    }
+
+    /**
+     * @return 尾部校验头，名称为小写，读取完数据之前为空
+     */
+    Map<String, String> getTrailers() {
+        return trailers;
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = inputStream.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
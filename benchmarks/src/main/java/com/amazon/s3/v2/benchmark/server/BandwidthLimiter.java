@@ -0,0 +1,94 @@
+package com.amazon.s3.v2.benchmark.server;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * @author liuyangfang
+ * @description 带宽限制器，所有连接共享同一个带宽上限
+ * <p>
+ * 每次读写之前按字节数预约发送时间，预约的时间点未到时当前线程等待
+ * @since 2023/6/22 14:18:40
+ */
+final class BandwidthLimiter {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongSupplier bytesPerSecond;
+
+    /**
+     * 下一次可以传输数据的时间点
+     */
+    private long nextFreeNanos;
+
+    BandwidthLimiter(LongSupplier bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    void acquire(int bytes) throws InterruptedIOException {
+        long rate = bytesPerSecond.getAsLong();
+        if (rate <= 0 || bytes <= 0) {
+            return;
+        }
+
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextFreeNanos < now) {
+                nextFreeNanos = now;
+            }
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += bytes * NANOS_PER_SECOND / rate;
+        }
+
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("bandwidth limiter interrupted");
+            }
+        }
+    }
+
+    InputStream wrap(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    acquire(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                acquire(read);
+                return read;
+            }
+        };
+    }
+
+    OutputStream wrap(OutputStream outputStream) {
+        return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(int b) throws IOException {
+                acquire(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                acquire(len);
+                out.write(b, off, len);
+            }
+        };
+    }
+}
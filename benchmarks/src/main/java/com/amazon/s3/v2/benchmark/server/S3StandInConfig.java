@@ -0,0 +1,64 @@
+package com.amazon.s3.v2.benchmark.server;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+
+/**
+ * @author liuyangfang
+ * @description S3协议替身服务的配置
+ * <p>
+ * 延迟、带宽、限流比例在服务运行期间修改后立即生效，便于在同一个测试中模拟后端状态的变化
+ * @since 2023/6/22 14:10:25
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3StandInConfig {
+    /**
+     * 监听的地址，使用IP地址时SDK会自动使用路径风格(path style)访问
+     */
+    @Builder.Default
+    private String host = "127.0.0.1";
+
+    /**
+     * 监听的端口，0表示随机端口
+     */
+    private int port;
+
+    /**
+     * 处理请求的线程数
+     */
+    @Builder.Default
+    private int threads = 64;
+
+    /**
+     * 对象数据的存储目录，为null时数据保存在内存中
+     * 目录中的文件在服务关闭时删除
+     */
+    private Path storageDirectory;
+
+    /**
+     * 访问不存在的桶时是否自动创建
+     */
+    private boolean autoCreateBucket;
+
+    /**
+     * 每个请求注入的固定延迟，单位为毫秒
+     */
+    private volatile long latencyMillis;
+
+    /**
+     * 上行和下行共享的带宽上限，单位为字节/秒，小于等于0表示不限制
+     */
+    private volatile long bandwidthBytesPerSecond;
+
+    /**
+     * 返回 503 SlowDown 的请求比例，取值范围 [0, 1]
+     */
+    private volatile double slowDownRate;
+}
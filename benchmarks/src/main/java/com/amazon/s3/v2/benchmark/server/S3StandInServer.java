@@ -0,0 +1,998 @@
+package com.amazon.s3.v2.benchmark.server;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.XmlUtil;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.checksums.Algorithm;
+import software.amazon.awssdk.core.checksums.SdkChecksum;
+import software.amazon.awssdk.utils.BinaryUtils;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author liuyangfang
+ * @description 进程内的S3协议替身服务，基于JDK自带的HttpServer，不依赖网络和外部服务
+ * <p>
+ * 只支持路径风格(path style)的访问：http://127.0.0.1:{port}/{bucket}/{key}
+ * 支持的操作：
+ * ListBuckets、CreateBucket、HeadBucket、DeleteBucket、ListObjects(V1/V2)、DeleteObjects、
+ * PutObject、GetObject(Range、If-Match、If-None-Match)、HeadObject、DeleteObject、CopyObject、
+ * CreateMultipartUpload、UploadPart、UploadPartCopy、ListParts、CompleteMultipartUpload、AbortMultipartUpload
+ * <p>
+ * 请求签名不做校验，预签名url只校验是否过期；aws-chunked 编码的请求体会被解码。
+ * PutObject和UploadPart携带的x-amz-checksum-*(请求头或者aws-chunked尾部)会被校验并保存，分片合并后为组合校验和，
+ * 请求头带有 x-amz-checksum-mode: ENABLED 的完整读取会返回校验和。
+ * 可以通过 {@link S3StandInConfig} 注入延迟、带宽限制和 503 SlowDown 响应。
+ * <p>
+ * 也可以独立启动，供压测使用：
+ * java -cp benchmarks.jar -Ds3.stand-in.latency-millis=20 com.amazon.s3.v2.benchmark.server.S3StandInServer 9000
+ * @since 2023/6/22 15:02:11
+ */
+@Slf4j
+public class S3StandInServer implements Closeable {
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+    private static final String XML_NAMESPACE = " xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"";
+    private static final String META_PREFIX = "x-amz-meta-";
+    private static final String CHECKSUM_PREFIX = "x-amz-checksum-";
+    private static final String[] CHECKSUM_ALGORITHMS = {"crc32c", "crc32", "sha1", "sha256"};
+    private static final String DEFAULT_CONTENT_TYPE = "binary/octet-stream";
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_KEYS = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BACKLOG = 1024;
+
+    private static final DateTimeFormatter AMZ_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+    private static final Pattern PART_PATTERN = Pattern.compile("<Part>(.*?)</Part>", Pattern.DOTALL);
+    private static final Pattern PART_NUMBER_PATTERN = Pattern.compile("<PartNumber>\\s*(\\d+)\\s*</PartNumber>");
+    private static final Pattern ETAG_PATTERN = Pattern.compile("<ETag>(.*?)</ETag>", Pattern.DOTALL);
+    private static final Pattern KEY_PATTERN = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+    private static final Pattern QUIET_PATTERN = Pattern.compile("<Quiet>\\s*true\\s*</Quiet>", Pattern.CASE_INSENSITIVE);
+
+    static {
+        // JDK HttpServer默认不开启TCP_NODELAY，响应头和响应体分开写出时会被Nagle算法和延迟确认拖慢几十毫秒
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final S3StandInConfig config;
+    private final StandInStorage storage;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final ExecutorService executorService;
+    private final HttpServer httpServer;
+
+    public S3StandInServer(S3StandInConfig config) throws IOException {
+        this.config = config;
+        this.storage = new StandInStorage(config.getStorageDirectory());
+        this.bandwidthLimiter = new BandwidthLimiter(config::getBandwidthBytesPerSecond);
+        this.executorService = Executors.newFixedThreadPool(config.getThreads(), ThreadFactoryBuilder.create()
+                .setNamePrefix("s3-stand-in-")
+                .setDaemon(true)
+                .build());
+        this.httpServer = HttpServer.create(new InetSocketAddress(config.getHost(), config.getPort()), BACKLOG);
+        this.httpServer.setExecutor(executorService);
+        this.httpServer.createContext("/", this::handle);
+    }
+
+    /**
+     * 创建并启动替身服务
+     *
+     * @param config 配置
+     * @return 已启动的服务
+     */
+    public static S3StandInServer start(S3StandInConfig config) throws IOException {
+        S3StandInServer server = new S3StandInServer(config);
+        server.start();
+        return server;
+    }
+
+    public void start() {
+        httpServer.start();
+        log.info("s3 stand-in server started at {}", getEndpoint());
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executorService.shutdownNow();
+        storage.close();
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * 服务地址，可以直接作为S3客户端的endpointOverride
+     */
+    public String getEndpoint() {
+        return "http://" + config.getHost() + ":" + getPort();
+    }
+
+    public S3StandInConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 直接创建桶，不经过HTTP请求
+     *
+     * @param bucketName 桶名称
+     */
+    public void createBucket(String bucketName) {
+        storage.createBucket(bucketName);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        S3StandInConfig config = S3StandInConfig.builder()
+                .port(args.length > 0 ? Integer.parseInt(args[0]) : 9000)
+                .autoCreateBucket(true)
+                .latencyMillis(Long.getLong("s3.stand-in.latency-millis", 0L))
+                .bandwidthBytesPerSecond(Long.getLong("s3.stand-in.bandwidth-bytes-per-second", 0L))
+                .slowDownRate(Double.parseDouble(System.getProperty("s3.stand-in.slow-down-rate", "0")))
+                .storageDirectory(StrUtil.isEmpty(System.getProperty("s3.stand-in.storage-directory")) ?
+                        null : Paths.get(System.getProperty("s3.stand-in.storage-directory")))
+                .build();
+        S3StandInServer server = start(config);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        Thread.currentThread().join();
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            exchange.getResponseHeaders().set("x-amz-request-id", Long.toHexString(ThreadLocalRandom.current().nextLong()).toUpperCase(Locale.ENGLISH));
+            exchange.getResponseHeaders().set("Server", "S3StandIn");
+
+            long latencyMillis = config.getLatencyMillis();
+            if (latencyMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            }
+            double slowDownRate = config.getSlowDownRate();
+            if (slowDownRate > 0 && ThreadLocalRandom.current().nextDouble() < slowDownRate) {
+                throw new S3Error(503, "SlowDown", "Please reduce your request rate.");
+            }
+
+            Request request = new Request(exchange);
+            checkPresignedExpiration(request);
+            route(request);
+        } catch (S3Error e) {
+            sendError(exchange, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, new S3Error(503, "ServiceUnavailable", "server is shutting down"));
+        } catch (Exception e) {
+            log.error("s3 stand-in handle {} {} failed, the cause is ", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            sendError(exchange, new S3Error(500, "InternalError", String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(Request request) throws IOException {
+        if (request.bucketName == null) {
+            if (!"GET".equals(request.method)) {
+                throw new S3Error(405, "MethodNotAllowed", "The specified method is not allowed against this resource.");
+            }
+            listBuckets(request);
+            return;
+        }
+
+        if (request.key == null) {
+            routeBucket(request);
+        } else {
+            routeObject(request);
+        }
+    }
+
+    private void routeBucket(Request request) throws IOException {
+        switch (request.method) {
+            case "PUT":
+                drain(request.body());
+                storage.createBucket(request.bucketName);
+                request.exchange.getResponseHeaders().set("Location", "/" + request.bucketName);
+                sendEmpty(request, 200);
+                return;
+            case "HEAD":
+                requireBucket(request);
+                sendEmpty(request, 200);
+                return;
+            case "DELETE":
+                StandInStorage.Bucket bucket = requireBucket(request);
+                if (!bucket.getObjects().isEmpty()) {
+                    throw new S3Error(409, "BucketNotEmpty", "The bucket you tried to delete is not empty");
+                }
+                storage.deleteBucket(request.bucketName);
+                sendEmpty(request, 204);
+                return;
+            case "GET":
+                if (request.query.containsKey("location")) {
+                    requireBucket(request);
+                    sendXml(request, 200, "<LocationConstraint" + XML_NAMESPACE + "/>");
+                    return;
+                }
+                listObjects(request, requireBucket(request));
+                return;
+            case "POST":
+                if (request.query.containsKey("delete")) {
+                    deleteObjects(request, requireBucket(request));
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        throw new S3Error(501, "NotImplemented", "A header you provided implies functionality that is not implemented");
+    }
+
+    private void routeObject(Request request) throws IOException {
+        String uploadId = request.query.get("uploadId");
+        switch (request.method) {
+            case "PUT":
+                if (uploadId != null) {
+                    if (request.header("x-amz-copy-source") != null) {
+                        uploadPartCopy(request, uploadId);
+                    } else {
+                        uploadPart(request, uploadId);
+                    }
+                } else if (request.header("x-amz-copy-source") != null) {
+                    copyObject(request);
+                } else {
+                    putObject(request);
+                }
+                return;
+            case "GET":
+                if (uploadId != null) {
+                    listParts(request, uploadId);
+                } else {
+                    getObject(request, false);
+                }
+                return;
+            case "HEAD":
+                getObject(request, true);
+                return;
+            case "DELETE":
+                if (uploadId != null) {
+                    requireUpload(request, uploadId);
+                    storage.removeUpload(uploadId, true);
+                } else {
+                    storage.deleteObject(requireBucket(request), request.key);
+                }
+                sendEmpty(request, 204);
+                return;
+            case "POST":
+                if (request.query.containsKey("uploads")) {
+                    createMultipartUpload(request);
+                    return;
+                }
+                if (uploadId != null) {
+                    completeMultipartUpload(request, uploadId);
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        throw new S3Error(501, "NotImplemented", "A header you provided implies functionality that is not implemented");
+    }
+
+    private void listBuckets(Request request) throws IOException {
+        StringBuilder xml = new StringBuilder("<ListAllMyBucketsResult").append(XML_NAMESPACE).append(">")
+                .append("<Owner><ID>stand-in</ID><DisplayName>stand-in</DisplayName></Owner><Buckets>");
+        storage.getBuckets().values().stream()
+                .sorted((b1, b2) -> b1.getName().compareTo(b2.getName()))
+                .forEach(bucket -> xml.append("<Bucket>")
+                        .append(element("Name", bucket.getName()))
+                        .append(element("CreationDate", bucket.getCreationDate().toString()))
+                        .append("</Bucket>"));
+        xml.append("</Buckets></ListAllMyBucketsResult>");
+        sendXml(request, 200, xml.toString());
+    }
+
+    private void listObjects(Request request, StandInStorage.Bucket bucket) throws IOException {
+        boolean v2 = "2".equals(request.query.get("list-type"));
+        boolean urlEncoding = "url".equals(request.query.get("encoding-type"));
+        String prefix = StrUtil.nullToEmpty(request.query.get("prefix"));
+        String delimiter = StrUtil.emptyToNull(request.query.get("delimiter"));
+        int maxKeys = Math.min(Integer.parseInt(StrUtil.blankToDefault(request.query.get("max-keys"), String.valueOf(MAX_KEYS))), MAX_KEYS);
+
+        String continuationToken = request.query.get("continuation-token");
+        String marker;
+        if (v2) {
+            marker = continuationToken != null ?
+                    new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8) :
+                    StrUtil.nullToEmpty(request.query.get("start-after"));
+        } else {
+            marker = StrUtil.nullToEmpty(request.query.get("marker"));
+        }
+
+        boolean afterMarker = !marker.isEmpty() && marker.compareTo(prefix) >= 0;
+        NavigableMap<String, StandInObject> candidates = afterMarker ?
+                bucket.getObjects().tailMap(marker, false) : bucket.getObjects().tailMap(prefix, true);
+
+        List<StandInObject> contents = new ArrayList<>();
+        List<String> commonPrefixes = new ArrayList<>();
+        String lastEntry = null;
+        boolean truncated = false;
+        for (StandInObject object : candidates.values()) {
+            String key = object.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+
+            String commonPrefix = null;
+            if (delimiter != null) {
+                int index = key.indexOf(delimiter, prefix.length());
+                if (index >= 0) {
+                    commonPrefix = key.substring(0, index + delimiter.length());
+                }
+            }
+            String entry = commonPrefix != null ? commonPrefix : key;
+            // 跳过上一页已经返回过的公共前缀
+            if ((afterMarker && entry.compareTo(marker) <= 0) || entry.equals(lastEntry)) {
+                continue;
+            }
+            if (contents.size() + commonPrefixes.size() >= maxKeys) {
+                truncated = true;
+                break;
+            }
+
+            if (commonPrefix != null) {
+                commonPrefixes.add(commonPrefix);
+            } else {
+                contents.add(object);
+            }
+            lastEntry = entry;
+        }
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult").append(XML_NAMESPACE).append(">")
+                .append(element("Name", bucket.getName()))
+                .append(element("Prefix", encodeKey(prefix, urlEncoding)));
+        if (delimiter != null) {
+            xml.append(element("Delimiter", encodeKey(delimiter, urlEncoding)));
+        }
+        if (urlEncoding) {
+            xml.append(element("EncodingType", "url"));
+        }
+        xml.append(element("MaxKeys", String.valueOf(maxKeys)))
+                .append(element("IsTruncated", String.valueOf(truncated)));
+        if (v2) {
+            xml.append(element("KeyCount", String.valueOf(contents.size() + commonPrefixes.size())));
+            if (continuationToken != null) {
+                xml.append(element("ContinuationToken", continuationToken));
+            }
+            if (request.query.containsKey("start-after")) {
+                xml.append(element("StartAfter", encodeKey(request.query.get("start-after"), urlEncoding)));
+            }
+            if (truncated) {
+                xml.append(element("NextContinuationToken",
+                        Base64.getUrlEncoder().withoutPadding().encodeToString(lastEntry.getBytes(StandardCharsets.UTF_8))));
+            }
+        } else {
+            xml.append(element("Marker", encodeKey(marker, urlEncoding)));
+            if (truncated) {
+                xml.append(element("NextMarker", encodeKey(lastEntry, urlEncoding)));
+            }
+        }
+
+        for (StandInObject object : contents) {
+            xml.append("<Contents>")
+                    .append(element("Key", encodeKey(object.getKey(), urlEncoding)))
+                    .append(element("LastModified", object.getLastModified().toString()))
+                    .append(element("ETag", quote(object.getEtag())))
+                    .append(element("Size", String.valueOf(object.getSize())))
+                    .append(element("StorageClass", "STANDARD"))
+                    .append("</Contents>");
+        }
+        for (String commonPrefix : commonPrefixes) {
+            xml.append("<CommonPrefixes>").append(element("Prefix", encodeKey(commonPrefix, urlEncoding))).append("</CommonPrefixes>");
+        }
+        xml.append("</ListBucketResult>");
+        sendXml(request, 200, xml.toString());
+    }
+
+    private void deleteObjects(Request request, StandInStorage.Bucket bucket) throws IOException {
+        String body = readString(request.body());
+        boolean quiet = QUIET_PATTERN.matcher(body).find();
+
+        StringBuilder xml = new StringBuilder("<DeleteResult").append(XML_NAMESPACE).append(">");
+        Matcher matcher = KEY_PATTERN.matcher(body);
+        while (matcher.find()) {
+            String key = XmlUtil.unescape(matcher.group(1));
+            storage.deleteObject(bucket, key);
+            if (!quiet) {
+                xml.append("<Deleted>").append(element("Key", key)).append("</Deleted>");
+            }
+        }
+        xml.append("</DeleteResult>");
+        sendXml(request, 200, xml.toString());
+    }
+
+    private void putObject(Request request) throws IOException {
+        StandInStorage.Bucket bucket = requireBucket(request);
+        StandInObject object = storage.write(request.key, request.body(), contentType(request), userMetadata(request));
+        checkContentMd5(request, object);
+        object = checkChecksum(request, object);
+        storage.putObject(bucket, object);
+
+        request.exchange.getResponseHeaders().set("ETag", quote(object.getEtag()));
+        sendEmpty(request, 200);
+    }
+
+    private void getObject(Request request, boolean head) throws IOException {
+        StandInStorage.Bucket bucket = requireBucket(request);
+        StandInObject object = bucket.getObjects().get(request.key);
+        if (object == null) {
+            throw new S3Error(404, "NoSuchKey", "The specified key does not exist.");
+        }
+
+        Headers responseHeaders = request.exchange.getResponseHeaders();
+        responseHeaders.set("ETag", quote(object.getEtag()));
+        responseHeaders.set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(object.getLastModified().atOffset(ZoneOffset.UTC)));
+        responseHeaders.set("Accept-Ranges", "bytes");
+        object.getMetadata().forEach((name, value) -> responseHeaders.set(META_PREFIX + name, value));
+
+        String ifMatch = request.header("If-Match");
+        if (ifMatch != null && !unquote(ifMatch).equals(object.getEtag()) && !"*".equals(ifMatch)) {
+            throw new S3Error(412, "PreconditionFailed", "At least one of the pre-conditions you specified did not hold");
+        }
+        String ifNoneMatch = request.header("If-None-Match");
+        if (ifNoneMatch != null && (unquote(ifNoneMatch).equals(object.getEtag()) || "*".equals(ifNoneMatch))) {
+            sendHeadersOnly(request.exchange, 304);
+            return;
+        }
+
+        responseHeaders.set("Content-Type", StrUtil.blankToDefault(object.getContentType(), DEFAULT_CONTENT_TYPE));
+        long[] range = parseRange(request.header("Range"), object.getSize());
+        int status = 200;
+        long offset = 0;
+        long length = object.getSize();
+        if (range != null) {
+            status = 206;
+            offset = range[0];
+            length = range[1] - range[0] + 1;
+            responseHeaders.set("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + object.getSize());
+        } else if (object.getChecksum() != null && "ENABLED".equalsIgnoreCase(request.header("x-amz-checksum-mode"))) {
+            responseHeaders.set(CHECKSUM_PREFIX + object.getChecksumAlgorithm(), object.getChecksum());
+        }
+
+        if (head) {
+            responseHeaders.set("Content-Length", String.valueOf(length));
+            sendHeadersOnly(request.exchange, status);
+            return;
+        }
+
+        try (InputStream inputStream = object.open(offset, length)) {
+            sendStream(request, status, inputStream, length);
+        }
+    }
+
+    private void copyObject(Request request) throws IOException {
+        StandInStorage.Bucket bucket = requireBucket(request);
+        StandInObject source = requireCopySource(request);
+
+        StandInObject target;
+        if ("REPLACE".equalsIgnoreCase(request.header("x-amz-metadata-directive"))) {
+            target = storage.copy(source, request.key, contentType(request), userMetadata(request));
+        } else {
+            target = storage.copy(source, request.key, source.getContentType(), source.getMetadata());
+        }
+        storage.putObject(bucket, target);
+
+        sendXml(request, 200, "<CopyObjectResult" + XML_NAMESPACE + ">"
+                + element("LastModified", target.getLastModified().toString())
+                + element("ETag", quote(target.getEtag()))
+                + "</CopyObjectResult>");
+    }
+
+    private void createMultipartUpload(Request request) throws IOException {
+        requireBucket(request);
+        StandInStorage.MultipartUpload upload = storage.createUpload(request.bucketName, request.key, contentType(request), userMetadata(request));
+        sendXml(request, 200, "<InitiateMultipartUploadResult" + XML_NAMESPACE + ">"
+                + element("Bucket", request.bucketName)
+                + element("Key", request.key)
+                + element("UploadId", upload.getUploadId())
+                + "</InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(Request request, String uploadId) throws IOException {
+        StandInStorage.MultipartUpload upload = requireUpload(request, uploadId);
+        int partNumber = partNumber(request);
+        StandInObject part = storage.write(String.valueOf(partNumber), request.body(), null, null);
+        checkContentMd5(request, part);
+        part = checkChecksum(request, part);
+        storage.putPart(upload, partNumber, part);
+
+        request.exchange.getResponseHeaders().set("ETag", quote(part.getEtag()));
+        sendEmpty(request, 200);
+    }
+
+    private void uploadPartCopy(Request request, String uploadId) throws IOException {
+        StandInStorage.MultipartUpload upload = requireUpload(request, uploadId);
+        int partNumber = partNumber(request);
+        StandInObject source = requireCopySource(request);
+
+        long offset = 0;
+        long length = source.getSize();
+        String copySourceRange = request.header("x-amz-copy-source-range");
+        if (copySourceRange != null) {
+            long[] range = parseRange(copySourceRange, source.getSize());
+            if (range == null) {
+                throw new S3Error(400, "InvalidArgument", "The x-amz-copy-source-range value must be of the form bytes=first-last");
+            }
+            offset = range[0];
+            length = range[1] - range[0] + 1;
+        }
+
+        StandInObject part;
+        try (InputStream inputStream = source.open(offset, length)) {
+            part = storage.write(String.valueOf(partNumber), inputStream, null, null);
+        }
+        storage.putPart(upload, partNumber, part);
+
+        sendXml(request, 200, "<CopyPartResult" + XML_NAMESPACE + ">"
+                + element("LastModified", part.getLastModified().toString())
+                + element("ETag", quote(part.getEtag()))
+                + "</CopyPartResult>");
+    }
+
+    private void listParts(Request request, String uploadId) throws IOException {
+        StandInStorage.MultipartUpload upload = requireUpload(request, uploadId);
+        StringBuilder xml = new StringBuilder("<ListPartsResult").append(XML_NAMESPACE).append(">")
+                .append(element("Bucket", upload.getBucketName()))
+                .append(element("Key", upload.getKey()))
+                .append(element("UploadId", upload.getUploadId()))
+                .append(element("MaxParts", String.valueOf(MAX_KEYS)))
+                .append(element("IsTruncated", "false"));
+        upload.getParts().forEach((partNumber, part) -> xml.append("<Part>")
+                .append(element("PartNumber", String.valueOf(partNumber)))
+                .append(element("LastModified", part.getLastModified().toString()))
+                .append(element("ETag", quote(part.getEtag())))
+                .append(element("Size", String.valueOf(part.getSize())))
+                .append("</Part>"));
+        xml.append("</ListPartsResult>");
+        sendXml(request, 200, xml.toString());
+    }
+
+    private void completeMultipartUpload(Request request, String uploadId) throws IOException {
+        StandInStorage.Bucket bucket = requireBucket(request);
+        StandInStorage.MultipartUpload upload = requireUpload(request, uploadId);
+
+        String body = readString(request.body());
+        List<StandInObject> parts = new ArrayList<>();
+        int previousPartNumber = 0;
+        Matcher partMatcher = PART_PATTERN.matcher(body);
+        while (partMatcher.find()) {
+            String partXml = partMatcher.group(1);
+            Matcher partNumberMatcher = PART_NUMBER_PATTERN.matcher(partXml);
+            Matcher etagMatcher = ETAG_PATTERN.matcher(partXml);
+            if (!partNumberMatcher.find() || !etagMatcher.find()) {
+                throw new S3Error(400, "MalformedXML", "The XML you provided was not well-formed");
+            }
+            int partNumber = Integer.parseInt(partNumberMatcher.group(1));
+            if (partNumber <= previousPartNumber) {
+                throw new S3Error(400, "InvalidPartOrder", "The list of parts was not in ascending order.");
+            }
+            previousPartNumber = partNumber;
+
+            StandInObject part = upload.getParts().get(partNumber);
+            if (part == null || !unquote(XmlUtil.unescape(etagMatcher.group(1)).trim()).equals(part.getEtag())) {
+                throw new S3Error(400, "InvalidPart", "One or more of the specified parts could not be found.");
+            }
+            parts.add(part);
+        }
+        if (parts.isEmpty()) {
+            throw new S3Error(400, "MalformedXML", "The XML you provided was not well-formed");
+        }
+        for (int i = 0; i < parts.size() - 1; i++) {
+            if (parts.get(i).getSize() < MIN_PART_SIZE) {
+                throw new S3Error(400, "EntityTooSmall", "Your proposed upload is smaller than the minimum allowed object size.");
+            }
+        }
+
+        StandInObject object = storage.merge(request.key, parts, upload.getContentType(), upload.getMetadata());
+        object = compositeChecksum(object, parts);
+        storage.putObject(bucket, object);
+        storage.removeUpload(uploadId, true);
+
+        sendXml(request, 200, "<CompleteMultipartUploadResult" + XML_NAMESPACE + ">"
+                + element("Location", getEndpoint() + "/" + request.bucketName + "/" + SdkHttpUtils.urlEncodeIgnoreSlashes(request.key))
+                + element("Bucket", request.bucketName)
+                + element("Key", request.key)
+                + element("ETag", quote(object.getEtag()))
+                + "</CompleteMultipartUploadResult>");
+    }
+
+    private StandInStorage.Bucket requireBucket(Request request) {
+        StandInStorage.Bucket bucket = storage.getBucket(request.bucketName);
+        if (bucket == null && config.isAutoCreateBucket()) {
+            storage.createBucket(request.bucketName);
+            bucket = storage.getBucket(request.bucketName);
+        }
+        if (bucket == null) {
+            throw new S3Error(404, "NoSuchBucket", "The specified bucket does not exist");
+        }
+        return bucket;
+    }
+
+    private StandInStorage.MultipartUpload requireUpload(Request request, String uploadId) {
+        StandInStorage.MultipartUpload upload = storage.getUpload(uploadId);
+        if (upload == null || !upload.getBucketName().equals(request.bucketName) || !upload.getKey().equals(request.key)) {
+            throw noSuchUpload();
+        }
+        return upload;
+    }
+
+    private StandInObject requireCopySource(Request request) {
+        String copySource = decode(request.header("x-amz-copy-source"));
+        int versionIndex = copySource.indexOf("?versionId=");
+        if (versionIndex >= 0) {
+            copySource = copySource.substring(0, versionIndex);
+        }
+        if (copySource.startsWith("/")) {
+            copySource = copySource.substring(1);
+        }
+        int slash = copySource.indexOf('/');
+        if (slash <= 0 || slash == copySource.length() - 1) {
+            throw new S3Error(400, "InvalidArgument", "Copy Source must mention the source bucket and key: sourcebucket/sourcekey");
+        }
+
+        StandInStorage.Bucket sourceBucket = storage.getBucket(copySource.substring(0, slash));
+        if (sourceBucket == null) {
+            throw new S3Error(404, "NoSuchBucket", "The specified bucket does not exist");
+        }
+        StandInObject source = sourceBucket.getObjects().get(copySource.substring(slash + 1));
+        if (source == null) {
+            throw new S3Error(404, "NoSuchKey", "The specified key does not exist.");
+        }
+        return source;
+    }
+
+    private static S3Error noSuchUpload() {
+        return new S3Error(404, "NoSuchUpload", "The specified upload does not exist.");
+    }
+
+    private static int partNumber(Request request) {
+        try {
+            int partNumber = Integer.parseInt(request.query.get("partNumber"));
+            if (partNumber >= 1 && partNumber <= 10000) {
+                return partNumber;
+            }
+        } catch (NumberFormatException ignored) {
+            // 统一按参数错误处理
+        }
+        throw new S3Error(400, "InvalidArgument", "Part number must be an integer between 1 and 10000, inclusive");
+    }
+
+    /**
+     * 预签名url只校验是否过期，不校验签名
+     */
+    private static void checkPresignedExpiration(Request request) {
+        String amzDate = request.query.get("X-Amz-Date");
+        String expires = request.query.get("X-Amz-Expires");
+        if (amzDate == null || expires == null) {
+            return;
+        }
+        try {
+            Instant signedAt = LocalDateTime.parse(amzDate, AMZ_DATE_FORMATTER).toInstant(ZoneOffset.UTC);
+            if (Instant.now().isAfter(signedAt.plusSeconds(Long.parseLong(expires)))) {
+                throw new S3Error(403, "AccessDenied", "Request has expired");
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new S3Error(400, "AuthorizationQueryParametersError", "X-Amz-Date or X-Amz-Expires is invalid");
+        }
+    }
+
+    private static void checkContentMd5(Request request, StandInObject object) {
+        String contentMd5 = request.header("Content-MD5");
+        if (contentMd5 != null && !contentMd5.equals(BinaryUtils.toBase64(object.getMd5()))) {
+            throw new S3Error(400, "BadDigest", "The Content-MD5 you specified did not match what we received.");
+        }
+    }
+
+    /**
+     * 校验请求携带的x-amz-checksum-*，必须在读取完请求体之后调用
+     *
+     * @return 带有校验和的对象，请求没有携带校验和时返回原对象
+     */
+    private static StandInObject checkChecksum(Request request, StandInObject object) throws IOException {
+        for (String algorithm : CHECKSUM_ALGORITHMS) {
+            String checksum = request.trailerOrHeader(CHECKSUM_PREFIX + algorithm);
+            if (checksum == null) {
+                continue;
+            }
+            SdkChecksum sdkChecksum = SdkChecksum.forAlgorithm(Algorithm.fromValue(algorithm));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream inputStream = object.open(0, object.getSize())) {
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    sdkChecksum.update(buffer, 0, read);
+                }
+            }
+            if (!checksum.equals(BinaryUtils.toBase64(sdkChecksum.getChecksumBytes()))) {
+                throw new S3Error(400, "BadDigest", "The " + algorithm.toUpperCase(Locale.ENGLISH) + " you specified did not match the calculated checksum.");
+            }
+            return object.withChecksum(algorithm, checksum);
+        }
+        return object;
+    }
+
+    /**
+     * 所有分片都带有同一种算法的校验和时，合并后的对象的校验和为 所有分片校验和拼接后的校验和-分片数量
+     */
+    private static StandInObject compositeChecksum(StandInObject object, List<StandInObject> parts) {
+        String algorithm = parts.get(0).getChecksumAlgorithm();
+        if (algorithm == null || parts.stream().anyMatch(part -> !algorithm.equals(part.getChecksumAlgorithm()))) {
+            return object;
+        }
+        SdkChecksum sdkChecksum = SdkChecksum.forAlgorithm(Algorithm.fromValue(algorithm));
+        parts.forEach(part -> sdkChecksum.update(BinaryUtils.fromBase64(part.getChecksum())));
+        return object.withChecksum(algorithm, BinaryUtils.toBase64(sdkChecksum.getChecksumBytes()) + "-" + parts.size());
+    }
+
+    /**
+     * 解析Range请求头
+     *
+     * @return [起始位置, 结束位置]，没有Range头或者Range不合法时(S3会忽略不合法的Range)返回null
+     */
+    private static long[] parseRange(String range, long size) {
+        if (range == null) {
+            return null;
+        }
+        Matcher matcher = RANGE_PATTERN.matcher(range.trim());
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            return null;
+        }
+
+        long start;
+        long end;
+        if (matcher.group(1).isEmpty()) {
+            // bytes=-n 表示最后n个字节
+            long suffixLength = Long.parseLong(matcher.group(2));
+            start = Math.max(0, size - suffixLength);
+            end = size - 1;
+        } else {
+            start = Long.parseLong(matcher.group(1));
+            end = matcher.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(matcher.group(2)), size - 1);
+        }
+        if (start >= size || start > end) {
+            throw new S3Error(416, "InvalidRange", "The requested range is not satisfiable");
+        }
+        return new long[]{start, end};
+    }
+
+    private static String contentType(Request request) {
+        return StrUtil.blankToDefault(request.header("Content-Type"), DEFAULT_CONTENT_TYPE);
+    }
+
+    private static Map<String, String> userMetadata(Request request) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        request.exchange.getRequestHeaders().forEach((name, values) -> {
+            String lowerCaseName = name.toLowerCase(Locale.ENGLISH);
+            if (lowerCaseName.startsWith(META_PREFIX) && !values.isEmpty()) {
+                metadata.put(lowerCaseName.substring(META_PREFIX.length()), values.get(0));
+            }
+        });
+        return metadata;
+    }
+
+    private void sendEmpty(Request request, int status) throws IOException {
+        sendHeadersOnly(request.exchange, status);
+    }
+
+    /**
+     * 发送没有响应体的响应
+     * 必须先读完请求体，否则HttpServer在发送响应头时就认为请求没有处理完，会关闭这个keep-alive连接
+     */
+    private static void sendHeadersOnly(HttpExchange exchange, int status) throws IOException {
+        exchange.getRequestBody().close();
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private void sendXml(Request request, int status, String xml) throws IOException {
+        byte[] body = (XML_HEADER + xml).getBytes(StandardCharsets.UTF_8);
+        request.exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        try (InputStream inputStream = new ByteArrayInputStream(body)) {
+            sendStream(request, status, inputStream, body.length);
+        }
+    }
+
+    private void sendStream(Request request, int status, InputStream inputStream, long length) throws IOException {
+        HttpExchange exchange = request.exchange;
+        if (length == 0) {
+            sendHeadersOnly(exchange, status);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream outputStream = bandwidthLimiter.wrap(exchange.getResponseBody())) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private void sendError(HttpExchange exchange, S3Error error) {
+        try {
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                sendHeadersOnly(exchange, error.status);
+                return;
+            }
+            byte[] body = (XML_HEADER + "<Error>"
+                    + element("Code", error.code)
+                    + element("Message", error.getMessage())
+                    + element("Resource", exchange.getRequestURI().getPath())
+                    + element("RequestId", exchange.getResponseHeaders().getFirst("x-amz-request-id"))
+                    + "</Error>").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/xml");
+            exchange.sendResponseHeaders(error.status, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (IOException e) {
+            log.debug("s3 stand-in send error response failed, the cause is ", e);
+        }
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (inputStream.read(buffer) != -1) {
+            // 丢弃请求体
+        }
+    }
+
+    private static String readString(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String element(String name, String value) {
+        return "<" + name + ">" + XmlUtil.escape(value) + "</" + name + ">";
+    }
+
+    private static String encodeKey(String key, boolean urlEncoding) {
+        return urlEncoding ? SdkHttpUtils.urlEncode(key) : key;
+    }
+
+    private static String quote(String etag) {
+        return "\"" + etag + "\"";
+    }
+
+    private static String unquote(String etag) {
+        String value = etag.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 解析后的请求
+     */
+    private final class Request {
+        private final HttpExchange exchange;
+        private final String method;
+        private final String bucketName;
+        private final String key;
+        private final Map<String, String> query;
+
+        private Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod().toUpperCase(Locale.ENGLISH);
+
+            String path = exchange.getRequestURI().getPath();
+            path = path.startsWith("/") ? path.substring(1) : path;
+            int slash = path.indexOf('/');
+            String bucket = slash < 0 ? path : path.substring(0, slash);
+            String objectKey = slash < 0 ? null : path.substring(slash + 1);
+            this.bucketName = StrUtil.emptyToNull(bucket);
+            this.key = StrUtil.emptyToNull(objectKey);
+
+            this.query = new HashMap<>();
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if (StrUtil.isNotEmpty(rawQuery)) {
+                for (String parameter : rawQuery.split("&")) {
+                    int equals = parameter.indexOf('=');
+                    String name = decode(equals < 0 ? parameter : parameter.substring(0, equals));
+                    String value = equals < 0 ? "" : decode(parameter.substring(equals + 1));
+                    query.putIfAbsent(name, value);
+                }
+            }
+        }
+
+        private AwsChunkedInputStream chunkedBody;
+
+        private String header(String name) {
+            return exchange.getRequestHeaders().getFirst(name);
+        }
+
+        /**
+         * 请求头或者aws-chunked尾部中的值，尾部只有在读取完请求体之后才有
+         */
+        private String trailerOrHeader(String name) {
+            String value = header(name);
+            if (value == null && chunkedBody != null) {
+                value = chunkedBody.getTrailers().get(name);
+            }
+            return value;
+        }
+
+        /**
+         * 请求体，按需解码 aws-chunked 并限制带宽
+         */
+        private InputStream body() {
+            InputStream inputStream = bandwidthLimiter.wrap(exchange.getRequestBody());
+            String contentSha256 = header("x-amz-content-sha256");
+            String contentEncoding = header("Content-Encoding");
+            if ((contentSha256 != null && contentSha256.startsWith("STREAMING-"))
+                    || (contentEncoding != null && contentEncoding.contains("aws-chunked"))) {
+                chunkedBody = new AwsChunkedInputStream(inputStream);
+                return chunkedBody;
+            }
+            return inputStream;
+        }
+    }
+
+    /**
+     * S3协议的错误响应
+     */
+    private static final class S3Error extends RuntimeException {
+        private static final long serialVersionUID = 6032412718730262245L;
+
+        private final int status;
+        private final String code;
+
+        private S3Error(int status, String code, String message) {
+            super(message);
+            this.status = status;
+            this.code = code;
+        }
+    }
+}
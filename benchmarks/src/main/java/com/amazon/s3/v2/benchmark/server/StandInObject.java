@@ -0,0 +1,130 @@
+package com.amazon.s3.v2.benchmark.server;
+
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * @author liuyangfang
+ * @description 替身服务中保存的一个对象(或分片)，创建后不可变
+ * <p>
+ * 数据保存在内存(data)或磁盘文件(file)中，二者只有一个不为null
+ * @since 2023/6/22 14:35:17
+ */
+@Getter
+final class StandInObject {
+    private final String key;
+    private final long size;
+    private final byte[] md5;
+    private final String etag;
+    /**
+     * 上传时携带的校验和算法(小写，例如crc32c)和base64值，分片合并后的对象为组合校验和，没有时为null
+     */
+    private final String checksumAlgorithm;
+    private final String checksum;
+    private final String contentType;
+    private final Map<String, String> metadata;
+    private final Instant lastModified;
+    private final byte[] data;
+    private final Path file;
+
+    StandInObject(String key, long size, byte[] md5, String etag, String contentType, Map<String, String> metadata, byte[] data, Path file) {
+        this(key, size, md5, etag, null, null, contentType, metadata, data, file);
+    }
+
+    StandInObject(String key, long size, byte[] md5, String etag, String checksumAlgorithm, String checksum,
+                  String contentType, Map<String, String> metadata, byte[] data, Path file) {
+        this.key = key;
+        this.size = size;
+        this.md5 = md5;
+        this.etag = etag;
+        this.checksumAlgorithm = checksumAlgorithm;
+        this.checksum = checksum;
+        this.contentType = contentType;
+        this.metadata = metadata == null ? Collections.emptyMap() : Collections.unmodifiableMap(metadata);
+        this.lastModified = Instant.now();
+        this.data = data;
+        this.file = file;
+    }
+
+    /**
+     * 以新的对象名称、内容类型和元数据创建一个共享数据的副本
+     */
+    StandInObject withAttributes(String key, String contentType, Map<String, String> metadata) {
+        return new StandInObject(key, size, md5, etag, checksumAlgorithm, checksum, contentType, metadata, data, file);
+    }
+
+    /**
+     * 创建一个带有校验和的副本
+     */
+    StandInObject withChecksum(String checksumAlgorithm, String checksum) {
+        return new StandInObject(key, size, md5, etag, checksumAlgorithm, checksum, contentType, metadata, data, file);
+    }
+
+    /**
+     * 读取 [offset, offset + length) 范围的数据
+     *
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 输入流
+     */
+    InputStream open(long offset, long length) throws IOException {
+        if (data != null) {
+            return new ByteArrayInputStream(data, (int) offset, (int) length);
+        }
+        FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+        fileChannel.position(offset);
+        return new BoundedInputStream(Channels.newInputStream(fileChannel), length);
+    }
+
+    /**
+     * 限制读取长度的输入流
+     */
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream inputStream;
+        private long remaining;
+
+        private BoundedInputStream(InputStream inputStream, long remaining) {
+            this.inputStream = inputStream;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = inputStream.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = inputStream.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.amazon.s3.v2.benchmark.server;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.utils.BinaryUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * @author liuyangfang
+ * @description 替身服务的存储，保存桶、对象和未完成的分片上传
+ * <p>
+ * 索引保存在内存中，对象数据根据配置保存在内存或磁盘目录中
+ * @since 2023/6/22 14:44:52
+ */
+@Slf4j
+final class StandInStorage implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 数据存储目录，为null时数据保存在内存中
+     */
+    private final Path directory;
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+
+    StandInStorage(Path directory) throws IOException {
+        this.directory = directory;
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * 创建桶
+     *
+     * @return 桶不存在并创建成功时返回true
+     */
+    boolean createBucket(String bucketName) {
+        return buckets.putIfAbsent(bucketName, new Bucket(bucketName)) == null;
+    }
+
+    Bucket getBucket(String bucketName) {
+        return buckets.get(bucketName);
+    }
+
+    Map<String, Bucket> getBuckets() {
+        return buckets;
+    }
+
+    void deleteBucket(String bucketName) {
+        buckets.remove(bucketName);
+    }
+
+    /**
+     * 保存对象，替换已有的对象
+     */
+    void putObject(Bucket bucket, StandInObject object) {
+        release(bucket.getObjects().put(object.getKey(), object));
+    }
+
+    void deleteObject(Bucket bucket, String key) {
+        release(bucket.getObjects().remove(key));
+    }
+
+    MultipartUpload createUpload(String bucketName, String key, String contentType, Map<String, String> metadata) {
+        MultipartUpload upload = new MultipartUpload(UUID.randomUUID().toString().replace("-", ""), bucketName, key, contentType, metadata);
+        uploads.put(upload.getUploadId(), upload);
+        return upload;
+    }
+
+    MultipartUpload getUpload(String uploadId) {
+        return uploads.get(uploadId);
+    }
+
+    /**
+     * 移除分片上传，并释放所有分片的数据
+     *
+     * @param releaseParts 是否释放分片的数据
+     */
+    MultipartUpload removeUpload(String uploadId, boolean releaseParts) {
+        MultipartUpload upload = uploads.remove(uploadId);
+        if (upload != null && releaseParts) {
+            upload.getParts().values().forEach(this::release);
+        }
+        return upload;
+    }
+
+    void putPart(MultipartUpload upload, int partNumber, StandInObject part) {
+        release(upload.getParts().put(partNumber, part));
+    }
+
+    /**
+     * 从输入流写入数据并创建对象，同时计算MD5
+     *
+     * @param key         对象名称
+     * @param inputStream 数据
+     * @param contentType 内容类型
+     * @param metadata    用户元数据
+     * @return 对象
+     */
+    StandInObject write(String key, InputStream inputStream, String contentType, Map<String, String> metadata) throws IOException {
+        MessageDigest messageDigest = md5();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+
+        Path file = null;
+        ByteArrayOutputStream memory = null;
+        OutputStream outputStream;
+        if (directory == null) {
+            memory = new ByteArrayOutputStream();
+            outputStream = memory;
+        } else {
+            file = directory.resolve(UUID.randomUUID().toString());
+            outputStream = Files.newOutputStream(file);
+        }
+
+        try (OutputStream out = outputStream) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                size += read;
+            }
+        } catch (IOException e) {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+
+        byte[] md5 = messageDigest.digest();
+        return new StandInObject(key, size, md5, BinaryUtils.toHex(md5), contentType, metadata,
+                memory == null ? null : memory.toByteArray(), file);
+    }
+
+    /**
+     * 合并分片为一个对象，ETag的格式与S3一致：所有分片MD5拼接后再取MD5，加上 -分片数量
+     */
+    StandInObject merge(String key, List<StandInObject> parts, String contentType, Map<String, String> metadata) throws IOException {
+        MessageDigest etagDigest = md5();
+        StandInObject merged;
+        try (InputStream inputStream = new PartsInputStream(parts)) {
+            merged = write(key, inputStream, contentType, metadata);
+        }
+        parts.forEach(part -> etagDigest.update(part.getMd5()));
+        return new StandInObject(key, merged.getSize(), merged.getMd5(), BinaryUtils.toHex(etagDigest.digest()) + "-" + parts.size(),
+                contentType, metadata, merged.getData(), merged.getFile());
+    }
+
+    /**
+     * 复制对象，内存中的数据直接共享，磁盘上的数据复制一份新文件
+     */
+    StandInObject copy(StandInObject source, String key, String contentType, Map<String, String> metadata) throws IOException {
+        if (source.getFile() == null) {
+            return source.withAttributes(key, contentType, metadata);
+        }
+        Path file = directory.resolve(UUID.randomUUID().toString());
+        Files.copy(source.getFile(), file);
+        return new StandInObject(key, source.getSize(), source.getMd5(), source.getEtag(), source.getChecksumAlgorithm(), source.getChecksum(),
+                contentType, metadata, null, file);
+    }
+
+    /**
+     * 释放对象占用的磁盘文件
+     */
+    void release(StandInObject object) {
+        if (object == null || object.getFile() == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(object.getFile());
+        } catch (IOException e) {
+            log.warn("delete stand-in file {} failed, the cause is ", object.getFile(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        buckets.values().forEach(bucket -> bucket.getObjects().values().forEach(this::release));
+        uploads.values().forEach(upload -> upload.getParts().values().forEach(this::release));
+        buckets.clear();
+        uploads.clear();
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 桶
+     */
+    @Getter
+    static final class Bucket {
+        private final String name;
+        private final Instant creationDate = Instant.now();
+        private final ConcurrentNavigableMap<String, StandInObject> objects = new ConcurrentSkipListMap<>();
+
+        private Bucket(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 未完成的分片上传
+     */
+    @Getter
+    static final class MultipartUpload {
+        private final String uploadId;
+        private final String bucketName;
+        private final String key;
+        private final String contentType;
+        private final Map<String, String> metadata;
+        private final Instant initiated = Instant.now();
+        private final ConcurrentNavigableMap<Integer, StandInObject> parts = new ConcurrentSkipListMap<>();
+
+        private MultipartUpload(String uploadId, String bucketName, String key, String contentType, Map<String, String> metadata) {
+            this.uploadId = uploadId;
+            this.bucketName = bucketName;
+            this.key = key;
+            this.contentType = contentType;
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * 依次读取多个分片的输入流
+     */
+    private static final class PartsInputStream extends InputStream {
+        private final List<StandInObject> parts;
+        private int index;
+        private InputStream current;
+
+        private PartsInputStream(List<StandInObject> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                if (current == null) {
+                    if (index >= parts.size()) {
+                        return -1;
+                    }
+                    StandInObject part = parts.get(index++);
+                    current = part.open(0, part.getSize());
+                }
+                int read = current.read(b, off, len);
+                if (read >= 0) {
+                    return read;
+                }
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+}
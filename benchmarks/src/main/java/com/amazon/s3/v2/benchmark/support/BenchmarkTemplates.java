@@ -0,0 +1,108 @@
+package com.amazon.s3.v2.benchmark.support;
+
+import com.amazon.s3.v2.config.S3V2Base;
+import com.amazon.s3.v2.factory.AmazonS3V2Factory;
+import com.amazon.s3.v2.template.AmazonS3V2Template;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+
+/**
+ * @author liuyangfang
+ * @description 基准测试用的AmazonS3V2Template构建工具
+ * <p>
+ * 只创建同步客户端，异步客户端和TransferManager为null，基准测试只覆盖同步的热点路径
+ * @since 2023/6/22 10:40:18
+ */
+public final class BenchmarkTemplates {
+    /**
+     * 使用https地址时SDK不会对请求体计算SHA256签名(UNSIGNED-PAYLOAD)，和生产环境的请求开销一致
+     */
+    public static final String ENDPOINT = "https://127.0.0.1:9000";
+    public static final String REGION = "us-east-1";
+    public static final String ACCESS_KEY = "benchmark";
+    public static final String SECRET_KEY = "benchmark-secret";
+    public static final String BUCKET = "benchmark-bucket";
+
+    private BenchmarkTemplates() {
+    }
+
+    /**
+     * 创建默认配置的S3V2Base
+     *
+     * @param endPoint 服务地址
+     * @return S3V2Base
+     */
+    public static S3V2Base s3V2Base(String endPoint) {
+        return S3V2Base.builder()
+                .endPoint(endPoint)
+                .region(REGION)
+                .accessKey(ACCESS_KEY)
+                .secretKey(SECRET_KEY)
+                .bucket(BUCKET)
+                .build();
+    }
+
+    /**
+     * 使用指定的HTTP客户端创建AmazonS3V2Template
+     *
+     * @param httpClient HTTP客户端，为null时使用SDK默认的HTTP客户端
+     * @param endPoint   服务地址
+     * @return AmazonS3V2Template
+     */
+    public static AmazonS3V2Template create(SdkHttpClient httpClient, String endPoint) {
+        return create(httpClient, s3V2Base(endPoint));
+    }
+
+    /**
+     * 使用指定的HTTP客户端和配置创建AmazonS3V2Template，用于测试开启了某些特性的模板
+     *
+     * @param httpClient HTTP客户端，为null时使用SDK默认的HTTP客户端
+     * @param s3V2Base   配置，endPoint作为服务地址
+     * @return AmazonS3V2Template
+     */
+    public static AmazonS3V2Template create(SdkHttpClient httpClient, S3V2Base s3V2Base) {
+        String endPoint = s3V2Base.getEndPoint();
+        StaticCredentialsProvider credentialsProvider = StaticCredentialsProvider.create(AwsBasicCredentials.create(ACCESS_KEY, SECRET_KEY));
+        S3Configuration s3Configuration = S3Configuration.builder()
+                .pathStyleAccessEnabled(true)
+                .chunkedEncodingEnabled(false)
+                .build();
+
+        S3ClientBuilder s3ClientBuilder = S3Client.builder();
+        if (httpClient != null) {
+            s3ClientBuilder.httpClient(httpClient);
+        }
+        S3Client s3Client = s3ClientBuilder
+                .region(Region.of(REGION))
+                .credentialsProvider(credentialsProvider)
+                .endpointOverride(URI.create(endPoint))
+                .serviceConfiguration(s3Configuration)
+                .build();
+        S3Presigner s3Presigner = S3Presigner.builder()
+                .region(Region.of(REGION))
+                .credentialsProvider(credentialsProvider)
+                .endpointOverride(URI.create(endPoint))
+                .serviceConfiguration(s3Configuration)
+                .build();
+
+        return new AmazonS3V2Factory().createAmazonS3V2Template(s3Client, null, null, s3Presigner, s3Client.utilities(), s3V2Base);
+    }
+
+    /**
+     * 创建使用进程内HTTP客户端桩的AmazonS3V2Template
+     *
+     * @param httpClient HTTP客户端桩
+     * @return AmazonS3V2Template
+     */
+    public static AmazonS3V2Template create(StubS3HttpClient httpClient) {
+        return create(httpClient, ENDPOINT);
+    }
+}
@@ -0,0 +1,183 @@
+package com.amazon.s3.v2.benchmark.support;
+
+import cn.hutool.core.util.StrUtil;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.ContentStreamProvider;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.http.SdkHttpRequest;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.utils.BinaryUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author liuyangfang
+ * @description 进程内的S3 HTTP客户端桩，不经过网络，直接返回S3协议格式的响应
+ * <p>
+ * 只实现基准测试用到的操作(路径风格：/{bucket}/{key})：
+ * HEAD 桶/对象、PUT 对象、GET 对象、创建分片上传、上传分片、完成分片上传、取消分片上传。
+ * 对象内容保存在内存中，分片内容不保存(只计算ETag)，避免基准测试本身的内存开销干扰结果。
+ * PUT请求返回内容的MD5作为ETag，因为SDK会校验PutObject和UploadPart响应的ETag。
+ * @since 2023/6/22 10:12:36
+ */
+public class StubS3HttpClient implements SdkHttpClient {
+    private static final byte[] EMPTY = new byte[0];
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    @Override
+    public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+        return new ExecutableHttpRequest() {
+            @Override
+            public HttpExecuteResponse call() {
+                return handle(request.httpRequest(), request.contentStreamProvider().orElse(null));
+            }
+
+            @Override
+            public void abort() {
+                // 同步执行，无需取消
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        objects.clear();
+    }
+
+    /**
+     * 直接放入一个对象，用于准备GET基准测试的数据
+     *
+     * @param bucketName 桶名称
+     * @param objectName 对象名称
+     * @param content    对象内容
+     */
+    public void putObject(String bucketName, String objectName, byte[] content) {
+        objects.put(StrUtil.SLASH + bucketName + StrUtil.SLASH + objectName, content);
+    }
+
+    private HttpExecuteResponse handle(SdkHttpRequest httpRequest, ContentStreamProvider contentStreamProvider) {
+        String path = httpRequest.encodedPath();
+        Map<String, ?> queryParameters = httpRequest.rawQueryParameters();
+        SdkHttpMethod method = httpRequest.method();
+
+        switch (method) {
+            case HEAD:
+                if (path.indexOf('/', 1) < 0) {
+                    // HEAD 桶
+                    return response(200, null, EMPTY);
+                }
+                byte[] headContent = objects.get(path);
+                return headContent == null ? response(404, null, EMPTY) : response(200, null, EMPTY, headContent.length);
+            case GET:
+                byte[] content = objects.get(path);
+                if (content == null) {
+                    return response(404, null, error("NoSuchKey"));
+                }
+                return response(200, md5Hex(content), content);
+            case PUT:
+                // 分片内容只计算MD5，不保存
+                ByteArrayOutputStream outputStream = queryParameters.containsKey("uploadId") ? null : new ByteArrayOutputStream();
+                String etag = drain(contentStreamProvider, outputStream);
+                if (outputStream != null) {
+                    objects.put(path, outputStream.toByteArray());
+                }
+                return response(200, etag, EMPTY);
+            case POST:
+                if (queryParameters.containsKey("uploads")) {
+                    return response(200, null, xml("<InitiateMultipartUploadResult><UploadId>"
+                            + UUID.randomUUID() + "</UploadId></InitiateMultipartUploadResult>"));
+                }
+                drain(contentStreamProvider, null);
+                return response(200, null, xml("<CompleteMultipartUploadResult><Key>" + path
+                        + "</Key><ETag>\"" + md5Hex(path.getBytes(StandardCharsets.UTF_8)) + "-1\"</ETag></CompleteMultipartUploadResult>"));
+            case DELETE:
+                if (!queryParameters.containsKey("uploadId")) {
+                    objects.remove(path);
+                }
+                return response(204, null, EMPTY);
+            default:
+                return response(405, null, error("MethodNotAllowed"));
+        }
+    }
+
+    private static HttpExecuteResponse response(int statusCode, String etag, byte[] body) {
+        return response(statusCode, etag, body, body.length);
+    }
+
+    private static HttpExecuteResponse response(int statusCode, String etag, byte[] body, long contentLength) {
+        SdkHttpResponse.Builder builder = SdkHttpResponse.builder()
+                .statusCode(statusCode)
+                .putHeader("Content-Length", String.valueOf(contentLength));
+        if (etag != null) {
+            builder.putHeader("ETag", "\"" + etag + "\"");
+        }
+        return HttpExecuteResponse.builder()
+                .response(builder.build())
+                .responseBody(AbortableInputStream.create(new ByteArrayInputStream(body)))
+                .build();
+    }
+
+    private static byte[] xml(String body) {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] error(String code) {
+        return xml("<Error><Code>" + code + "</Code><Message>" + code + "</Message></Error>");
+    }
+
+    /**
+     * 读取请求体并计算MD5
+     *
+     * @param contentStreamProvider 请求体
+     * @param outputStream          请求体的保存位置，为null时丢弃
+     * @return 请求体的MD5
+     */
+    private static String drain(ContentStreamProvider contentStreamProvider, OutputStream outputStream) {
+        MessageDigest messageDigest = md5();
+        if (contentStreamProvider == null) {
+            return BinaryUtils.toHex(messageDigest.digest());
+        }
+        try (InputStream inputStream = contentStreamProvider.newStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, read);
+                if (outputStream != null) {
+                    outputStream.write(buffer, 0, read);
+                }
+            }
+            return BinaryUtils.toHex(messageDigest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String md5Hex(byte[] bytes) {
+        return BinaryUtils.toHex(md5().digest(bytes));
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,17 +1,40 @@
 package com.amazon.s3.v2.auto.config;
 
 import com.amazon.s3.v2.config.S3V2Base;
+import com.amazon.s3.v2.core.AmazonS3V2ExecutionInterceptor;
+import com.amazon.s3.v2.core.IAmazonS3V2Template;
+import com.amazon.s3.v2.crypto.DataKeyProvider;
+import com.amazon.s3.v2.endpoint.InternalEndpointExecutionInterceptor;
+import com.amazon.s3.v2.metrics.S3MetricsExecutionInterceptor;
+import com.amazon.s3.v2.metrics.TransferMetrics;
+import com.amazon.s3.v2.metrics.TransferMetricsBinder;
+import com.amazon.s3.v2.naming.ObjectKeyStrategy;
+import com.amazon.s3.v2.resilience.CircuitBreakerExecutionInterceptor;
+import com.amazon.s3.v2.resilience.ConcurrencyLimitExecutionInterceptor;
+import com.amazon.s3.v2.resilience.EndpointSelectionExecutionInterceptor;
 import com.amazon.s3.v2.template.AmazonS3V2Template;
+import com.amazon.s3.v2.template.LocalFileSystemV2Template;
+import com.amazon.s3.v2.template.ReactiveAmazonS3V2Template;
 import com.amazon.s3.v2.factory.AmazonS3V2Factory;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.util.stream.Collectors;
 
 /**
  * @author liuyangfang
@@ -21,20 +44,152 @@ import java.net.URISyntaxException;
 @Slf4j
 @Configuration
 @EnableConfigurationProperties(value = {S3V2Base.class})
+@AutoConfigureAfter(name = {
+        "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration"
+})
 public class AmazonS3ClientV2AutoConfiguration {
 
     @Autowired
     private S3V2Base s3V2Base;
 
+    /**
+     * 异步文件传输的统计信息，单独注册成Bean，避免监控指标的注册依赖模板对象
+     *
+     * @return TransferMetrics
+     */
+    @ConditionalOnMissingBean(TransferMetrics.class)
+    @Bean(name = "s3TransferMetrics")
+    public TransferMetrics s3TransferMetrics() {
+        return new TransferMetrics();
+    }
+
+    /**
+     * 按 endPoint 熔断，排在其他拦截器之前，熔断时不再等待并发许可
+     *
+     * @return CircuitBreakerExecutionInterceptor
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @ConditionalOnProperty(prefix = "amazon.s3.v2.oss.circuit-breaker", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(CircuitBreakerExecutionInterceptor.class)
+    @Bean(name = "s3CircuitBreakerExecutionInterceptor")
+    public CircuitBreakerExecutionInterceptor s3CircuitBreakerExecutionInterceptor() {
+        return new CircuitBreakerExecutionInterceptor(s3V2Base.getCircuitBreaker());
+    }
+
+    /**
+     * 按 endPoint + 桶 自适应限制进行中的请求数量
+     *
+     * @return ConcurrencyLimitExecutionInterceptor
+     */
+    @ConditionalOnProperty(prefix = "amazon.s3.v2.oss.concurrency-limit", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(ConcurrencyLimitExecutionInterceptor.class)
+    @Bean(name = "s3ConcurrencyLimitExecutionInterceptor")
+    public ConcurrencyLimitExecutionInterceptor s3ConcurrencyLimitExecutionInterceptor() {
+        return new ConcurrencyLimitExecutionInterceptor(s3V2Base.getConcurrencyLimit());
+    }
+
+    /**
+     * 在endPoint和multi-endpoint.endpoints之间选择最快的健康 endPoint
+     *
+     * @return EndpointSelectionExecutionInterceptor
+     */
+    @ConditionalOnProperty(prefix = "amazon.s3.v2.oss.multi-endpoint", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(EndpointSelectionExecutionInterceptor.class)
+    @Bean(name = "s3EndpointSelectionExecutionInterceptor")
+    public EndpointSelectionExecutionInterceptor s3EndpointSelectionExecutionInterceptor() {
+        return new EndpointSelectionExecutionInterceptor(s3V2Base.getEndPoint(), s3V2Base.getMultiEndpoint());
+    }
+
+    /**
+     * endPoint是云厂商的外网地址时，内网地址可达则改为访问内网地址
+     *
+     * @return InternalEndpointExecutionInterceptor
+     */
+    @ConditionalOnProperty(prefix = "amazon.s3.v2.oss.internal-endpoint", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(InternalEndpointExecutionInterceptor.class)
+    @Bean(name = "s3InternalEndpointExecutionInterceptor")
+    public InternalEndpointExecutionInterceptor s3InternalEndpointExecutionInterceptor() {
+        return new InternalEndpointExecutionInterceptor(s3V2Base.getEndPoint(), s3V2Base.getInternalEndpoint());
+    }
+
+    /**
+     * 容器中实现了AmazonS3V2ExecutionInterceptor的拦截器会被注册到S3Client和S3AsyncClient上，
+     * 给其他SDK客户端使用的ExecutionInterceptor不会被注册
+     *
+     * @param executionInterceptors 容器中本starter的拦截器
+     * @param transferMetrics       文件传输统计信息
+     * @param dataKeyProvider       容器中的数据密钥提供者，不存在时使用配置的主密钥
+     * @param objectKeyStrategy     容器中的对象名称生成策略，不存在时根据配置创建默认的策略
+     * @return AmazonS3V2Factory
+     */
     @ConditionalOnMissingBean(AmazonS3V2Factory.class)
     @Bean(name = "amazonS3V2Factory")
-    public AmazonS3V2Factory amazonS3V2Factory() {
-        return new AmazonS3V2Factory();
+    public AmazonS3V2Factory amazonS3V2Factory(ObjectProvider<AmazonS3V2ExecutionInterceptor> executionInterceptors,
+                                               TransferMetrics transferMetrics,
+                                               ObjectProvider<DataKeyProvider> dataKeyProvider,
+                                               ObjectProvider<ObjectKeyStrategy> objectKeyStrategy) {
+        return new AmazonS3V2Factory(executionInterceptors.orderedStream().collect(Collectors.toList()))
+                .transferMetrics(transferMetrics)
+                .dataKeyProvider(dataKeyProvider.getIfAvailable())
+                .objectKeyStrategy(objectKeyStrategy.getIfAvailable());
     }
 
+    @ConditionalOnExpression("!'local'.equalsIgnoreCase('${amazon.s3.v2.oss.storage-type:s3}')")
     @ConditionalOnMissingBean(AmazonS3V2Template.class)
     @Bean(name = "amazonS3V2Template")
     public AmazonS3V2Template amazonS3V2Template(AmazonS3V2Factory amazonS3V2Factory) throws MalformedURLException, URISyntaxException, NoSuchFieldException, IllegalAccessException {
         return amazonS3V2Factory.createAmazonS3V2Template(s3V2Base);
     }
+
+    /**
+     * storage-type为local时使用本地目录作为存储，业务代码需要注入IAmazonS3V2Template
+     *
+     * @param amazonS3V2Factory 工厂类
+     * @return LocalFileSystemV2Template
+     */
+    @ConditionalOnProperty(prefix = "amazon.s3.v2.oss", name = "storage-type", havingValue = "local")
+    @ConditionalOnMissingBean(IAmazonS3V2Template.class)
+    @Bean(name = "localFileSystemV2Template")
+    public LocalFileSystemV2Template localFileSystemV2Template(AmazonS3V2Factory amazonS3V2Factory) {
+        return amazonS3V2Factory.createLocalFileSystemV2Template(s3V2Base);
+    }
+
+    /**
+     * 存在Micrometer时注册S3请求和文件传输的监控指标
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "amazon.s3.v2.oss", name = "metrics-enabled", havingValue = "true", matchIfMissing = true)
+    static class S3MetricsConfiguration {
+
+        @ConditionalOnBean(MeterRegistry.class)
+        @ConditionalOnMissingBean(S3MetricsExecutionInterceptor.class)
+        @Bean(name = "s3MetricsExecutionInterceptor")
+        public S3MetricsExecutionInterceptor s3MetricsExecutionInterceptor(MeterRegistry meterRegistry) {
+            return new S3MetricsExecutionInterceptor(meterRegistry);
+        }
+
+        @ConditionalOnBean(MeterRegistry.class)
+        @ConditionalOnMissingBean(TransferMetricsBinder.class)
+        @Bean(name = "s3TransferMetricsBinder")
+        public TransferMetricsBinder s3TransferMetricsBinder(TransferMetrics transferMetrics) {
+            return new TransferMetricsBinder(transferMetrics);
+        }
+    }
+
+    /**
+     * 存在Reactor时提供基于S3AsyncClient的响应式模板
+     */
+    @Configuration
+    @ConditionalOnClass(name = "reactor.core.publisher.Flux")
+    @ConditionalOnExpression("!'local'.equalsIgnoreCase('${amazon.s3.v2.oss.storage-type:s3}')")
+    static class S3ReactiveConfiguration {
+
+        @ConditionalOnMissingBean(ReactiveAmazonS3V2Template.class)
+        @Bean(name = "reactiveAmazonS3V2Template")
+        public ReactiveAmazonS3V2Template reactiveAmazonS3V2Template(AmazonS3V2Template amazonS3V2Template) {
+            return new ReactiveAmazonS3V2Template(amazonS3V2Template);
+        }
+    }
 }
@@ -0,0 +1,61 @@
+package com.amazon.s3.v2.cache;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * @author liuyangfang
+ * @description 缓存的对象内容
+ * <p>
+ * 内容是解密、解压后的明文，ETag是S3上对象的ETag，过期后用它发出 If-None-Match 请求重新验证。
+ * 实例不可变，重新验证通过后用 {@link #renew(long)} 生成新的过期时间。
+ * @since 2023/7/1 16:20:43
+ */
+public final class CachedObject {
+    private final GetObjectResponse response;
+
+    private final byte[] content;
+
+    private final long expireAtMillis;
+
+    public CachedObject(GetObjectResponse response, byte[] content, long ttlMillis) {
+        this.response = response;
+        this.content = content;
+        this.expireAtMillis = System.currentTimeMillis() + ttlMillis;
+    }
+
+    /**
+     * @return 过期时间从现在开始重新计算的缓存，内容共享
+     */
+    public CachedObject renew(long ttlMillis) {
+        return new CachedObject(response, content, ttlMillis);
+    }
+
+    /**
+     * @return 是否需要重新验证
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expireAtMillis;
+    }
+
+    /**
+     * @return 读取缓存内容的响应流，每次调用返回一个新的流
+     */
+    public ResponseInputStream<GetObjectResponse> newResponseInputStream() {
+        return new ResponseInputStream<>(response, AbortableInputStream.create(new ByteArrayInputStream(content)));
+    }
+
+    public String getETag() {
+        return response.eTag();
+    }
+
+    /**
+     * @return 缓存占用的字节数
+     */
+    public int getWeight() {
+        return content.length;
+    }
+}
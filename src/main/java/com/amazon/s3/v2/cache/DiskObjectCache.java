@@ -0,0 +1,287 @@
+package com.amazon.s3.v2.cache;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author liuyangfang
+ * @description 本地磁盘上的对象缓存，同一台机器上的多个JVM共享
+ * <p>
+ * 缓存文件名为 sha256(key)-md5(ETag).data，按sha256的前两位分目录，对象被覆盖后ETag变化，自然读不到旧的文件。
+ * 填充时先写入同目录下的临时文件再原子重命名，其他进程不会读到不完整的文件；同一个key的填充持有 key.lock 文件锁，
+ * 多个JVM同时读取同一个对象时只有一个下载，其余的等待后直接使用。
+ * 命中时更新文件的修改时间，总大小超过maxCacheBytes时按修改时间淘汰最旧的文件，淘汰持有目录下 .evict.lock 文件锁，同一时间只有一个进程执行。
+ * 淘汰不等待读取方，get返回的文件随时可能被其他进程删除，需要读取内容时使用open。
+ * @since 2023/7/2 10:12:46
+ */
+@Slf4j
+public class DiskObjectCache {
+    private static final String DATA_SUFFIX = ".data";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String EVICT_LOCK_NAME = ".evict.lock";
+
+    /**
+     * 超过这个时间的临时文件认为是进程崩溃留下的，淘汰时删除
+     */
+    private static final long STALE_TEMP_FILE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 文件锁由进程持有，同一个JVM内的线程还需要用进程内的锁互斥，按key的哈希分段
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path directory;
+
+    private final long maxCacheBytes;
+
+    private final ReentrantLock[] keyLocks = new ReentrantLock[LOCK_STRIPES];
+
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    public DiskObjectCache(Path directory, long maxCacheBytes) {
+        Assert.notNull(directory, "directory not null");
+        Assert.isTrue(maxCacheBytes > 0, "maxCacheBytes must be positive");
+        this.directory = directory;
+        this.maxCacheBytes = maxCacheBytes;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            keyLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 获取缓存文件，不存在时调用loader写入临时文件后放入缓存
+     *
+     * @param key     缓存的key，桶名称/对象名称
+     * @param version 对象的版本，一般为ETag
+     * @param loader  把对象内容写入指定路径(文件不存在)
+     * @return 缓存文件，调用方只能读取
+     * @throws IOException 读写缓存目录失败或者loader失败
+     */
+    public Path get(String key, String version, Loader loader) throws IOException {
+        String keyHash = DigestUtil.sha256Hex(key);
+        Path keyDirectory = directory.resolve(keyHash.substring(0, 2));
+        Path dataFile = keyDirectory.resolve(keyHash + "-" + DigestUtil.md5Hex(version) + DATA_SUFFIX);
+        if (Files.exists(dataFile)) {
+            touch(dataFile);
+            return dataFile;
+        }
+
+        Files.createDirectories(keyDirectory);
+        ReentrantLock keyLock = keyLocks[(keyHash.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+        keyLock.lock();
+        try (FileChannel lockChannel = FileChannel.open(keyDirectory.resolve(keyHash + LOCK_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            // 等待锁的时候其他进程可能已经填充好了
+            if (Files.exists(dataFile)) {
+                touch(dataFile);
+                return dataFile;
+            }
+            Path tempFile = keyDirectory.resolve(dataFile.getFileName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+            try {
+                loader.load(tempFile);
+                Files.move(tempFile, dataFile, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            deleteOtherVersions(keyDirectory, keyHash, dataFile);
+        } finally {
+            keyLock.unlock();
+        }
+        log.debug("disk cache populated, key {} version {}, file {}", key, version, dataFile);
+
+        evictIfNecessary(dataFile);
+        return dataFile;
+    }
+
+    /**
+     * 获取并打开缓存文件，get返回之后、打开之前文件被其他进程淘汰时重新加载一次；
+     * 打开之后文件再被删除，在POSIX系统上仍然可以读完
+     *
+     * @param key     缓存的key，桶名称/对象名称
+     * @param version 对象的版本，一般为ETag
+     * @param loader  把对象内容写入指定路径(文件不存在)
+     * @return 缓存文件的输入流，由调用方关闭
+     * @throws IOException 读写缓存目录失败或者loader失败
+     */
+    public InputStream open(String key, String version, Loader loader) throws IOException {
+        Path dataFile = get(key, version, loader);
+        try {
+            return Files.newInputStream(dataFile);
+        } catch (NoSuchFileException e) {
+            log.debug("{} was evicted before opening, load it again", dataFile);
+            return Files.newInputStream(get(key, version, loader));
+        }
+    }
+
+    /**
+     * 删除同一个key的旧版本，其他进程正在读取的文件在POSIX系统上仍然可以读完
+     */
+    private void deleteOtherVersions(Path keyDirectory, String keyHash, Path dataFile) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(keyDirectory, keyHash + "-*" + DATA_SUFFIX)) {
+            for (Path path : stream) {
+                if (!path.equals(dataFile)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("delete old versions of {} failed, the cause is ", dataFile, e);
+        }
+    }
+
+    /**
+     * 总大小超过上限时按修改时间从旧到新删除缓存文件，刚填充的文件不删除
+     * 其他线程或进程正在淘汰时直接返回
+     *
+     * @param keep 刚填充的文件
+     */
+    private void evictIfNecessary(Path keep) {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve(EVICT_LOCK_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.tryLock()) {
+            if (lock == null) {
+                return;
+            }
+            List<CacheFile> cacheFiles = new ArrayList<>();
+            long totalBytes = 0;
+            long staleBefore = System.currentTimeMillis() - STALE_TEMP_FILE_MILLIS;
+            for (Path path : listFiles()) {
+                String fileName = path.getFileName().toString();
+                try {
+                    if (fileName.endsWith(TEMP_SUFFIX) && Files.getLastModifiedTime(path).toMillis() < staleBefore) {
+                        Files.deleteIfExists(path);
+                    } else if (fileName.endsWith(DATA_SUFFIX)) {
+                        CacheFile cacheFile = new CacheFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+                        cacheFiles.add(cacheFile);
+                        totalBytes += cacheFile.size;
+                    }
+                } catch (NoSuchFileException e) {
+                    // 其他进程删除了旧版本
+                    log.debug("{} was deleted while evicting", path);
+                }
+            }
+            if (totalBytes <= maxCacheBytes) {
+                return;
+            }
+
+            cacheFiles.sort(Comparator.comparingLong(cacheFile -> cacheFile.lastModifiedMillis));
+            for (CacheFile cacheFile : cacheFiles) {
+                if (totalBytes <= maxCacheBytes) {
+                    break;
+                }
+                if (cacheFile.path.equals(keep)) {
+                    continue;
+                }
+                Files.deleteIfExists(cacheFile.path);
+                totalBytes -= cacheFile.size;
+                log.debug("disk cache evicted {}, {} bytes", cacheFile.path, cacheFile.size);
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            log.warn("evict disk cache {} failed, the cause is ", directory, e);
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * 其他进程可能同时在删除文件，所以逐层列举，不使用Files.walk
+     *
+     * @return 缓存目录下所有分目录中的文件
+     */
+    private List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> keyDirectories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path keyDirectory : keyDirectories) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(keyDirectory, Files::isRegularFile)) {
+                    stream.forEach(files::add);
+                } catch (NoSuchFileException e) {
+                    log.debug("{} was deleted while listing", keyDirectory);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return 缓存文件的总字节数
+     */
+    public long getCachedBytes() throws IOException {
+        long totalBytes = 0;
+        for (Path path : listFiles()) {
+            if (path.getFileName().toString().endsWith(DATA_SUFFIX)) {
+                try {
+                    totalBytes += Files.size(path);
+                } catch (NoSuchFileException e) {
+                    log.debug("{} was deleted while counting", path);
+                }
+            }
+        }
+        return totalBytes;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private static void touch(Path dataFile) {
+        try {
+            Files.setLastModifiedTime(dataFile, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // 被其他进程淘汰或者没有权限时，只影响淘汰顺序
+            log.debug("touch {} failed, {}", dataFile, e.getMessage());
+        }
+    }
+
+    /**
+     * 把对象内容写入缓存的临时文件
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param target 临时文件的路径，调用时文件不存在
+         * @throws IOException 写入失败
+         */
+        void load(Path target) throws IOException;
+    }
+
+    private static class CacheFile {
+        private final Path path;
+
+        private final long size;
+
+        private final long lastModifiedMillis;
+
+        private CacheFile(Path path, long size, long lastModifiedMillis) {
+            this.path = path;
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+        }
+    }
+}
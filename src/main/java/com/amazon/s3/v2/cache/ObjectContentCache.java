@@ -0,0 +1,131 @@
+package com.amazon.s3.v2.cache;
+
+import cn.hutool.core.lang.Assert;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author liuyangfang
+ * @description 按字节数限制容量的对象内容缓存
+ * <p>
+ * 访问顺序的LinkedHashMap实现LRU，缓存内容的总字节数超过maxCacheBytes时淘汰最久没有访问的对象，
+ * 过期的对象不会主动删除，下次读取时重新验证，没有变化时继续使用同一份内容。
+ * key为 桶名称/对象名称。
+ * @since 2023/7/1 16:32:18
+ */
+public class ObjectContentCache {
+    private final long maxCacheBytes;
+
+    private final LinkedHashMap<String, CachedObject> cachedObjectMap = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long cachedBytes;
+
+    private long hitCount;
+
+    private long missCount;
+
+    public ObjectContentCache(long maxCacheBytes) {
+        Assert.isTrue(maxCacheBytes > 0, "maxCacheBytes must be positive");
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    /**
+     * @param key 桶名称/对象名称
+     * @return 缓存的对象，可能已经过期，没有缓存时为null
+     */
+    public synchronized CachedObject get(String key) {
+        CachedObject cachedObject = cachedObjectMap.get(key);
+        if (cachedObject == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return cachedObject;
+    }
+
+    /**
+     * 放入缓存，超过容量时淘汰最久没有访问的对象，单个对象超过容量时不缓存
+     *
+     * @param key          桶名称/对象名称
+     * @param cachedObject 缓存的对象
+     */
+    public synchronized void put(String key, CachedObject cachedObject) {
+        if (cachedObject.getWeight() > maxCacheBytes) {
+            return;
+        }
+        CachedObject previous = cachedObjectMap.put(key, cachedObject);
+        if (previous != null) {
+            cachedBytes -= previous.getWeight();
+        }
+        cachedBytes += cachedObject.getWeight();
+
+        Iterator<Map.Entry<String, CachedObject>> iterator = cachedObjectMap.entrySet().iterator();
+        while (cachedBytes > maxCacheBytes && iterator.hasNext()) {
+            CachedObject eldest = iterator.next().getValue();
+            if (eldest == cachedObject) {
+                continue;
+            }
+            cachedBytes -= eldest.getWeight();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * @param key 桶名称/对象名称
+     */
+    public synchronized void invalidate(String key) {
+        CachedObject previous = cachedObjectMap.remove(key);
+        if (previous != null) {
+            cachedBytes -= previous.getWeight();
+        }
+    }
+
+    /**
+     * @param keyPrefix 键的前缀，例如 桶名称/ 清除整个桶的缓存
+     */
+    public synchronized void invalidatePrefix(String keyPrefix) {
+        Iterator<Map.Entry<String, CachedObject>> iterator = cachedObjectMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CachedObject> entry = iterator.next();
+            if (entry.getKey().startsWith(keyPrefix)) {
+                cachedBytes -= entry.getValue().getWeight();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        cachedObjectMap.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * @return 缓存内容的总字节数
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * @return 缓存的对象数量
+     */
+    public synchronized int size() {
+        return cachedObjectMap.size();
+    }
+
+    /**
+     * @return 缓存中存在(包括过期需要重新验证)的次数
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return 缓存中不存在的次数
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
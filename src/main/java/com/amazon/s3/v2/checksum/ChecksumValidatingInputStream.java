@@ -0,0 +1,117 @@
+package com.amazon.s3.v2.checksum;
+
+import software.amazon.awssdk.utils.BinaryUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author liuyangfang
+ * @description 边读取边计算校验和的输入流，读到末尾时和对象的校验和比较
+ * <p>
+ * 组合校验和按分片大小切分计算每个分片的校验和，最后计算组合校验和；完整校验和把整个对象视为一个分片。
+ * 数据只经过一次，不会缓存任何内容。
+ * @since 2023/7/1 10:48:03
+ */
+class ChecksumValidatingInputStream extends FilterInputStream {
+    private final PartChecksum partChecksum;
+
+    private final String expected;
+
+    private final long partSize;
+
+    private final List<byte[]> partChecksums = new ArrayList<>();
+
+    private long partRemaining;
+
+    private boolean partStarted;
+
+    private boolean validated;
+
+    ChecksumValidatingInputStream(InputStream inputStream, PartChecksum partChecksum, String expected, long partSize) {
+        super(inputStream);
+        this.partChecksum = partChecksum;
+        this.expected = expected;
+        this.partSize = partSize;
+        this.partRemaining = partSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read < 0) {
+            validate();
+            return -1;
+        }
+        int position = off;
+        int remaining = read;
+        while (remaining > 0) {
+            // 完整校验和的partSize为对象长度，对象长度不对时由最后的比较发现
+            int length = partRemaining <= 0 ? remaining : (int) Math.min(remaining, partRemaining);
+            partChecksum.update(b, position, length);
+            partStarted = true;
+            position += length;
+            remaining -= length;
+            partRemaining -= length;
+            if (partRemaining == 0 && PartChecksum.isComposite(expected)) {
+                finishPart();
+            }
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // 跳过的数据同样需要参与计算
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void finishPart() {
+        partChecksums.add(partChecksum.finish());
+        partRemaining = partSize;
+        partStarted = false;
+    }
+
+    private void validate() throws IOException {
+        if (validated) {
+            return;
+        }
+        validated = true;
+        String actual;
+        if (PartChecksum.isComposite(expected)) {
+            if (partStarted) {
+                finishPart();
+            }
+            actual = PartChecksum.composite(partChecksum.getAlgorithm(), partChecksums);
+        } else {
+            actual = BinaryUtils.toBase64(partChecksum.finish());
+        }
+        if (!expected.equals(actual)) {
+            throw new IOException(String.format("%s checksum mismatch, expected %s but was %s", partChecksum.getAlgorithm(), expected, actual));
+        }
+    }
+}
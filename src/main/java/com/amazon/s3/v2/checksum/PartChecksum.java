@@ -0,0 +1,176 @@
+package com.amazon.s3.v2.checksum;
+
+import cn.hutool.core.lang.Assert;
+import software.amazon.awssdk.core.checksums.Algorithm;
+import software.amazon.awssdk.core.checksums.SdkChecksum;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.utils.BinaryUtils;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * @author liuyangfang
+ * @description 分片校验和的计算
+ * <p>
+ * CRC32C优先使用JDK 9+自带的java.util.zip.CRC32C(JIT会编译为CPU的CRC32指令)，Java 8上退回SDK的实现，
+ * 引入aws-crt时SDK同样使用硬件加速，否则为纯Java实现，速度慢一个数量级；CRC32使用JDK的实现，SHA使用MessageDigest。
+ * 分片的校验和彼此独立，可以在填充分片缓冲区的同时计算，不需要再读取一遍数据；
+ * 分片上传的对象的校验和为组合校验和：所有分片校验和拼接后再计算一次校验和，加上 -分片数量。
+ * @since 2023/7/1 10:15:26
+ */
+public final class PartChecksum {
+    private static final MethodHandle JDK_CRC32C_CONSTRUCTOR = findJdkCrc32cConstructor();
+
+    private static final String COMPOSITE_SEPARATOR = "-";
+
+    private final ChecksumAlgorithm algorithm;
+
+    private final Checksum checksum;
+
+    private final MessageDigest messageDigest;
+
+    private PartChecksum(ChecksumAlgorithm algorithm, Checksum checksum, MessageDigest messageDigest) {
+        this.algorithm = algorithm;
+        this.checksum = checksum;
+        this.messageDigest = messageDigest;
+    }
+
+    /**
+     * @param algorithm 校验和算法
+     * @return 新的计算器
+     */
+    public static PartChecksum create(ChecksumAlgorithm algorithm) {
+        Assert.notNull(algorithm, "algorithm not null");
+        switch (algorithm) {
+            case CRC32_C:
+                return new PartChecksum(algorithm, newCrc32c(), null);
+            case CRC32:
+                return new PartChecksum(algorithm, new CRC32(), null);
+            case SHA1:
+                return new PartChecksum(algorithm, null, messageDigest("SHA-1"));
+            case SHA256:
+                return new PartChecksum(algorithm, null, messageDigest("SHA-256"));
+            default:
+                throw new IllegalArgumentException("unsupported checksum algorithm " + algorithm);
+        }
+    }
+
+    /**
+     * @return CRC32C是否使用了JDK的实现(硬件加速)
+     */
+    public static boolean isJdkCrc32cAvailable() {
+        return JDK_CRC32C_CONSTRUCTOR != null;
+    }
+
+    public void update(int b) {
+        if (checksum != null) {
+            checksum.update(b);
+        } else {
+            messageDigest.update((byte) b);
+        }
+    }
+
+    public void update(byte[] b, int off, int len) {
+        if (checksum != null) {
+            checksum.update(b, off, len);
+        } else {
+            messageDigest.update(b, off, len);
+        }
+    }
+
+    /**
+     * 结束计算并重置，之后可以继续计算下一个分片
+     *
+     * @return 校验和，CRC为4字节大端序
+     */
+    public byte[] finish() {
+        if (checksum == null) {
+            return messageDigest.digest();
+        }
+        int value = (int) checksum.getValue();
+        checksum.reset();
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    /**
+     * @return 结束计算并重置，返回base64编码的校验和，即请求头中的格式
+     */
+    public String finishBase64() {
+        return BinaryUtils.toBase64(finish());
+    }
+
+    public ChecksumAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * 计算分片上传对象的组合校验和
+     *
+     * @param algorithm     校验和算法
+     * @param partChecksums 按分片编号排序的分片校验和
+     * @return base64编码的组合校验和-分片数量
+     */
+    public static String composite(ChecksumAlgorithm algorithm, List<byte[]> partChecksums) {
+        PartChecksum partChecksum = create(algorithm);
+        partChecksums.forEach(bytes -> partChecksum.update(bytes, 0, bytes.length));
+        return partChecksum.finishBase64() + COMPOSITE_SEPARATOR + partChecksums.size();
+    }
+
+    /**
+     * 包装一个边读取边校验的输入流，读到末尾时校验失败抛出IOException，没有读到末尾时不校验
+     *
+     * @param inputStream   对象内容
+     * @param algorithm     校验和算法
+     * @param expected      对象的校验和，组合校验和的格式为 base64-分片数量
+     * @param partSize      组合校验和的分片大小(最后一个分片除外)，完整校验和时忽略
+     * @param contentLength 对象长度
+     * @return 校验的输入流
+     */
+    public static InputStream validating(InputStream inputStream, ChecksumAlgorithm algorithm, String expected, long partSize, long contentLength) {
+        Assert.notNull(inputStream, "inputStream not null");
+        Assert.notEmpty(expected, "expected checksum not empty");
+        return new ChecksumValidatingInputStream(inputStream, create(algorithm), expected, isComposite(expected) ? partSize : contentLength);
+    }
+
+    /**
+     * @return 是否是分片上传对象的组合校验和
+     */
+    public static boolean isComposite(String checksum) {
+        return checksum != null && checksum.contains(COMPOSITE_SEPARATOR);
+    }
+
+    private static Checksum newCrc32c() {
+        if (JDK_CRC32C_CONSTRUCTOR != null) {
+            try {
+                return (Checksum) JDK_CRC32C_CONSTRUCTOR.invoke();
+            } catch (Throwable e) {
+                throw new IllegalStateException("create java.util.zip.CRC32C failed", e);
+            }
+        }
+        return SdkChecksum.forAlgorithm(Algorithm.CRC32C);
+    }
+
+    private static MethodHandle findJdkCrc32cConstructor() {
+        try {
+            return MethodHandles.publicLookup().findConstructor(Class.forName("java.util.zip.CRC32C"), MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.amazon.s3.v2.codec;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author liuyangfang
+ * @description 隔离对zstd-jni的引用，只有真正使用zstd时才会加载zstd-jni的类
+ * @since 2023/6/28 9:52:10
+ */
+final class ZstdStreams {
+    private ZstdStreams() {
+    }
+
+    static OutputStream compress(OutputStream outputStream, int level) throws IOException {
+        return new ZstdOutputStream(outputStream, level);
+    }
+
+    static InputStream decompress(InputStream inputStream) throws IOException {
+        return new ZstdInputStream(inputStream);
+    }
+}
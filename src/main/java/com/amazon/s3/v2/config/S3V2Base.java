@@ -2,11 +2,13 @@ package com.amazon.s3.v2.config;
 
 import cn.hutool.core.lang.Assert;
 import com.amazon.s3.v2.constant.BusinessV2Constant;
+import com.amazon.s3.v2.model.enums.StorageTypeEnum;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
 import java.io.Serializable;
 import java.util.Locale;
@@ -24,6 +26,13 @@ import java.util.Locale;
 public class S3V2Base implements Serializable {
     private static final long serialVersionUID = 4391198558388776838L;
 
+    /**
+     * 存储类型，取值为StorageTypeEnum的key，默认为S3通用协议
+     * 为local时使用basePath作为根目录的本地存储，不需要配置endPoint和访问凭证
+     */
+    @Builder.Default
+    private String storageType = StorageTypeEnum.S3.getKey();
+
     /**
      * 存储服务器所在地址
      */
@@ -84,6 +93,126 @@ public class S3V2Base implements Serializable {
      */
     private boolean autoConfigCors;
 
+    /**
+     * 存在Micrometer时是否自动注册S3请求的监控指标
+     */
+    @Builder.Default
+    private boolean metricsEnabled = true;
+
+    /**
+     * getObject对冲请求的配置，默认关闭
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2HedgeConfig hedge = new S3V2HedgeConfig();
+
+    /**
+     * 客户端自适应并发限制的配置，默认关闭
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2ConcurrencyLimitConfig concurrencyLimit = new S3V2ConcurrencyLimitConfig();
+
+    /**
+     * 按 endPoint 熔断的配置，默认关闭
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2CircuitBreakerConfig circuitBreaker = new S3V2CircuitBreakerConfig();
+
+    /**
+     * 多 endPoint 的配置，默认关闭
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2MultiEndpointConfig multiEndpoint = new S3V2MultiEndpointConfig();
+
+    /**
+     * 自动选择云厂商内网 endPoint 的配置，默认关闭
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2InternalEndpointConfig internalEndpoint = new S3V2InternalEndpointConfig();
+
+    /**
+     * 上传时透明压缩的配置，默认关闭
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2CompressionConfig compression = new S3V2CompressionConfig();
+
+    /**
+     * 客户端加密的配置
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2EncryptionConfig encryption = new S3V2EncryptionConfig();
+
+    /**
+     * 按内容去重上传的配置
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2DedupConfig dedup = new S3V2DedupConfig();
+
+    /**
+     * 小文件打包上传的配置
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2PackConfig pack = new S3V2PackConfig();
+
+    /**
+     * 增量目录同步的配置
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2SyncConfig sync = new S3V2SyncConfig();
+
+    /**
+     * 端到端完整性校验的配置
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2ChecksumConfig checksum = new S3V2ChecksumConfig();
+
+    /**
+     * getObject内容缓存的配置
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2ObjectCacheConfig objectCache = new S3V2ObjectCacheConfig();
+
+    /**
+     * downloadFile/asyncDownloadFile磁盘缓存的配置
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2DiskCacheConfig diskCache = new S3V2DiskCacheConfig();
+
+    /**
+     * headObject/objectExists元数据缓存的配置
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2MetadataCacheConfig metadataCache = new S3V2MetadataCacheConfig();
+
+    /**
+     * 上传对象名称生成的配置
+     */
+    @NestedConfigurationProperty
+    @Builder.Default
+    private S3V2ObjectKeyConfig objectKey = new S3V2ObjectKeyConfig();
+
+    /**
+     * 判断是否是本地存储
+     *
+     * @return true: 是本地存储
+     */
+    public boolean isLocalStorage() {
+        return StorageTypeEnum.LOCAL.getKey().equalsIgnoreCase(storageType);
+    }
+
     /**
      * 提供一个方法用来判断是否是腾讯云COS
      *
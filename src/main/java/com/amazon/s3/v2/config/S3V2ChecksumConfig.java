@@ -0,0 +1,40 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 端到端完整性校验的配置
+ * <p>
+ * 开启后上传的每个分片都带有校验和，由S3在接收时校验；getObject读取时边读取边校验，读到末尾时校验失败抛出IOException。
+ * @since 2023/7/1 09:50:12
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2ChecksumConfig implements Serializable {
+    private static final long serialVersionUID = -1790256613582937036L;
+
+    /**
+     * 是否开启完整性校验，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 校验和算法，可选 CRC32C、CRC32、SHA1、SHA256，CRC32C在JDK 9+上有硬件加速，开销最小
+     */
+    @Builder.Default
+    private String algorithm = "CRC32C";
+
+    /**
+     * 是否在getObject时校验，只要开启了完整性校验，即使这里为false上传时也会带有校验和
+     */
+    @Builder.Default
+    private boolean validateOnDownload = true;
+}
@@ -0,0 +1,71 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 按 endPoint 熔断的配置
+ * <p>
+ * 最近slidingWindowSize次请求中失败率或慢请求率超过阈值时熔断，熔断期间请求直接失败，
+ * 等待waitDurationInOpenStateMillis后放行permittedCallsInHalfOpenState个试探请求，全部结束后决定恢复还是继续熔断。
+ * @since 2023/6/25 9:20:14
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2CircuitBreakerConfig implements Serializable {
+    private static final long serialVersionUID = -6204186337417728562L;
+
+    /**
+     * 是否开启熔断，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 失败率阈值，单位为百分比，连接失败、超时和5xx响应视为失败，4xx响应不算失败
+     */
+    @Builder.Default
+    private double failureRateThreshold = 50.0;
+
+    /**
+     * 慢请求率阈值，单位为百分比
+     */
+    @Builder.Default
+    private double slowCallRateThreshold = 100.0;
+
+    /**
+     * 耗时超过该值的请求视为慢请求，单位为毫秒
+     */
+    @Builder.Default
+    private long slowCallDurationThresholdMillis = 10000;
+
+    /**
+     * 统计最近多少次请求
+     */
+    @Builder.Default
+    private int slidingWindowSize = 100;
+
+    /**
+     * 至少统计多少次请求后才计算失败率
+     */
+    @Builder.Default
+    private int minimumNumberOfCalls = 20;
+
+    /**
+     * 熔断后多久进入半开状态，单位为毫秒
+     */
+    @Builder.Default
+    private long waitDurationInOpenStateMillis = 30000;
+
+    /**
+     * 半开状态放行的试探请求数量
+     */
+    @Builder.Default
+    private int permittedCallsInHalfOpenState = 5;
+}
@@ -0,0 +1,52 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author liuyangfang
+ * @description 上传时透明压缩的配置
+ * <p>
+ * 开启后putObject(字符串、输入流)和uploadStream按照对象类型决定是否压缩，压缩算法记录在对象的用户元数据中，
+ * getObject和downloadFile读取到带有压缩算法的对象时自动解压，无论是否开启压缩。
+ * @since 2023/6/28 9:20:47
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2CompressionConfig implements Serializable {
+    private static final long serialVersionUID = -1897361742563581802L;
+
+    /**
+     * 是否开启上传压缩，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 压缩算法，gzip或者zstd，zstd需要引入zstd-jni
+     */
+    @Builder.Default
+    private String codec = "gzip";
+
+    /**
+     * 压缩级别，小于0时使用算法的默认级别(gzip为1，zstd为3)
+     */
+    @Builder.Default
+    private int level = -1;
+
+    /**
+     * 需要压缩的对象类型前缀，为空时压缩所有对象(包括没有指定类型的对象)
+     * 图片、视频、压缩包等已经压缩过的内容再压缩只会浪费CPU
+     */
+    @Builder.Default
+    private List<String> contentTypes = new ArrayList<>(Arrays.asList(
+            "text/", "application/json", "application/xml", "application/javascript", "application/x-ndjson", "application/csv"));
+}
@@ -0,0 +1,70 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 客户端自适应并发限制的配置
+ * <p>
+ * 每个 endPoint + 桶 维护一个并发上限(AIMD)：耗时稳定时加性增长，收到限流响应(503 SlowDown / 429)时乘性减小。
+ * @since 2023/6/24 14:12:51
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2ConcurrencyLimitConfig implements Serializable {
+    private static final long serialVersionUID = 3174580032217930684L;
+
+    /**
+     * 是否开启自适应并发限制，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 初始的并发上限
+     */
+    @Builder.Default
+    private int initialLimit = 20;
+
+    /**
+     * 并发上限的下限
+     */
+    @Builder.Default
+    private int minLimit = 1;
+
+    /**
+     * 并发上限的上限
+     */
+    @Builder.Default
+    private int maxLimit = 500;
+
+    /**
+     * 收到限流响应时并发上限乘以该比例，取值为(0, 1)
+     */
+    @Builder.Default
+    private double backoffRatio = 0.9;
+
+    /**
+     * 请求耗时不超过平均耗时的多少倍时视为稳定，只有稳定时才会增长并发上限
+     */
+    @Builder.Default
+    private double latencyTolerance = 2.0;
+
+    /**
+     * 两次减小并发上限之间的最小间隔，单位为毫秒，避免一批同时返回的限流响应把上限一次压到最低
+     */
+    @Builder.Default
+    private long backoffIntervalMillis = 100;
+
+    /**
+     * S3Client达到并发上限时等待许可的最长时间，单位为毫秒，超时后请求直接失败；S3AsyncClient不受此限制，超过上限的请求异步排队，直到获得许可
+     */
+    @Builder.Default
+    private long acquireTimeoutMillis = 60000;
+}
@@ -0,0 +1,60 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 按内容去重上传(dedupUpload)的配置
+ * <p>
+ * 内容按hashChunkSize分块计算SHA-256，再对所有块的摘要计算一次SHA-256作为内容摘要，
+ * 实际数据只以 blobPrefix + 内容摘要 保存一份，业务对象名称通过服务端拷贝或者引用指向它。
+ * @since 2023/6/29 10:12:36
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2DedupConfig implements Serializable {
+    private static final long serialVersionUID = 2755209358163306473L;
+
+    /**
+     * 服务端拷贝，业务对象是一个完整的对象，任何客户端和url都可以直接读取
+     */
+    public static final String LINK_MODE_COPY = "copy";
+
+    /**
+     * 引用，业务对象是一个只带有元数据的空对象，只有本模板的getObject会跟随引用读取数据
+     */
+    public static final String LINK_MODE_REFERENCE = "reference";
+
+    /**
+     * 保存去重数据的对象名称前缀
+     */
+    @Builder.Default
+    private String blobPrefix = "blobs/";
+
+    /**
+     * 业务对象指向数据的方式，copy或者reference
+     * copy只节省上传带宽，reference同时节省存储空间，但是预签名url和公开访问的url读取到的是空对象
+     */
+    @Builder.Default
+    private String linkMode = LINK_MODE_COPY;
+
+    /**
+     * 计算内容摘要时的分块大小，大文件的各个块并行计算，修改后已有的数据不会再被命中
+     */
+    @Builder.Default
+    private int hashChunkSize = 8 * 1024 * 1024;
+
+    /**
+     * @return 是否使用引用的方式
+     */
+    public boolean isReferenceLink() {
+        return LINK_MODE_REFERENCE.equalsIgnoreCase(linkMode);
+    }
+}
@@ -0,0 +1,41 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description downloadFile/asyncDownloadFile磁盘缓存的配置
+ * <p>
+ * 开启后下载前先通过HeadObject取得对象的ETag，缓存目录中有同一个ETag的文件时直接从本地复制，不再下载；
+ * 同一台机器上使用同一个目录的多个JVM共享缓存。
+ * @since 2023/7/2 09:48:20
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2DiskCacheConfig implements Serializable {
+    private static final long serialVersionUID = -2650914720563311589L;
+
+    /**
+     * 是否开启磁盘缓存，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 缓存目录，默认为临时目录下的 s3-v2-disk-cache
+     */
+    @Builder.Default
+    private String directory = System.getProperty("java.io.tmpdir") + "/s3-v2-disk-cache";
+
+    /**
+     * 缓存文件的总字节数上限，默认10GB，超过后删除最久没有使用的文件
+     */
+    @Builder.Default
+    private long maxCacheBytes = 10L * 1024 * 1024 * 1024;
+}
@@ -0,0 +1,49 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author liuyangfang
+ * @description 客户端信封加密的配置
+ * <p>
+ * 每个对象随机生成一个数据密钥，对象内容按固定大小分块后用AES-GCM加密，数据密钥被主密钥加密后保存在对象的用户元数据中。
+ * 只要配置了主密钥，读取加密对象时就会自动解密，无论是否开启加密，所以轮换主密钥时旧的主密钥需要继续保留。
+ * @since 2023/6/28 16:40:12
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2EncryptionConfig implements Serializable {
+    private static final long serialVersionUID = 6085613474305190853L;
+
+    /**
+     * 是否开启上传加密，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 加密新对象时使用的主密钥编号，必须存在于masterKeys中
+     */
+    @Builder.Default
+    private String keyId = "default";
+
+    /**
+     * 主密钥编号 -> base64编码的AES密钥(16、24或32字节)
+     */
+    @Builder.Default
+    private Map<String, String> masterKeys = new LinkedHashMap<>();
+
+    /**
+     * 明文块大小，每一块单独认证，范围读取时最多多读取两个块，默认64KB
+     */
+    @Builder.Default
+    private int chunkSize = 64 * 1024;
+}
@@ -0,0 +1,83 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description getObject对冲请求(hedged request)的配置
+ * <p>
+ * 首个请求在延迟阈值内没有返回响应头时，再发出一个相同的请求，先返回的请求胜出，另一个请求被取消。
+ * 延迟阈值取最近请求首字节耗时的百分位数，额外的请求数量受预算限制。
+ * @since 2023/6/23 9:41:17
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2HedgeConfig implements Serializable {
+    private static final long serialVersionUID = -5310964201828350617L;
+
+    /**
+     * 是否开启对冲请求，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 延迟阈值取首字节耗时的百分位数，取值为(0, 100)
+     */
+    @Builder.Default
+    private double percentile = 95.0;
+
+    /**
+     * 样本数量不足minSamples时使用的延迟阈值，单位为毫秒
+     */
+    @Builder.Default
+    private long initialDelayMillis = 100;
+
+    /**
+     * 延迟阈值的下限，单位为毫秒，避免在响应很快的时候频繁对冲
+     */
+    @Builder.Default
+    private long minDelayMillis = 5;
+
+    /**
+     * 延迟阈值的上限，单位为毫秒
+     */
+    @Builder.Default
+    private long maxDelayMillis = 2000;
+
+    /**
+     * 计算百分位数所需的最少样本数量
+     */
+    @Builder.Default
+    private int minSamples = 20;
+
+    /**
+     * 计算百分位数时保留的最近样本数量
+     */
+    @Builder.Default
+    private int sampleWindowSize = 1000;
+
+    /**
+     * 额外请求的预算，额外请求数量不超过原始请求数量的比例
+     */
+    @Builder.Default
+    private double budgetRatio = 0.05;
+
+    /**
+     * 预算最多可以累积的额外请求数量，限制突发的对冲请求
+     */
+    @Builder.Default
+    private int budgetBurst = 10;
+
+    /**
+     * 执行请求的工作线程数量上限，线程全部忙碌时请求直接在调用线程中执行，不再对冲
+     */
+    @Builder.Default
+    private int maxThreads = 64;
+}
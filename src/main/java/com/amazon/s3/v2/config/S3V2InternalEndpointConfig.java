@@ -0,0 +1,46 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 自动选择云厂商内网 endPoint 的配置
+ * <p>
+ * endPoint是云厂商的外网地址并且该地域有内网地址时，启动时探测内网地址，可达时请求改为发往内网地址，并定期重新探测。
+ * @since 2023/6/26 9:30:48
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2InternalEndpointConfig implements Serializable {
+    private static final long serialVersionUID = -2957301866415382607L;
+
+    /**
+     * 是否开启内网 endPoint 的自动选择，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 探测时建立TCP连接的超时时间，单位为毫秒
+     */
+    @Builder.Default
+    private int connectTimeoutMillis = 300;
+
+    /**
+     * 每次探测建立连接的次数，取最小的耗时作为RTT
+     */
+    @Builder.Default
+    private int probeCount = 3;
+
+    /**
+     * 重新探测的间隔，单位为毫秒
+     */
+    @Builder.Default
+    private long revalidateMillis = 300000;
+}
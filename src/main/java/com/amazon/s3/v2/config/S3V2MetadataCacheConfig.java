@@ -0,0 +1,47 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description headObject/objectExists元数据缓存的配置
+ * <p>
+ * 存在的对象缓存HeadObject的响应，不存在的对象(404)缓存较短的时间，
+ * 去重上传检查数据对象是否存在时同样使用这个缓存。
+ * @since 2023/7/2 15:20:09
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2MetadataCacheConfig implements Serializable {
+    private static final long serialVersionUID = 6672401783350189257L;
+
+    /**
+     * 是否开启元数据缓存，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 缓存的对象数量上限，存在和不存在的对象分别计算
+     */
+    @Builder.Default
+    private int capacity = 10000;
+
+    /**
+     * 存在的对象的缓存时间，单位为毫秒
+     */
+    @Builder.Default
+    private long ttlMillis = 30000;
+
+    /**
+     * 不存在的对象的缓存时间，单位为毫秒，其他节点上传后最多经过这么久才能读到
+     */
+    @Builder.Default
+    private long negativeTtlMillis = 3000;
+}
@@ -0,0 +1,63 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author liuyangfang
+ * @description 多 endPoint 的配置
+ * <p>
+ * 例如阿里云OSS的外网和内网 endPoint，或者互为副本的多个MinIO集群，每个请求发往当前最快的健康 endPoint。
+ * <p>
+ * endPoint 每次操作只选择一次，SDK内部的重试仍然发往同一个 endPoint，宕机的 endPoint 被摘除之前，
+ * 已经发往它的操作会在耗尽重试后失败，之后的操作才会转移到其他 endPoint。
+ * @since 2023/6/25 15:08:22
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2MultiEndpointConfig implements Serializable {
+    private static final long serialVersionUID = 8830427735117625841L;
+
+    /**
+     * 是否开启多 endPoint，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 候选的 endPoint，格式和endPoint相同，endPoint本身总是候选之一，不需要重复配置
+     */
+    @Builder.Default
+    private List<String> endpoints = new ArrayList<>();
+
+    /**
+     * 连续失败多少次后暂时摘除该 endPoint，按操作计数，一次操作包含SDK内部的全部重试
+     */
+    @Builder.Default
+    private int failureThreshold = 3;
+
+    /**
+     * 摘除的时间，单位为毫秒，到期后重新参与选择
+     */
+    @Builder.Default
+    private long ejectionMillis = 30000;
+
+    /**
+     * 平均耗时的衰减时间，单位为毫秒，越小越快反映最近的耗时变化
+     */
+    @Builder.Default
+    private long decayMillis = 10000;
+
+    /**
+     * 随机选择一个健康 endPoint 的比例，用来刷新较慢 endPoint 的耗时，取值为[0, 1)
+     */
+    @Builder.Default
+    private double explorationRatio = 0.05;
+}
@@ -0,0 +1,47 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description getObject内容缓存的配置
+ * <p>
+ * 开启后不超过maxObjectSize的对象读取一次后缓存在内存中，ttlMillis内直接返回缓存的内容，
+ * 过期后带上ETag发出 If-None-Match 请求，对象没有变化时S3返回304，不需要重新传输内容。
+ * @since 2023/7/1 16:05:37
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2ObjectCacheConfig implements Serializable {
+    private static final long serialVersionUID = 4120557324961793804L;
+
+    /**
+     * 是否开启内容缓存，默认关闭
+     */
+    private boolean enabled;
+
+    /**
+     * 缓存的对象大小上限(S3上的contentLength)，默认1MB，更大的对象不缓存
+     */
+    @Builder.Default
+    private long maxObjectSize = 1024 * 1024;
+
+    /**
+     * 缓存内容的总字节数上限，默认64MB，超过后淘汰最久没有访问的对象
+     */
+    @Builder.Default
+    private long maxCacheBytes = 64L * 1024 * 1024;
+
+    /**
+     * 不重新验证直接使用缓存的时间，单位为毫秒，其他节点修改对象后最多经过这么久才能读到新的内容
+     */
+    @Builder.Default
+    private long ttlMillis = 30000;
+}
@@ -0,0 +1,29 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 上传对象名称生成的配置
+ * <p>
+ * 只对默认的ObjectKeyStrategy生效，容器中有自定义的ObjectKeyStrategy时忽略。
+ * @since 2023/7/2 16:55:40
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2ObjectKeyConfig implements Serializable {
+    private static final long serialVersionUID = 3355817260429751382L;
+
+    /**
+     * 基础路径后的哈希分片数量，最大4096，默认0不分片，保持 {baseDir}/yyyy/MM/dd/{id} 的格式
+     * 例如16时对象名称为 {baseDir}/{0-f}/yyyy/MM/dd/{id}
+     */
+    private int shardCount;
+}
@@ -0,0 +1,48 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 小文件打包上传(packUploadFolder)的配置
+ * <p>
+ * 目录中的文件按名称排序后依次写入打包对象，每个打包对象达到packSize后开始写入下一个，
+ * 读取单个文件时通过范围请求只下载这个文件，打包对象的索引和清单缓存在内存中。
+ * @since 2023/6/29 16:05:51
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2PackConfig implements Serializable {
+    private static final long serialVersionUID = -5181304957740813026L;
+
+    /**
+     * 单个打包对象的目标大小，默认64MB，超过后开始写入下一个打包对象，大文件不会被拆分
+     */
+    @Builder.Default
+    private long packSize = 64L * 1024 * 1024;
+
+    /**
+     * 加载索引时读取打包对象末尾的长度，索引不超过这个长度时一次请求就可以读到尾部和索引
+     */
+    @Builder.Default
+    private int tailReadSize = 64 * 1024;
+
+    /**
+     * 缓存索引的打包对象数量，每个文件大约占用100字节
+     */
+    @Builder.Default
+    private int indexCacheCapacity = 64;
+
+    /**
+     * 清单的缓存时间，单位为毫秒，同一个前缀重新打包上传后最多经过这么久才能读到新的文件
+     */
+    @Builder.Default
+    private long manifestCacheMillis = 60000;
+}
@@ -0,0 +1,36 @@
+package com.amazon.s3.v2.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 增量目录同步(syncUp/syncDown)的配置
+ * <p>
+ * 本地文件的大小、修改时间、MD5和上次同步时的ETag保存在同步目录下的清单文件中，
+ * 大小和修改时间都没有变化的文件不再重新计算MD5，ETag没有变化的对象不再传输。
+ * @since 2023/6/30 10:12:37
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class S3V2SyncConfig implements Serializable {
+    private static final long serialVersionUID = 2071653918835014742L;
+
+    /**
+     * 同时计算摘要和传输的文件数量
+     */
+    @Builder.Default
+    private int concurrency = 8;
+
+    /**
+     * 清单文件的名称，保存在同步的本地目录下，本身不参与同步
+     */
+    @Builder.Default
+    private String manifestFileName = ".s3sync-manifest.json";
+}
@@ -24,6 +24,76 @@ public class BusinessV2Constant {
      */
     public static final int SINGLETON_LIST_SIZE = 1;
 
+    /**
+     * 私有空间下载签名默认的有效期, 单位为秒
+     */
+    public static final int DEFAULT_TOKEN_TIME = 1800;
+
+    /**
+     * 私有空间签名url缓存的最大数量
+     */
+    public static final int DEFAULT_ACCESS_URL_CACHE_CAPACITY = 10000;
+
     public static final String HTTP_PREFIX = "http://";
     public static final String HTTPS_PREFIX = "https://";
+
+    /**
+     * 未知类型的二进制数据
+     */
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    /**
+     * 纯文本，上传字符串时使用
+     */
+    public static final String TEXT_PLAIN = "text/plain";
+
+    /**
+     * json，打包上传的清单使用
+     */
+    public static final String APPLICATION_JSON = "application/json";
+
+    /**
+     * 记录压缩算法的用户元数据名称，即 x-amz-meta-s3v2-compression-codec，带前缀避免和业务的元数据(例如视频的codec)冲突
+     */
+    public static final String CODEC_METADATA_KEY = "s3v2-compression-codec";
+
+    /**
+     * 范围读取的Range请求头，包含结束位置
+     */
+    public static final String RANGE_FORMAT = "bytes=%d-%d";
+
+    /**
+     * 范围读取响应的Content-Range
+     */
+    public static final String CONTENT_RANGE_FORMAT = "bytes %d-%d/%d";
+
+    /**
+     * 客户端加密时记录被主密钥加密过的数据密钥的用户元数据名称
+     */
+    public static final String ENCRYPTION_KEY_METADATA_KEY = "cse-key";
+
+    /**
+     * 客户端加密时记录主密钥编号的用户元数据名称
+     */
+    public static final String ENCRYPTION_KEY_ID_METADATA_KEY = "cse-key-id";
+
+    /**
+     * 客户端加密时记录对象IV前缀的用户元数据名称
+     */
+    public static final String ENCRYPTION_IV_METADATA_KEY = "cse-iv";
+
+    /**
+     * 客户端加密时记录明文块大小的用户元数据名称
+     */
+    public static final String ENCRYPTION_CHUNK_SIZE_METADATA_KEY = "cse-chunk-size";
+
+    /**
+     * 去重上传时业务对象引用的数据对象名称的用户元数据名称
+     */
+    public static final String DEDUP_BLOB_METADATA_KEY = "dedup-blob";
+
+    /**
+     * 带有组合校验和的对象记录分片大小的用户元数据名称，读取时按这个大小切分计算每个分片的校验和
+     */
+    public static final String CHECKSUM_PART_SIZE_METADATA_KEY = "checksum-part-size";
 }
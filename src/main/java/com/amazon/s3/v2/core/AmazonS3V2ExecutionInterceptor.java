@@ -0,0 +1,14 @@
+package com.amazon.s3.v2.core;
+
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * @author liuyangfang
+ * @description 注册到本starter创建的S3Client和S3AsyncClient上的拦截器
+ * <p>
+ * 自动配置只收集实现了此接口的Bean，容器中给DynamoDB、SQS等其他SDK客户端使用的ExecutionInterceptor不会被注册进来。
+ * 需要给S3客户端添加自定义拦截器时实现此接口，或者通过AmazonS3V2Factory.addExecutionInterceptor添加。
+ * @since 2023/7/3 10:12:36
+ */
+public interface AmazonS3V2ExecutionInterceptor extends ExecutionInterceptor {
+}
@@ -10,6 +10,7 @@ import software.amazon.awssdk.services.s3.model.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -305,6 +306,18 @@ public interface IAmazonS3V2Object extends IAmazonS3V2AsyncObject, IAmazonS3V2Up
     Optional<ResponseInputStream<GetObjectResponse>> getObject(String bucketName, String objectName) throws IOException;
 
 
+    /**
+     * 读取对象的一段内容，客户端加密过的对象只下载覆盖这一段的密文块，可以用来并行地分段下载
+     *
+     * @param bucketName 对象所在的桶
+     * @param objectName 对象在桶中的名称
+     * @param offset     起始位置
+     * @param length     读取的长度，超出对象末尾的部分被忽略
+     * @throws IOException IOException
+     */
+    Optional<ResponseInputStream<GetObjectResponse>> getObject(String bucketName, String objectName, long offset, long length) throws IOException;
+
+
     /**
      * 获取对象的标准url
      *
@@ -314,4 +327,45 @@ public interface IAmazonS3V2Object extends IAmazonS3V2AsyncObject, IAmazonS3V2Up
      */
     Optional<URL> getObjectUrl(String bucketName, String objectName);
 
+
+    /**
+     * 获取对象的元数据
+     *
+     * @param bucketName 桶名称
+     * @param objectName 对象名称
+     * @return 对象的元数据，对象不存在或者请求失败时为空
+     */
+    Optional<HeadObjectResponse> headObject(String bucketName, String objectName);
+
+
+    /**
+     * 判断对象是否存在
+     *
+     * @param bucketName 桶名称
+     * @param objectName 对象名称
+     * @return 对象是否存在
+     * @throws S3Exception 除404以外的请求失败
+     */
+    boolean objectExists(String bucketName, String objectName) throws S3Exception;
+
+
+    /**
+     * 批量获取对象的元数据
+     *
+     * @param bucketName  桶名称
+     * @param objectNames 对象名称
+     * @return 对象名称 -> 元数据，只包含存在的对象，任意一个请求失败(404除外)时为空
+     */
+    Optional<Map<String, HeadObjectResponse>> headObjects(String bucketName, Collection<String> objectNames);
+
+
+    /**
+     * 批量判断对象是否存在
+     *
+     * @param bucketName  桶名称
+     * @param objectNames 对象名称
+     * @return 对象名称 -> 是否存在，任意一个请求失败(404除外)时为空
+     */
+    Optional<Map<String, Boolean>> objectsExist(String bucketName, Collection<String> objectNames);
+
 }
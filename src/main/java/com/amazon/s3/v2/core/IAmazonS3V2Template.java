@@ -1,6 +1,8 @@
 package com.amazon.s3.v2.core;
 
 import com.amazon.s3.v2.config.S3V2Base;
+import com.amazon.s3.v2.metrics.TransferMetrics;
+import com.amazon.s3.v2.model.PresignedPostPolicy;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Utilities;
@@ -10,8 +12,11 @@ import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequ
 import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
+import java.net.URL;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -64,6 +69,13 @@ public interface IAmazonS3V2Template extends IAmazonS3V2Bucket, IAmazonS3V2Objec
      */
     S3V2Base getS3V2Base();
 
+    /**
+     * 获取异步文件传输的统计信息，可以通过 TransferMetrics#snapshot() 查询
+     *
+     * @return TransferMetrics
+     */
+    TransferMetrics getTransferMetrics();
+
     /**
      * 处理上传的对象名称
      * 对象上传的路径
@@ -131,6 +143,59 @@ public interface IAmazonS3V2Template extends IAmazonS3V2Bucket, IAmazonS3V2Objec
                                                         Duration signatureTime);
 
 
+    /**
+     * 批量获取预签名的对象的url
+     * 签名key只派生一次，适用于列表接口一次返回大量下载链接的场景
+     *
+     * @param bucketName    桶的名称
+     * @param objectNames   对象名称集合
+     * @param signatureTime 签名url过期时间
+     * @return 对象名称 -> 预签名的对象的url
+     */
+    Map<String, URL> getPresignedUrls(String bucketName,
+                                      Collection<String> objectNames,
+                                      Duration signatureTime);
+
+
+    /**
+     * 批量获取预签名的对象的url
+     * 签名key只派生一次，适用于列表接口一次返回大量下载链接的场景
+     *
+     * @param bucketName    桶的名称
+     * @param objectNames   对象名称集合
+     * @param signatureTime 签名url过期时间
+     * @param parallel      是否并行签名，对象数量很多时可以开启
+     * @return 对象名称 -> 预签名的对象的url
+     */
+    Map<String, URL> getPresignedUrls(String bucketName,
+                                      Collection<String> objectNames,
+                                      Duration signatureTime,
+                                      boolean parallel);
+
+
+    /**
+     * 获取对象的访问url
+     * 公有空间：如果配置了domain(Bucket域名或者CDN加速域名)则使用domain拼接，否则使用桶的基础路径拼接，不会产生任何请求
+     * 私有空间：生成有效期为tokenTime的签名url，签名url会被缓存，在有效期过半之前重复获取不会重新签名
+     *
+     * @param bucketName 桶的名称
+     * @param objectName 对象名称
+     * @return 对象的访问url
+     */
+    Optional<URL> resolveAccessUrl(String bucketName, String objectName);
+
+
+    /**
+     * 批量获取对象的访问url
+     *
+     * @param bucketName  桶的名称
+     * @param objectNames 对象名称集合
+     * @return 对象名称 -> 对象的访问url
+     * @see IAmazonS3V2Template#resolveAccessUrl(String, String)
+     */
+    Map<String, URL> resolveAccessUrls(String bucketName, Collection<String> objectNames);
+
+
     /**
      * 获取预签名的上传URL
      *
@@ -145,4 +210,41 @@ public interface IAmazonS3V2Template extends IAmazonS3V2Bucket, IAmazonS3V2Objec
                                                            String contentType,
                                                            Duration signatureTime);
 
+
+    /**
+     * 获取POST表单直传的policy，浏览器直接提交到存储服务，文件大小由content-length-range限制
+     *
+     * @param bucketName       桶的名称
+     * @param objectName       对象名称，以'/'结尾时作为前缀，对象名称为 前缀 + 浏览器提交的文件名
+     * @param contentType      文件类型，为空时不限制
+     * @param minContentLength 文件的最小字节数
+     * @param maxContentLength 文件的最大字节数
+     * @param signatureTime    policy的过期时间
+     * @return 表单提交的地址和字段
+     */
+    Optional<PresignedPostPolicy> getPresignedPostPolicy(String bucketName,
+                                                         String objectName,
+                                                         String contentType,
+                                                         long minContentLength,
+                                                         long maxContentLength,
+                                                         Duration signatureTime);
+
+
+    /**
+     * 批量获取分片上传的预签名UploadPart url，浏览器直接PUT分片，再把每个分片响应头中的ETag交给
+     * IAmazonS3V2Upload#completeMultipartUpload 完成上传，数据不经过应用服务器
+     *
+     * @param bucketName    桶的名称
+     * @param objectName    对象名称
+     * @param uploadId      IAmazonS3V2Upload#createMultipartUpload 返回的上传ID
+     * @param partCount     分片数量，编号从1开始
+     * @param signatureTime 签名url过期时间
+     * @return 分片编号 -> 预签名的PUT url
+     */
+    Map<Integer, URL> getPresignedUploadPartUrls(String bucketName,
+                                                 String objectName,
+                                                 String uploadId,
+                                                 int partCount,
+                                                 Duration signatureTime);
+
 }
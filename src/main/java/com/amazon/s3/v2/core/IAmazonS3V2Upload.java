@@ -1,16 +1,28 @@
 package com.amazon.s3.v2.core;
 
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.StrUtil;
 import com.amazon.s3.v2.core.async.IAmazonS3V2AsyncUpload;
 import com.amazon.s3.v2.core.functions.MultipartUploadBiFunction;
+import com.amazon.s3.v2.model.DedupUploadResult;
+import com.amazon.s3.v2.model.StreamUploadResult;
+import com.amazon.s3.v2.stream.MultipartFormDataReader;
+import org.apache.commons.io.input.CountingInputStream;
+import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
 import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
 import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
@@ -43,7 +55,7 @@ public interface IAmazonS3V2Upload extends IAmazonS3V2AsyncUpload {
      * @param bucketName 对象桶
      * @param objectName 指定文件的存储名称
      * @param file       上传的文件对象
-     * @param sliceSize  分片大小
+     * @param sliceSize  分片大小，开启完整性校验时每个分片带上自己的校验和；开启加密时为密文的分片大小，不足5MB时按5MB
      */
     Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName, String objectName, File file, int sliceSize);
 
@@ -90,6 +102,30 @@ public interface IAmazonS3V2Upload extends IAmazonS3V2AsyncUpload {
                                                               List<RequestBody> requestBodyList)
             throws S3Exception;
 
+    /**
+     * 创建分片上传，配合 IAmazonS3V2Template#getPresignedUploadPartUrls 由浏览器直接上传分片
+     *
+     * @param bucketName  桶名称
+     * @param objectName  对象名称
+     * @param contentType 对象类型，可以为空
+     * @return 上传ID
+     */
+    Optional<String> createMultipartUpload(String bucketName, String objectName, String contentType);
+
+    /**
+     * 使用客户端上报的分片ETag完成分片上传，分片会按照编号排序
+     *
+     * @param bucketName        桶名称
+     * @param objectName        对象名称
+     * @param uploadId          上传ID
+     * @param completedPartList 分片编号和ETag
+     * @return CompleteMultipartUploadResponse
+     */
+    Optional<CompleteMultipartUploadResponse> completeMultipartUpload(String bucketName,
+                                                                      String objectName,
+                                                                      String uploadId,
+                                                                      List<CompletedPart> completedPartList);
+
     /**
      * 此操作中止多部分上传。多部分上传中止后，不能使用该上传ID上传其他部分。
      * 任何先前上传的部件消耗的存储都将被释放。
@@ -106,4 +142,79 @@ public interface IAmazonS3V2Upload extends IAmazonS3V2AsyncUpload {
                                                                 String uploadId)
             throws S3Exception;
 
+    /**
+     * 流式上传长度未知的数据，数据边读取边按分片上传，不会落盘，也不会整体读入内存
+     * 数据不足一个分片时直接用putObject上传
+     *
+     * @param bucketName  桶名称
+     * @param objectName  对象名称
+     * @param contentType 对象类型
+     * @param inputStream 数据，不会被关闭
+     * @return 对象的eTag，上传失败时返回空
+     */
+    Optional<String> uploadStream(String bucketName, String objectName, String contentType, InputStream inputStream);
+
+    /**
+     * 按内容去重上传文件，先计算内容摘要(大文件分块并行计算)，相同内容的数据只保存一份，已经存在时不再上传
+     * 业务对象名称通过服务端拷贝或者引用指向保存数据的对象，见 amazon.s3.v2.oss.dedup.link-mode
+     *
+     * @param bucketName 桶名称
+     * @param objectName 业务对象名称
+     * @param file       上传的文件
+     * @return 上传结果，上传或者拷贝失败时返回空
+     */
+    Optional<DedupUploadResult> dedupUpload(String bucketName, String objectName, File file);
+
+    /**
+     * 按内容去重上传文件，文件内容会被读取两次，第一次只计算内容摘要
+     *
+     * @param bucketName    桶名称
+     * @param objectName    业务对象名称
+     * @param multipartFile 上传的文件
+     * @return 上传结果，上传或者拷贝失败时返回空
+     */
+    Optional<DedupUploadResult> dedupUpload(String bucketName, String objectName, MultipartFile multipartFile);
+
+    /**
+     * 流式上传multipart/form-data请求中的所有文件，文件内容边从请求中读取边上传，不经过Spring的MultipartResolver
+     * 需要关闭Spring的multipart解析(spring.servlet.multipart.enabled=false)，否则请求体会被提前读取
+     *
+     * @param bucketName       桶名称
+     * @param request          multipart/form-data请求
+     * @param objectNameMapper 根据原始文件名生成对象名称
+     * @return 每个文件的上传结果，任何一个文件上传失败时返回空，之前已经上传的文件不会被删除
+     * @throws IOException 读取请求失败或者请求体格式错误
+     */
+    default Optional<List<StreamUploadResult>> uploadMultipartRequest(String bucketName,
+                                                                      HttpServletRequest request,
+                                                                      Function<String, String> objectNameMapper) throws IOException {
+        Assert.notNull(request, "request not null");
+        Assert.notNull(objectNameMapper, "objectNameMapper not null");
+
+        MultipartFormDataReader reader = new MultipartFormDataReader(request.getInputStream(), request.getContentType());
+        List<StreamUploadResult> resultList = new ArrayList<>();
+        Optional<MultipartFormDataReader.FormPart> formPartOptional;
+        while ((formPartOptional = reader.next()).isPresent()) {
+            MultipartFormDataReader.FormPart formPart = formPartOptional.get();
+            // 没有选择文件的文件字段会提交空的文件名
+            if (!formPart.isFile() || StrUtil.isEmpty(formPart.getFileName())) {
+                continue;
+            }
+            String objectName = objectNameMapper.apply(formPart.getFileName());
+            CountingInputStream countingInputStream = new CountingInputStream(formPart.getInputStream());
+            Optional<String> eTagOptional = uploadStream(bucketName, objectName, formPart.getContentType(), countingInputStream);
+            if (!eTagOptional.isPresent()) {
+                return Optional.empty();
+            }
+            resultList.add(StreamUploadResult.builder()
+                    .fieldName(formPart.getName())
+                    .fileName(formPart.getFileName())
+                    .objectName(objectName)
+                    .contentType(formPart.getContentType())
+                    .contentLength(countingInputStream.getByteCount())
+                    .eTag(eTagOptional.get())
+                    .build());
+        }
+        return Optional.of(resultList);
+    }
 }
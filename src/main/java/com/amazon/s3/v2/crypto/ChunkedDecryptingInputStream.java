@@ -0,0 +1,147 @@
+package com.amazon.s3.v2.crypto;
+
+import org.apache.commons.io.IOUtils;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * @author liuyangfang
+ * @description 分块解密的输入流
+ * <p>
+ * 每一块认证通过后才返回其中的明文，认证失败时抛出IOException。
+ * 读取完整对象时不知道总长度，读满一块后再预读一个字节判断是否已经是最后一块；
+ * 范围读取时由调用方给出对象最后一块的序号。
+ * @since 2023/6/28 18:20:51
+ */
+class ChunkedDecryptingInputStream extends InputStream {
+    private final ChunkedObjectCipher objectCipher;
+
+    private final Cipher cipher;
+
+    private final InputStream inputStream;
+
+    private final byte[] encryptedChunk;
+
+    private final byte[] plainChunk;
+
+    /**
+     * 读取到这一块为止，-1表示读取到对象的最后一块
+     */
+    private final long lastChunkIndex;
+
+    /**
+     * 对象最后一块的序号，-1表示根据流的结束判断
+     */
+    private final long finalChunkIndex;
+
+    private long chunkIndex;
+
+    private long skip;
+
+    private long remaining;
+
+    private int plainPosition;
+
+    private int plainLimit;
+
+    private int lookahead = -1;
+
+    private boolean finished;
+
+    ChunkedDecryptingInputStream(ChunkedObjectCipher objectCipher,
+                                 Cipher cipher,
+                                 InputStream inputStream,
+                                 long firstChunkIndex,
+                                 long lastChunkIndex,
+                                 long finalChunkIndex,
+                                 long skip,
+                                 long length) {
+        this.objectCipher = objectCipher;
+        this.cipher = cipher;
+        this.inputStream = inputStream;
+        this.encryptedChunk = new byte[objectCipher.getEncryptedChunkSize()];
+        this.plainChunk = new byte[objectCipher.getChunkSize()];
+        this.chunkIndex = firstChunkIndex;
+        this.lastChunkIndex = lastChunkIndex;
+        this.finalChunkIndex = finalChunkIndex;
+        this.skip = skip;
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (remaining <= 0) {
+            return -1;
+        }
+        while (plainPosition >= plainLimit) {
+            if (finished) {
+                return -1;
+            }
+            decryptChunk();
+        }
+        int length = (int) Math.min(Math.min(len, plainLimit - plainPosition), remaining);
+        System.arraycopy(plainChunk, plainPosition, b, off, length);
+        plainPosition += length;
+        remaining -= length;
+        return length;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(plainLimit - plainPosition, remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    private void decryptChunk() throws IOException {
+        int length = 0;
+        if (lookahead >= 0) {
+            encryptedChunk[length++] = (byte) lookahead;
+            lookahead = -1;
+        }
+        length += IOUtils.read(inputStream, encryptedChunk, length, encryptedChunk.length - length);
+
+        boolean last;
+        if (finalChunkIndex >= 0) {
+            last = chunkIndex == finalChunkIndex;
+        } else if (length < encryptedChunk.length) {
+            last = true;
+        } else {
+            lookahead = inputStream.read();
+            last = lookahead < 0;
+        }
+        if (length < ChunkedObjectCipher.TAG_LENGTH) {
+            throw new IOException("encrypted object is truncated at chunk " + chunkIndex);
+        }
+
+        try {
+            objectCipher.initChunk(cipher, Cipher.DECRYPT_MODE, chunkIndex, last);
+            plainLimit = cipher.doFinal(encryptedChunk, 0, length, plainChunk, 0);
+        } catch (AEADBadTagException e) {
+            throw new IOException("chunk " + chunkIndex + " authentication failed, the object is corrupted or tampered", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("decrypt chunk " + chunkIndex + " failed", e);
+        }
+
+        plainPosition = (int) Math.min(skip, plainLimit);
+        skip -= plainPosition;
+        finished = last || chunkIndex == lastChunkIndex;
+        chunkIndex++;
+    }
+}
@@ -0,0 +1,92 @@
+package com.amazon.s3.v2.crypto;
+
+import javax.crypto.Cipher;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * @author liuyangfang
+ * @description 分块加密的输出流
+ * <p>
+ * 写满一块时并不立即加密，等到后续数据到达时再加密，这样关闭时缓冲区中的一定是最后一块，可以正确标记。
+ * 关闭时如果加密失败不会关闭下游的输出流，避免把不完整的对象提交上去。
+ * @since 2023/6/28 18:02:39
+ */
+class ChunkedEncryptingOutputStream extends OutputStream {
+    private final ChunkedObjectCipher objectCipher;
+
+    private final Cipher cipher;
+
+    private final OutputStream outputStream;
+
+    private final byte[] plainChunk;
+
+    private final byte[] encryptedChunk;
+
+    private int position;
+
+    private long chunkIndex;
+
+    private boolean closed;
+
+    ChunkedEncryptingOutputStream(ChunkedObjectCipher objectCipher, Cipher cipher, OutputStream outputStream) {
+        this.objectCipher = objectCipher;
+        this.cipher = cipher;
+        this.outputStream = outputStream;
+        this.plainChunk = new byte[objectCipher.getChunkSize()];
+        this.encryptedChunk = new byte[objectCipher.getEncryptedChunkSize()];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == plainChunk.length) {
+            encryptChunk(false);
+        }
+        plainChunk[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (position == plainChunk.length) {
+                encryptChunk(false);
+            }
+            int length = Math.min(len, plainChunk.length - position);
+            System.arraycopy(b, off, plainChunk, position, length);
+            position += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        encryptChunk(true);
+        outputStream.close();
+    }
+
+    private void encryptChunk(boolean last) throws IOException {
+        try {
+            objectCipher.initChunk(cipher, Cipher.ENCRYPT_MODE, chunkIndex, last);
+            int length = cipher.doFinal(plainChunk, 0, position, encryptedChunk, 0);
+            outputStream.write(encryptedChunk, 0, length);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("encrypt chunk " + chunkIndex + " failed", e);
+        }
+        position = 0;
+        chunkIndex++;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+    }
+}
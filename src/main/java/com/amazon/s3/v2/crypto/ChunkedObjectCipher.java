@@ -0,0 +1,226 @@
+package com.amazon.s3.v2.crypto;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.StrUtil;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+
+import static com.amazon.s3.v2.constant.BusinessV2Constant.*;
+
+/**
+ * @author liuyangfang
+ * @description 一个对象的分块AES-GCM加密
+ * <p>
+ * 明文按chunkSize切分，每一块单独加密并带有16字节的认证标签，密文块大小为 chunkSize + 16，只有最后一块可以更短。
+ * 每一块的IV为 对象随机前缀(8字节) + 块序号(4字节，大端)，附加认证数据为是否是最后一块，
+ * 这样块被调换顺序、截断或者拼接都会认证失败。密文长度可以直接换算出明文长度和任意明文位置所在的块，
+ * 所以范围读取只需要下载覆盖的密文块，加解密都只持有一个块大小的缓冲区。
+ * @since 2023/6/28 17:26:18
+ */
+public class ChunkedObjectCipher {
+    /**
+     * 每一块的认证标签长度
+     */
+    public static final int TAG_LENGTH = 16;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int NONCE_PREFIX_LENGTH = 8;
+    private static final int IV_LENGTH = 12;
+    private static final long MAX_CHUNK_INDEX = 0xFFFFFFFFL;
+    private static final byte[] LAST_CHUNK_AAD = {1};
+    private static final byte[] MIDDLE_CHUNK_AAD = {0};
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private final SecretKeySpec dataKey;
+
+    private final byte[] noncePrefix;
+
+    private final int chunkSize;
+
+    private final String keyId;
+
+    private final byte[] encryptedKey;
+
+    private ChunkedObjectCipher(byte[] plaintextKey, byte[] noncePrefix, int chunkSize, String keyId, byte[] encryptedKey) {
+        Assert.isTrue(noncePrefix.length == NONCE_PREFIX_LENGTH, "iv prefix must be {} bytes", NONCE_PREFIX_LENGTH);
+        Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+        this.dataKey = new SecretKeySpec(plaintextKey, "AES");
+        this.noncePrefix = noncePrefix;
+        this.chunkSize = chunkSize;
+        this.keyId = keyId;
+        this.encryptedKey = encryptedKey;
+    }
+
+    /**
+     * 为新对象生成数据密钥和IV前缀
+     *
+     * @param dataKeyProvider 数据密钥的提供者
+     * @param chunkSize       明文块大小
+     * @return 对象的加密器
+     */
+    public static ChunkedObjectCipher create(DataKeyProvider dataKeyProvider, int chunkSize) {
+        Assert.notNull(dataKeyProvider, "dataKeyProvider not null");
+        DataKey dataKey = dataKeyProvider.generateDataKey();
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        SECURE_RANDOM.nextBytes(noncePrefix);
+        return new ChunkedObjectCipher(dataKey.getPlaintextKey(), noncePrefix, chunkSize, dataKey.getKeyId(), dataKey.getEncryptedKey());
+    }
+
+    /**
+     * @param metadataMap 对象的用户元数据
+     * @return 对象是否是客户端加密过的
+     */
+    public static boolean isEncrypted(Map<String, String> metadataMap) {
+        return MapUtil.isNotEmpty(metadataMap) && metadataMap.containsKey(ENCRYPTION_KEY_METADATA_KEY);
+    }
+
+    /**
+     * 根据对象的用户元数据还原加密器
+     *
+     * @param metadataMap     对象的用户元数据
+     * @param dataKeyProvider 数据密钥的提供者，为null时说明没有配置主密钥
+     * @return 对象的加密器
+     */
+    public static ChunkedObjectCipher fromMetadata(Map<String, String> metadataMap, DataKeyProvider dataKeyProvider) {
+        Assert.isTrue(isEncrypted(metadataMap), "object is not encrypted");
+        if (dataKeyProvider == null) {
+            throw new IllegalStateException("object is encrypted, but no master key is configured");
+        }
+        String keyId = metadataMap.get(ENCRYPTION_KEY_ID_METADATA_KEY);
+        String iv = metadataMap.get(ENCRYPTION_IV_METADATA_KEY);
+        String chunkSize = metadataMap.get(ENCRYPTION_CHUNK_SIZE_METADATA_KEY);
+        Assert.isFalse(StrUtil.hasEmpty(keyId, iv, chunkSize), "encryption metadata is incomplete");
+
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] encryptedKey = decoder.decode(metadataMap.get(ENCRYPTION_KEY_METADATA_KEY));
+        byte[] plaintextKey = dataKeyProvider.decryptDataKey(keyId, encryptedKey);
+        return new ChunkedObjectCipher(plaintextKey, decoder.decode(iv), Integer.parseInt(chunkSize), keyId, encryptedKey);
+    }
+
+    /**
+     * 把解密需要的信息写入用户元数据
+     *
+     * @param metadataMap 对象的用户元数据
+     */
+    public void writeMetadata(Map<String, String> metadataMap) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        metadataMap.put(ENCRYPTION_KEY_METADATA_KEY, encoder.encodeToString(encryptedKey));
+        metadataMap.put(ENCRYPTION_KEY_ID_METADATA_KEY, keyId);
+        metadataMap.put(ENCRYPTION_IV_METADATA_KEY, encoder.encodeToString(noncePrefix));
+        metadataMap.put(ENCRYPTION_CHUNK_SIZE_METADATA_KEY, String.valueOf(chunkSize));
+    }
+
+    /**
+     * 加密写入的数据，关闭时写入最后一块并关闭下游的输出流
+     *
+     * @param outputStream 密文的输出流
+     * @return 明文的输出流
+     */
+    public OutputStream encrypt(OutputStream outputStream) {
+        return new ChunkedEncryptingOutputStream(this, newCipher(), outputStream);
+    }
+
+    /**
+     * 解密完整的对象
+     *
+     * @param inputStream 从头开始的密文
+     * @return 明文的输入流
+     */
+    public InputStream decrypt(InputStream inputStream) {
+        return new ChunkedDecryptingInputStream(this, newCipher(), inputStream, 0, -1, -1, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * 解密一段密文块
+     *
+     * @param inputStream     从firstChunkIndex开始、到lastChunkIndex结束的密文
+     * @param firstChunkIndex 第一个密文块的序号
+     * @param lastChunkIndex  最后一个密文块的序号
+     * @param finalChunkIndex 对象最后一块的序号
+     * @param skip            第一块中跳过的明文字节数
+     * @param length          返回的明文字节数
+     * @return 明文的输入流
+     */
+    public InputStream decrypt(InputStream inputStream, long firstChunkIndex, long lastChunkIndex, long finalChunkIndex, long skip, long length) {
+        Assert.isTrue(firstChunkIndex <= lastChunkIndex && lastChunkIndex <= finalChunkIndex, "chunk range is invalid");
+        return new ChunkedDecryptingInputStream(this, newCipher(), inputStream, firstChunkIndex, lastChunkIndex, finalChunkIndex, skip, length);
+    }
+
+    /**
+     * @param ciphertextLength 密文长度
+     * @return 密文块的数量，空对象也有一个只包含认证标签的块
+     */
+    public long getChunkCount(long ciphertextLength) {
+        long encryptedChunkSize = getEncryptedChunkSize();
+        long chunkCount = (ciphertextLength + encryptedChunkSize - 1) / encryptedChunkSize;
+        long lastChunkLength = ciphertextLength - (chunkCount - 1) * encryptedChunkSize;
+        Assert.isTrue(chunkCount > 0 && lastChunkLength >= TAG_LENGTH, "ciphertext length {} is invalid", ciphertextLength);
+        return chunkCount;
+    }
+
+    /**
+     * @param ciphertextLength 密文长度
+     * @return 明文长度
+     */
+    public long getPlaintextLength(long ciphertextLength) {
+        return ciphertextLength - getChunkCount(ciphertextLength) * TAG_LENGTH;
+    }
+
+    /**
+     * @param plaintextOffset 明文位置
+     * @return 明文位置所在的块序号
+     */
+    public long getChunkIndex(long plaintextOffset) {
+        return plaintextOffset / chunkSize;
+    }
+
+    /**
+     * @param chunkIndex 块序号
+     * @return 块在密文中的起始位置
+     */
+    public long getCiphertextOffset(long chunkIndex) {
+        return chunkIndex * getEncryptedChunkSize();
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getEncryptedChunkSize() {
+        return chunkSize + TAG_LENGTH;
+    }
+
+    /**
+     * 为一个块初始化加解密器，IV和附加认证数据绑定了块的位置
+     */
+    void initChunk(Cipher cipher, int mode, long chunkIndex, boolean last) throws GeneralSecurityException {
+        if (chunkIndex > MAX_CHUNK_INDEX) {
+            throw new GeneralSecurityException("too many chunks, increase the chunk size");
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        System.arraycopy(noncePrefix, 0, iv, 0, NONCE_PREFIX_LENGTH);
+        iv[8] = (byte) (chunkIndex >>> 24);
+        iv[9] = (byte) (chunkIndex >>> 16);
+        iv[10] = (byte) (chunkIndex >>> 8);
+        iv[11] = (byte) chunkIndex;
+        cipher.init(mode, dataKey, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        cipher.updateAAD(last ? LAST_CHUNK_AAD : MIDDLE_CHUNK_AAD);
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(TRANSFORMATION + " not supported", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.amazon.s3.v2.crypto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author liuyangfang
+ * @description 对象的数据密钥，明文只保存在内存中，密文随对象一起保存在用户元数据中
+ * @since 2023/6/28 16:52:05
+ */
+@Getter
+@AllArgsConstructor
+public class DataKey {
+    /**
+     * 加密数据密钥使用的主密钥编号
+     */
+    private final String keyId;
+
+    /**
+     * 数据密钥明文
+     */
+    private final byte[] plaintextKey;
+
+    /**
+     * 被主密钥加密过的数据密钥
+     */
+    private final byte[] encryptedKey;
+}
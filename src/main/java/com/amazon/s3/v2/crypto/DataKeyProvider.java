@@ -0,0 +1,27 @@
+package com.amazon.s3.v2.crypto;
+
+/**
+ * @author liuyangfang
+ * @description 数据密钥的提供者，生成新的数据密钥和解密已有的数据密钥
+ * <p>
+ * 默认实现使用配置的主密钥在本地加密数据密钥，接入KMS时实现此接口即可，主密钥不会离开KMS。
+ * @since 2023/6/28 16:48:37
+ */
+public interface DataKeyProvider {
+
+    /**
+     * 为一个新对象生成数据密钥
+     *
+     * @return 数据密钥，包含明文和被主密钥加密后的密文
+     */
+    DataKey generateDataKey();
+
+    /**
+     * 解密对象元数据中保存的数据密钥
+     *
+     * @param keyId        主密钥编号
+     * @param encryptedKey 被主密钥加密过的数据密钥
+     * @return 数据密钥明文
+     */
+    byte[] decryptDataKey(String keyId, byte[] encryptedKey);
+}
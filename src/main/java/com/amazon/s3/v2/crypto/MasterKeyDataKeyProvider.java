@@ -0,0 +1,91 @@
+package com.amazon.s3.v2.crypto;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.map.MapUtil;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author liuyangfang
+ * @description 使用本地主密钥加密数据密钥的提供者
+ * <p>
+ * 数据密钥为256位随机数，用主密钥以AES-GCM加密，主密钥编号作为附加认证数据，保存格式为 IV(12字节) + 密文 + 认证标签。
+ * 可以同时配置多个主密钥，新对象使用当前主密钥，旧对象根据元数据中的主密钥编号找到对应的主密钥解密。
+ * @since 2023/6/28 17:03:44
+ */
+public class MasterKeyDataKeyProvider implements DataKeyProvider {
+    private static final String KEY_WRAP_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int DATA_KEY_LENGTH = 32;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Map<String, SecretKey> masterKeyMap;
+
+    private final String currentKeyId;
+
+    /**
+     * @param masterKeys   主密钥编号 -> base64编码的AES密钥
+     * @param currentKeyId 加密新对象时使用的主密钥编号
+     */
+    public MasterKeyDataKeyProvider(Map<String, String> masterKeys, String currentKeyId) {
+        Assert.isFalse(MapUtil.isEmpty(masterKeys), "masterKeys not empty");
+        Assert.isTrue(masterKeys.containsKey(currentKeyId), "master key [{}] not configured", currentKeyId);
+        this.masterKeyMap = new HashMap<>(masterKeys.size());
+        masterKeys.forEach((keyId, base64Key) -> {
+            byte[] key = Base64.getDecoder().decode(base64Key);
+            Assert.isTrue(key.length == 16 || key.length == 24 || key.length == 32,
+                    "master key [{}] must be 16, 24 or 32 bytes", keyId);
+            masterKeyMap.put(keyId, new SecretKeySpec(key, "AES"));
+        });
+        this.currentKeyId = currentKeyId;
+    }
+
+    @Override
+    public DataKey generateDataKey() {
+        byte[] plaintextKey = new byte[DATA_KEY_LENGTH];
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(plaintextKey);
+        secureRandom.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance(KEY_WRAP_TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, masterKeyMap.get(currentKeyId), new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(currentKeyId.getBytes(StandardCharsets.UTF_8));
+            byte[] wrappedKey = cipher.doFinal(plaintextKey);
+
+            byte[] encryptedKey = Arrays.copyOf(iv, IV_LENGTH + wrappedKey.length);
+            System.arraycopy(wrappedKey, 0, encryptedKey, IV_LENGTH, wrappedKey.length);
+            return new DataKey(currentKeyId, plaintextKey, encryptedKey);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("generate data key failed", e);
+        }
+    }
+
+    @Override
+    public byte[] decryptDataKey(String keyId, byte[] encryptedKey) {
+        SecretKey masterKey = masterKeyMap.get(keyId);
+        if (masterKey == null) {
+            throw new IllegalStateException(String.format("master key [%s] not configured", keyId));
+        }
+        Assert.isTrue(encryptedKey != null && encryptedKey.length > IV_LENGTH, "encrypted data key is invalid");
+        try {
+            Cipher cipher = Cipher.getInstance(KEY_WRAP_TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, masterKey, new GCMParameterSpec(TAG_BITS, encryptedKey, 0, IV_LENGTH));
+            cipher.updateAAD(keyId.getBytes(StandardCharsets.UTF_8));
+            return cipher.doFinal(encryptedKey, IV_LENGTH, encryptedKey.length - IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(String.format("decrypt data key with master key [%s] failed", keyId), e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.amazon.s3.v2.dedup;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.HexUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.stream.IntStream;
+
+/**
+ * @author liuyangfang
+ * @description 分块的内容摘要
+ * <p>
+ * 内容按chunkSize切分，每一块计算SHA-256，再对按顺序拼接的所有块摘要计算一次SHA-256。
+ * 块之间互不依赖，文件的各个块可以并行计算；输入流只能顺序计算，但结果和文件完全一致，空内容视为一个空块。
+ * @since 2023/6/29 10:41:52
+ */
+public class ContentTreeHasher {
+    private static final String ALGORITHM = "SHA-256";
+    private static final int DIGEST_LENGTH = 32;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int chunkSize;
+
+    public ContentTreeHasher(int chunkSize) {
+        Assert.isTrue(chunkSize >= BUFFER_SIZE, "hash chunk size must be at least {}", BUFFER_SIZE);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 计算文件的摘要，超过一块时各个块在公共的ForkJoinPool中并行计算
+     *
+     * @param file 文件
+     * @return 小写十六进制的摘要
+     * @throws IOException 读取文件失败
+     */
+    public String hash(File file) throws IOException {
+        Assert.notNull(file, "file not null");
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = fileChannel.size();
+            int chunkCount = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+            IntStream chunkIndexes = IntStream.range(0, chunkCount);
+            byte[][] chunkDigests;
+            try {
+                chunkDigests = (chunkCount > 1 ? chunkIndexes.parallel() : chunkIndexes)
+                        .mapToObj(chunkIndex -> hashChunk(fileChannel, (long) chunkIndex * chunkSize, Math.min(chunkSize, size - (long) chunkIndex * chunkSize)))
+                        .toArray(byte[][]::new);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            MessageDigest treeDigest = newDigest();
+            for (byte[] chunkDigest : chunkDigests) {
+                treeDigest.update(chunkDigest);
+            }
+            return HexUtil.encodeHexStr(treeDigest.digest());
+        }
+    }
+
+    /**
+     * 顺序计算输入流的摘要
+     *
+     * @param inputStream 输入流，不会被关闭
+     * @return 小写十六进制的摘要
+     * @throws IOException 读取失败
+     */
+    public String hash(InputStream inputStream) throws IOException {
+        Assert.notNull(inputStream, "inputStream not null");
+        MessageDigest chunkDigest = newDigest();
+        MessageDigest treeDigest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long chunkPosition = 0;
+        boolean empty = true;
+        int length;
+        while ((length = inputStream.read(buffer, 0, (int) Math.min(buffer.length, chunkSize - chunkPosition))) != -1) {
+            chunkDigest.update(buffer, 0, length);
+            chunkPosition += length;
+            empty = false;
+            if (chunkPosition == chunkSize) {
+                treeDigest.update(chunkDigest.digest());
+                chunkPosition = 0;
+            }
+        }
+        // 最后一个不满的块，或者空内容
+        if (chunkPosition > 0 || empty) {
+            treeDigest.update(chunkDigest.digest());
+        }
+        return HexUtil.encodeHexStr(treeDigest.digest());
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    private static byte[] hashChunk(FileChannel fileChannel, long position, long length) {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(length, 1))];
+        long end = position + length;
+        try {
+            while (position < end) {
+                int read = fileChannel.read(ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, end - position)), position);
+                if (read < 0) {
+                    throw new IOException("file is truncated while hashing");
+                }
+                digest.update(buffer, 0, read);
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] chunkDigest = digest.digest();
+        Assert.isTrue(chunkDigest.length == DIGEST_LENGTH, "unexpected digest length");
+        return chunkDigest;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " not supported", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.amazon.s3.v2.endpoint;
+
+import com.amazon.s3.v2.config.S3V2InternalEndpointConfig;
+import com.amazon.s3.v2.core.AmazonS3V2ExecutionInterceptor;
+import com.amazon.s3.v2.utils.EndpointUtil;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.http.SdkHttpRequest;
+
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * @author liuyangfang
+ * @description 内网 endPoint 可达时把发往外网 endPoint 的请求改写为发往内网 endPoint
+ * <p>
+ * 预签名URL不经过拦截器，仍然使用外网 endPoint，可以直接交给外部访问。
+ * @since 2023/6/26 10:40:05
+ */
+@Slf4j
+public class InternalEndpointExecutionInterceptor implements AmazonS3V2ExecutionInterceptor, AutoCloseable {
+    private final InternalEndpointResolver resolver;
+
+    public InternalEndpointExecutionInterceptor(String endPoint, S3V2InternalEndpointConfig config) {
+        Optional<String> internalEndpoint = InternalEndpointResolver.findInternalEndpoint(endPoint);
+        if (internalEndpoint.isPresent()) {
+            this.resolver = new InternalEndpointResolver(endPoint, internalEndpoint.get(), config);
+        } else {
+            log.warn("endpoint {} has no known internal endpoint, internal endpoint selection is disabled", endPoint);
+            this.resolver = null;
+        }
+    }
+
+    public InternalEndpointExecutionInterceptor(InternalEndpointResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public SdkHttpRequest modifyHttpRequest(Context.ModifyHttpRequest context, ExecutionAttributes executionAttributes) {
+        SdkHttpRequest request = context.httpRequest();
+        if (resolver == null || !resolver.isUsingInternal()) {
+            return request;
+        }
+        URI publicEndpoint = resolver.getPublicEndpoint();
+        if (!EndpointUtil.isTargeting(request, publicEndpoint)) {
+            return request;
+        }
+        return EndpointUtil.rewrite(request, publicEndpoint, resolver.getInternalEndpoint());
+    }
+
+    /**
+     * @return 内网 endPoint 的探测结果，endPoint不是已知的云厂商地址时返回空
+     */
+    public Optional<InternalEndpointResolver> getResolver() {
+        return Optional.ofNullable(resolver);
+    }
+
+    @Override
+    public void close() {
+        if (resolver != null) {
+            resolver.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.amazon.s3.v2.endpoint;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.StrUtil;
+import com.amazon.s3.v2.config.S3V2InternalEndpointConfig;
+import com.amazon.s3.v2.model.enums.IEnum;
+import com.amazon.s3.v2.model.enums.oss.AliyunOssS3Enum;
+import com.amazon.s3.v2.model.enums.oss.HuaWeiCloudObsS3Enum;
+import com.amazon.s3.v2.model.enums.oss.QiniuOssS3Enum;
+import com.amazon.s3.v2.model.enums.oss.TencentCosS3Enum;
+import com.amazon.s3.v2.utils.EndpointUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description 按云厂商的地域枚举查找外网 endPoint 对应的内网 endPoint，并探测内网 endPoint 是否可达
+ * <p>
+ * 探测方式是建立TCP连接，取多次连接中最小的耗时作为RTT；内网 endPoint 可达时优先使用，不可达时使用外网 endPoint。
+ * 探测结果缓存在内存中，由后台线程定期重新探测，查询结果不会阻塞请求。
+ * @since 2023/6/26 9:52:16
+ */
+@Slf4j
+public class InternalEndpointResolver implements AutoCloseable {
+    /**
+     * 带有地域 endPoint 的云厂商枚举
+     */
+    private static final List<IEnum<String>> PROVIDER_REGIONS = new ArrayList<>();
+
+    static {
+        PROVIDER_REGIONS.addAll(Arrays.asList(AliyunOssS3Enum.values()));
+        PROVIDER_REGIONS.addAll(Arrays.asList(HuaWeiCloudObsS3Enum.values()));
+        PROVIDER_REGIONS.addAll(Arrays.asList(TencentCosS3Enum.values()));
+        PROVIDER_REGIONS.addAll(Arrays.asList(QiniuOssS3Enum.values()));
+    }
+
+    private final S3V2InternalEndpointConfig config;
+
+    private final URI publicEndpoint;
+
+    private final URI internalEndpoint;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean internalReachable;
+
+    private volatile long internalRttNanos = -1;
+
+    public InternalEndpointResolver(String publicEndpoint, String internalEndpoint, S3V2InternalEndpointConfig config) {
+        Assert.notBlank(publicEndpoint, "publicEndpoint not blank");
+        Assert.notBlank(internalEndpoint, "internalEndpoint not blank");
+        Assert.notNull(config, "config not null");
+        Assert.isTrue(config.getProbeCount() > 0, "probeCount must be positive");
+        this.config = config;
+        this.publicEndpoint = URI.create(publicEndpoint);
+        this.internalEndpoint = URI.create(internalEndpoint);
+
+        // 启动时同步探测一次，之后由后台线程定期探测
+        revalidate();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "s3-internal-endpoint-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (config.getRevalidateMillis() > 0) {
+            scheduler.scheduleWithFixedDelay(this::revalidate, config.getRevalidateMillis(), config.getRevalidateMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 按外网 endPoint 查找云厂商的内网 endPoint，协议和外网 endPoint 保持一致
+     *
+     * @param endPoint 外网 endPoint
+     * @return 内网 endPoint，不是已知的云厂商地址或者该地域没有单独的内网地址时返回空
+     */
+    public static Optional<String> findInternalEndpoint(String endPoint) {
+        if (StrUtil.isBlank(endPoint)) {
+            return Optional.empty();
+        }
+        URI uri = URI.create(endPoint);
+        if (uri.getHost() == null) {
+            return Optional.empty();
+        }
+        boolean http = "http".equalsIgnoreCase(uri.getScheme());
+        for (IEnum<String> region : PROVIDER_REGIONS) {
+            if (uri.getHost().equalsIgnoreCase(URI.create(region.getHttpsEndpoint()).getHost())) {
+                return Optional.ofNullable(http ? region.getHttpInnerEndpoint() : region.getHttpsInnerEndpoint());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 立即重新探测内网 endPoint
+     */
+    public void revalidate() {
+        long rttNanos = probe(internalEndpoint);
+        boolean reachable = rttNanos >= 0;
+        if (reachable != internalReachable) {
+            if (reachable) {
+                log.info("internal endpoint {} is reachable, rtt {} us, use it instead of {}", internalEndpoint,
+                        TimeUnit.NANOSECONDS.toMicros(rttNanos), publicEndpoint);
+            } else {
+                log.info("internal endpoint {} is unreachable, use {}", internalEndpoint, publicEndpoint);
+            }
+        }
+        internalRttNanos = rttNanos;
+        internalReachable = reachable;
+    }
+
+    /**
+     * @return 当前应该使用的 endPoint
+     */
+    public URI getCurrentEndpoint() {
+        return internalReachable ? internalEndpoint : publicEndpoint;
+    }
+
+    /**
+     * @return 是否正在使用内网 endPoint
+     */
+    public boolean isUsingInternal() {
+        return internalReachable;
+    }
+
+    /**
+     * @return 最近一次探测到的内网RTT，单位为纳秒，不可达时为-1
+     */
+    public long getInternalRttNanos() {
+        return internalRttNanos;
+    }
+
+    public URI getPublicEndpoint() {
+        return publicEndpoint;
+    }
+
+    public URI getInternalEndpoint() {
+        return internalEndpoint;
+    }
+
+    private long probe(URI endpoint) {
+        InetSocketAddress address;
+        try {
+            address = new InetSocketAddress(endpoint.getHost(), EndpointUtil.getPort(endpoint));
+        } catch (IllegalArgumentException e) {
+            log.error("invalid endpoint {}", endpoint, e);
+            return -1;
+        }
+        if (address.isUnresolved()) {
+            // 内网域名通常只能在云厂商的网络内解析
+            log.debug("internal endpoint {} can not be resolved", endpoint);
+            return -1;
+        }
+
+        long minRttNanos = -1;
+        for (int i = 0; i < config.getProbeCount(); i++) {
+            long startNanos = System.nanoTime();
+            try (Socket socket = new Socket()) {
+                socket.connect(address, config.getConnectTimeoutMillis());
+                long rttNanos = System.nanoTime() - startNanos;
+                minRttNanos = minRttNanos < 0 ? rttNanos : Math.min(minRttNanos, rttNanos);
+            } catch (IOException e) {
+                log.debug("probe {} failed: {}", endpoint, e.getMessage());
+            }
+        }
+        return minRttNanos;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -4,7 +4,12 @@ import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.util.StrUtil;
 import com.amazon.s3.v2.config.S3V2Base;
+import com.amazon.s3.v2.crypto.DataKeyProvider;
+import com.amazon.s3.v2.metrics.TransferMetrics;
+import com.amazon.s3.v2.naming.ObjectKeyStrategy;
+import com.amazon.s3.v2.resilience.ConcurrencyLimitExecutionInterceptor;
 import com.amazon.s3.v2.template.AmazonS3V2Template;
+import com.amazon.s3.v2.template.LocalFileSystemV2Template;
 import com.amazon.s3.v2.utils.BucketUtil;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
@@ -13,8 +18,10 @@ import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.core.interceptor.*;
 import software.amazon.awssdk.endpoints.Endpoint;
 import software.amazon.awssdk.http.SdkHttpRequest;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.S3Utilities;
@@ -26,6 +33,8 @@ import java.lang.reflect.Field;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -92,6 +101,93 @@ public class AmazonS3V2Factory {
         }
     };
 
+    /**
+     * 额外注册到S3Client和S3AsyncClient上的拦截器，例如监控指标拦截器
+     */
+    private final List<ExecutionInterceptor> executionInterceptors = new ArrayList<>();
+
+    /**
+     * 创建的模板共享的文件传输统计信息
+     */
+    private TransferMetrics transferMetrics = new TransferMetrics();
+
+    /**
+     * 客户端加密使用的数据密钥提供者，为null时根据配置的主密钥创建
+     */
+    private DataKeyProvider dataKeyProvider;
+
+    /**
+     * 上传对象名称前缀的生成策略，为null时根据配置创建默认的策略
+     */
+    private ObjectKeyStrategy objectKeyStrategy;
+
+    public AmazonS3V2Factory() {
+    }
+
+    public AmazonS3V2Factory(Collection<? extends ExecutionInterceptor> executionInterceptors) {
+        if (executionInterceptors != null) {
+            this.executionInterceptors.addAll(executionInterceptors);
+        }
+    }
+
+    /**
+     * 添加额外的拦截器，只对之后创建的客户端生效
+     *
+     * @param executionInterceptor 拦截器
+     * @return AmazonS3V2Factory
+     */
+    public AmazonS3V2Factory addExecutionInterceptor(ExecutionInterceptor executionInterceptor) {
+        Assert.notNull(executionInterceptor, "executionInterceptor not null");
+        this.executionInterceptors.add(executionInterceptor);
+        return this;
+    }
+
+    /**
+     * 设置创建的模板使用的文件传输统计信息
+     *
+     * @param transferMetrics 文件传输统计信息
+     * @return AmazonS3V2Factory
+     */
+    public AmazonS3V2Factory transferMetrics(TransferMetrics transferMetrics) {
+        Assert.notNull(transferMetrics, "transferMetrics not null");
+        this.transferMetrics = transferMetrics;
+        return this;
+    }
+
+    /**
+     * 设置客户端加密使用的数据密钥提供者，例如基于KMS的实现
+     *
+     * @param dataKeyProvider 数据密钥提供者
+     * @return AmazonS3V2Factory
+     */
+    public AmazonS3V2Factory dataKeyProvider(DataKeyProvider dataKeyProvider) {
+        this.dataKeyProvider = dataKeyProvider;
+        return this;
+    }
+
+    /**
+     * 设置上传对象名称前缀的生成策略
+     *
+     * @param objectKeyStrategy 生成策略
+     * @return AmazonS3V2Factory
+     */
+    public AmazonS3V2Factory objectKeyStrategy(ObjectKeyStrategy objectKeyStrategy) {
+        this.objectKeyStrategy = objectKeyStrategy;
+        return this;
+    }
+
+    /**
+     * 构建客户端的覆盖配置, 处理Endpoint的拦截器永远排在第一位
+     *
+     * @return ClientOverrideConfiguration
+     */
+    private ClientOverrideConfiguration createOverrideConfiguration() {
+        ClientOverrideConfiguration.Builder builder = ClientOverrideConfiguration.builder()
+                .addExecutionInterceptor(endpointHandlerExecutionInterceptor);
+        executionInterceptors.forEach(builder::addExecutionInterceptor);
+        return builder.build();
+    }
+
 
     /**
      * 创建Amazon S3 V2的标准客户端
@@ -114,9 +210,7 @@ public class AmazonS3V2Factory {
                         .pathStyleAccessEnabled(false)
                         .chunkedEncodingEnabled(false)
                         .build())
-                .overrideConfiguration(ClientOverrideConfiguration.builder()
-                        .addExecutionInterceptor(endpointHandlerExecutionInterceptor)
-                        .build())
+                .overrideConfiguration(createOverrideConfiguration())
                 .build();
     }
 
@@ -162,7 +256,7 @@ public class AmazonS3V2Factory {
      */
     public S3AsyncClient createS3AsynClient(String endPoint, String region, String accessKey, String secretKey) throws URISyntaxException, MalformedURLException {
         AwsCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
-        return S3AsyncClient.builder()
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
                 .region(Region.of(region)) // 指定region
                 .credentialsProvider(() -> credentials) // 提供认证凭证信息
                 .endpointOverride(new URI(endPoint)) // 提供存储服务器的url
@@ -170,10 +264,14 @@ public class AmazonS3V2Factory {
                         .pathStyleAccessEnabled(false)
                         .chunkedEncodingEnabled(false)
                         .build())
-                .overrideConfiguration(ClientOverrideConfiguration.builder()
-                        .addExecutionInterceptor(endpointHandlerExecutionInterceptor)
-                        .build())
-                .build();
+                .overrideConfiguration(createOverrideConfiguration());
+        // 异步请求的并发限制在HTTP客户端中排队获取许可
+        executionInterceptors.stream()
+                .filter(ConcurrencyLimitExecutionInterceptor.class::isInstance)
+                .map(ConcurrencyLimitExecutionInterceptor.class::cast)
+                .findFirst()
+                .ifPresent(interceptor -> builder.httpClientBuilder(interceptor.wrapAsyncHttpClient(NettyNioAsyncHttpClient.builder())));
+        return builder.build();
     }
 
 
@@ -232,7 +330,7 @@ public class AmazonS3V2Factory {
      */
     public AmazonS3V2Template createAmazonS3V2Template(
             S3Client s3Client, S3AsyncClient s3AsyncClient, S3TransferManager s3TransferManager, S3Presigner s3Presigner, S3Utilities s3Utilities, S3V2Base amazonS3V2Properties) {
-        return new AmazonS3V2Template(s3Client, s3AsyncClient, s3TransferManager, s3Presigner, s3Utilities, amazonS3V2Properties);
+        return new AmazonS3V2Template(s3Client, s3AsyncClient, s3TransferManager, s3Presigner, s3Utilities, amazonS3V2Properties, transferMetrics, dataKeyProvider, objectKeyStrategy);
     }
 
 
@@ -278,4 +376,15 @@ public class AmazonS3V2Factory {
 
         return createAmazonS3V2Template(s3Client, s3AsyncClient, s3TransferManager, s3Presigner, s3Utilities, BeanUtil.toBean(s3V2Base, S3V2Base.class));
     }
+
+    /**
+     * 创建基于本地目录的模板，basePath为存储的根目录
+     *
+     * @param s3V2Base S3V2Base
+     * @return LocalFileSystemV2Template
+     */
+    public LocalFileSystemV2Template createLocalFileSystemV2Template(S3V2Base s3V2Base) {
+        Assert.notNull(s3V2Base, "s3V2Base not null");
+        return new LocalFileSystemV2Template(BeanUtil.toBean(s3V2Base, S3V2Base.class), transferMetrics, objectKeyStrategy);
+    }
 }
@@ -0,0 +1,157 @@
+package com.amazon.s3.v2.metrics;
+
+import cn.hutool.core.lang.Assert;
+import com.amazon.s3.v2.core.AmazonS3V2ExecutionInterceptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.sync.RequestBody;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description 基于Micrometer的S3请求监控拦截器
+ * <p>
+ * 每一个S3操作都会记录以下指标，并以 bucket、operation 作为标签：
+ * s3.client.requests         请求耗时(包含重试)，带百分位直方图，额外以 outcome、error 区分成功和失败
+ * s3.client.throttled        被服务端限流(503 SlowDown / 429)的响应次数，包括被SDK重试掉的
+ * s3.client.retries          SDK内部重试的次数
+ * s3.client.request.bytes    发送的请求体字节数(每次尝试都会计入)
+ * s3.client.response.bytes   接收的响应体字节数(以Content-Length为准)
+ * @since 2023/6/21 14:05:18
+ */
+public class S3MetricsExecutionInterceptor implements AmazonS3V2ExecutionInterceptor {
+    public static final String REQUESTS_METRIC = "s3.client.requests";
+    public static final String THROTTLED_METRIC = "s3.client.throttled";
+    public static final String RETRIES_METRIC = "s3.client.retries";
+    public static final String REQUEST_BYTES_METRIC = "s3.client.request.bytes";
+    public static final String RESPONSE_BYTES_METRIC = "s3.client.response.bytes";
+
+    private static final String TAG_BUCKET = "bucket";
+    private static final String TAG_OPERATION = "operation";
+    private static final String TAG_OUTCOME = "outcome";
+    private static final String TAG_ERROR = "error";
+    private static final String NONE = "none";
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final ExecutionAttribute<Long> START_TIME = new ExecutionAttribute<>("S3MetricsStartTime");
+    private static final ExecutionAttribute<Integer> ATTEMPTS = new ExecutionAttribute<>("S3MetricsAttempts");
+    private static final ExecutionAttribute<String> BUCKET = new ExecutionAttribute<>("S3MetricsBucket");
+
+    private final MeterRegistry meterRegistry;
+
+    public S3MetricsExecutionInterceptor(MeterRegistry meterRegistry) {
+        Assert.notNull(meterRegistry, "meterRegistry not null");
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_TIME, System.nanoTime());
+        executionAttributes.putAttribute(ATTEMPTS, 0);
+        executionAttributes.putAttribute(BUCKET, context.request().getValueForField("Bucket", String.class).orElse(NONE));
+    }
+
+    /**
+     * 每一次尝试(包括重试)都会回调此方法
+     */
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        Integer attempts = executionAttributes.getAttribute(ATTEMPTS);
+        executionAttributes.putAttribute(ATTEMPTS, attempts == null ? 1 : attempts + 1);
+
+        long requestBytes = context.requestBody()
+                .flatMap(RequestBody::optionalContentLength)
+                .orElseGet(() -> context.asyncRequestBody().flatMap(body -> body.contentLength()).orElse(0L));
+        if (requestBytes > 0) {
+            counter(REQUEST_BYTES_METRIC, executionAttributes).increment(requestBytes);
+        }
+    }
+
+    /**
+     * 每一次尝试都会回调此方法，所以被SDK重试掉的限流响应也会被统计到
+     */
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        int statusCode = context.httpResponse().statusCode();
+        if (statusCode == SERVICE_UNAVAILABLE || statusCode == TOO_MANY_REQUESTS) {
+            counter(THROTTLED_METRIC, executionAttributes).increment();
+        }
+
+        Optional<String> contentLength = context.httpResponse().firstMatchingHeader("Content-Length");
+        if (contentLength.isPresent()) {
+            try {
+                long responseBytes = Long.parseLong(contentLength.get());
+                if (responseBytes > 0) {
+                    counter(RESPONSE_BYTES_METRIC, executionAttributes).increment(responseBytes);
+                }
+            } catch (NumberFormatException ignored) {
+                // Content-Length不合法时不计入
+            }
+        }
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes, "success", NONE);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        Throwable exception = context.exception();
+        String error = exception.getClass().getSimpleName();
+        if (exception instanceof AwsServiceException) {
+            AwsServiceException serviceException = (AwsServiceException) exception;
+            if (serviceException.awsErrorDetails() != null && serviceException.awsErrorDetails().errorCode() != null) {
+                error = serviceException.awsErrorDetails().errorCode();
+            }
+        }
+        record(executionAttributes, "error", error);
+    }
+
+    /**
+     * 记录请求耗时和重试次数
+     */
+    private void record(ExecutionAttributes executionAttributes, String outcome, String error) {
+        Long startTime = executionAttributes.getAttribute(START_TIME);
+        if (startTime == null) {
+            // beforeExecution之前就失败了，例如参数校验失败
+            return;
+        }
+
+        Timer.builder(REQUESTS_METRIC)
+                .description("S3 client request latency, including retries")
+                .tags(tags(executionAttributes).and(TAG_OUTCOME, outcome, TAG_ERROR, error))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+
+        Integer attempts = executionAttributes.getAttribute(ATTEMPTS);
+        if (attempts != null && attempts > 1) {
+            counter(RETRIES_METRIC, executionAttributes).increment(attempts - 1);
+        }
+    }
+
+    private Counter counter(String name, ExecutionAttributes executionAttributes) {
+        Counter.Builder builder = Counter.builder(name).tags(tags(executionAttributes));
+        if (name.endsWith(".bytes")) {
+            builder.baseUnit("bytes");
+        }
+        return builder.register(meterRegistry);
+    }
+
+    private Tags tags(ExecutionAttributes executionAttributes) {
+        String bucket = executionAttributes.getAttribute(BUCKET);
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        return Tags.of(TAG_BUCKET, bucket == null ? NONE : bucket, TAG_OPERATION, operation == null ? NONE : operation);
+    }
+}
@@ -0,0 +1,227 @@
+package com.amazon.s3.v2.metrics;
+
+import cn.hutool.core.lang.Assert;
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author liuyangfang
+ * @description 文件传输(上传、下载)的统计信息
+ * <p>
+ * 每一次传输通过 {@link #newListener(TransferType)} 创建一个独立的TransferListener，
+ * 所有传输的数据汇总到本对象中，可以通过 {@link #snapshot()} 随时查询，
+ * 也可以通过 {@link #addRecorder(TransferMetricsRecorder)} 将事件转发到监控系统(如Micrometer)。
+ * 本类不依赖Micrometer。
+ * @since 2023/6/21 16:40:27
+ */
+public class TransferMetrics {
+    /**
+     * 吞吐量统计的时间窗口，单位为秒
+     */
+    private static final int WINDOW_SECONDS = 10;
+
+    private final AtomicInteger inFlightTransfers = new AtomicInteger();
+    private final LongAdder completedTransfers = new LongAdder();
+    private final LongAdder failedTransfers = new LongAdder();
+    private final LongAdder totalBytes = new LongAdder();
+
+    private final LongAdder timeToFirstByteCount = new LongAdder();
+    private final LongAdder timeToFirstByteTotalNanos = new LongAdder();
+    private final AtomicLong timeToFirstByteMaxNanos = new AtomicLong();
+
+    private final LongAdder completionTotalNanos = new LongAdder();
+    private final AtomicLong completionMaxNanos = new AtomicLong();
+
+    /**
+     * 按秒划分的环形窗口, windowSeconds[i]记录槽位对应的秒数, windowBytes[i]记录该秒内传输的字节数
+     */
+    private final AtomicLongArray windowSeconds = new AtomicLongArray(WINDOW_SECONDS + 1);
+    private final AtomicLongArray windowBytes = new AtomicLongArray(WINDOW_SECONDS + 1);
+
+    private final List<TransferMetricsRecorder> recorders = new CopyOnWriteArrayList<>();
+
+    /**
+     * 传输类型
+     */
+    public enum TransferType {
+        UPLOAD("upload"),
+        DOWNLOAD("download");
+
+        private final String value;
+
+        TransferType(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 为一次传输创建监听器，每次传输都必须使用新的监听器
+     *
+     * @param transferType 传输类型
+     * @return TransferListener
+     */
+    public TransferListener newListener(TransferType transferType) {
+        Assert.notNull(transferType, "transferType not null");
+        return new MetricsTransferListener(transferType);
+    }
+
+    /**
+     * 添加事件记录器
+     *
+     * @param recorder 事件记录器
+     */
+    public void addRecorder(TransferMetricsRecorder recorder) {
+        Assert.notNull(recorder, "recorder not null");
+        recorders.add(recorder);
+    }
+
+    public int getInFlightTransfers() {
+        return inFlightTransfers.get();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.sum();
+    }
+
+    /**
+     * 最近时间窗口内的平均吞吐量(不包含当前这一秒)
+     *
+     * @return 字节/秒
+     */
+    public double getBytesPerSecond() {
+        long currentSecond = currentSecond();
+        long bytes = 0;
+        for (int i = 0; i < windowSeconds.length(); i++) {
+            long second = windowSeconds.get(i);
+            if (second < currentSecond && second >= currentSecond - WINDOW_SECONDS) {
+                bytes += windowBytes.get(i);
+            }
+        }
+        return bytes * 1.0d / WINDOW_SECONDS;
+    }
+
+    /**
+     * 获取当前的统计快照
+     *
+     * @return TransferMetricsSnapshot
+     */
+    public TransferMetricsSnapshot snapshot() {
+        long completed = completedTransfers.sum();
+        long failed = failedTransfers.sum();
+        long finished = completed + failed;
+        long firstByteCount = timeToFirstByteCount.sum();
+        return TransferMetricsSnapshot.builder()
+                .inFlightTransfers(inFlightTransfers.get())
+                .completedTransfers(completed)
+                .failedTransfers(failed)
+                .totalBytes(totalBytes.sum())
+                .bytesPerSecond(getBytesPerSecond())
+                .averageTimeToFirstByteMillis(firstByteCount == 0 ? 0 : toMillis(timeToFirstByteTotalNanos.sum() / firstByteCount))
+                .maxTimeToFirstByteMillis(toMillis(timeToFirstByteMaxNanos.get()))
+                .averageCompletionMillis(finished == 0 ? 0 : toMillis(completionTotalNanos.sum() / finished))
+                .maxCompletionMillis(toMillis(completionMaxNanos.get()))
+                .build();
+    }
+
+    private void addBytes(long bytes) {
+        totalBytes.add(bytes);
+
+        long second = currentSecond();
+        int index = (int) (second % windowSeconds.length());
+        long slotSecond = windowSeconds.get(index);
+        if (slotSecond != second && windowSeconds.compareAndSet(index, slotSecond, second)) {
+            // 槽位过期，重置
+            windowBytes.set(index, 0);
+        }
+        windowBytes.addAndGet(index, bytes);
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0d;
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        do {
+            current = max.get();
+        } while (value > current && !max.compareAndSet(current, value));
+    }
+
+    /**
+     * 单次传输的监听器
+     */
+    private final class MetricsTransferListener implements TransferListener {
+        private final TransferType transferType;
+        private volatile long startNanos;
+        private volatile long transferredBytes;
+        private volatile boolean firstByteReceived;
+
+        private MetricsTransferListener(TransferType transferType) {
+            this.transferType = transferType;
+        }
+
+        @Override
+        public void transferInitiated(Context.TransferInitiated context) {
+            startNanos = System.nanoTime();
+            transferredBytes = context.progressSnapshot().transferredBytes();
+            inFlightTransfers.incrementAndGet();
+        }
+
+        @Override
+        public void bytesTransferred(Context.BytesTransferred context) {
+            long current = context.progressSnapshot().transferredBytes();
+            long delta = current - transferredBytes;
+            transferredBytes = current;
+            if (delta <= 0) {
+                return;
+            }
+
+            if (!firstByteReceived) {
+                firstByteReceived = true;
+                long timeToFirstByte = System.nanoTime() - startNanos;
+                timeToFirstByteCount.increment();
+                timeToFirstByteTotalNanos.add(timeToFirstByte);
+                updateMax(timeToFirstByteMaxNanos, timeToFirstByte);
+                recorders.forEach(recorder -> recorder.recordTimeToFirstByte(transferType, timeToFirstByte));
+            }
+
+            addBytes(delta);
+            recorders.forEach(recorder -> recorder.recordBytes(transferType, delta));
+        }
+
+        @Override
+        public void transferComplete(Context.TransferComplete context) {
+            completedTransfers.increment();
+            finish(true);
+        }
+
+        @Override
+        public void transferFailed(Context.TransferFailed context) {
+            failedTransfers.increment();
+            finish(false);
+        }
+
+        private void finish(boolean success) {
+            inFlightTransfers.decrementAndGet();
+            long duration = System.nanoTime() - startNanos;
+            completionTotalNanos.add(duration);
+            updateMax(completionMaxNanos, duration);
+            recorders.forEach(recorder -> recorder.recordCompletion(transferType, duration, transferredBytes, success));
+        }
+    }
+}
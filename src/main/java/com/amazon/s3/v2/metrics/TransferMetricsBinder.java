@@ -0,0 +1,96 @@
+package com.amazon.s3.v2.metrics;
+
+import cn.hutool.core.lang.Assert;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description 将文件传输的统计信息注册到Micrometer
+ * <p>
+ * s3.transfer.in.flight       正在进行中的传输数量
+ * s3.transfer.throughput      最近10秒的平均吞吐量(字节/秒)
+ * s3.transfer.total.bytes     累计传输的字节数
+ * s3.transfer.bytes           按传输类型区分的传输字节数
+ * s3.transfer.first.byte      首字节耗时，按传输类型区分
+ * s3.transfer.duration        传输完成耗时，按传输类型和结果区分
+ * @since 2023/6/21 17:02:45
+ */
+public class TransferMetricsBinder implements MeterBinder, TransferMetricsRecorder {
+    private static final String TAG_TYPE = "type";
+    private static final String TAG_OUTCOME = "outcome";
+
+    private final TransferMetrics transferMetrics;
+
+    private volatile MeterRegistry meterRegistry;
+
+    public TransferMetricsBinder(TransferMetrics transferMetrics) {
+        Assert.notNull(transferMetrics, "transferMetrics not null");
+        this.transferMetrics = transferMetrics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("s3.transfer.in.flight", transferMetrics, TransferMetrics::getInFlightTransfers)
+                .description("S3 transfers in flight")
+                .register(registry);
+        Gauge.builder("s3.transfer.throughput", transferMetrics, TransferMetrics::getBytesPerSecond)
+                .description("S3 transfer throughput over the last 10 seconds")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("s3.transfer.total.bytes", transferMetrics, TransferMetrics::getTotalBytes)
+                .baseUnit("bytes")
+                .register(registry);
+
+        if (this.meterRegistry == null) {
+            transferMetrics.addRecorder(this);
+        }
+        this.meterRegistry = registry;
+    }
+
+    @Override
+    public void recordTimeToFirstByte(TransferMetrics.TransferType transferType, long timeToFirstByteNanos) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            return;
+        }
+        Timer.builder("s3.transfer.first.byte")
+                .tag(TAG_TYPE, transferType.getValue())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(timeToFirstByteNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordBytes(TransferMetrics.TransferType transferType, long bytes) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            return;
+        }
+        Counter.builder("s3.transfer.bytes")
+                .tag(TAG_TYPE, transferType.getValue())
+                .baseUnit("bytes")
+                .register(registry)
+                .increment(bytes);
+    }
+
+    @Override
+    public void recordCompletion(TransferMetrics.TransferType transferType, long durationNanos, long transferredBytes, boolean success) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            return;
+        }
+        Timer.builder("s3.transfer.duration")
+                .tag(TAG_TYPE, transferType.getValue())
+                .tag(TAG_OUTCOME, success ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+}
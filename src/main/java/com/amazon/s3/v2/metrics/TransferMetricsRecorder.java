@@ -0,0 +1,34 @@
+package com.amazon.s3.v2.metrics;
+
+/**
+ * @author liuyangfang
+ * @description 文件传输事件的记录器，用于将传输事件转发到监控系统
+ * @since 2023/6/21 16:45:32
+ */
+public interface TransferMetricsRecorder {
+    /**
+     * 记录首字节耗时
+     *
+     * @param transferType         传输类型
+     * @param timeToFirstByteNanos 首字节耗时，单位为纳秒
+     */
+    void recordTimeToFirstByte(TransferMetrics.TransferType transferType, long timeToFirstByteNanos);
+
+    /**
+     * 记录传输的字节数
+     *
+     * @param transferType 传输类型
+     * @param bytes        本次新增传输的字节数
+     */
+    void recordBytes(TransferMetrics.TransferType transferType, long bytes);
+
+    /**
+     * 记录一次传输完成
+     *
+     * @param transferType     传输类型
+     * @param durationNanos    传输耗时，单位为纳秒
+     * @param transferredBytes 传输的总字节数
+     * @param success          是否成功
+     */
+    void recordCompletion(TransferMetrics.TransferType transferType, long durationNanos, long transferredBytes, boolean success);
+}
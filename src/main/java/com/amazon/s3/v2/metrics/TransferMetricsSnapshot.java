@@ -0,0 +1,66 @@
+package com.amazon.s3.v2.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 文件传输统计信息的快照
+ * @since 2023/6/21 16:42:10
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransferMetricsSnapshot implements Serializable {
+    private static final long serialVersionUID = -2917403658325311647L;
+
+    /**
+     * 正在进行中的传输数量
+     */
+    private int inFlightTransfers;
+
+    /**
+     * 成功完成的传输数量
+     */
+    private long completedTransfers;
+
+    /**
+     * 失败的传输数量
+     */
+    private long failedTransfers;
+
+    /**
+     * 累计传输的字节数
+     */
+    private long totalBytes;
+
+    /**
+     * 最近10秒的平均吞吐量，单位为字节/秒
+     */
+    private double bytesPerSecond;
+
+    /**
+     * 平均首字节耗时，单位为毫秒
+     */
+    private double averageTimeToFirstByteMillis;
+
+    /**
+     * 最大首字节耗时，单位为毫秒
+     */
+    private double maxTimeToFirstByteMillis;
+
+    /**
+     * 平均完成耗时(包括失败的传输)，单位为毫秒
+     */
+    private double averageCompletionMillis;
+
+    /**
+     * 最大完成耗时，单位为毫秒
+     */
+    private double maxCompletionMillis;
+}
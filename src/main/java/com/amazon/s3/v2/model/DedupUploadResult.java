@@ -0,0 +1,46 @@
+package com.amazon.s3.v2.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 按内容去重上传的结果
+ * @since 2023/6/29 10:30:18
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DedupUploadResult implements Serializable {
+    private static final long serialVersionUID = 8392017455326177390L;
+
+    /**
+     * 业务对象名称
+     */
+    private String objectName;
+
+    /**
+     * 实际保存数据的对象名称
+     */
+    private String blobKey;
+
+    /**
+     * 内容摘要，小写十六进制
+     */
+    private String contentHash;
+
+    /**
+     * 内容长度
+     */
+    private long contentLength;
+
+    /**
+     * 数据是否已经存在，为true时没有上传任何内容
+     */
+    private boolean deduplicated;
+}
@@ -0,0 +1,47 @@
+package com.amazon.s3.v2.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * @author liuyangfang
+ * @description 本地存储对象的元数据，以json格式保存在对象的旁路文件(sidecar)中
+ * @since 2023/6/22 10:12:36
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LocalObjectMetadata implements Serializable {
+    private static final long serialVersionUID = 6021391815237541036L;
+
+    /**
+     * 对象类型
+     */
+    private String contentType;
+
+    /**
+     * 对象的eTag，和S3保持一致：普通上传为内容的MD5，分片上传为 MD5(所有分片MD5拼接)-分片数量
+     */
+    private String etag;
+
+    /**
+     * 对象的大小
+     */
+    private long contentLength;
+
+    /**
+     * 最后修改时间，毫秒时间戳
+     */
+    private long lastModified;
+
+    /**
+     * 用户自定义的元数据
+     */
+    private Map<String, String> metadata;
+}
@@ -0,0 +1,36 @@
+package com.amazon.s3.v2.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 打包对象中的一个文件
+ * @since 2023/6/29 15:08:27
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PackEntry implements Serializable {
+    private static final long serialVersionUID = -3570183405523349812L;
+
+    /**
+     * 文件名称，即文件相对于上传目录的路径，使用'/'分隔
+     */
+    private String name;
+
+    /**
+     * 文件内容在打包对象中的起始位置
+     */
+    private long offset;
+
+    /**
+     * 文件长度
+     */
+    private long length;
+}
@@ -0,0 +1,92 @@
+package com.amazon.s3.v2.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author liuyangfang
+ * @description 打包上传的清单，记录每个打包对象包含的文件名称范围
+ * <p>
+ * 文件按名称排序后依次写入打包对象，所以每个打包对象覆盖一段连续的名称，查找文件时二分查找所在的打包对象即可，
+ * 清单的大小只和打包对象的数量有关，和文件数量无关。
+ * @since 2023/6/29 15:12:40
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PackManifest implements Serializable {
+    private static final long serialVersionUID = 1289654110386245702L;
+
+    /**
+     * 按名称范围排序的打包对象
+     */
+    @Builder.Default
+    private List<Pack> packs = new ArrayList<>();
+
+    /**
+     * 查找文件所在的打包对象
+     *
+     * @param entryName 文件名称
+     * @return 打包对象，文件名称不在任何打包对象的范围内时返回空
+     */
+    public Optional<Pack> findPack(String entryName) {
+        int low = 0;
+        int high = packs.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Pack pack = packs.get(middle);
+            if (entryName.compareTo(pack.getFirstEntryName()) < 0) {
+                high = middle - 1;
+            } else if (entryName.compareTo(pack.getLastEntryName()) > 0) {
+                low = middle + 1;
+            } else {
+                return Optional.of(pack);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 一个打包对象
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Pack implements Serializable {
+        private static final long serialVersionUID = -6416402447395184165L;
+
+        /**
+         * 打包对象名称
+         */
+        private String objectName;
+
+        /**
+         * 第一个文件名称
+         */
+        private String firstEntryName;
+
+        /**
+         * 最后一个文件名称
+         */
+        private String lastEntryName;
+
+        /**
+         * 文件数量
+         */
+        private int entryCount;
+
+        /**
+         * 打包对象的长度，包含索引
+         */
+        private long contentLength;
+    }
+}
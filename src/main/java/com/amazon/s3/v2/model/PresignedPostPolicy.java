@@ -0,0 +1,38 @@
+package com.amazon.s3.v2.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * @author liuyangfang
+ * @description POST表单直传所需的信息，浏览器把fields依次作为表单字段，文件作为最后一个名为file的字段，以multipart/form-data提交到url
+ * @since 2023/6/27 15:08:26
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PresignedPostPolicy implements Serializable {
+    private static final long serialVersionUID = 6139820459273216604L;
+
+    /**
+     * 表单提交的地址，即桶的基础访问路径
+     */
+    private String url;
+
+    /**
+     * 表单字段，包含key、policy和签名相关的字段
+     */
+    private Map<String, String> fields;
+
+    /**
+     * policy的过期时间
+     */
+    private Instant expiration;
+}
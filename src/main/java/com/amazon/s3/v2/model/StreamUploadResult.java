@@ -0,0 +1,51 @@
+package com.amazon.s3.v2.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author liuyangfang
+ * @description 流式上传multipart/form-data请求中一个文件的结果
+ * @since 2023/6/26 15:20:41
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StreamUploadResult implements Serializable {
+    private static final long serialVersionUID = -4462198103755262310L;
+
+    /**
+     * 表单字段名称
+     */
+    private String fieldName;
+
+    /**
+     * 浏览器提交的原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 存储的对象名称
+     */
+    private String objectName;
+
+    /**
+     * 对象类型
+     */
+    private String contentType;
+
+    /**
+     * 对象大小
+     */
+    private long contentLength;
+
+    /**
+     * 对象的eTag
+     */
+    private String eTag;
+}
@@ -0,0 +1,56 @@
+package com.amazon.s3.v2.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author liuyangfang
+ * @description 增量目录同步的结果
+ * @since 2023/6/30 10:20:45
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SyncResult implements Serializable {
+    private static final long serialVersionUID = -3386719215067249805L;
+
+    /**
+     * 传输的文件数量
+     */
+    private int transferredCount;
+
+    /**
+     * 传输的字节数，加密对象为明文长度
+     */
+    private long transferredBytes;
+
+    /**
+     * 没有变化、不需要传输的文件数量
+     */
+    private int skippedCount;
+
+    /**
+     * 删除的多余文件数量
+     */
+    private int deletedCount;
+
+    /**
+     * 传输或者删除失败的文件，为相对于同步目录的路径
+     */
+    @Builder.Default
+    private List<String> failedNames = new ArrayList<>();
+
+    /**
+     * @return 是否全部同步成功
+     */
+    public boolean isSuccess() {
+        return failedNames.isEmpty();
+    }
+}
@@ -28,4 +28,22 @@ public interface IEnum<T extends Serializable> {
      * @return Https形式的访问站点
      */
     String getHttpsEndpoint();
+
+    /**
+     * 获取Http形式的内网访问站点
+     *
+     * @return Http形式的内网访问站点，没有单独的内网站点时返回null
+     */
+    default String getHttpInnerEndpoint() {
+        return null;
+    }
+
+    /**
+     * 获取Https形式的内网访问站点
+     *
+     * @return Https形式的内网访问站点，没有单独的内网站点时返回null
+     */
+    default String getHttpsInnerEndpoint() {
+        return null;
+    }
 }
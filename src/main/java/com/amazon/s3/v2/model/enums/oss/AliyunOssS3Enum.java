@@ -285,6 +285,8 @@ public enum AliyunOssS3Enum implements IEnum<String> {
     OSS_ME_EAST_1("oss-me-east-1", "oss-me-east-1.aliyuncs.com", "oss-me-east-1-internal.aliyuncs.com", "阿联酋（迪拜）①"),
     OSS_RG_CHINA_MAINLAND("oss-rg-china-mainland", "oss-rg-china-mainland.aliyuncs.com", "不支持", "无地域属性（中国内地）");
 
+    private static final String INNER_ENDPOINT_SUFFIX = "-internal.aliyuncs.com";
+
     /**
      * 存储的地域信息
      */
@@ -326,4 +328,23 @@ public enum AliyunOssS3Enum implements IEnum<String> {
     public String getHttpsEndpoint() {
         return HTTPS_PREFIX + outEndpoint;
     }
+
+    @Override
+    public String getHttpInnerEndpoint() {
+        return hasInnerEndpoint() ? HTTP_PREFIX + innerEndpoint : null;
+    }
+
+    @Override
+    public String getHttpsInnerEndpoint() {
+        return hasInnerEndpoint() ? HTTPS_PREFIX + innerEndpoint : null;
+    }
+
+    /**
+     * 无地域属性的 endPoint 不支持内网访问
+     *
+     * @return true: 有内网站点
+     */
+    public boolean hasInnerEndpoint() {
+        return innerEndpoint.endsWith(INNER_ENDPOINT_SUFFIX);
+    }
 }
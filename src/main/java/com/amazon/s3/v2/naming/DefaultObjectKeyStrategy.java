@@ -0,0 +1,110 @@
+package com.amazon.s3.v2.naming;
+
+import cn.hutool.core.lang.Assert;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static com.amazon.s3.v2.constant.BusinessV2Constant.FILE_NAME_PATTERN;
+import static com.amazon.s3.v2.constant.BusinessV2Constant.FILE_SEPARATOR;
+
+/**
+ * @author liuyangfang
+ * @description 默认的对象名称前缀生成策略
+ * <p>
+ * shardCount不大于1时为 {baseDir}/yyyy/MM/dd/{id}，和之前的格式相同；
+ * 大于1时在基础路径后面加上由ID哈希得到的十六进制分片 {baseDir}/{shard}/yyyy/MM/dd/{id}，
+ * 同一天的写入分散到shardCount个前缀下，S3可以按前缀拆分分区，避免高并发写入集中在一个分区上触发503 SlowDown。
+ * 日期路径按天缓存，不需要每次格式化。
+ * @since 2023/7/2 17:25:16
+ */
+public class DefaultObjectKeyStrategy implements ObjectKeyStrategy {
+    /**
+     * 分片数量的上限，最多3位十六进制
+     */
+    public static final int MAX_SHARD_COUNT = 4096;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final int shardCount;
+
+    /**
+     * 分片的十六进制位数，所有分片等长，按字典序列举时不会交错
+     */
+    private final int shardWidth;
+
+    private volatile DatePath datePath;
+
+    public DefaultObjectKeyStrategy() {
+        this(0);
+    }
+
+    public DefaultObjectKeyStrategy(int shardCount) {
+        Assert.checkBetween(shardCount, 0, MAX_SHARD_COUNT);
+        this.shardCount = shardCount;
+        int width = 0;
+        for (int remaining = shardCount - 1; remaining > 0; remaining >>>= 4) {
+            width++;
+        }
+        this.shardWidth = width;
+    }
+
+    @Override
+    public String getUploadObjectNamePrefix(String baseDir) {
+        String id = ObjectIdGenerator.nextId();
+        StringBuilder stringBuilder = new StringBuilder(baseDir.length() + 52);
+        stringBuilder.append(baseDir).append(FILE_SEPARATOR);
+        if (shardCount > 1) {
+            int shard = Integer.remainderUnsigned(mix(id.hashCode()), shardCount);
+            for (int i = (shardWidth - 1) * 4; i >= 0; i -= 4) {
+                stringBuilder.append(HEX_DIGITS[(shard >>> i) & 0xF]);
+            }
+            stringBuilder.append(FILE_SEPARATOR);
+        }
+        stringBuilder.append(currentDatePath()).append(FILE_SEPARATOR).append(id);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * @return 当天的日期路径，跨天或者系统时间回拨后重新计算
+     */
+    private String currentDatePath() {
+        long now = System.currentTimeMillis();
+        DatePath current = datePath;
+        if (current == null || now < current.startMillis || now >= current.endMillis) {
+            ZoneId zoneId = ZoneId.systemDefault();
+            LocalDate today = LocalDate.now(zoneId);
+            current = new DatePath(today.format(FILE_NAME_PATTERN),
+                    today.atStartOfDay(zoneId).toInstant().toEpochMilli(),
+                    today.plusDays(1).atStartOfDay(zoneId).toInstant().toEpochMilli());
+            datePath = current;
+        }
+        return current.path;
+    }
+
+    /**
+     * murmur3的终结函数，ID的hashCode低位不够均匀
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static class DatePath {
+        private final String path;
+
+        private final long startMillis;
+
+        private final long endMillis;
+
+        private DatePath(String path, long startMillis, long endMillis) {
+            this.path = path;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+    }
+}
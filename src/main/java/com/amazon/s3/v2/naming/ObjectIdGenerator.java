@@ -0,0 +1,47 @@
+package com.amazon.s3.v2.naming;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author liuyangfang
+ * @description 对象名称中使用的唯一ID，32位十六进制字符，格式和去掉'-'的UUID相同
+ * <p>
+ * UUID.randomUUID每次都要从SecureRandom取随机数，高并发时会竞争同一个锁。这里前16位来自ThreadLocalRandom，
+ * 后16位是进程内递增的计数乘以一个奇数常量(对2^64是一一映射)再加上启动时从SecureRandom取得的随机盐，
+ * 同一个进程内不会重复，不同进程之间依靠随机盐和前16位的随机数区分，生成时不加锁。
+ * @since 2023/7/2 17:10:34
+ */
+public final class ObjectIdGenerator {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * 黄金分割比例对应的64位奇数，相邻的计数映射后高位也不同
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final long SALT = new SecureRandom().nextLong();
+
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    private ObjectIdGenerator() {
+    }
+
+    /**
+     * @return 新的唯一ID
+     */
+    public static String nextId() {
+        char[] chars = new char[32];
+        writeHex(chars, 0, ThreadLocalRandom.current().nextLong());
+        writeHex(chars, 16, COUNTER.incrementAndGet() * GOLDEN_GAMMA + SALT);
+        return new String(chars);
+    }
+
+    private static void writeHex(char[] chars, int offset, long value) {
+        for (int i = offset + 15; i >= offset; i--) {
+            chars[i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.amazon.s3.v2.naming;
+
+import com.amazon.s3.v2.config.S3V2ObjectKeyConfig;
+
+/**
+ * @author liuyangfang
+ * @description 上传对象名称前缀的生成策略，getUploadObjectNamePrefix/handlerUploadObjectName通过它生成对象名称
+ * <p>
+ * 默认实现为 {@link DefaultObjectKeyStrategy}，需要其他的目录结构时实现此接口，注册为Spring Bean或者通过AmazonS3V2Factory设置。
+ * @since 2023/7/2 17:02:51
+ */
+public interface ObjectKeyStrategy {
+
+    /**
+     * 生成上传对象名称的前缀，每次调用都必须返回不同的结果
+     *
+     * @param baseDir 基础路径，不为空
+     * @return 对象名称的前缀，不以'/'结尾
+     */
+    String getUploadObjectNamePrefix(String baseDir);
+
+    /**
+     * 根据配置创建默认的策略
+     *
+     * @param config 配置，为null时使用默认配置
+     * @return ObjectKeyStrategy
+     */
+    static ObjectKeyStrategy create(S3V2ObjectKeyConfig config) {
+        return new DefaultObjectKeyStrategy(config == null ? 0 : config.getShardCount());
+    }
+}
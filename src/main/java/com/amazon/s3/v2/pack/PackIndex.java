@@ -0,0 +1,157 @@
+package com.amazon.s3.v2.pack;
+
+import com.amazon.s3.v2.model.PackEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * @author liuyangfang
+ * @description 打包对象的索引
+ * <p>
+ * 尾部固定为24字节：索引起始位置(8) | 索引长度(4) | 索引的CRC32(4) | 版本(4) | 魔数(4)，
+ * 读取时先读取末尾的一段内容解析尾部，索引通常也在这一段内容中，不需要再发出请求。
+ * @since 2023/6/29 15:46:19
+ */
+public class PackIndex {
+    /**
+     * 尾部长度
+     */
+    public static final int FOOTER_LENGTH = 24;
+
+    private static final int MAGIC = 0x5333504B;
+    private static final int VERSION = 1;
+
+    private final Map<String, PackEntry> entryMap;
+
+    private final List<PackEntry> entries;
+
+    private PackIndex(List<PackEntry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.entryMap = new HashMap<>((int) (entries.size() / 0.75f) + 1);
+        for (PackEntry entry : entries) {
+            entryMap.put(entry.getName(), entry);
+        }
+    }
+
+    /**
+     * 生成尾部
+     *
+     * @param indexOffset 索引起始位置
+     * @param indexLength 索引长度
+     * @param indexCrc32  索引的CRC32
+     * @return 尾部
+     */
+    static byte[] footer(long indexOffset, int indexLength, int indexCrc32) {
+        return ByteBuffer.allocate(FOOTER_LENGTH)
+                .putLong(indexOffset)
+                .putInt(indexLength)
+                .putInt(indexCrc32)
+                .putInt(VERSION)
+                .putInt(MAGIC)
+                .array();
+    }
+
+    /**
+     * 解析尾部
+     *
+     * @param bytes  包含尾部的内容
+     * @param offset 尾部在内容中的起始位置
+     * @return 尾部
+     * @throws IOException 不是打包对象
+     */
+    public static Footer parseFooter(byte[] bytes, int offset) throws IOException {
+        if (offset < 0 || bytes.length - offset < FOOTER_LENGTH) {
+            throw new IOException("pack object is too short");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, FOOTER_LENGTH);
+        long indexOffset = buffer.getLong();
+        int indexLength = buffer.getInt();
+        int indexCrc32 = buffer.getInt();
+        int version = buffer.getInt();
+        if (buffer.getInt() != MAGIC || version != VERSION) {
+            throw new IOException("not a pack object, or the pack version " + version + " is not supported");
+        }
+        return new Footer(indexOffset, indexLength, indexCrc32);
+    }
+
+    /**
+     * 解析索引
+     *
+     * @param bytes  包含索引的内容
+     * @param offset 索引在内容中的起始位置
+     * @param footer 尾部
+     * @return 索引
+     * @throws IOException 索引损坏
+     */
+    public static PackIndex parse(byte[] bytes, int offset, Footer footer) throws IOException {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, offset, footer.getIndexLength());
+        if ((int) crc32.getValue() != footer.getIndexCrc32()) {
+            throw new IOException("pack index is corrupted");
+        }
+
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(bytes, offset, footer.getIndexLength()));
+        int entryCount = inputStream.readInt();
+        List<PackEntry> entries = new ArrayList<>(entryCount);
+        long position = 0;
+        for (int index = 0; index < entryCount; index++) {
+            String name = inputStream.readUTF();
+            long length = inputStream.readLong();
+            entries.add(new PackEntry(name, position, length));
+            position += length;
+        }
+        if (position != footer.getIndexOffset()) {
+            throw new IOException("pack index does not match the content length");
+        }
+        return new PackIndex(entries);
+    }
+
+    /**
+     * @param entryName 文件名称
+     * @return 文件在打包对象中的位置
+     */
+    public Optional<PackEntry> getEntry(String entryName) {
+        return Optional.ofNullable(entryMap.get(entryName));
+    }
+
+    /**
+     * @return 按名称排序的所有文件
+     */
+    public List<PackEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 打包对象的尾部
+     */
+    public static class Footer {
+        private final long indexOffset;
+
+        private final int indexLength;
+
+        private final int indexCrc32;
+
+        private Footer(long indexOffset, int indexLength, int indexCrc32) {
+            this.indexOffset = indexOffset;
+            this.indexLength = indexLength;
+            this.indexCrc32 = indexCrc32;
+        }
+
+        public long getIndexOffset() {
+            return indexOffset;
+        }
+
+        public int getIndexLength() {
+            return indexLength;
+        }
+
+        public int getIndexCrc32() {
+            return indexCrc32;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.amazon.s3.v2.pack;
+
+import cn.hutool.core.lang.Assert;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * @author liuyangfang
+ * @description 把多个文件依次写入一个打包对象，关闭时在末尾写入索引和固定长度的尾部
+ * <p>
+ * 打包对象的格式为 文件内容... | 索引 | 尾部，文件内容之间没有任何分隔，索引只记录文件名称和长度，位置由长度累加得到。
+ * 文件名称必须严格递增，这样多个打包对象的名称范围互不重叠，清单可以按名称范围查找。
+ * @since 2023/6/29 15:30:06
+ */
+public class PackWriter implements AutoCloseable {
+    private final OutputStream outputStream;
+
+    private final List<String> entryNames = new ArrayList<>();
+
+    private final List<Long> entryLengths = new ArrayList<>();
+
+    private long position;
+
+    private boolean closed;
+
+    /**
+     * @param outputStream 打包对象的输出流，关闭时一起关闭
+     */
+    public PackWriter(OutputStream outputStream) {
+        Assert.notNull(outputStream, "outputStream not null");
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * 写入一个文件
+     *
+     * @param entryName   文件名称，必须大于之前写入的文件名称
+     * @param inputStream 文件内容，不会被关闭
+     * @return 文件长度
+     * @throws IOException 读取或者写入失败
+     */
+    public long addEntry(String entryName, InputStream inputStream) throws IOException {
+        Assert.notEmpty(entryName, "entryName not empty");
+        Assert.isFalse(closed, "pack writer is closed");
+        Assert.isTrue(entryNames.isEmpty() || entryName.compareTo(getLastEntryName()) > 0,
+                "entry [{}] must be greater than [{}]", entryName, getLastEntryName());
+        long length = IOUtils.copyLarge(inputStream, outputStream);
+        entryNames.add(entryName);
+        entryLengths.add(length);
+        position += length;
+        return length;
+    }
+
+    /**
+     * 写入索引和尾部，并关闭打包对象的输出流
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream(entryNames.size() * 32 + 4);
+        try (DataOutputStream indexOutputStream = new DataOutputStream(indexBytes)) {
+            indexOutputStream.writeInt(entryNames.size());
+            for (int index = 0; index < entryNames.size(); index++) {
+                indexOutputStream.writeUTF(entryNames.get(index));
+                indexOutputStream.writeLong(entryLengths.get(index));
+            }
+        }
+        byte[] index = indexBytes.toByteArray();
+        CRC32 crc32 = new CRC32();
+        crc32.update(index, 0, index.length);
+
+        outputStream.write(index);
+        outputStream.write(PackIndex.footer(position, index.length, (int) crc32.getValue()));
+        position += index.length + PackIndex.FOOTER_LENGTH;
+        outputStream.close();
+    }
+
+    /**
+     * @return 已经写入的长度，关闭后为打包对象的总长度
+     */
+    public long getSize() {
+        return position;
+    }
+
+    public int getEntryCount() {
+        return entryNames.size();
+    }
+
+    public String getFirstEntryName() {
+        return entryNames.isEmpty() ? null : entryNames.get(0);
+    }
+
+    public String getLastEntryName() {
+        return entryNames.isEmpty() ? null : entryNames.get(entryNames.size() - 1);
+    }
+}
@@ -0,0 +1,431 @@
+package com.amazon.s3.v2.presign;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.amazon.s3.v2.model.PresignedPostPolicy;
+import software.amazon.awssdk.utils.BinaryUtils;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * @author liuyangfang
+ * @description 批量生成预签名GET url的签名器
+ * <p>
+ * S3Presigner#presignGetObject 每次调用都会走一遍完整的请求管道(拦截器、Endpoint解析、签名key派生)，
+ * 当列表接口一次需要返回成百上千个下载链接时，这部分开销非常可观。
+ * 这里按照 AWS Signature Version 4 的查询字符串签名规则自行签名：
+ * 签名key按照 日期/区域 只派生一次并缓存，之后对每一个对象只需要做一次SHA256和一次HmacSHA256。
+ * <p>
+ * 同样的方式也用于浏览器直传：批量签名分片上传的UploadPart url，以及签名POST表单上传的policy。
+ * @link https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-query-string-auth.html
+ * @link https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-HTTPPOSTConstructPolicy.html
+ * @since 2023/6/20 10:12:36
+ */
+public class S3V2BatchPresigner {
+    public static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    public static final String SERVICE_NAME = "s3";
+    public static final String TERMINATOR = "aws4_request";
+    public static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    /**
+     * 预签名url的最长有效期为7天
+     */
+    public static final Duration MAX_SIGNATURE_TIME = Duration.ofDays(7);
+
+    /**
+     * S3规定分片的编号在1到10000之间
+     */
+    public static final int MAX_PART_NUMBER = 10000;
+
+    /**
+     * POST表单上传时，对象名称中的该占位符会被替换为浏览器提交的文件名
+     */
+    public static final String FILENAME_PLACEHOLDER = "${filename}";
+
+    private static final String GET = "GET";
+    private static final String PUT = "PUT";
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final String SHA256 = "SHA-256";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    /**
+     * 访问凭证名
+     */
+    private final String accessKey;
+
+    /**
+     * 访问凭证秘钥
+     */
+    private final String secretKey;
+
+    /**
+     * 存储服务器所在的区域
+     */
+    private final String region;
+
+    /**
+     * 当前使用的签名key，签名key只和日期、区域、服务相关，所以一天只需要派生一次
+     */
+    private volatile SigningKey signingKey;
+
+    public S3V2BatchPresigner(String accessKey, String secretKey, String region) {
+        Assert.notEmpty(accessKey, "accessKey not empty");
+        Assert.notEmpty(secretKey, "secretKey not empty");
+        Assert.notEmpty(region, "region not empty");
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+    }
+
+    /**
+     * 批量生成预签名的GET url
+     *
+     * @param bucketBaseUrl 桶的基础访问路径，以'/'结尾，如：https://bucket.endpoint/ 或 http://endpoint/bucket/
+     * @param objectNames   对象名称集合
+     * @param signatureTime 签名url过期时间
+     * @param parallel      是否并行签名
+     * @return 对象名称 -> 预签名url，顺序和传入的对象名称保持一致
+     */
+    public Map<String, URL> presignGetObjects(String bucketBaseUrl, Collection<String> objectNames, Duration signatureTime, boolean parallel) {
+        Assert.notEmpty(bucketBaseUrl, "bucketBaseUrl not empty");
+        checkSignatureTime(signatureTime);
+        if (objectNames == null || objectNames.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        Instant now = Instant.now();
+        SigningKey key = getSigningKey(now);
+        BatchContext context = new BatchContext(bucketBaseUrl, now, key, signatureTime);
+
+        List<String> objectNameList = new ArrayList<>(objectNames);
+        URL[] urls = new URL[objectNameList.size()];
+        if (parallel && objectNameList.size() > 1) {
+            // Mac和MessageDigest都不是线程安全的，这里每个线程持有一份
+            ThreadLocal<Signer> signerThreadLocal = ThreadLocal.withInitial(() -> new Signer(key.getKey()));
+            IntStream.range(0, urls.length)
+                    .parallel()
+                    .forEach(index -> urls[index] = context.presign(signerThreadLocal.get(), GET, objectNameList.get(index), ""));
+        } else {
+            Signer signer = new Signer(key.getKey());
+            for (int index = 0; index < urls.length; index++) {
+                urls[index] = context.presign(signer, GET, objectNameList.get(index), "");
+            }
+        }
+
+        Map<String, URL> urlMap = new LinkedHashMap<>(urls.length * 4 / 3 + 1);
+        for (int index = 0; index < urls.length; index++) {
+            urlMap.put(objectNameList.get(index), urls[index]);
+        }
+        return urlMap;
+    }
+
+    /**
+     * 批量生成分片上传的UploadPart url，浏览器直接PUT分片内容，响应头中的ETag用于完成分片上传
+     *
+     * @param bucketBaseUrl 桶的基础访问路径，以'/'结尾
+     * @param objectName    对象名称
+     * @param uploadId      分片上传的ID
+     * @param partCount     分片数量，编号从1开始
+     * @param signatureTime 签名url过期时间
+     * @return 分片编号 -> 预签名url
+     */
+    public Map<Integer, URL> presignUploadParts(String bucketBaseUrl, String objectName, String uploadId, int partCount, Duration signatureTime) {
+        Assert.notEmpty(bucketBaseUrl, "bucketBaseUrl not empty");
+        Assert.notEmpty(objectName, "object name is not empty");
+        Assert.notEmpty(uploadId, "uploadId not empty");
+        Assert.isTrue(partCount >= 1 && partCount <= MAX_PART_NUMBER, "partCount must be between 1 and 10000");
+        checkSignatureTime(signatureTime);
+
+        Instant now = Instant.now();
+        SigningKey key = getSigningKey(now);
+        BatchContext context = new BatchContext(bucketBaseUrl, now, key, signatureTime);
+        Signer signer = new Signer(key.getKey());
+
+        // 查询参数按照名称排序，小写的partNumber、uploadId排在X-Amz-*之后
+        String uploadIdQuery = "&uploadId=" + SdkHttpUtils.urlEncode(uploadId);
+        Map<Integer, URL> urlMap = new LinkedHashMap<>(partCount * 4 / 3 + 1);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            urlMap.put(partNumber, context.presign(signer, PUT, objectName, "&partNumber=" + partNumber + uploadIdQuery));
+        }
+        return urlMap;
+    }
+
+    /**
+     * 生成POST表单上传的policy和签名，浏览器把fields作为表单字段，文件作为最后一个名为file的字段提交到url
+     *
+     * @param bucketBaseUrl    桶的基础访问路径，表单提交的地址
+     * @param bucketName       桶名称
+     * @param objectName       对象名称，以'/'结尾时作为前缀，对象名称为 前缀 + 浏览器提交的文件名
+     * @param contentType      对象类型，为空时不限制
+     * @param minContentLength 文件的最小字节数
+     * @param maxContentLength 文件的最大字节数
+     * @param signatureTime    policy的过期时间
+     * @return 表单上传所需的url和字段
+     */
+    public PresignedPostPolicy presignPostPolicy(String bucketBaseUrl, String bucketName, String objectName, String contentType,
+                                                 long minContentLength, long maxContentLength, Duration signatureTime) {
+        Assert.notEmpty(bucketBaseUrl, "bucketBaseUrl not empty");
+        Assert.notEmpty(bucketName, "bucket name is not empty");
+        Assert.notEmpty(objectName, "object name is not empty");
+        Assert.isTrue(minContentLength >= 0 && minContentLength <= maxContentLength, "content length range is invalid");
+        checkSignatureTime(signatureTime);
+
+        Instant now = Instant.now();
+        Instant expiration = now.plus(signatureTime).truncatedTo(ChronoUnit.SECONDS);
+        String amzDate = formatAmzDate(now);
+        String credential = getCredential(now);
+        boolean isPrefix = objectName.endsWith("/");
+
+        JSONArray conditions = new JSONArray();
+        conditions.add(new JSONObject().set("bucket", bucketName));
+        conditions.add(isPrefix ? new JSONArray().set("starts-with").set("$key").set(objectName)
+                : new JSONArray().set("eq").set("$key").set(objectName));
+        if (StrUtil.isNotEmpty(contentType)) {
+            conditions.add(new JSONArray().set("eq").set("$Content-Type").set(contentType));
+        }
+        conditions.add(new JSONArray().set("content-length-range").set(minContentLength).set(maxContentLength));
+        conditions.add(new JSONObject().set("x-amz-algorithm", ALGORITHM));
+        conditions.add(new JSONObject().set("x-amz-credential", credential));
+        conditions.add(new JSONObject().set("x-amz-date", amzDate));
+        String policy = new JSONObject(true)
+                .set("expiration", expiration.toString())
+                .set("conditions", conditions)
+                .toString();
+        String encodedPolicy = Base64.getEncoder().encodeToString(policy.getBytes(StandardCharsets.UTF_8));
+
+        // 字段的顺序即表单的顺序，file字段必须放在最后
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("key", isPrefix ? objectName + FILENAME_PLACEHOLDER : objectName);
+        if (StrUtil.isNotEmpty(contentType)) {
+            fields.put("Content-Type", contentType);
+        }
+        fields.put("policy", encodedPolicy);
+        fields.put("x-amz-algorithm", ALGORITHM);
+        fields.put("x-amz-credential", credential);
+        fields.put("x-amz-date", amzDate);
+        fields.put("x-amz-signature", sign(now, encodedPolicy));
+
+        return PresignedPostPolicy.builder()
+                .url(bucketBaseUrl)
+                .fields(fields)
+                .expiration(expiration)
+                .build();
+    }
+
+    /**
+     * 获取签名范围, 格式为：20230620/us-east-1/s3/aws4_request
+     *
+     * @param instant 签名时间
+     * @return 签名范围
+     */
+    public String getCredentialScope(Instant instant) {
+        return DATE_FORMATTER.format(instant) + "/" + region + "/" + SERVICE_NAME + "/" + TERMINATOR;
+    }
+
+    /**
+     * 获取签名凭证，格式为：accessKey/20230620/us-east-1/s3/aws4_request
+     *
+     * @param instant 签名时间
+     * @return 签名凭证
+     */
+    public String getCredential(Instant instant) {
+        return accessKey + "/" + getCredentialScope(instant);
+    }
+
+    /**
+     * 使用派生好的签名key对字符串进行签名
+     *
+     * @param instant      签名时间
+     * @param stringToSign 待签名的字符串
+     * @return 十六进制的签名
+     */
+    public String sign(Instant instant, String stringToSign) {
+        return new Signer(getSigningKey(instant).getKey()).hmacHex(stringToSign);
+    }
+
+    /**
+     * 格式化为 X-Amz-Date 所需的格式
+     *
+     * @param instant 时间
+     * @return 20230620T101236Z
+     */
+    public static String formatAmzDate(Instant instant) {
+        return DATE_TIME_FORMATTER.format(instant);
+    }
+
+    /**
+     * 获取签名key, 只有当日期变化的时候才会重新派生
+     *
+     * @param instant 签名时间
+     * @return 签名key
+     */
+    private SigningKey getSigningKey(Instant instant) {
+        String dateStamp = DATE_FORMATTER.format(instant);
+        SigningKey current = signingKey;
+        if (current != null && current.getDateStamp().equals(dateStamp)) {
+            return current;
+        }
+
+        byte[] kDate = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+        byte[] kRegion = hmac(kDate, region);
+        byte[] kService = hmac(kRegion, SERVICE_NAME);
+        SigningKey derived = new SigningKey(dateStamp, hmac(kService, TERMINATOR));
+        signingKey = derived;
+        return derived;
+    }
+
+    private static void checkSignatureTime(Duration signatureTime) {
+        Assert.notNull(signatureTime, "signatureTime not null");
+        Assert.isTrue(!signatureTime.isNegative() && !signatureTime.isZero() && signatureTime.compareTo(MAX_SIGNATURE_TIME) <= 0,
+                "signatureTime must be between 1 second and 7 days");
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA256);
+            mac.init(new SecretKeySpec(key, HMAC_SHA256));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("derive signing key failed", e);
+        }
+    }
+
+    /**
+     * 一次批量签名中所有对象共享的部分
+     */
+    private final class BatchContext {
+        private final String baseUrl;
+        private final String canonicalBasePath;
+        private final String canonicalHeaders;
+        private final String canonicalQueryString;
+        private final String stringToSignPrefix;
+
+        private BatchContext(String bucketBaseUrl, Instant now, SigningKey key, Duration signatureTime) {
+            URL url;
+            try {
+                url = new URL(bucketBaseUrl);
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException(String.format("bucketBaseUrl [%s] is invalid", bucketBaseUrl), e);
+            }
+
+            String amzDate = formatAmzDate(now);
+            String credentialScope = key.getDateStamp() + "/" + region + "/" + SERVICE_NAME + "/" + TERMINATOR;
+
+            this.baseUrl = bucketBaseUrl.endsWith("/") ? bucketBaseUrl : bucketBaseUrl + "/";
+            String path = url.getPath();
+            this.canonicalBasePath = path.endsWith("/") ? path : path + "/";
+            this.canonicalHeaders = "host:" + hostHeader(url) + "\n";
+            // 查询参数必须按照参数名称排序
+            this.canonicalQueryString = "X-Amz-Algorithm=" + ALGORITHM
+                    + "&X-Amz-Credential=" + SdkHttpUtils.urlEncode(accessKey + "/" + credentialScope)
+                    + "&X-Amz-Date=" + amzDate
+                    + "&X-Amz-Expires=" + signatureTime.getSeconds()
+                    + "&X-Amz-SignedHeaders=host";
+            this.stringToSignPrefix = ALGORITHM + "\n" + amzDate + "\n" + credentialScope + "\n";
+        }
+
+        /**
+         * @param extraQueryString 额外的查询参数，以'&'开头，名称必须排在X-Amz-*之后并且已经排好序
+         */
+        private URL presign(Signer signer, String method, String objectName, String extraQueryString) {
+            Assert.notEmpty(objectName, "object name is not empty");
+            String encodedObjectName = SdkHttpUtils.urlEncodeIgnoreSlashes(objectName);
+            String queryString = canonicalQueryString + extraQueryString;
+
+            String canonicalRequest = method + "\n"
+                    + canonicalBasePath + encodedObjectName + "\n"
+                    + queryString + "\n"
+                    + canonicalHeaders + "\n"
+                    + "host\n"
+                    + UNSIGNED_PAYLOAD;
+            String stringToSign = stringToSignPrefix + signer.sha256Hex(canonicalRequest);
+            String signature = signer.hmacHex(stringToSign);
+
+            try {
+                return new URL(baseUrl + encodedObjectName + "?" + queryString + "&X-Amz-Signature=" + signature);
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException(String.format("object [%s] can not build url", objectName), e);
+            }
+        }
+
+        /**
+         * 默认端口不参与签名
+         */
+        private String hostHeader(URL url) {
+            int port = url.getPort();
+            if (port == -1 || port == url.getDefaultPort()) {
+                return url.getHost();
+            }
+            return url.getHost() + ":" + port;
+        }
+    }
+
+    /**
+     * 持有已经初始化好的Mac和MessageDigest，非线程安全
+     */
+    private static final class Signer {
+        private final Mac mac;
+        private final MessageDigest messageDigest;
+
+        private Signer(byte[] signingKey) {
+            try {
+                this.mac = Mac.getInstance(HMAC_SHA256);
+                this.mac.init(new SecretKeySpec(signingKey, HMAC_SHA256));
+                this.messageDigest = MessageDigest.getInstance(SHA256);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("init signer failed", e);
+            }
+        }
+
+        private String sha256Hex(String data) {
+            return BinaryUtils.toHex(messageDigest.digest(data.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        private String hmacHex(String data) {
+            return BinaryUtils.toHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * 派生后的签名key
+     */
+    private static final class SigningKey {
+        private final String dateStamp;
+        private final byte[] key;
+
+        private SigningKey(String dateStamp, byte[] key) {
+            this.dateStamp = dateStamp;
+            this.key = key;
+        }
+
+        private String getDateStamp() {
+            return dateStamp;
+        }
+
+        private byte[] getKey() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.amazon.s3.v2.resilience;
+
+import cn.hutool.core.lang.Assert;
+import com.amazon.s3.v2.config.S3V2ConcurrencyLimitConfig;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author liuyangfang
+ * @description AIMD算法的自适应并发限制器
+ * <p>
+ * 每成功一个请求，如果请求耗时稳定并且并发确实用到了上限的一半以上，上限增加 1/上限，
+ * 相当于每一轮(上限个请求)增加1；收到限流响应时上限乘以backoffRatio，两次减小之间至少间隔backoffIntervalMillis。
+ * 请求耗时和对象大小相关，所以耗时只用来判断是否可以增长，不会因为耗时变长而减小上限。
+ * 同步调用方在tryAcquire中等待；异步调用方通过acquireAsync排队，不占用线程，归还许可时按排队顺序交给下一个等待者。
+ * @since 2023/6/24 14:30:06
+ */
+public class AdaptiveConcurrencyLimiter {
+    /**
+     * 平均耗时的平滑系数
+     */
+    private static final double LATENCY_SMOOTHING = 0.05;
+
+    private final S3V2ConcurrencyLimitConfig config;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition permitAvailable = lock.newCondition();
+
+    /**
+     * 异步等待许可的调用方，按排队顺序获得许可
+     */
+    private final Deque<CompletableFuture<Void>> asyncWaiters = new ArrayDeque<>();
+
+    private double limit;
+
+    private int inFlight;
+
+    private double averageLatencyNanos;
+
+    private long lastBackoffNanos;
+
+    private long throttledCount;
+
+    public AdaptiveConcurrencyLimiter(S3V2ConcurrencyLimitConfig config) {
+        Assert.notNull(config, "config not null");
+        Assert.isTrue(config.getMinLimit() >= 1 && config.getMinLimit() <= config.getMaxLimit(), "limit range is invalid");
+        Assert.isTrue(config.getBackoffRatio() > 0 && config.getBackoffRatio() < 1, "backoffRatio must be between 0 and 1");
+        this.config = config;
+        this.limit = Math.min(Math.max(config.getInitialLimit(), config.getMinLimit()), config.getMaxLimit());
+        this.lastBackoffNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(config.getBackoffIntervalMillis());
+    }
+
+    /**
+     * 获取一个许可，达到并发上限时等待
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 是否获取成功
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = permitAvailable.awaitNanos(remainingNanos);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 异步获取一个许可，达到并发上限时排队，不阻塞调用线程
+     *
+     * @return 获得许可时完成，在归还许可的线程上完成；取消返回的future会放弃排队
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (asyncWaiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                permit.complete(null);
+                return permit;
+            }
+            asyncWaiters.addLast(permit);
+        } finally {
+            lock.unlock();
+        }
+        // 排队期间被取消时从队列中移除，已经获得的许可由调用方归还
+        permit.whenComplete((ignored, e) -> {
+            if (permit.isCancelled()) {
+                lock.lock();
+                try {
+                    asyncWaiters.remove(permit);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+        return permit;
+    }
+
+    /**
+     * 请求成功，归还许可
+     *
+     * @param latencyNanos 请求耗时
+     */
+    public void onSuccess(long latencyNanos) {
+        List<CompletableFuture<Void>> granted;
+        lock.lock();
+        try {
+            boolean stable = averageLatencyNanos == 0 || latencyNanos <= averageLatencyNanos * config.getLatencyTolerance();
+            averageLatencyNanos = averageLatencyNanos == 0 ? latencyNanos :
+                    averageLatencyNanos + (latencyNanos - averageLatencyNanos) * LATENCY_SMOOTHING;
+
+            // 并发远小于上限时说明瓶颈不在这里，不需要继续增长
+            if (stable && inFlight * 2 >= limit) {
+                limit = Math.min(limit + 1 / limit, config.getMaxLimit());
+            }
+            granted = release();
+        } finally {
+            lock.unlock();
+        }
+        grant(granted);
+    }
+
+    /**
+     * 收到了限流响应，每一次尝试(包括SDK内部的重试)都会调用，不归还许可
+     */
+    public void onThrottled() {
+        lock.lock();
+        try {
+            throttledCount++;
+            long now = System.nanoTime();
+            if (now - lastBackoffNanos >= TimeUnit.MILLISECONDS.toNanos(config.getBackoffIntervalMillis())) {
+                lastBackoffNanos = now;
+                limit = Math.max(limit * config.getBackoffRatio(), config.getMinLimit());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 请求失败，只归还许可，限流已经在onThrottled中处理
+     */
+    public void onFailure() {
+        List<CompletableFuture<Void>> granted;
+        lock.lock();
+        try {
+            granted = release();
+        } finally {
+            lock.unlock();
+        }
+        grant(granted);
+    }
+
+    /**
+     * 归还许可，有空闲时先交给异步排队的调用方，再唤醒同步等待的线程
+     *
+     * @return 获得许可的异步调用方，需要在锁外完成
+     */
+    private List<CompletableFuture<Void>> release() {
+        inFlight--;
+        List<CompletableFuture<Void>> granted = null;
+        while (inFlight < (int) limit && !asyncWaiters.isEmpty()) {
+            if (granted == null) {
+                granted = new ArrayList<>(1);
+            }
+            granted.add(asyncWaiters.pollFirst());
+            inFlight++;
+        }
+        if (inFlight < (int) limit) {
+            permitAvailable.signalAll();
+        }
+        return granted;
+    }
+
+    /**
+     * 在锁外完成，回调中会发出请求；已经被取消的等待者不会再使用许可，直接归还
+     */
+    private void grant(List<CompletableFuture<Void>> granted) {
+        if (granted == null) {
+            return;
+        }
+        for (CompletableFuture<Void> permit : granted) {
+            if (!permit.complete(null)) {
+                onFailure();
+            }
+        }
+    }
+
+    /**
+     * @return 当前的并发上限
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 当前进行中的请求数量
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 异步排队等待许可的调用方数量
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return asyncWaiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 收到的限流响应次数
+     */
+    public long getThrottledCount() {
+        lock.lock();
+        try {
+            return throttledCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
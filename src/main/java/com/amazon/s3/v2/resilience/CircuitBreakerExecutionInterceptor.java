@@ -0,0 +1,109 @@
+package com.amazon.s3.v2.resilience;
+
+import cn.hutool.core.lang.Assert;
+import com.amazon.s3.v2.config.S3V2CircuitBreakerConfig;
+import com.amazon.s3.v2.core.AmazonS3V2ExecutionInterceptor;
+import com.amazon.s3.v2.utils.EndpointUtil;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author liuyangfang
+ * @description 按 endPoint 熔断的拦截器
+ * <p>
+ * 按请求实际发往的 endPoint 统计，多 endPoint 选择或内网改写之后，一个 endPoint 故障不会影响其他 endPoint。
+ * 首次发送前(beforeTransmission，此时请求的host已经确定)检查熔断状态，熔断期间直接抛出RequestNotPermittedException，
+ * 请求不会建立连接，也不会等待SDK的超时，模板方法捕获异常后立即返回空结果。一次操作(包含SDK内部的重试)只统计一次结果。
+ * @since 2023/6/25 10:16:52
+ */
+public class CircuitBreakerExecutionInterceptor implements AmazonS3V2ExecutionInterceptor {
+    private static final int SERVER_ERROR = 500;
+
+    private static final ExecutionAttribute<Call> CALL = new ExecutionAttribute<>("S3CircuitBreakerCall");
+
+    private final S3V2CircuitBreakerConfig config;
+
+    private final Map<String, EndpointCircuitBreaker> circuitBreakerMap = new ConcurrentHashMap<>();
+
+    public CircuitBreakerExecutionInterceptor(S3V2CircuitBreakerConfig config) {
+        Assert.notNull(config, "config not null");
+        this.config = config;
+    }
+
+    /**
+     * 每一次尝试都会回调此方法，只在首次尝试时检查，SDK内部的重试发往同一个 endPoint
+     */
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        if (executionAttributes.getAttribute(CALL) != null) {
+            return;
+        }
+        String bucket = context.request().getValueForField("Bucket", String.class).orElse(null);
+        String key = EndpointUtil.getTargetEndpoint(context.httpRequest(), bucket);
+        EndpointCircuitBreaker circuitBreaker = circuitBreakerMap.computeIfAbsent(key, k -> new EndpointCircuitBreaker(k, config));
+        if (!circuitBreaker.tryAcquirePermission()) {
+            throw RequestNotPermittedException.create("circuit breaker of " + key + " is open, request is not permitted");
+        }
+        executionAttributes.putAttribute(CALL, new Call(circuitBreaker));
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        Call call = executionAttributes.getAttribute(CALL);
+        if (call != null && call.completed.compareAndSet(false, true)) {
+            call.circuitBreaker.onResult(false, System.nanoTime() - call.startNanos);
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        Call call = executionAttributes.getAttribute(CALL);
+        if (call != null && call.completed.compareAndSet(false, true)) {
+            if (LocalFailures.isLocal(context.exception())) {
+                // 本地拒绝、取消或中断的请求不统计，归还试探名额
+                call.circuitBreaker.releasePermission();
+            } else {
+                call.circuitBreaker.onResult(isFailure(context.exception()), System.nanoTime() - call.startNanos);
+            }
+        }
+    }
+
+    /**
+     * 4xx响应说明 endPoint 可以正常处理请求，不算失败
+     */
+    private static boolean isFailure(Throwable exception) {
+        if (exception instanceof SdkServiceException) {
+            return ((SdkServiceException) exception).statusCode() >= SERVER_ERROR;
+        }
+        return true;
+    }
+
+    /**
+     * @return host:port -> 熔断器，可以用来查询熔断状态
+     */
+    public Map<String, EndpointCircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(circuitBreakerMap);
+    }
+
+    /**
+     * 一次放行的操作，保证只记录一次结果
+     */
+    private static class Call {
+        private final EndpointCircuitBreaker circuitBreaker;
+
+        private final long startNanos = System.nanoTime();
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Call(EndpointCircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.amazon.s3.v2.resilience;
+
+import cn.hutool.core.lang.Assert;
+import org.reactivestreams.Publisher;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.http.async.AsyncExecuteRequest;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpResponseHandler;
+import software.amazon.awssdk.utils.AttributeMap;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * @author liuyangfang
+ * @description S3AsyncClient的并发限制，包装SDK底层的异步HTTP客户端
+ * <p>
+ * 拦截器的回调都是同步的，异步请求在拦截器中只能阻塞或者失败，所以在这里限制：
+ * 每一次尝试发送前异步获取许可，达到上限时排队，获得许可后才交给底层的HTTP客户端，不占用任何线程；
+ * 尝试结束(响应读取完成、失败或者被取消)时归还许可，收到限流响应时减小上限。
+ * 请求实际发往的 endPoint + 桶 由ConcurrencyLimitExecutionInterceptor在beforeTransmission中按调用ID登记，
+ * 没有登记的请求直接发送。
+ * @since 2023/6/24 15:40:21
+ */
+class ConcurrencyLimitAsyncHttpClient implements SdkAsyncHttpClient {
+    private final SdkAsyncHttpClient delegate;
+
+    private final ConcurrencyLimitExecutionInterceptor interceptor;
+
+    ConcurrencyLimitAsyncHttpClient(SdkAsyncHttpClient delegate, ConcurrencyLimitExecutionInterceptor interceptor) {
+        Assert.notNull(delegate, "delegate not null");
+        this.delegate = delegate;
+        this.interceptor = interceptor;
+    }
+
+    @Override
+    public CompletableFuture<Void> execute(AsyncExecuteRequest request) {
+        AdaptiveConcurrencyLimiter limiter = interceptor.getAsyncLimiter(request.request());
+        if (limiter == null) {
+            return delegate.execute(request);
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture<Void> permit = limiter.acquireAsync();
+        // 调用方取消时放弃排队，已经发出的请求一起取消
+        result.whenComplete((ignored, e) -> {
+            if (result.isCancelled()) {
+                permit.cancel(false);
+            }
+        });
+        permit.thenRun(() -> {
+            if (result.isDone()) {
+                limiter.onFailure();
+                return;
+            }
+            long startNanos = System.nanoTime();
+            CompletableFuture<Void> execution;
+            try {
+                execution = delegate.execute(withThrottleListener(request, limiter));
+            } catch (RuntimeException e) {
+                limiter.onFailure();
+                result.completeExceptionally(e);
+                return;
+            }
+            execution.whenComplete((ignored, e) -> {
+                if (e == null) {
+                    limiter.onSuccess(System.nanoTime() - startNanos);
+                    result.complete(null);
+                } else {
+                    limiter.onFailure();
+                    result.completeExceptionally(e);
+                }
+            });
+            result.whenComplete((ignored, e) -> {
+                if (result.isCancelled()) {
+                    execution.cancel(true);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * 响应头到达时检查是否被限流
+     */
+    private static AsyncExecuteRequest withThrottleListener(AsyncExecuteRequest request, AdaptiveConcurrencyLimiter limiter) {
+        SdkAsyncHttpResponseHandler responseHandler = request.responseHandler();
+        AsyncExecuteRequest.Builder builder = AsyncExecuteRequest.builder()
+                .request(request.request())
+                .requestContentPublisher(request.requestContentPublisher())
+                .fullDuplex(request.fullDuplex())
+                .httpExecutionAttributes(request.httpExecutionAttributes())
+                .responseHandler(new SdkAsyncHttpResponseHandler() {
+                    @Override
+                    public void onHeaders(SdkHttpResponse headers) {
+                        if (ConcurrencyLimitExecutionInterceptor.isThrottled(headers.statusCode())) {
+                            limiter.onThrottled();
+                        }
+                        responseHandler.onHeaders(headers);
+                    }
+
+                    @Override
+                    public void onStream(Publisher<ByteBuffer> stream) {
+                        responseHandler.onStream(stream);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        responseHandler.onError(error);
+                    }
+                });
+        request.metricCollector().ifPresent(builder::metricCollector);
+        return builder.build();
+    }
+
+    @Override
+    public String clientName() {
+        return delegate.clientName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    /**
+     * 由SDK传入默认配置创建底层的HTTP客户端，客户端随S3AsyncClient一起关闭
+     */
+    static class Builder implements SdkAsyncHttpClient.Builder<Builder> {
+        private final Function<AttributeMap, SdkAsyncHttpClient> delegateFactory;
+
+        private final ConcurrencyLimitExecutionInterceptor interceptor;
+
+        Builder(Function<AttributeMap, SdkAsyncHttpClient> delegateFactory, ConcurrencyLimitExecutionInterceptor interceptor) {
+            this.delegateFactory = delegateFactory;
+            this.interceptor = interceptor;
+        }
+
+        @Override
+        public SdkAsyncHttpClient buildWithDefaults(AttributeMap serviceDefaults) {
+            return new ConcurrencyLimitAsyncHttpClient(delegateFactory.apply(serviceDefaults), interceptor);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.amazon.s3.v2.resilience;
+
+import cn.hutool.core.lang.Assert;
+import com.amazon.s3.v2.config.S3V2ConcurrencyLimitConfig;
+import com.amazon.s3.v2.core.AmazonS3V2ExecutionInterceptor;
+import com.amazon.s3.v2.utils.EndpointUtil;
+import software.amazon.awssdk.core.ClientType;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.http.SdkHttpRequest;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author liuyangfang
+ * @description 按 endPoint + 桶 限制进行中的S3请求数量的拦截器
+ * <p>
+ * 同时注册在S3Client和S3AsyncClient上，一次操作(包含SDK内部的重试)占用一个许可。endPoint取请求实际发往的host，
+ * 多 endPoint 选择或内网改写之后，一个 endPoint 的限流不会降低其他 endPoint 的上限。
+ * S3Client的许可在首次发送前(beforeTransmission，此时请求的host已经确定)获取，达到上限时阻塞调用线程最多acquireTimeoutMillis，形成反压，
+ * 操作结束(成功或失败)时归还许可。
+ * S3AsyncClient的调用线程可能是Netty或Reactor的事件循环线程，不能阻塞，拦截器只登记请求发往的 endPoint + 桶，
+ * 由wrapAsyncHttpClient包装的HTTP客户端在每一次尝试发送前异步排队获取许可，超过上限的请求排队等待，不会失败。
+ * 每一次尝试收到的限流响应都会减小上限。
+ * @since 2023/6/24 15:02:44
+ */
+public class ConcurrencyLimitExecutionInterceptor implements AmazonS3V2ExecutionInterceptor {
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String NONE = "none";
+
+    /**
+     * SDK为每一次操作生成的调用ID，同一次操作的重试相同，用来把异步请求和登记的限流key对应起来
+     */
+    private static final String INVOCATION_ID_HEADER = "amz-sdk-invocation-id";
+
+    private static final ExecutionAttribute<String> INVOCATION_ID = new ExecutionAttribute<>("S3ConcurrencyLimitInvocationId");
+
+    private static final ExecutionAttribute<Permit> PERMIT = new ExecutionAttribute<>("S3ConcurrencyLimitPermit");
+
+    private final S3V2ConcurrencyLimitConfig config;
+
+    private final Map<String, AdaptiveConcurrencyLimiter> limiterMap = new ConcurrentHashMap<>();
+
+    /**
+     * 进行中的异步操作，调用ID -> 限流key，操作结束时移除
+     */
+    private final Map<String, String> asyncKeyMap = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitExecutionInterceptor(S3V2ConcurrencyLimitConfig config) {
+        Assert.notNull(config, "config not null");
+        this.config = config;
+    }
+
+    /**
+     * 包装S3AsyncClient的HTTP客户端，异步请求在其中排队获取许可
+     *
+     * @param delegate 底层的HTTP客户端，例如NettyNioAsyncHttpClient.builder()
+     * @return 传给S3AsyncClient.builder().httpClientBuilder
+     */
+    public SdkAsyncHttpClient.Builder<?> wrapAsyncHttpClient(SdkAsyncHttpClient.Builder<?> delegate) {
+        Assert.notNull(delegate, "delegate not null");
+        return new ConcurrencyLimitAsyncHttpClient.Builder(delegate::buildWithDefaults, this);
+    }
+
+    /**
+     * 每一次尝试都会回调此方法，只在首次尝试时获取许可，SDK内部的重试发往同一个 endPoint
+     */
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        if (executionAttributes.getAttribute(PERMIT) != null) {
+            return;
+        }
+        String bucket = context.request().getValueForField("Bucket", String.class).orElse(null);
+        String key = EndpointUtil.getTargetEndpoint(context.httpRequest(), bucket) + "/" + (bucket == null ? NONE : bucket);
+
+        // 异步客户端不能在这里等待，只登记，由包装的HTTP客户端排队获取许可
+        if (executionAttributes.getAttribute(SdkExecutionAttribute.CLIENT_TYPE) == ClientType.ASYNC) {
+            context.httpRequest().firstMatchingHeader(INVOCATION_ID_HEADER).ifPresent(invocationId -> {
+                asyncKeyMap.put(invocationId, key);
+                executionAttributes.putAttribute(INVOCATION_ID, invocationId);
+            });
+            return;
+        }
+
+        AdaptiveConcurrencyLimiter limiter = getLimiter(key);
+        long timeoutMillis = config.getAcquireTimeoutMillis();
+        boolean acquired;
+        try {
+            acquired = limiter.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw RequestNotPermittedException.create("interrupted while waiting for the concurrency limit of " + key, e);
+        }
+        if (!acquired) {
+            throw RequestNotPermittedException.create(String.format("concurrency limit %d of %s exceeded, waited %d ms",
+                    limiter.getLimit(), key, timeoutMillis));
+        }
+        executionAttributes.putAttribute(PERMIT, new Permit(limiter));
+    }
+
+    /**
+     * 每一次尝试都会回调此方法，被SDK重试掉的限流响应同样会减小上限
+     */
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        Permit permit = executionAttributes.getAttribute(PERMIT);
+        if (permit != null && isThrottled(context.httpResponse().statusCode())) {
+            permit.limiter.onThrottled();
+        }
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        removeAsyncKey(executionAttributes);
+        Permit permit = executionAttributes.getAttribute(PERMIT);
+        if (permit != null && permit.released.compareAndSet(false, true)) {
+            permit.limiter.onSuccess(System.nanoTime() - permit.startNanos);
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        removeAsyncKey(executionAttributes);
+        Permit permit = executionAttributes.getAttribute(PERMIT);
+        if (permit != null && permit.released.compareAndSet(false, true)) {
+            permit.limiter.onFailure();
+        }
+    }
+
+    private void removeAsyncKey(ExecutionAttributes executionAttributes) {
+        String invocationId = executionAttributes.getAttribute(INVOCATION_ID);
+        if (invocationId != null) {
+            asyncKeyMap.remove(invocationId);
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter getLimiter(String key) {
+        return limiterMap.computeIfAbsent(key, k -> new AdaptiveConcurrencyLimiter(config));
+    }
+
+    /**
+     * @param request 即将由异步HTTP客户端发送的请求
+     * @return 登记过的异步请求的限制器，没有登记时为null
+     */
+    AdaptiveConcurrencyLimiter getAsyncLimiter(SdkHttpRequest request) {
+        String key = request.firstMatchingHeader(INVOCATION_ID_HEADER).map(asyncKeyMap::get).orElse(null);
+        return key == null ? null : getLimiter(key);
+    }
+
+    static boolean isThrottled(int statusCode) {
+        return statusCode == SERVICE_UNAVAILABLE || statusCode == TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * @return host:port/桶 -> 限制器，可以用来查询当前的并发上限
+     */
+    public Map<String, AdaptiveConcurrencyLimiter> getLimiters() {
+        return Collections.unmodifiableMap(limiterMap);
+    }
+
+    /**
+     * 一次操作占用的许可，保证只归还一次
+     */
+    private static class Permit {
+        private final AdaptiveConcurrencyLimiter limiter;
+
+        private final long startNanos = System.nanoTime();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdaptiveConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+    }
+}
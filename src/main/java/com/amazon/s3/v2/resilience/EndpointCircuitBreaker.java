@@ -0,0 +1,200 @@
+package com.amazon.s3.v2.resilience;
+
+import cn.hutool.core.lang.Assert;
+import com.amazon.s3.v2.config.S3V2CircuitBreakerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author liuyangfang
+ * @description 单个 endPoint 的熔断器
+ * <p>
+ * 关闭状态下把请求结果记录在固定大小的环形数组中，失败率或慢请求率超过阈值时进入熔断状态；
+ * 熔断状态下拒绝所有请求，等待时间过后进入半开状态，只放行固定数量的试探请求，
+ * 试探请求全部结束后按它们的失败率和慢请求率决定关闭还是重新熔断。
+ * @since 2023/6/25 9:41:37
+ */
+@Slf4j
+public class EndpointCircuitBreaker {
+    private static final byte FAILURE = 1;
+
+    private static final byte SLOW = 2;
+
+    /**
+     * 熔断器的状态
+     */
+    public enum State {
+        /**
+         * 正常放行
+         */
+        CLOSED,
+        /**
+         * 熔断，拒绝所有请求
+         */
+        OPEN,
+        /**
+         * 半开，只放行试探请求
+         */
+        HALF_OPEN
+    }
+
+    private final String name;
+
+    private final S3V2CircuitBreakerConfig config;
+
+    private final long slowCallDurationNanos;
+
+    private final long waitDurationNanos;
+
+    private final byte[] outcomes;
+
+    private State state = State.CLOSED;
+
+    private int nextIndex;
+
+    private int callCount;
+
+    private int failureCount;
+
+    private int slowCount;
+
+    private long stateChangedNanos = System.nanoTime();
+
+    private int halfOpenPermitted;
+
+    private int halfOpenCompleted;
+
+    private int halfOpenFailures;
+
+    private int halfOpenSlow;
+
+    public EndpointCircuitBreaker(String name, S3V2CircuitBreakerConfig config) {
+        Assert.notNull(config, "config not null");
+        Assert.isTrue(config.getSlidingWindowSize() > 0, "slidingWindowSize must be positive");
+        Assert.isTrue(config.getPermittedCallsInHalfOpenState() > 0, "permittedCallsInHalfOpenState must be positive");
+        this.name = name;
+        this.config = config;
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDurationThresholdMillis());
+        this.waitDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.getWaitDurationInOpenStateMillis());
+        this.outcomes = new byte[config.getSlidingWindowSize()];
+    }
+
+    /**
+     * 判断是否放行一次请求，放行的请求结束后必须调用 {@link #onResult(boolean, long)} 或者 {@link #releasePermission()}
+     *
+     * @return true: 放行
+     */
+    public synchronized boolean tryAcquirePermission() {
+        long now = System.nanoTime();
+        if (state == State.OPEN) {
+            if (now - stateChangedNanos < waitDurationNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN, now);
+        }
+        if (state == State.HALF_OPEN) {
+            // 试探请求迟迟没有结果(例如被其他拦截器提前终止)时，重新放行一批，避免一直停留在半开状态
+            if (halfOpenPermitted >= config.getPermittedCallsInHalfOpenState() && now - stateChangedNanos >= waitDurationNanos) {
+                transitionTo(State.HALF_OPEN, now);
+            }
+            if (halfOpenPermitted >= config.getPermittedCallsInHalfOpenState()) {
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次放行的请求的结果
+     *
+     * @param failure       是否失败
+     * @param durationNanos 请求耗时
+     */
+    public synchronized void onResult(boolean failure, long durationNanos) {
+        boolean slow = durationNanos > slowCallDurationNanos;
+        if (state == State.CLOSED) {
+            record(failure, slow);
+            if (callCount >= config.getMinimumNumberOfCalls() && exceedsThreshold(failureCount, slowCount, callCount)) {
+                log.warn("circuit breaker of {} is open, failure rate {}%, slow call rate {}%", name,
+                        failureCount * 100 / callCount, slowCount * 100 / callCount);
+                transitionTo(State.OPEN, System.nanoTime());
+            }
+        } else if (state == State.HALF_OPEN) {
+            halfOpenCompleted++;
+            halfOpenFailures += failure ? 1 : 0;
+            halfOpenSlow += slow ? 1 : 0;
+            if (halfOpenCompleted >= config.getPermittedCallsInHalfOpenState()) {
+                if (exceedsThreshold(halfOpenFailures, halfOpenSlow, halfOpenCompleted)) {
+                    log.warn("circuit breaker of {} is open again after {} trial calls", name, halfOpenCompleted);
+                    transitionTo(State.OPEN, System.nanoTime());
+                } else {
+                    log.info("circuit breaker of {} is closed", name);
+                    transitionTo(State.CLOSED, System.nanoTime());
+                }
+            }
+        }
+        // 熔断状态下结束的请求是熔断之前放行的，不再统计
+    }
+
+    /**
+     * 放行的请求没有发往 endPoint 或者被调用方取消，不记录结果，只归还半开状态的试探名额
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermitted > halfOpenCompleted) {
+            halfOpenPermitted--;
+        }
+    }
+
+    /**
+     * @return 当前状态
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - stateChangedNanos >= waitDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return 当前统计窗口内的失败率，单位为百分比，请求数量不足时返回-1
+     */
+    public synchronized double getFailureRate() {
+        return callCount < config.getMinimumNumberOfCalls() ? -1 : failureCount * 100.0 / callCount;
+    }
+
+    private boolean exceedsThreshold(int failures, int slowCalls, int calls) {
+        return failures * 100.0 / calls >= config.getFailureRateThreshold()
+                || slowCalls * 100.0 / calls >= config.getSlowCallRateThreshold();
+    }
+
+    private void record(boolean failure, boolean slow) {
+        if (callCount == outcomes.length) {
+            byte evicted = outcomes[nextIndex];
+            failureCount -= (evicted & FAILURE) != 0 ? 1 : 0;
+            slowCount -= (evicted & SLOW) != 0 ? 1 : 0;
+        } else {
+            callCount++;
+        }
+        outcomes[nextIndex] = (byte) ((failure ? FAILURE : 0) | (slow ? SLOW : 0));
+        nextIndex = (nextIndex + 1) % outcomes.length;
+        failureCount += failure ? 1 : 0;
+        slowCount += slow ? 1 : 0;
+    }
+
+    private void transitionTo(State newState, long now) {
+        state = newState;
+        stateChangedNanos = now;
+        halfOpenPermitted = 0;
+        halfOpenCompleted = 0;
+        halfOpenFailures = 0;
+        halfOpenSlow = 0;
+        if (newState == State.CLOSED) {
+            nextIndex = 0;
+            callCount = 0;
+            failureCount = 0;
+            slowCount = 0;
+        }
+    }
+}
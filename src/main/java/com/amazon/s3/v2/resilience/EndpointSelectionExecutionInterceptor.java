@@ -0,0 +1,286 @@
+package com.amazon.s3.v2.resilience;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.StrUtil;
+import com.amazon.s3.v2.config.S3V2MultiEndpointConfig;
+import com.amazon.s3.v2.core.AmazonS3V2ExecutionInterceptor;
+import com.amazon.s3.v2.utils.EndpointUtil;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.http.SdkHttpRequest;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author liuyangfang
+ * @description 在多个 endPoint 之间按耗时和健康状态选择的拦截器
+ * <p>
+ * 在modifyHttpRequest中把请求的host(虚拟主机风格时保留桶名前缀)、端口和协议改写为选中的 endPoint，签名在此之后进行。
+ * 选择时比较 平均耗时 * (进行中的请求数 + 1)，兼顾耗时和负载；连续失败达到阈值的 endPoint 被暂时摘除，
+ * 之后的请求转移到其他 endPoint。modifyHttpRequest每次操作只调用一次，SDK内部的重试仍然发往同一个 endPoint：
+ * 签名包含host，每一次尝试都会重新签名，而beforeTransmission等按尝试回调的方法中请求已经签名且不能修改，所以无法按尝试改写。
+ * <p>
+ * 预签名URL不经过拦截器，始终使用endPoint。
+ * @since 2023/6/25 15:36:40
+ */
+@Slf4j
+public class EndpointSelectionExecutionInterceptor implements AmazonS3V2ExecutionInterceptor {
+    private static final int SERVER_ERROR = 500;
+
+    /**
+     * 每个新样本至少占平均耗时的比例，样本密集时平均值也能及时变化
+     */
+    private static final double MIN_SAMPLE_WEIGHT = 0.1;
+
+    private static final ExecutionAttribute<Selection> SELECTION = new ExecutionAttribute<>("S3EndpointSelection");
+
+    private final S3V2MultiEndpointConfig config;
+
+    private final URI primary;
+
+    private final Map<String, EndpointStats> statsMap = new LinkedHashMap<>();
+
+    private final List<EndpointStats> candidates;
+
+    public EndpointSelectionExecutionInterceptor(String endPoint, S3V2MultiEndpointConfig config) {
+        Assert.notBlank(endPoint, "endPoint not blank");
+        Assert.notNull(config, "config not null");
+        Assert.isTrue(config.getExplorationRatio() >= 0 && config.getExplorationRatio() < 1, "explorationRatio must be between 0 and 1");
+        this.config = config;
+        this.primary = URI.create(endPoint);
+        statsMap.put(endPoint, new EndpointStats(endPoint, primary));
+        if (config.getEndpoints() != null) {
+            for (String endpoint : config.getEndpoints()) {
+                if (StrUtil.isNotBlank(endpoint) && !statsMap.containsKey(endpoint)) {
+                    URI uri = URI.create(endpoint);
+                    Assert.notBlank(uri.getHost(), "endpoint {} has no host", endpoint);
+                    statsMap.put(endpoint, new EndpointStats(endpoint, uri));
+                }
+            }
+        }
+        this.candidates = Collections.unmodifiableList(new ArrayList<>(statsMap.values()));
+    }
+
+    @Override
+    public SdkHttpRequest modifyHttpRequest(Context.ModifyHttpRequest context, ExecutionAttributes executionAttributes) {
+        SdkHttpRequest request = context.httpRequest();
+        if (!EndpointUtil.isTargeting(request, primary)) {
+            // 不是发往endPoint的请求，不参与选择
+            return request;
+        }
+
+        EndpointStats selected = select();
+        selected.onStart();
+        executionAttributes.putAttribute(SELECTION, new Selection(selected));
+        return selected.uri == primary ? request : EndpointUtil.rewrite(request, primary, selected.uri);
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        Selection selection = executionAttributes.getAttribute(SELECTION);
+        if (selection != null) {
+            selection.attemptStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 每一次尝试收到响应头时记录耗时
+     */
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        Selection selection = executionAttributes.getAttribute(SELECTION);
+        if (selection != null && selection.attemptStartNanos > 0) {
+            selection.stats.recordLatency(System.nanoTime() - selection.attemptStartNanos);
+        }
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        Selection selection = executionAttributes.getAttribute(SELECTION);
+        if (selection != null && selection.completed.compareAndSet(false, true)) {
+            selection.stats.onComplete(false);
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        Selection selection = executionAttributes.getAttribute(SELECTION);
+        if (selection != null && selection.completed.compareAndSet(false, true)) {
+            Throwable exception = context.exception();
+            // 本地拒绝、取消或中断的请求只归还进行中的计数，不算 endPoint 的失败
+            boolean failure = !LocalFailures.isLocal(exception) && (!(exception instanceof SdkServiceException)
+                    || ((SdkServiceException) exception).statusCode() >= SERVER_ERROR);
+            selection.stats.onComplete(failure);
+        }
+    }
+
+    /**
+     * @return 所有候选 endPoint 的状态
+     */
+    public List<EndpointStats> getEndpointStats() {
+        return candidates;
+    }
+
+    private EndpointStats select() {
+        long now = System.nanoTime();
+        List<EndpointStats> healthy = new ArrayList<>(candidates.size());
+        EndpointStats earliestRecovery = null;
+        for (EndpointStats stats : candidates) {
+            if (stats.isAvailable(now)) {
+                healthy.add(stats);
+            } else if (earliestRecovery == null || stats.ejectedUntilNanos < earliestRecovery.ejectedUntilNanos) {
+                earliestRecovery = stats;
+            }
+        }
+        if (healthy.isEmpty()) {
+            // 全部被摘除时仍然发出请求，选最早恢复的一个
+            return earliestRecovery;
+        }
+        if (healthy.size() > 1 && ThreadLocalRandom.current().nextDouble() < config.getExplorationRatio()) {
+            return healthy.get(ThreadLocalRandom.current().nextInt(healthy.size()));
+        }
+
+        EndpointStats best = healthy.get(0);
+        double bestScore = best.score();
+        for (int i = 1; i < healthy.size(); i++) {
+            double score = healthy.get(i).score();
+            if (score < bestScore) {
+                best = healthy.get(i);
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 一次操作选中的 endPoint
+     */
+    private static class Selection {
+        private final EndpointStats stats;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private volatile long attemptStartNanos;
+
+        private Selection(EndpointStats stats) {
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * 单个 endPoint 的耗时和健康状态
+     */
+    public class EndpointStats {
+        private final String endpoint;
+
+        private final URI uri;
+
+        private double averageLatencyNanos;
+
+        private long lastSampleNanos;
+
+        private int inFlight;
+
+        private int consecutiveFailures;
+
+        /**
+         * 摘除到期后，恢复成功之前再次失败会立即重新摘除
+         */
+        private boolean probation;
+
+        private volatile long ejectedUntilNanos;
+
+        private EndpointStats(String endpoint, URI uri) {
+            this.endpoint = endpoint;
+            this.uri = uri;
+        }
+
+        /**
+         * @return endPoint
+         */
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * @return 平均耗时，单位为纳秒，还没有样本时为0
+         */
+        public synchronized long getAverageLatencyNanos() {
+            return (long) averageLatencyNanos;
+        }
+
+        /**
+         * @return 进行中的请求数量
+         */
+        public synchronized int getInFlight() {
+            return inFlight;
+        }
+
+        /**
+         * @return 是否处于摘除状态
+         */
+        public boolean isEjected() {
+            return !isAvailable(System.nanoTime());
+        }
+
+        private boolean isAvailable(long now) {
+            long ejectedUntil = ejectedUntilNanos;
+            return ejectedUntil == 0 || now - ejectedUntil >= 0;
+        }
+
+        /**
+         * 没有样本的 endPoint 同一时间只放行一个请求去测量耗时，避免刚恢复的 endPoint 瞬间涌入大量请求
+         */
+        private synchronized double score() {
+            if (averageLatencyNanos == 0) {
+                return inFlight == 0 ? 0 : Double.MAX_VALUE;
+            }
+            return averageLatencyNanos * (inFlight + 1);
+        }
+
+        private synchronized void onStart() {
+            inFlight++;
+        }
+
+        private synchronized void recordLatency(long latencyNanos) {
+            long now = System.nanoTime();
+            if (lastSampleNanos == 0 || averageLatencyNanos == 0) {
+                averageLatencyNanos = latencyNanos;
+            } else {
+                // 按时间衰减的平均值，长时间没有样本时旧值的权重更小
+                double weight = Math.min(Math.exp(-(double) (now - lastSampleNanos) / TimeUnit.MILLISECONDS.toNanos(config.getDecayMillis())),
+                        1 - MIN_SAMPLE_WEIGHT);
+                averageLatencyNanos = averageLatencyNanos * weight + latencyNanos * (1 - weight);
+            }
+            lastSampleNanos = now;
+        }
+
+        private synchronized void onComplete(boolean failure) {
+            inFlight--;
+            if (!failure) {
+                consecutiveFailures = 0;
+                probation = false;
+                return;
+            }
+            if ((++consecutiveFailures >= config.getFailureThreshold() || probation) && isAvailable(System.nanoTime())) {
+                log.warn("endpoint {} failed {} times in a row, eject it for {} ms", endpoint, consecutiveFailures, config.getEjectionMillis());
+                ejectedUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getEjectionMillis());
+                consecutiveFailures = 0;
+                probation = true;
+                // 恢复后重新测量耗时
+                averageLatencyNanos = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.amazon.s3.v2.resilience;
+
+import cn.hutool.core.lang.Assert;
+import com.amazon.s3.v2.config.S3V2HedgeConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * @author liuyangfang
+ * @description 对冲请求的执行器
+ * <p>
+ * 首个请求在工作线程中执行，调用线程最多等待延迟阈值；超时后如果预算允许，再发出一个相同的请求。
+ * 先成功返回的请求胜出，另一个请求会被中断，如果它之后依然成功返回，结果交给discard回调释放(例如中止响应流)。
+ * 首个请求直接失败时不会对冲，重试交给SDK处理；两个请求都失败时抛出后失败的请求的异常。
+ * <p>
+ * 预算采用令牌桶：每个原始请求存入budgetRatio个令牌，每个对冲请求消耗一个令牌，令牌最多累积budgetBurst个，
+ * 这样后端整体变慢时额外请求量最多为原始请求量的budgetRatio倍，不会放大后端的压力。
+ * <p>
+ * 工作线程最多maxThreads个，线程池满时原始请求直接在调用线程中执行，不再对冲；对冲请求被拒绝时退回预算，继续等待原始请求。
+ * @since 2023/6/23 10:05:33
+ */
+@Slf4j
+public class HedgedRequestExecutor {
+    private final S3V2HedgeConfig hedgeConfig;
+
+    private final LatencyPercentileTracker latencyTracker;
+
+    private final ExecutorService executorService;
+
+    private final LongAdder totalRequests = new LongAdder();
+
+    private final LongAdder hedgedRequests = new LongAdder();
+
+    private final LongAdder hedgeWins = new LongAdder();
+
+    private final LongAdder rejectedRequests = new LongAdder();
+
+    /**
+     * 预算令牌，放大1000倍后用整数保存
+     */
+    private final AtomicInteger budgetMilliTokens = new AtomicInteger();
+
+    public HedgedRequestExecutor(S3V2HedgeConfig hedgeConfig) {
+        Assert.notNull(hedgeConfig, "hedgeConfig not null");
+        Assert.isTrue(hedgeConfig.getBudgetRatio() >= 0, "budgetRatio must not be negative");
+        Assert.isTrue(hedgeConfig.getMaxThreads() > 0, "maxThreads must be positive");
+        this.hedgeConfig = hedgeConfig;
+        this.latencyTracker = new LatencyPercentileTracker(hedgeConfig.getSampleWindowSize(), hedgeConfig.getPercentile());
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 不排队，线程全部忙碌时直接拒绝，由调用方退化为不对冲的请求
+        this.executorService = new ThreadPoolExecutor(0, hedgeConfig.getMaxThreads(), 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "s3-hedged-request-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 执行一次可能被对冲的请求
+     *
+     * @param request 请求，可能被并发执行两次
+     * @param discard 用于释放落败请求的结果
+     * @param <T>     结果类型
+     * @return 先成功返回的结果
+     */
+    public <T> T execute(Supplier<T> request, Consumer<T> discard) {
+        Assert.notNull(request, "request not null");
+        Assert.notNull(discard, "discard not null");
+        totalRequests.increment();
+        depositBudget();
+
+        HedgedCall<T> hedgedCall = new HedgedCall<>(request, discard);
+        if (!hedgedCall.submit(false)) {
+            rejectedRequests.increment();
+            log.debug("hedged request executor is saturated, send request without hedging");
+            return request.get();
+        }
+        try {
+            try {
+                return hedgedCall.result.get(getHedgeDelayNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (!hedgedCall.result.isDone() && tryWithdrawBudget()) {
+                    if (hedgedCall.submit(true)) {
+                        hedgedRequests.increment();
+                        log.debug("request did not respond within {} ms, send hedged request",
+                                TimeUnit.NANOSECONDS.toMillis(getHedgeDelayNanos()));
+                    } else {
+                        rejectedRequests.increment();
+                        refundBudget();
+                    }
+                }
+                return hedgedCall.result.get();
+            }
+        } catch (ExecutionException e) {
+            throw launderThrowable(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            // 中断仍在进行中的落败请求
+            hedgedCall.cancelAll();
+        }
+    }
+
+    /**
+     * 当前的对冲延迟阈值，样本不足时使用initialDelayMillis
+     *
+     * @return 延迟阈值，单位为纳秒
+     */
+    public long getHedgeDelayNanos() {
+        long delayNanos = latencyTracker.getSampleCount() < hedgeConfig.getMinSamples() ?
+                TimeUnit.MILLISECONDS.toNanos(hedgeConfig.getInitialDelayMillis()) :
+                latencyTracker.getPercentileNanos();
+        return Math.min(Math.max(delayNanos, TimeUnit.MILLISECONDS.toNanos(hedgeConfig.getMinDelayMillis())),
+                TimeUnit.MILLISECONDS.toNanos(hedgeConfig.getMaxDelayMillis()));
+    }
+
+    /**
+     * @return 执行的请求总数
+     */
+    public long getTotalRequests() {
+        return totalRequests.sum();
+    }
+
+    /**
+     * @return 发出的对冲请求数量
+     */
+    public long getHedgedRequests() {
+        return hedgedRequests.sum();
+    }
+
+    /**
+     * @return 对冲请求先于原始请求返回的次数
+     */
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * @return 线程池已满，没有对冲而直接执行的请求数量和被拒绝的对冲请求数量
+     */
+    public long getRejectedRequests() {
+        return rejectedRequests.sum();
+    }
+
+    private void depositBudget() {
+        int deposit = (int) (hedgeConfig.getBudgetRatio() * 1000);
+        int maxMilliTokens = hedgeConfig.getBudgetBurst() * 1000;
+        budgetMilliTokens.getAndUpdate(current -> Math.min(current + deposit, maxMilliTokens));
+    }
+
+    private boolean tryWithdrawBudget() {
+        int current;
+        do {
+            current = budgetMilliTokens.get();
+            if (current < 1000) {
+                return false;
+            }
+        } while (!budgetMilliTokens.compareAndSet(current, current - 1000));
+        return true;
+    }
+
+    private void refundBudget() {
+        int maxMilliTokens = hedgeConfig.getBudgetBurst() * 1000;
+        budgetMilliTokens.getAndUpdate(current -> Math.min(current + 1000, maxMilliTokens));
+    }
+
+    private static RuntimeException launderThrowable(Throwable throwable) {
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        return new CompletionException(throwable);
+    }
+
+    /**
+     * 一次对冲调用，包含原始请求和可能的对冲请求
+     */
+    private class HedgedCall<T> {
+        private final Supplier<T> request;
+
+        private final Consumer<T> discard;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        /**
+         * 尚未结束的请求数量，全部失败时才将异常传递给调用方
+         */
+        private final AtomicInteger pendingAttempts = new AtomicInteger();
+
+        private volatile boolean hedgeSubmitted;
+
+        private volatile Throwable failure;
+
+        private volatile Future<?> primary;
+
+        private volatile Future<?> hedge;
+
+        private HedgedCall(Supplier<T> request, Consumer<T> discard) {
+            this.request = request;
+            this.discard = discard;
+        }
+
+        /**
+         * @return 线程池已满被拒绝时返回false
+         */
+        private boolean submit(boolean isHedge) {
+            if (isHedge) {
+                hedgeSubmitted = true;
+            }
+            pendingAttempts.incrementAndGet();
+            Future<?> future;
+            try {
+                future = executorService.submit(() -> attempt(isHedge));
+            } catch (RejectedExecutionException e) {
+                if (isHedge) {
+                    hedgeSubmitted = false;
+                }
+                // 原始请求可能在对冲请求登记之后失败，此时由这里传递它的异常
+                if (pendingAttempts.decrementAndGet() == 0 && failure != null) {
+                    result.completeExceptionally(failure);
+                }
+                return false;
+            }
+            if (isHedge) {
+                hedge = future;
+            } else {
+                primary = future;
+            }
+            return true;
+        }
+
+        private void attempt(boolean isHedge) {
+            long startNanos = System.nanoTime();
+            T value;
+            try {
+                value = request.get();
+            } catch (Throwable e) {
+                failure = e;
+                if (pendingAttempts.decrementAndGet() == 0 || !isHedge && !hedgeSubmitted) {
+                    result.completeExceptionally(e);
+                }
+                return;
+            }
+
+            latencyTracker.record(System.nanoTime() - startNanos);
+            pendingAttempts.decrementAndGet();
+            if (result.complete(value)) {
+                if (isHedge) {
+                    hedgeWins.increment();
+                }
+            } else {
+                // 落败的请求，释放它持有的资源
+                discard.accept(value);
+            }
+        }
+
+        private void cancelAll() {
+            cancel(primary);
+            cancel(hedge);
+        }
+
+        private void cancel(Future<?> future) {
+            if (future != null && !future.isDone()) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.amazon.s3.v2.resilience;
+
+import cn.hutool.core.lang.Assert;
+
+import java.util.Arrays;
+
+/**
+ * @author liuyangfang
+ * @description 记录最近一段请求的耗时，并计算耗时的百分位数
+ * <p>
+ * 样本保存在固定大小的环形数组中，百分位数不是每次查询都重新排序，
+ * 而是每新增 {@link #RECOMPUTE_INTERVAL} 个样本重新计算一次，查询时直接返回缓存的结果。
+ * @since 2023/6/23 9:52:06
+ */
+public class LatencyPercentileTracker {
+    /**
+     * 重新计算百分位数的样本间隔
+     */
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private final long[] samples;
+
+    private final double percentile;
+
+    private int nextIndex;
+
+    private int sampleCount;
+
+    private int recordsSinceCompute;
+
+    private volatile long cachedPercentileNanos = -1;
+
+    public LatencyPercentileTracker(int windowSize, double percentile) {
+        Assert.isTrue(windowSize > 0, "windowSize must be positive");
+        Assert.isTrue(percentile > 0 && percentile < 100, "percentile must be between 0 and 100");
+        this.samples = new long[windowSize];
+        this.percentile = percentile;
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param latencyNanos 耗时，单位为纳秒
+     */
+    public synchronized void record(long latencyNanos) {
+        samples[nextIndex] = latencyNanos;
+        nextIndex = (nextIndex + 1) % samples.length;
+        if (sampleCount < samples.length) {
+            sampleCount++;
+        }
+
+        // 样本较少时每次都重新计算，保证刚启动时的阈值尽快贴近真实情况
+        if (++recordsSinceCompute >= RECOMPUTE_INTERVAL || sampleCount <= RECOMPUTE_INTERVAL) {
+            recordsSinceCompute = 0;
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            cachedPercentileNanos = sorted[Math.max(index, 0)];
+        }
+    }
+
+    /**
+     * @return 已记录的样本数量，最多为窗口大小
+     */
+    public synchronized int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return 耗时的百分位数，单位为纳秒，没有样本时返回-1
+     */
+    public long getPercentileNanos() {
+        return cachedPercentileNanos;
+    }
+}
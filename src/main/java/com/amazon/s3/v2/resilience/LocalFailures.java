@@ -0,0 +1,37 @@
+package com.amazon.s3.v2.resilience;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkInterruptedException;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * @author liuyangfang
+ * @description 判断一次失败是否发生在本地
+ * <p>
+ * 本地拒绝的请求，以及被调用方取消或中断的请求(例如对冲请求中落败的一方)，都不能说明 endPoint 不健康。
+ * 读取超时(SocketTimeoutException)虽然也是InterruptedIOException，但它是 endPoint 没有响应，仍然算失败。
+ * @since 2023/6/26 9:42:15
+ */
+final class LocalFailures {
+    private LocalFailures() {
+    }
+
+    static boolean isLocal(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof RequestNotPermittedException
+                    || cause instanceof AbortedException
+                    || cause instanceof SdkInterruptedException
+                    || cause instanceof InterruptedException
+                    || cause instanceof ClosedByInterruptException
+                    || cause instanceof CancellationException
+                    || (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.amazon.s3.v2.resilience;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+/**
+ * @author liuyangfang
+ * @description 请求在本地被拒绝，没有发往 endPoint，例如熔断器打开或者等待并发许可超时
+ * <p>
+ * 这类失败不能说明 endPoint 不健康，熔断和多 endPoint 选择都不统计。
+ * @since 2023/6/26 9:42:15
+ */
+public final class RequestNotPermittedException extends SdkClientException {
+    private RequestNotPermittedException(BuilderImpl builder) {
+        super(builder);
+    }
+
+    public static RequestNotPermittedException create(String message) {
+        return create(message, null);
+    }
+
+    public static RequestNotPermittedException create(String message, Throwable cause) {
+        BuilderImpl builder = new BuilderImpl();
+        builder.message(message);
+        builder.cause(cause);
+        return builder.build();
+    }
+
+    private static final class BuilderImpl extends SdkClientException.BuilderImpl {
+        @Override
+        public RequestNotPermittedException build() {
+            return new RequestNotPermittedException(this);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.amazon.s3.v2.stream;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.StrUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * @author liuyangfang
+ * @description 流式读取multipart/form-data请求体
+ * <p>
+ * 不会把请求体落盘或者整体读入内存，每次只返回一个部分，调用方读取部分的输入流时数据才从请求中读出，
+ * 读取下一个部分时当前部分剩余的内容会被跳过。内部只持有一个固定大小的缓冲区。
+ * <p>
+ * 使用时需要关闭Spring的multipart解析(spring.servlet.multipart.enabled=false)，
+ * 或者开启延迟解析(spring.servlet.multipart.resolve-lazily=true)并且不访问请求的参数，否则请求体会被容器提前读取。
+ * @since 2023/6/26 14:48:33
+ */
+public class MultipartFormDataReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+
+    private static final byte CR = '\r';
+
+    private static final byte LF = '\n';
+
+    private static final byte DASH = '-';
+
+    private static final String BOUNDARY_PARAMETER = "boundary=";
+
+    private final InputStream inputStream;
+
+    /**
+     * 分隔符为 CRLF--boundary，请求体开头的分隔符前面没有CRLF，缓冲区初始内容补上一个CRLF统一处理
+     */
+    private final byte[] delimiter;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int head;
+
+    private int tail;
+
+    private boolean eof;
+
+    private boolean finished;
+
+    private PartInputStream currentPartStream;
+
+    public MultipartFormDataReader(InputStream inputStream, String contentType) {
+        Assert.notNull(inputStream, "inputStream not null");
+        Assert.isTrue(isMultipart(contentType), "content type {} is not multipart/form-data", contentType);
+        String boundary = parseBoundary(contentType);
+        Assert.notEmpty(boundary, "boundary not found in content type {}", contentType);
+        this.inputStream = inputStream;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        Assert.isTrue(delimiter.length < BUFFER_SIZE / 2, "boundary is too long");
+        buffer[0] = CR;
+        buffer[1] = LF;
+        tail = 2;
+    }
+
+    /**
+     * @param contentType 请求的Content-Type
+     * @return true: 是multipart/form-data请求
+     */
+    public static boolean isMultipart(String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data");
+    }
+
+    /**
+     * 读取下一个部分，当前部分没有读完的内容会被跳过
+     *
+     * @return 下一个部分，没有更多部分时返回空
+     * @throws IOException 读取失败或者请求体格式错误
+     */
+    public Optional<FormPart> next() throws IOException {
+        if (finished) {
+            return Optional.empty();
+        }
+        if (currentPartStream == null) {
+            // 跳过第一个分隔符之前的内容
+            currentPartStream = new PartInputStream();
+        }
+        skipFully(currentPartStream);
+
+        // 消费分隔符，之后是 -- 表示结束，CRLF 表示后面还有部分
+        head += delimiter.length;
+        if (!ensureAvailable(2)) {
+            throw new IOException("unexpected end of multipart body after boundary");
+        }
+        if (buffer[head] == DASH && buffer[head + 1] == DASH) {
+            finished = true;
+            return Optional.empty();
+        }
+        skipLinearWhitespace();
+        if (!ensureAvailable(2) || buffer[head] != CR || buffer[head + 1] != LF) {
+            throw new IOException("malformed multipart boundary line");
+        }
+        head += 2;
+
+        Map<String, String> headers = readHeaders();
+        currentPartStream = new PartInputStream();
+        return Optional.of(new FormPart(headers, currentPartStream));
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        int headerSize = 0;
+        while (true) {
+            int lineEnd = indexOfLineEnd();
+            if (lineEnd < 0) {
+                throw new IOException("unexpected end of multipart headers");
+            }
+            int lineLength = lineEnd - head;
+            headerSize += lineLength + 2;
+            if (headerSize > MAX_HEADER_SIZE) {
+                throw new IOException("multipart headers exceed " + MAX_HEADER_SIZE + " bytes");
+            }
+            String line = new String(buffer, head, lineLength, StandardCharsets.UTF_8);
+            head = lineEnd + 2;
+            if (line.isEmpty()) {
+                return headers;
+            }
+            int colonIndex = line.indexOf(':');
+            if (colonIndex > 0) {
+                headers.put(line.substring(0, colonIndex).trim().toLowerCase(Locale.ROOT), line.substring(colonIndex + 1).trim());
+            }
+        }
+    }
+
+    /**
+     * @return 当前位置之后第一个CRLF的位置，需要时从输入流中读取更多数据
+     */
+    private int indexOfLineEnd() throws IOException {
+        int searchFrom = head;
+        while (true) {
+            for (int i = searchFrom; i < tail - 1; i++) {
+                if (buffer[i] == CR && buffer[i + 1] == LF) {
+                    return i;
+                }
+            }
+            searchFrom = Math.max(head, tail - 1);
+            int consumed = head;
+            if (!fill()) {
+                return -1;
+            }
+            searchFrom -= consumed - head;
+        }
+    }
+
+    private void skipLinearWhitespace() throws IOException {
+        while (ensureAvailable(1) && (buffer[head] == ' ' || buffer[head] == '\t')) {
+            head++;
+        }
+    }
+
+    private static void skipFully(InputStream stream) throws IOException {
+        byte[] skipBuffer = new byte[8192];
+        while (stream.read(skipBuffer) != -1) {
+            // 丢弃未读取的内容
+        }
+    }
+
+    /**
+     * 保证缓冲区中至少有count个字节可读
+     */
+    private boolean ensureAvailable(int count) throws IOException {
+        while (tail - head < count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把未读的内容移到缓冲区开头，再从输入流读取数据
+     *
+     * @return false: 输入流已经结束
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        if (tail == buffer.length) {
+            throw new IOException("multipart line is too long");
+        }
+        int read = inputStream.read(buffer, tail, buffer.length - tail);
+        if (read == -1) {
+            eof = true;
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    /**
+     * @return 分隔符在[head, tail)中的位置，不存在时返回-1
+     */
+    private int indexOfDelimiter() {
+        int last = tail - delimiter.length;
+        outer:
+        for (int i = head; i <= last; i++) {
+            if (buffer[i] != CR) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String parseBoundary(String contentType) {
+        int index = contentType.toLowerCase(Locale.ROOT).indexOf(BOUNDARY_PARAMETER);
+        if (index < 0) {
+            return null;
+        }
+        String boundary = contentType.substring(index + BOUNDARY_PARAMETER.length());
+        int semicolonIndex = boundary.indexOf(';');
+        if (semicolonIndex >= 0) {
+            boundary = boundary.substring(0, semicolonIndex);
+        }
+        return StrUtil.strip(boundary.trim(), "\"");
+    }
+
+    /**
+     * 一个部分的内容，读到分隔符时结束
+     */
+    private class PartInputStream extends InputStream {
+        private boolean partEnded;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (!partEnded) {
+                int delimiterIndex = indexOfDelimiter();
+                // 没有找到分隔符时，末尾可能是分隔符的前半部分，保留delimiter.length - 1个字节
+                int available = delimiterIndex >= 0 ? delimiterIndex - head : tail - head - (delimiter.length - 1);
+                if (available > 0) {
+                    int length = Math.min(available, len);
+                    System.arraycopy(buffer, head, b, off, length);
+                    head += length;
+                    return length;
+                }
+                if (delimiterIndex >= 0) {
+                    partEnded = true;
+                } else if (!fill()) {
+                    throw new IOException("unexpected end of multipart body, boundary not found");
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * 表单中的一个部分
+     */
+    public static class FormPart {
+        private final Map<String, String> headers;
+
+        private final InputStream inputStream;
+
+        private final String name;
+
+        private final String fileName;
+
+        private FormPart(Map<String, String> headers, InputStream inputStream) {
+            this.headers = headers;
+            this.inputStream = inputStream;
+            String contentDisposition = headers.getOrDefault("content-disposition", "");
+            this.name = dispositionParameter(contentDisposition, "name");
+            String originalFileName = dispositionParameter(contentDisposition, "filename");
+            // 部分浏览器会提交完整路径，只保留文件名
+            this.fileName = originalFileName == null ? null :
+                    originalFileName.substring(Math.max(originalFileName.lastIndexOf('/'), originalFileName.lastIndexOf('\\')) + 1);
+        }
+
+        /**
+         * @return 表单字段名称
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return 文件名，不是文件时返回null
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * @return 是否是文件
+         */
+        public boolean isFile() {
+            return fileName != null;
+        }
+
+        /**
+         * @return 部分的Content-Type
+         */
+        public String getContentType() {
+            return headers.get("content-type");
+        }
+
+        /**
+         * @return 部分的全部头信息，名称为小写
+         */
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * 部分的内容，只能读取一次，读取下一个部分之后不可再用
+         *
+         * @return 部分的内容
+         */
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        /**
+         * 按分号拆分Content-Disposition的参数，引号内的分号不拆分
+         */
+        private static String dispositionParameter(String contentDisposition, String parameterName) {
+            int start = 0;
+            boolean quoted = false;
+            for (int i = 0; i <= contentDisposition.length(); i++) {
+                if (i < contentDisposition.length()) {
+                    char c = contentDisposition.charAt(i);
+                    if (c == '"') {
+                        quoted = !quoted;
+                    }
+                    if (c != ';' || quoted) {
+                        continue;
+                    }
+                }
+                String parameter = contentDisposition.substring(start, i).trim();
+                start = i + 1;
+                int equalIndex = parameter.indexOf('=');
+                if (equalIndex > 0 && parameter.substring(0, equalIndex).trim().equalsIgnoreCase(parameterName)) {
+                    String value = parameter.substring(equalIndex + 1).trim();
+                    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                        value = value.substring(1, value.length() - 1);
+                    }
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+}
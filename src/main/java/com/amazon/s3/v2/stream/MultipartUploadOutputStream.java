@@ -0,0 +1,317 @@
+package com.amazon.s3.v2.stream;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.StrUtil;
+import com.amazon.s3.v2.checksum.PartChecksum;
+import com.amazon.s3.v2.utils.ChecksumUtil;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.amazon.s3.v2.constant.BusinessV2Constant.CHECKSUM_PART_SIZE_METADATA_KEY;
+import static com.amazon.s3.v2.constant.BusinessV2Constant.OCTET_STREAM;
+
+/**
+ * @author liuyangfang
+ * @description 边写入边分片上传的输出流，用于长度未知的数据
+ * <p>
+ * 只持有一个分片大小的缓冲区，缓冲区写满后立即作为一个分片上传，上传完成后复用同一个缓冲区；
+ * 关闭时上传最后一个分片并完成分片上传。总数据量不足一个分片时不创建分片上传，直接用putObject上传。
+ * 任何一步失败都会中止分片上传并抛出IOException，之后的写入都会失败。
+ * 指定校验和算法时，写入缓冲区的同时计算当前分片的校验和，随分片一起发送，对象的元数据中记录分片大小用于读取时校验。
+ * @since 2023/6/26 14:05:19
+ */
+@Slf4j
+public class MultipartUploadOutputStream extends OutputStream {
+    /**
+     * 默认的分片大小，S3最多10000个分片，8MB的分片最多可以上传约78GB
+     */
+    public static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * S3规定除最后一个分片外，分片最小为5MB
+     */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private static final int MAX_PART_NUMBER = 10000;
+
+    private final S3Client s3Client;
+
+    private final String bucketName;
+
+    private final String objectName;
+
+    private final String contentType;
+
+    private final Map<String, String> metadataMap;
+
+    private final byte[] buffer;
+
+    private final PartChecksum partChecksum;
+
+    private int position;
+
+    private long contentLength;
+
+    private String uploadId;
+
+    private final List<CompletedPart> completedPartList = new ArrayList<>();
+
+    private String eTag;
+
+    private boolean closed;
+
+    public MultipartUploadOutputStream(S3Client s3Client, String bucketName, String objectName, String contentType) {
+        this(s3Client, bucketName, objectName, contentType, DEFAULT_PART_SIZE);
+    }
+
+    public MultipartUploadOutputStream(S3Client s3Client, String bucketName, String objectName, String contentType, int partSize) {
+        this(s3Client, bucketName, objectName, contentType, null, partSize);
+    }
+
+    public MultipartUploadOutputStream(S3Client s3Client, String bucketName, String objectName, String contentType,
+                                       Map<String, String> metadataMap, int partSize) {
+        this(s3Client, bucketName, objectName, contentType, metadataMap, partSize, null);
+    }
+
+    /**
+     * @param checksumAlgorithm 分片的校验和算法，为null时不计算校验和
+     */
+    public MultipartUploadOutputStream(S3Client s3Client, String bucketName, String objectName, String contentType,
+                                       Map<String, String> metadataMap, int partSize, ChecksumAlgorithm checksumAlgorithm) {
+        Assert.notNull(s3Client, "s3Client not null");
+        Assert.notEmpty(bucketName, "bucketName not empty");
+        Assert.notEmpty(objectName, "objectName not empty");
+        Assert.isTrue(partSize >= MIN_PART_SIZE, "partSize must not be less than 5MB");
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+        this.contentType = contentType;
+        this.buffer = new byte[partSize];
+        this.partChecksum = checksumAlgorithm == null ? null : PartChecksum.create(checksumAlgorithm);
+        if (partChecksum == null) {
+            this.metadataMap = metadataMap;
+        } else {
+            this.metadataMap = MapUtil.isEmpty(metadataMap) ? new HashMap<>(4) : new HashMap<>(metadataMap);
+            this.metadataMap.put(CHECKSUM_PART_SIZE_METADATA_KEY, String.valueOf(partSize));
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (partChecksum != null) {
+            partChecksum.update(b);
+        }
+        buffer[position++] = (byte) b;
+        contentLength++;
+        if (position == buffer.length) {
+            uploadBufferedPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int length = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, length);
+            if (partChecksum != null) {
+                partChecksum.update(b, off, length);
+            }
+            position += length;
+            contentLength += length;
+            off += length;
+            len -= length;
+            if (position == buffer.length) {
+                uploadBufferedPart();
+            }
+        }
+    }
+
+    /**
+     * 把输入流的全部内容直接读入分片缓冲区，不经过中间的拷贝缓冲区
+     *
+     * @param inputStream 输入流，不会被关闭
+     * @return 读取的字节数
+     * @throws IOException 读取或上传失败
+     */
+    public long transferFrom(InputStream inputStream) throws IOException {
+        ensureOpen();
+        long transferred = 0;
+        int read;
+        while ((read = inputStream.read(buffer, position, buffer.length - position)) != -1) {
+            if (partChecksum != null) {
+                partChecksum.update(buffer, position, read);
+            }
+            position += read;
+            contentLength += read;
+            transferred += read;
+            if (position == buffer.length) {
+                uploadBufferedPart();
+            }
+        }
+        return transferred;
+    }
+
+    /**
+     * 上传剩余数据并完成上传
+     *
+     * @throws IOException 上传失败，此时分片上传已经被中止
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (uploadId == null) {
+                eTag = s3Client.putObject(putObjectRequest(), bufferedRequestBody()).eTag();
+            } else {
+                if (position > 0) {
+                    uploadBufferedPart();
+                }
+                CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .uploadId(uploadId)
+                        .multipartUpload(CompletedMultipartUpload.builder().parts(completedPartList).build())
+                        .build();
+                eTag = s3Client.completeMultipartUpload(completeMultipartUploadRequest).eTag();
+                log.debug("stream upload success, bucket {} object name {}, uploadId {}, parts {}",
+                        bucketName, objectName, uploadId, completedPartList.size());
+            }
+            closed = true;
+        } catch (SdkException e) {
+            abort();
+            throw new IOException("stream upload failed, bucket " + bucketName + " object name " + objectName, e);
+        }
+    }
+
+    /**
+     * 放弃上传，中止已经创建的分片上传，可以在客户端断开连接等情况下调用
+     */
+    public void abort() {
+        closed = true;
+        if (uploadId == null) {
+            return;
+        }
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectName)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (SdkException e) {
+            log.error("abort stream upload failed, bucket {} object name {}, uploadId {}, the cause is ",
+                    bucketName, objectName, uploadId, e);
+        }
+        uploadId = null;
+    }
+
+    /**
+     * @return 上传完成后对象的eTag，上传完成之前为null
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * @return 已经写入的字节数
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    private void uploadBufferedPart() throws IOException {
+        int partNumber = completedPartList.size() + 1;
+        if (partNumber > MAX_PART_NUMBER) {
+            abort();
+            throw new IOException("stream upload exceeds " + MAX_PART_NUMBER + " parts of " + buffer.length + " bytes");
+        }
+        try {
+            if (uploadId == null) {
+                CreateMultipartUploadRequest.Builder builder = CreateMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName);
+                if (StrUtil.isNotEmpty(contentType)) {
+                    builder.contentType(contentType);
+                }
+                if (MapUtil.isNotEmpty(metadataMap)) {
+                    builder.metadata(metadataMap);
+                }
+                if (partChecksum != null) {
+                    builder.checksumAlgorithm(partChecksum.getAlgorithm());
+                }
+                uploadId = s3Client.createMultipartUpload(builder.build()).uploadId();
+            }
+            UploadPartRequest.Builder uploadPartRequestBuilder = UploadPartRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectName)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber);
+            CompletedPart.Builder completedPartBuilder = CompletedPart.builder().partNumber(partNumber);
+            if (partChecksum != null) {
+                String checksum = partChecksum.finishBase64();
+                ChecksumUtil.checksum(uploadPartRequestBuilder, partChecksum.getAlgorithm(), checksum);
+                ChecksumUtil.checksum(completedPartBuilder, partChecksum.getAlgorithm(), checksum);
+            }
+            String partETag = s3Client.uploadPart(uploadPartRequestBuilder.build(), bufferedRequestBody()).eTag();
+            completedPartList.add(completedPartBuilder.eTag(partETag).build());
+            log.debug("part {}, upload success", partNumber);
+            position = 0;
+        } catch (SdkException e) {
+            abort();
+            throw new IOException("upload part " + partNumber + " failed, bucket " + bucketName + " object name " + objectName, e);
+        }
+    }
+
+    /**
+     * 每次尝试都从缓冲区重新读取，SDK重试时不需要额外的缓冲
+     */
+    private RequestBody bufferedRequestBody() {
+        int length = position;
+        return RequestBody.fromContentProvider(() -> new ByteArrayInputStream(buffer, 0, length), length, OCTET_STREAM);
+    }
+
+    private PutObjectRequest putObjectRequest() {
+        PutObjectRequest.Builder builder = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectName);
+        if (StrUtil.isNotEmpty(contentType)) {
+            builder.contentType(contentType);
+        }
+        if (MapUtil.isNotEmpty(metadataMap)) {
+            builder.metadata(metadataMap);
+        }
+        if (partChecksum != null) {
+            ChecksumUtil.checksum(builder, partChecksum.getAlgorithm(), partChecksum.finishBase64());
+        }
+        return builder.build();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.amazon.s3.v2.stream;
+
+import cn.hutool.core.lang.Assert;
+import software.amazon.awssdk.http.ContentStreamProvider;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * @author liuyangfang
+ * @description 每次尝试都重新打开数据源的ContentStreamProvider
+ * <p>
+ * 适用于可以重复打开的数据源(例如MultipartFile)，SDK重试时重新打开而不是对已发送的内容做mark/reset缓冲，
+ * 打开新的流之前会关闭上一次打开的流。
+ * @since 2023/6/26 16:02:27
+ */
+public class ReopenableContentStreamProvider implements ContentStreamProvider, Closeable {
+    private final StreamOpener streamOpener;
+
+    private InputStream currentStream;
+
+    public ReopenableContentStreamProvider(StreamOpener streamOpener) {
+        Assert.notNull(streamOpener, "streamOpener not null");
+        this.streamOpener = streamOpener;
+    }
+
+    @Override
+    public synchronized InputStream newStream() {
+        try {
+            close();
+            currentStream = streamOpener.open();
+            return currentStream;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (currentStream != null) {
+            InputStream stream = currentStream;
+            currentStream = null;
+            stream.close();
+        }
+    }
+
+    /**
+     * 打开数据源
+     */
+    @FunctionalInterface
+    public interface StreamOpener {
+        /**
+         * 打开一个新的输入流
+         *
+         * @return 输入流
+         * @throws IOException 打开失败
+         */
+        InputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,138 @@
+package com.amazon.s3.v2.sync;
+
+import cn.hutool.json.JSONUtil;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author liuyangfang
+ * @description 增量目录同步的本地清单
+ * <p>
+ * 记录每个文件上次同步时的大小、修改时间、MD5和对应对象的ETag。大小和修改时间都没有变化时认为内容没有变化，
+ * 直接使用记录的MD5；ETag只在清单记录的桶和前缀与本次同步一致时使用。
+ * 清单损坏或者不存在时视为空清单，只会导致重新计算摘要，不会影响同步结果。
+ * @since 2023/6/30 10:35:02
+ */
+@Data
+@NoArgsConstructor
+@Slf4j
+public class SyncManifest implements Serializable {
+    private static final long serialVersionUID = -8853392652001431671L;
+
+    /**
+     * 同步过程中临时文件的后缀，列举本地文件时排除
+     */
+    public static final String TEMP_FILE_SUFFIX = ".s3sync-tmp";
+
+    /**
+     * 同步的桶名称
+     */
+    private String bucketName;
+
+    /**
+     * 同步的对象前缀
+     */
+    private String prefix;
+
+    /**
+     * 相对于同步目录的路径 -> 文件记录
+     */
+    private Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 读取清单
+     *
+     * @param file 清单文件
+     * @return 清单，文件不存在或者无法解析时返回空清单
+     */
+    public static SyncManifest load(File file) {
+        if (!file.isFile()) {
+            return new SyncManifest();
+        }
+        try {
+            SyncManifest manifest = JSONUtil.toBean(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), SyncManifest.class);
+            manifest.setEntries(manifest.getEntries() == null ? new ConcurrentHashMap<>() : new ConcurrentHashMap<>(manifest.getEntries()));
+            return manifest;
+        } catch (IOException | RuntimeException e) {
+            log.warn("sync manifest {} is unreadable, ignore it, the cause is ", file, e);
+            return new SyncManifest();
+        }
+    }
+
+    /**
+     * 写入清单，先写临时文件再重命名，中断时不会留下不完整的清单
+     *
+     * @param file 清单文件
+     * @throws IOException 写入失败
+     */
+    public void save(File file) throws IOException {
+        Path tmpPath = file.toPath().resolveSibling(file.getName() + TEMP_FILE_SUFFIX);
+        Files.write(tmpPath, JSONUtil.toJsonStr(this).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmpPath, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return 清单记录的是否是同一个同步目标，不是时记录的ETag不能使用
+     */
+    public boolean isSameTarget(String bucketName, String prefix) {
+        return Objects.equals(this.bucketName, bucketName) && Objects.equals(this.prefix, prefix);
+    }
+
+    /**
+     * 查找大小和修改时间都没有变化的记录
+     *
+     * @param name         相对于同步目录的路径
+     * @param size         当前的文件大小
+     * @param lastModified 当前的修改时间
+     * @return 文件没有变化时返回记录，否则返回null
+     */
+    public Entry getUnchanged(String name, long size, long lastModified) {
+        Entry entry = entries.get(name);
+        return entry != null && entry.getSize() == size && entry.getLastModified() == lastModified ? entry : null;
+    }
+
+    /**
+     * 一个文件的记录
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Entry implements Serializable {
+        private static final long serialVersionUID = 5526021794357193861L;
+
+        /**
+         * 文件大小
+         */
+        private long size;
+
+        /**
+         * 修改时间，单位为毫秒
+         */
+        private long lastModified;
+
+        /**
+         * 文件内容的MD5，小写十六进制
+         */
+        private String md5;
+
+        /**
+         * 上次同步时对象的ETag，不带引号
+         */
+        private String eTag;
+    }
+}
@@ -1,15 +1,49 @@
 package com.amazon.s3.v2.template;
 
+import cn.hutool.cache.impl.LRUCache;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.lang.Assert;
-import cn.hutool.core.lang.UUID;
 import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.HexUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.amazon.s3.v2.cache.CachedObject;
+import com.amazon.s3.v2.cache.DiskObjectCache;
+import com.amazon.s3.v2.cache.ObjectContentCache;
+import com.amazon.s3.v2.checksum.PartChecksum;
 import com.amazon.s3.v2.config.S3V2Base;
 import com.amazon.s3.v2.constant.BusinessV2Constant;
 import com.amazon.s3.v2.core.IAmazonS3V2Template;
 import com.amazon.s3.v2.core.functions.MultipartUploadBiFunction;
+import com.amazon.s3.v2.metrics.TransferMetrics;
+import com.amazon.s3.v2.naming.ObjectKeyStrategy;
+import com.amazon.s3.v2.codec.CompressionCodec;
+import com.amazon.s3.v2.config.S3V2CompressionConfig;
+import com.amazon.s3.v2.config.S3V2DedupConfig;
+import com.amazon.s3.v2.config.S3V2EncryptionConfig;
+import com.amazon.s3.v2.config.S3V2MetadataCacheConfig;
+import com.amazon.s3.v2.config.S3V2PackConfig;
+import com.amazon.s3.v2.config.S3V2SyncConfig;
+import com.amazon.s3.v2.crypto.ChunkedObjectCipher;
+import com.amazon.s3.v2.crypto.DataKeyProvider;
+import com.amazon.s3.v2.crypto.MasterKeyDataKeyProvider;
+import com.amazon.s3.v2.dedup.ContentTreeHasher;
+import com.amazon.s3.v2.model.DedupUploadResult;
+import com.amazon.s3.v2.model.PackEntry;
+import com.amazon.s3.v2.model.PackManifest;
+import com.amazon.s3.v2.pack.PackIndex;
+import com.amazon.s3.v2.pack.PackWriter;
+import com.amazon.s3.v2.model.PresignedPostPolicy;
+import com.amazon.s3.v2.model.SyncResult;
+import com.amazon.s3.v2.presign.S3V2BatchPresigner;
+import com.amazon.s3.v2.resilience.HedgedRequestExecutor;
+import com.amazon.s3.v2.stream.MultipartUploadOutputStream;
+import com.amazon.s3.v2.stream.ReopenableContentStreamProvider;
+import com.amazon.s3.v2.sync.SyncManifest;
 import com.amazon.s3.v2.utils.BucketUtil;
+import com.amazon.s3.v2.utils.ChecksumUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -18,6 +52,7 @@ import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
 import software.amazon.awssdk.http.HttpStatusFamily;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -31,16 +66,29 @@ import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignReques
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
 import software.amazon.awssdk.transfer.s3.model.*;
 import software.amazon.awssdk.transfer.s3.progress.LoggingTransferListener;
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
 
 import java.io.*;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.amazon.s3.v2.constant.BusinessV2Constant.*;
 
@@ -67,6 +115,56 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
      */
     public static final int MAX_SINGLETON_SIZE = (int) (0.8 * MAX_UPLOAD_SIZE);
 
+    /**
+     * 打包上传的清单对象名称
+     */
+    private static final String PACK_MANIFEST_NAME = "manifest.json";
+
+    /**
+     * 打包对象的名称格式
+     */
+    private static final String PACK_OBJECT_NAME_FORMAT = "pack-%05d.pack";
+
+    /**
+     * If-Match不满足时的状态码
+     */
+    private static final int PRECONDITION_FAILED = 412;
+
+    /**
+     * If-None-Match满足时的状态码，对象没有变化
+     */
+    private static final int NOT_MODIFIED = 304;
+
+    /**
+     * 对象不存在时的状态码，HeadObject的响应没有内容，不一定能解析为NoSuchKeyException
+     */
+    private static final int NOT_FOUND = 404;
+
+    /**
+     * 同步任务没有传输时的返回值
+     */
+    private static final long SYNC_SKIPPED = -1;
+
+    /**
+     * 一次DeleteObjects请求最多删除的对象数量
+     */
+    private static final int MAX_DELETE_OBJECTS = 1000;
+
+    /**
+     * CopyObject支持的最大对象大小，超过时去重上传改用引用的方式
+     */
+    private static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+
+    /**
+     * 用于解析桶基础路径的探测对象名称
+     */
+    private static final String BUCKET_BASE_URL_PROBE_KEY = "probe";
+
+    /**
+     * 批量获取对象元数据时同时进行的HeadObject请求数量上限
+     */
+    private static final int MAX_CONCURRENT_HEAD_OBJECTS = 64;
+
     /**
      * 标准的S3客户端
      */
@@ -97,13 +195,135 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
      */
     private final S3Utilities s3Utilities;
 
+    /**
+     * 批量生成预签名url的签名器
+     */
+    private final S3V2BatchPresigner batchPresigner;
+
+    /**
+     * 桶的基础访问路径缓存，key为处理过的桶名称
+     */
+    private final Map<String, String> bucketBaseUrlMap = new ConcurrentHashMap<>();
+
+    /**
+     * 私有空间的签名url缓存，key为 桶名称/对象名称
+     * 缓存时间为签名有效期的一半，保证返回的url至少还有一半的有效期
+     */
+    private final LRUCache<String, URL> accessUrlCache = new LRUCache<>(DEFAULT_ACCESS_URL_CACHE_CAPACITY);
+
+    /**
+     * 异步文件传输的统计信息
+     */
+    private final TransferMetrics transferMetrics;
+
+    /**
+     * getObject的对冲请求执行器，未开启对冲时为null
+     */
+    private final HedgedRequestExecutor hedgedRequestExecutor;
+
+    /**
+     * 上传时使用的压缩算法，未开启压缩时为null
+     */
+    private final CompressionCodec compressionCodec;
+
+    /**
+     * 客户端加密的数据密钥提供者，没有配置主密钥时为null，此时无法读取加密过的对象
+     */
+    private final DataKeyProvider dataKeyProvider;
+
+    /**
+     * 上传对象名称前缀的生成策略
+     */
+    private final ObjectKeyStrategy objectKeyStrategy;
+
+    /**
+     * 去重上传时计算内容摘要
+     */
+    private final ContentTreeHasher contentTreeHasher;
+
+    /**
+     * 完整性校验的算法，没有开启时为null
+     */
+    private final ChecksumAlgorithm checksumAlgorithm;
+
+    /**
+     * 打包上传的清单缓存，key为 桶名称/前缀
+     */
+    private final LRUCache<String, PackManifest> packManifestCache;
+
+    /**
+     * 打包对象的索引缓存，key为 桶名称/打包对象名称
+     */
+    private final LRUCache<String, PackHandle> packHandleCache;
+
+    /**
+     * getObject的内容缓存，没有开启时为null
+     */
+    private final ObjectContentCache objectContentCache;
+
+    /**
+     * downloadFile/asyncDownloadFile的磁盘缓存，没有开启时为null
+     */
+    private final DiskObjectCache diskObjectCache;
+
+    /**
+     * 存在的对象的元数据缓存，key为 桶名称/对象名称，没有开启时为null
+     */
+    private final LRUCache<String, HeadObjectResponse> objectMetadataCache;
+
+    /**
+     * 不存在的对象缓存，key为 桶名称/对象名称，没有开启时为null
+     */
+    private final LRUCache<String, Boolean> missingObjectCache;
+
 
     public AmazonS3V2Template(S3Client s3Client, S3AsyncClient s3AsyncClient, S3TransferManager s3TransferManager, S3Presigner s3Presigner, S3Utilities s3Utilities, S3V2Base s3V2Base) {
+        this(s3Client, s3AsyncClient, s3TransferManager, s3Presigner, s3Utilities, s3V2Base, new TransferMetrics());
+    }
+
+    public AmazonS3V2Template(S3Client s3Client, S3AsyncClient s3AsyncClient, S3TransferManager s3TransferManager, S3Presigner s3Presigner, S3Utilities s3Utilities, S3V2Base s3V2Base, TransferMetrics transferMetrics) {
+        this(s3Client, s3AsyncClient, s3TransferManager, s3Presigner, s3Utilities, s3V2Base, transferMetrics, null);
+    }
+
+    public AmazonS3V2Template(S3Client s3Client, S3AsyncClient s3AsyncClient, S3TransferManager s3TransferManager, S3Presigner s3Presigner, S3Utilities s3Utilities, S3V2Base s3V2Base, TransferMetrics transferMetrics, DataKeyProvider dataKeyProvider) {
+        this(s3Client, s3AsyncClient, s3TransferManager, s3Presigner, s3Utilities, s3V2Base, transferMetrics, dataKeyProvider, null);
+    }
+
+    public AmazonS3V2Template(S3Client s3Client, S3AsyncClient s3AsyncClient, S3TransferManager s3TransferManager, S3Presigner s3Presigner, S3Utilities s3Utilities, S3V2Base s3V2Base, TransferMetrics transferMetrics, DataKeyProvider dataKeyProvider, ObjectKeyStrategy objectKeyStrategy) {
+        Assert.notNull(transferMetrics, "transferMetrics not null");
+        this.transferMetrics = transferMetrics;
         this.s3Client = s3Client;
         this.s3AsyncClient = s3AsyncClient;
         this.s3TransferManager = s3TransferManager;
         this.s3Presigner = s3Presigner;
         this.s3V2Base = s3V2Base;
+        this.batchPresigner = new S3V2BatchPresigner(s3V2Base.getAccessKey(), s3V2Base.getSecretKey(), s3V2Base.getRegion());
+        this.hedgedRequestExecutor = s3V2Base.getHedge() != null && s3V2Base.getHedge().isEnabled() ?
+                new HedgedRequestExecutor(s3V2Base.getHedge()) : null;
+        this.compressionCodec = s3V2Base.getCompression() != null && s3V2Base.getCompression().isEnabled() ?
+                CompressionCodec.require(s3V2Base.getCompression().getCodec()) : null;
+        S3V2EncryptionConfig encryptionConfig = s3V2Base.getEncryption();
+        if (dataKeyProvider == null && encryptionConfig != null && MapUtil.isNotEmpty(encryptionConfig.getMasterKeys())) {
+            dataKeyProvider = new MasterKeyDataKeyProvider(encryptionConfig.getMasterKeys(), encryptionConfig.getKeyId());
+        }
+        Assert.isFalse(isEncryptionEnabled() && dataKeyProvider == null, "encryption is enabled, but no master key is configured");
+        this.dataKeyProvider = dataKeyProvider;
+        this.objectKeyStrategy = objectKeyStrategy == null ? ObjectKeyStrategy.create(s3V2Base.getObjectKey()) : objectKeyStrategy;
+        this.checksumAlgorithm = s3V2Base.getChecksum() != null && s3V2Base.getChecksum().isEnabled() ?
+                ChecksumAlgorithm.fromValue(s3V2Base.getChecksum().getAlgorithm().toUpperCase(Locale.ENGLISH)) : null;
+        Assert.isFalse(checksumAlgorithm == ChecksumAlgorithm.UNKNOWN_TO_SDK_VERSION, "unsupported checksum algorithm {}",
+                s3V2Base.getChecksum().getAlgorithm());
+        this.contentTreeHasher = new ContentTreeHasher(getDedupConfig().getHashChunkSize());
+        S3V2PackConfig packConfig = getPackConfig();
+        this.packManifestCache = new LRUCache<>(packConfig.getIndexCacheCapacity(), packConfig.getManifestCacheMillis());
+        this.packHandleCache = new LRUCache<>(packConfig.getIndexCacheCapacity());
+        this.objectContentCache = s3V2Base.getObjectCache() != null && s3V2Base.getObjectCache().isEnabled() ?
+                new ObjectContentCache(s3V2Base.getObjectCache().getMaxCacheBytes()) : null;
+        this.diskObjectCache = s3V2Base.getDiskCache() != null && s3V2Base.getDiskCache().isEnabled() ?
+                new DiskObjectCache(Paths.get(s3V2Base.getDiskCache().getDirectory()), s3V2Base.getDiskCache().getMaxCacheBytes()) : null;
+        boolean metadataCacheEnabled = s3V2Base.getMetadataCache() != null && s3V2Base.getMetadataCache().isEnabled();
+        this.objectMetadataCache = metadataCacheEnabled ? new LRUCache<>(s3V2Base.getMetadataCache().getCapacity()) : null;
+        this.missingObjectCache = metadataCacheEnabled ? new LRUCache<>(s3V2Base.getMetadataCache().getCapacity()) : null;
 
         // 创建默认存储桶的操作
         createBucket(s3V2Base.getBucket());
@@ -152,11 +372,20 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
     @Override
     public Optional<PutObjectResponse> putObject(String bucketName, String objectName, MultipartFile multipartFile) throws S3Exception, IOException {
         Assert.notNull(multipartFile, "multipartFile not null");
-        return putObject(bucketName,
-                objectName,
-                multipartFile.getContentType(),
-                multipartFile.getInputStream(),
-                multipartFile.getSize());
+        Assert.checkBetween(multipartFile.getSize(), MIN_UPLOAD_SIZE, MAX_UPLOAD_SIZE);
+
+        if (isEncodingRequired(multipartFile.getContentType())) {
+            try (InputStream inputStream = multipartFile.getInputStream()) {
+                return putEncodedObject(bucketName, objectName, multipartFile.getContentType(), null, inputStream)
+                        .map(eTag -> PutObjectResponse.builder().eTag(eTag).build());
+            }
+        }
+
+        // MultipartFile可以多次获取输入流，SDK重试时重新打开，不需要再包装一层缓冲流
+        try (ReopenableContentStreamProvider contentStreamProvider = new ReopenableContentStreamProvider(multipartFile::getInputStream)) {
+            return putObject(bucketName, objectName, multipartFile.getContentType(),
+                    RequestBody.fromContentProvider(contentStreamProvider, multipartFile.getSize(), OCTET_STREAM));
+        }
     }
 
 
@@ -185,9 +414,17 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
         Assert.notNull(inputStream, "inputStream not empty");
         Assert.checkBetween(contentLength, MIN_UPLOAD_SIZE, MAX_UPLOAD_SIZE);
 
+        if (isEncodingRequired(contentType)) {
+            try (InputStream closeableInputStream = inputStream) {
+                return putEncodedObject(bucketName, objectName, contentType, null, closeableInputStream)
+                        .map(eTag -> PutObjectResponse.builder().eTag(eTag).build());
+            }
+        }
+
         // 这里需要增加关流的操作，PutObject方法是不会自动关流的
-        try (BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream)) {
-            return putObject(bucketName, objectName, contentType, RequestBody.fromInputStream(bufferedInputStream, contentLength));
+        // SDK重试时依赖mark/reset重新读取，本身支持mark的流不再包装一层缓冲流
+        try (InputStream markableInputStream = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream)) {
+            return putObject(bucketName, objectName, contentType, RequestBody.fromInputStream(markableInputStream, contentLength));
         }
     }
 
@@ -202,7 +439,7 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
      */
     @Override
     public Optional<PutObjectResponse> putObject(String bucketName, String objectName, String content) throws S3Exception {
-        return putObject(bucketName, objectName, "text/plain", RequestBody.fromString(content, StandardCharsets.UTF_8));
+        return putObject(bucketName, objectName, content, (Map<String, String>) null);
     }
 
 
@@ -217,12 +454,159 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
      */
     @Override
     public Optional<PutObjectResponse> putObject(String bucketName, String objectName, String content, Map<String, String> metadataMap) throws S3Exception {
-        return putObject(bucketName, objectName, "text/plain", metadataMap, RequestBody.fromString(content, StandardCharsets.UTF_8));
+        if (isEncodingRequired(TEXT_PLAIN)) {
+            Assert.notNull(content, "content not null");
+            return putEncodedObject(bucketName, objectName, TEXT_PLAIN, metadataMap,
+                    new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))
+                    .map(eTag -> PutObjectResponse.builder().eTag(eTag).build());
+        }
+        return putObject(bucketName, objectName, TEXT_PLAIN, metadataMap, RequestBody.fromString(content, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 对象类型是否需要压缩
+     *
+     * @param contentType 对象类型
+     * @return 开启了压缩并且对象类型匹配时返回true
+     */
+    private boolean isCompressible(String contentType) {
+        if (compressionCodec == null) {
+            return false;
+        }
+        List<String> contentTypes = s3V2Base.getCompression().getContentTypes();
+        if (CollectionUtil.isEmpty(contentTypes)) {
+            return true;
+        }
+        if (StrUtil.isEmpty(contentType)) {
+            return false;
+        }
+        String lowerCaseContentType = contentType.toLowerCase(Locale.ENGLISH);
+        return contentTypes.stream().anyMatch(prefix -> lowerCaseContentType.startsWith(prefix.toLowerCase(Locale.ENGLISH)));
     }
 
+    /**
+     * @return 是否在getObject时校验完整性
+     */
+    private boolean isChecksumValidationEnabled() {
+        return checksumAlgorithm != null && s3V2Base.getChecksum().isValidateOnDownload();
+    }
 
     /**
-     * 上传一个对象
+     * 完整校验和由SDK在读取时校验，这里校验分片上传对象的组合校验和，按元数据中记录的分片大小切分计算每个分片的校验和
+     *
+     * @param responseInputStream 对象的响应流
+     * @return 读到末尾时校验组合校验和的响应流
+     */
+    private ResponseInputStream<GetObjectResponse> validateChecksumIfNecessary(ResponseInputStream<GetObjectResponse> responseInputStream) {
+        GetObjectResponse response = responseInputStream.response();
+        ChecksumAlgorithm algorithm = isChecksumValidationEnabled() ? ChecksumUtil.algorithmOf(response) : null;
+        String checksum = algorithm == null ? null : ChecksumUtil.checksum(response, algorithm);
+        if (!PartChecksum.isComposite(checksum)) {
+            return responseInputStream;
+        }
+        String partSize = response.metadata().get(CHECKSUM_PART_SIZE_METADATA_KEY);
+        if (StrUtil.isEmpty(partSize)) {
+            log.debug("object {} has composite checksum but no part size, skip validation", response.eTag());
+            return responseInputStream;
+        }
+        InputStream validatingInputStream = PartChecksum.validating(responseInputStream, algorithm, checksum,
+                Long.parseLong(partSize), response.contentLength());
+        return new ResponseInputStream<>(response, AbortableInputStream.create(validatingInputStream, responseInputStream::abort));
+    }
+
+    /**
+     * @return 是否开启了上传加密
+     */
+    private boolean isEncryptionEnabled() {
+        return s3V2Base.getEncryption() != null && s3V2Base.getEncryption().isEnabled();
+    }
+
+    /**
+     * 为一个新对象生成数据密钥，响应式模板上传时也使用
+     *
+     * @return 没有开启加密时返回null
+     */
+    ChunkedObjectCipher createObjectCipher() {
+        return isEncryptionEnabled() ? ChunkedObjectCipher.create(dataKeyProvider, s3V2Base.getEncryption().getChunkSize()) : null;
+    }
+
+    /**
+     * 对象是否需要压缩或者加密后上传
+     *
+     * @param contentType 对象类型
+     * @return 需要压缩或者开启了加密时返回true
+     */
+    private boolean isEncodingRequired(String contentType) {
+        return isEncryptionEnabled() || isCompressible(contentType);
+    }
+
+    /**
+     * 边压缩、加密边分片上传，处理后的长度未知，所以不能直接putObject，只持有一个分片和一个加密块大小的缓冲区
+     * 先压缩再加密，密文无法压缩
+     *
+     * @param bucketName  桶名称
+     * @param objectName  对象名称
+     * @param contentType 对象类型，保持原始类型
+     * @param metadataMap 元数据，会额外记录压缩算法和加密信息
+     * @param inputStream 原始数据，不会被关闭
+     * @return 对象的eTag
+     */
+    private Optional<String> putEncodedObject(String bucketName,
+                                              String objectName,
+                                              String contentType,
+                                              Map<String, String> metadataMap,
+                                              InputStream inputStream) {
+        return putEncodedObject(bucketName, objectName, contentType, metadataMap, inputStream, MultipartUploadOutputStream.DEFAULT_PART_SIZE);
+    }
+
+    /**
+     * @param partSize 处理后数据的分片大小，不小于5MB
+     * @see #putEncodedObject(String, String, String, Map, InputStream)
+     */
+    private Optional<String> putEncodedObject(String bucketName,
+                                              String objectName,
+                                              String contentType,
+                                              Map<String, String> metadataMap,
+                                              InputStream inputStream,
+                                              int partSize) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name not empty");
+
+        CompressionCodec codec = isCompressible(contentType) ? compressionCodec : null;
+        ChunkedObjectCipher objectCipher = createObjectCipher();
+
+        Map<String, String> encodedMetadataMap = MapUtil.isEmpty(metadataMap) ? new HashMap<>(8) : new HashMap<>(metadataMap);
+        if (codec != null) {
+            encodedMetadataMap.put(CODEC_METADATA_KEY, codec.getName());
+        }
+        if (objectCipher != null) {
+            objectCipher.writeMetadata(encodedMetadataMap);
+        }
+        MultipartUploadOutputStream outputStream = new MultipartUploadOutputStream(s3Client, bucketName, objectName, contentType,
+                encodedMetadataMap, partSize, checksumAlgorithm);
+        try {
+            OutputStream encodedOutputStream = objectCipher == null ? outputStream : objectCipher.encrypt(outputStream);
+            if (codec != null) {
+                encodedOutputStream = codec.compress(encodedOutputStream, s3V2Base.getCompression().getLevel());
+            }
+            long originalLength = IOUtils.copyLarge(inputStream, encodedOutputStream);
+            // 关闭时写入剩余的压缩数据和最后一个加密块，并完成上传
+            encodedOutputStream.close();
+            evictCachedObject(bucketName, objectName);
+            log.debug("encoded upload success, bucket {} object name {}, codec {}, encrypted {}, {} -> {} bytes",
+                    bucketName, objectName, codec, objectCipher != null, originalLength, outputStream.getContentLength());
+            return Optional.ofNullable(outputStream.getETag());
+        } catch (IOException e) {
+            outputStream.abort();
+            log.error("encoded upload failed, bucket {} object name {}, codec {}, encrypted {}, the cause is ",
+                    bucketName, objectName, codec, objectCipher != null, e);
+            return Optional.empty();
+        }
+    }
+
+
+    /**
+     * 上传一个对象，开启加密时读取RequestBody的内容加密后分片上传
      *
      * @param bucketName  桶名称
      * @param objectName  对象名称
@@ -238,8 +622,35 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
                                                  String contentType,
                                                  Map<String, String> metadataMap,
                                                  RequestBody requestBody) {
+        if (isEncryptionEnabled()) {
+            Assert.notNull(requestBody, "requestBody not empty");
+            String encodedContentType = StrUtil.isNotEmpty(contentType) ? contentType : requestBody.contentType();
+            try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+                return putEncodedObject(bucketName, objectName, encodedContentType, metadataMap, inputStream)
+                        .map(eTag -> PutObjectResponse.builder().eTag(eTag).build());
+            } catch (IOException | UncheckedIOException e) {
+                log.error("encrypted put object failed bucket [{}] object [{}], the cause is ", bucketName, objectName, e);
+                return Optional.empty();
+            }
+        }
+        return putRawObject(bucketName, objectName, contentType, metadataMap, requestBody);
+    }
 
-
+    /**
+     * 原样上传RequestBody的内容，不压缩也不加密
+     *
+     * @param bucketName  桶名称
+     * @param objectName  对象名称
+     * @param contentType 对象类型
+     * @param metadataMap 元数据
+     * @param requestBody 上传的对象
+     * @return 返回结果
+     */
+    private Optional<PutObjectResponse> putRawObject(String bucketName,
+                                                     String objectName,
+                                                     String contentType,
+                                                     Map<String, String> metadataMap,
+                                                     RequestBody requestBody) {
         bucketName = handlerBucketName(bucketName);
         Assert.notEmpty(objectName, "object name not empty");
         Assert.notNull(requestBody, "requestBody not empty");
@@ -256,10 +667,15 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
             builder.metadata(metadataMap);
         }
 
+        // 由SDK计算校验和，S3接收时校验
+        if (checksumAlgorithm != null) {
+            builder.checksumAlgorithm(checksumAlgorithm);
+        }
 
         PutObjectResponse putObjectResponse = null;
         try {
             putObjectResponse = s3Client.putObject(builder.build(), requestBody);
+            evictCachedObject(bucketName, objectName);
             return Optional.of(putObjectResponse);
         } catch (AwsServiceException | SdkClientException e) {
             log.error("put object failed bucket [{}] object [{}] contentType [{}] requestBody [{}], the cause is",
@@ -464,6 +880,7 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
                             .key(s3Object.key())
                             .build();
                     s3Client.deleteObject(request);
+                    evictCachedObject(bucketName, s3Object.key());
                 }
             } while (listObjectsV2Response.isTruncated());
         } catch (S3Exception e) {
@@ -520,6 +937,9 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
                     .bucket(bucketName)
                     .delete(Delete.builder().objects(objectIdentifierList).build())
                     .build());
+            for (ObjectIdentifier objectIdentifier : objectIdentifierList) {
+                evictCachedObject(bucketName, objectIdentifier.key());
+            }
 
             return Optional.ofNullable(deleteObjectsResponse);
         } catch (AwsServiceException | SdkClientException e) {
@@ -553,6 +973,7 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
                             .key(version.key())
                             .versionId(version.versionId())
                             .build());
+                    evictCachedObject(bucketName, version.key());
                 }
             }
 
@@ -565,6 +986,7 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
                             .key(deleteMarkerEntry.key())
                             .versionId(deleteMarkerEntry.versionId())
                             .build());
+                    evictCachedObject(bucketName, deleteMarkerEntry.key());
                 }
             }
         } while (listObjectVersionsResponse.isTruncated());
@@ -642,7 +1064,7 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
      * @param bucketName 桶名称
      * @return 转成小写后的桶名称
      */
-    private String handlerBucketName(String bucketName) {
+    String handlerBucketName(String bucketName) {
         // 非空校验
         Assert.notEmpty(bucketName, "bucket name is not empty");
 
@@ -697,6 +1119,36 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
         return s3V2Base;
     }
 
+    @Override
+    public TransferMetrics getTransferMetrics() {
+        return transferMetrics;
+    }
+
+    /**
+     * 获取getObject的对冲请求执行器，可以查询对冲的次数和当前的延迟阈值
+     *
+     * @return 未开启对冲时为null
+     */
+    public HedgedRequestExecutor getHedgedRequestExecutor() {
+        return hedgedRequestExecutor;
+    }
+
+    /**
+     * 为一次文件传输创建监听器
+     * 统计监听器总是存在，只有开启debug日志时才会额外打印传输进度
+     *
+     * @param transferType 传输类型
+     * @return 监听器集合
+     */
+    private List<TransferListener> createTransferListeners(TransferMetrics.TransferType transferType) {
+        List<TransferListener> transferListeners = new ArrayList<>(2);
+        transferListeners.add(transferMetrics.newListener(transferType));
+        if (log.isDebugEnabled()) {
+            transferListeners.add(LoggingTransferListener.create());
+        }
+        return transferListeners;
+    }
+
     @Override
     public String handlerUploadObjectName(String objectName) {
         return handlerUploadObjectName(objectName, DEFAULT_UPLOAD_BASE_DIR);
@@ -734,17 +1186,10 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
 
     @Override
     public String getUploadObjectNamePrefix(String baseDir) {
-        StringBuilder stringBuilder = new StringBuilder();
         if (StrUtil.isEmpty(baseDir)) {
             baseDir = DEFAULT_UPLOAD_BASE_DIR;
         }
-
-        stringBuilder.append(baseDir);
-        stringBuilder.append(FILE_SEPARATOR);
-        stringBuilder.append(LocalDateTime.now().format(FILE_NAME_PATTERN));
-        stringBuilder.append(FILE_SEPARATOR);
-        stringBuilder.append(UUID.randomUUID().toString(true));
-        return stringBuilder.toString();
+        return objectKeyStrategy.getUploadObjectNamePrefix(baseDir);
     }
 
     @Override
@@ -778,12 +1223,14 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
         destBucketName = handlerBucketName(destBucketName);
 
         try {
-            return Optional.ofNullable(s3Client.copyObject(CopyObjectRequest.builder()
+            CopyObjectResponse copyObjectResponse = s3Client.copyObject(CopyObjectRequest.builder()
                     .sourceBucket(srcBucketName)
                     .sourceKey(srcObjectName)
                     .destinationBucket(destBucketName)
                     .destinationKey(destObjectName)
-                    .build()));
+                    .build());
+            evictCachedObject(destBucketName, destObjectName);
+            return Optional.ofNullable(copyObjectResponse);
         } catch (S3Exception e) {
             log.error("srcBucketName {} srcObjectName {} destBucketName {} destObjectName {}, copy object failed, the cause is ",
                     srcBucketName,
@@ -826,8 +1273,16 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
      */
     @Override
     public Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName, String objectName, File file, int sliceSize) {
+        if (isEncryptionEnabled()) {
+            // 密文长度在读取时才能确定，边读取边加密，按调用方的分片大小上传
+            return multipartUploadEncoded(bucketName, objectName, file, Math.max(sliceSize, MultipartUploadOutputStream.MIN_PART_SIZE));
+        }
+        // 开启完整性校验时记录分片大小，下载时按它切分校验组合校验和
+        Map<String, String> checksumMetadataMap = checksumAlgorithm == null ? null :
+                Collections.singletonMap(CHECKSUM_PART_SIZE_METADATA_KEY, String.valueOf(sliceSize));
         return multipartUpload(bucketName,
                 objectName,
+                checksumMetadataMap,
                 file,
                 file1 -> file1 != null && file1.exists(),
                 (file2, newBucketName, newObjectName, uploadId) -> {
@@ -853,16 +1308,25 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
                             randomAccessFileRead.readFully(bytes);
 
                             // 创建一个分片的上传请求
-                            UploadPartRequest uploadRequest = UploadPartRequest.builder()
+                            UploadPartRequest.Builder uploadRequestBuilder = UploadPartRequest.builder()
                                     .bucket(newBucketName)
                                     .key(newObjectName)
                                     .uploadId(uploadId)
-                                    .partNumber(partNumber).build();
-
-                            String etag = s3Client.uploadPart(uploadRequest, RequestBody.fromBytes(bytes)).eTag();
+                                    .partNumber(partNumber);
+                            CompletedPart.Builder partBuilder = CompletedPart.builder().partNumber(partNumber);
+                            if (checksumAlgorithm != null) {
+                                // 每个分片的校验和只依赖这个分片的内容，在上传这个分片时计算
+                                PartChecksum partChecksum = PartChecksum.create(checksumAlgorithm);
+                                partChecksum.update(bytes, 0, bytes.length);
+                                String checksum = partChecksum.finishBase64();
+                                ChecksumUtil.checksum(uploadRequestBuilder, checksumAlgorithm, checksum);
+                                ChecksumUtil.checksum(partBuilder, checksumAlgorithm, checksum);
+                            }
+
+                            String etag = s3Client.uploadPart(uploadRequestBuilder.build(), RequestBody.fromBytes(bytes)).eTag();
                             log.debug("part {}, upload success", partNumber);
 
-                            CompletedPart part = CompletedPart.builder().partNumber(partNumber).eTag(etag).build();
+                            CompletedPart part = partBuilder.eTag(etag).build();
                             completedPartList.add(part);
 
                             filePosition += partSize;
@@ -875,6 +1339,59 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
         );
     }
 
+    /**
+     * 开启加密时，文件边读取边加密、计算分片校验和，通过MultipartUploadOutputStream分片上传，内存中只保留一个分片
+     *
+     * @param bucketName 桶名称
+     * @param objectName 对象名称
+     * @param file       上传的文件对象
+     * @param partSize   密文的分片大小，不小于5MB
+     * @return 返回结果
+     */
+    private Optional<CompleteMultipartUploadResponse> multipartUploadEncoded(String bucketName, String objectName, File file, int partSize) {
+        Assert.isTrue(file != null && file.exists(), "upload file not exists");
+        String handlerBucketName = handlerBucketName(bucketName);
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            return putEncodedObject(handlerBucketName, objectName, null, null, inputStream, partSize)
+                    .map(eTag -> CompleteMultipartUploadResponse.builder().bucket(handlerBucketName).key(objectName).eTag(eTag).build());
+        } catch (IOException e) {
+            log.error("encrypted upload failed, bucket {} file {}, the cause is ", handlerBucketName, file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 开启加密时把所有分片的内容依次读出，加密后重新按MultipartUploadOutputStream的分片大小上传
+     *
+     * @param bucketName      桶名称
+     * @param objectName      对象名称
+     * @param requestBodyList 分片对象
+     * @return 返回结果
+     */
+    private Optional<CompleteMultipartUploadResponse> multipartUploadEncoded(String bucketName, String objectName, List<RequestBody> requestBodyList) {
+        Assert.isTrue(checkRequestBodyList(requestBodyList), "param check failed, " + requestBodyList);
+        String handlerBucketName = handlerBucketName(bucketName);
+        Iterator<RequestBody> requestBodyIterator = requestBodyList.iterator();
+        Enumeration<InputStream> inputStreams = new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return requestBodyIterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return requestBodyIterator.next().contentStreamProvider().newStream();
+            }
+        };
+        try (InputStream inputStream = new SequenceInputStream(inputStreams)) {
+            return putEncodedObject(handlerBucketName, objectName, null, null, inputStream)
+                    .map(eTag -> CompleteMultipartUploadResponse.builder().bucket(handlerBucketName).key(objectName).eTag(eTag).build());
+        } catch (IOException | UncheckedIOException e) {
+            log.error("encrypted upload failed, bucket {} object {}, the cause is ", handlerBucketName, objectName, e);
+            return Optional.empty();
+        }
+    }
+
     /**
      * 分片上传文件
      *
@@ -889,7 +1406,7 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
     }
 
     /**
-     * 分片文件上传的底层封装方法
+     * 分片文件上传的底层封装方法，分片由function直接上传，开启加密时抛出IllegalStateException
      *
      * @param bucketName 桶的名称
      * @param objectName 对象名称
@@ -906,12 +1423,30 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
                                                                          Predicate<T> predicate,
                                                                          MultipartUploadBiFunction<T, List<CompletedPart>> function)
             throws S3Exception {
+        return multipartUpload(bucketName, objectName, null, t, predicate, function);
+    }
+
+    /**
+     * @param checksumMetadataMap 开启完整性校验时的元数据，创建分片上传时指定校验和算法，为null时不校验
+     * @see #multipartUpload(String, String, Object, Predicate, MultipartUploadBiFunction)
+     */
+    private <T> Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName,
+                                                                          String objectName,
+                                                                          Map<String, String> checksumMetadataMap,
+                                                                          T t,
+                                                                          Predicate<T> predicate,
+                                                                          MultipartUploadBiFunction<T, List<CompletedPart>> function)
+            throws S3Exception {
         // 处理桶名称和对象名称
         bucketName = handlerBucketName(bucketName);
 
         // 校验对象名称
         Assert.notEmpty(objectName, "objectName not empty");
 
+        // 分片由调用方直接上传，无法加密，开启加密时不允许上传明文
+        Assert.state(!isEncryptionEnabled(), "encryption is enabled, upload parts by a custom function is not supported, " +
+                "use multipartUpload(File), uploadStream or putObject instead");
+
         // 参数校验
         boolean paramCheckResult = predicate.test(t);
         if (!paramCheckResult) {
@@ -920,10 +1455,13 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
         }
 
         // 首先创建一个分片上传，并获取上传id
-        CreateMultipartUploadRequest createMultipartUploadRequest = CreateMultipartUploadRequest.builder()
+        CreateMultipartUploadRequest.Builder createMultipartUploadRequestBuilder = CreateMultipartUploadRequest.builder()
                 .bucket(bucketName)
-                .key(objectName)
-                .build();
+                .key(objectName);
+        if (checksumMetadataMap != null) {
+            createMultipartUploadRequestBuilder.checksumAlgorithm(checksumAlgorithm).metadata(checksumMetadataMap);
+        }
+        CreateMultipartUploadRequest createMultipartUploadRequest = createMultipartUploadRequestBuilder.build();
 
         // 获取分片上传的对象
         CreateMultipartUploadResponse response = s3Client.createMultipartUpload(createMultipartUploadRequest);
@@ -951,6 +1489,7 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
                             .build();
             // 最后完成分片上传逻辑
             CompleteMultipartUploadResponse completeMultipartUploadResponse = s3Client.completeMultipartUpload(completeMultipartUploadRequest);
+            evictCachedObject(bucketName, objectName);
             log.debug("Upload an object in parts success, bucket {} object name {}, uploadId {}",
                     bucketName,
                     objectName,
@@ -986,6 +1525,9 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
     public Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName,
                                                                      String objectName,
                                                                      List<RequestBody> requestBodyList) throws S3Exception {
+        if (isEncryptionEnabled()) {
+            return multipartUploadEncoded(bucketName, objectName, requestBodyList);
+        }
         return multipartUpload(bucketName, objectName, requestBodyList, this::checkRequestBodyList,
                 (requestBodies, handlerBucketName, handlerObjectName, uploadId) -> {
 
@@ -1014,33 +1556,472 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
     }
 
     /**
-     * 确保除了最后一个分片之外，每个分片的大小都最少为5MB
+     * 流式上传长度未知的数据，只持有一个分片大小的缓冲区
      *
-     * @param requestBodyList 分片集合
-     * @return 校验分片
+     * @param bucketName  桶名称
+     * @param objectName  对象名称
+     * @param contentType 对象类型
+     * @param inputStream 数据，不会被关闭
+     * @return 对象的eTag
      */
-    private boolean checkRequestBodyList(List<RequestBody> requestBodyList) {
-        // 对RequestBody进行非空判断
-        if (CollectionUtil.isEmpty(requestBodyList)) {
-            log.error("part list not be empty");
-            return false;
+    @Override
+    public Optional<String> uploadStream(String bucketName, String objectName, String contentType, InputStream inputStream) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name not empty");
+        Assert.notNull(inputStream, "inputStream not null");
+
+        if (isEncodingRequired(contentType)) {
+            return putEncodedObject(bucketName, objectName, contentType, null, inputStream);
         }
 
-        // Amazon S3 规定上传的分片数量必须在1到10000之间，超过会报错Part number must be an integer between 1 and 10000
-        int size = requestBodyList.size();
-        if (size < 1 || size > 10000) {
-            log.error("Part number must be an integer between 1 and 10000");
-            return false;
+        MultipartUploadOutputStream outputStream = new MultipartUploadOutputStream(s3Client, bucketName, objectName, contentType,
+                null, MultipartUploadOutputStream.DEFAULT_PART_SIZE, checksumAlgorithm);
+        try {
+            outputStream.transferFrom(inputStream);
+            outputStream.close();
+            evictCachedObject(bucketName, objectName);
+            return Optional.ofNullable(outputStream.getETag());
+        } catch (IOException e) {
+            // 读取数据失败(例如客户端断开连接)时中止分片上传
+            outputStream.abort();
+            log.error("stream upload failed, bucket {} object name {}, the cause is ", bucketName, objectName, e);
+            return Optional.empty();
         }
+    }
 
-        // 获取每一个分片的大小
-        for (int i = 0; i < size; i++) {
-            Optional<Long> longOptional = requestBodyList.get(i).optionalContentLength();
-            if (!longOptional.isPresent()) {
-                return false;
-            }
-            Long partLength = longOptional.get();
-            if (i != size - 1) {
+    /**
+     * 按内容去重上传文件，文件先分块并行计算内容摘要，数据对象不存在时再读取一次文件上传
+     *
+     * @param bucketName 桶名称
+     * @param objectName 业务对象名称
+     * @param file       上传的文件
+     * @return 上传结果，计算摘要、上传或者拷贝失败时返回空
+     */
+    @Override
+    public Optional<DedupUploadResult> dedupUpload(String bucketName, String objectName, File file) {
+        Assert.isTrue(file != null && file.isFile(), "upload file not exists");
+        String contentHash;
+        try {
+            contentHash = contentTreeHasher.hash(file);
+        } catch (IOException e) {
+            log.error("hash file {} failed, the cause is ", file, e);
+            return Optional.empty();
+        }
+        return dedupUpload(bucketName, objectName, null, file.length(), contentHash, (handledBucketName, blobKey) -> {
+            try (InputStream inputStream = new FileInputStream(file)) {
+                return uploadStream(handledBucketName, blobKey, null, inputStream).isPresent();
+            }
+        });
+    }
+
+    @Override
+    public Optional<DedupUploadResult> dedupUpload(String bucketName, String objectName, MultipartFile multipartFile) {
+        Assert.notNull(multipartFile, "multipartFile not null");
+        String contentHash;
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            contentHash = contentTreeHasher.hash(inputStream);
+        } catch (IOException e) {
+            log.error("hash multipartFile {} failed, the cause is ", multipartFile.getOriginalFilename(), e);
+            return Optional.empty();
+        }
+        return dedupUpload(bucketName, objectName, multipartFile.getContentType(), multipartFile.getSize(), contentHash,
+                (handledBucketName, blobKey) -> {
+                    try (InputStream inputStream = multipartFile.getInputStream()) {
+                        return uploadStream(handledBucketName, blobKey, multipartFile.getContentType(), inputStream).isPresent();
+                    }
+                });
+    }
+
+    /**
+     * 数据对象不存在时上传，然后把业务对象指向数据对象
+     *
+     * @param bucketName    桶名称
+     * @param objectName    业务对象名称
+     * @param contentType   对象类型
+     * @param contentLength 内容长度
+     * @param contentHash   内容摘要
+     * @param blobUploader  上传数据对象，参数为处理过的桶名称和数据对象名称
+     * @return 上传结果
+     */
+    private Optional<DedupUploadResult> dedupUpload(String bucketName,
+                                                    String objectName,
+                                                    String contentType,
+                                                    long contentLength,
+                                                    String contentHash,
+                                                    BlobUploader blobUploader) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name not empty");
+        S3V2DedupConfig dedupConfig = getDedupConfig();
+        String blobKey = dedupConfig.getBlobPrefix() + contentHash;
+
+        try {
+            boolean deduplicated = isObjectExists(bucketName, blobKey);
+            if (!deduplicated && !blobUploader.upload(bucketName, blobKey)) {
+                return Optional.empty();
+            }
+
+            // 预留加密带来的长度开销，超过CopyObject的上限时改用引用
+            boolean linked = dedupConfig.isReferenceLink() || contentLength + contentLength / 1024 > MAX_COPY_OBJECT_SIZE ?
+                    putRawObject(bucketName, objectName, contentType, Collections.singletonMap(DEDUP_BLOB_METADATA_KEY, blobKey), RequestBody.empty()).isPresent() :
+                    copyObject(bucketName, blobKey, bucketName, objectName).isPresent();
+            if (!linked) {
+                return Optional.empty();
+            }
+            log.debug("dedup upload success, bucket {} object name {} blob {}, deduplicated {}", bucketName, objectName, blobKey, deduplicated);
+            return Optional.of(DedupUploadResult.builder()
+                    .objectName(objectName)
+                    .blobKey(blobKey)
+                    .contentHash(contentHash)
+                    .contentLength(contentLength)
+                    .deduplicated(deduplicated)
+                    .build());
+        } catch (IOException | AwsServiceException | SdkClientException e) {
+            log.error("dedup upload failed, bucket {} object name {} blob {}, the cause is ", bucketName, objectName, blobKey, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 获取对象的元数据，开启元数据缓存时优先使用缓存
+     *
+     * @param bucketName 桶名称
+     * @param objectName 对象名称
+     * @return 对象的元数据，对象不存在或者请求失败时为空
+     */
+    @Override
+    public Optional<HeadObjectResponse> headObject(String bucketName, String objectName) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        objectName = objectName.replace("\\", FILE_SEPARATOR);
+
+        try {
+            return Optional.ofNullable(headObjectIfExists(bucketName, objectName));
+        } catch (AwsServiceException | SdkClientException e) {
+            log.error("head object failed, bucket {} object {}, the cause is ", bucketName, objectName, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 判断对象是否存在，开启元数据缓存时优先使用缓存
+     *
+     * @param bucketName 桶名称
+     * @param objectName 对象名称
+     * @return 对象是否存在
+     * @throws S3Exception 除404以外的请求失败
+     */
+    @Override
+    public boolean objectExists(String bucketName, String objectName) throws S3Exception {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        return isObjectExists(bucketName, objectName.replace("\\", FILE_SEPARATOR));
+    }
+
+    /**
+     * 批量获取对象的元数据，缓存中没有的对象通过异步客户端同时发出HeadObject请求，没有异步客户端时依次请求
+     * 同时进行的请求不超过MAX_CONCURRENT_HEAD_OBJECTS，达到上限时等待已经发出的请求完成
+     *
+     * @param bucketName  桶名称
+     * @param objectNames 对象名称
+     * @return 对象名称 -> 元数据，只包含存在的对象，任意一个请求失败(404除外)时为空
+     */
+    @Override
+    public Optional<Map<String, HeadObjectResponse>> headObjects(String bucketName, Collection<String> objectNames) {
+        String handledBucketName = handlerBucketName(bucketName);
+        Assert.notNull(objectNames, "objectNames not null");
+
+        for (String objectName : objectNames) {
+            Assert.notEmpty(objectName, "objectName not empty");
+        }
+        Map<String, CompletableFuture<HeadObjectResponse>> futureMap = new LinkedHashMap<>(objectNames.size() * 2);
+        Semaphore semaphore = new Semaphore(MAX_CONCURRENT_HEAD_OBJECTS);
+        try {
+            for (String objectName : objectNames) {
+                if (futureMap.containsKey(objectName)) {
+                    continue;
+                }
+                semaphore.acquire();
+                CompletableFuture<HeadObjectResponse> future = headObjectAsync(handledBucketName, objectName.replace("\\", FILE_SEPARATOR));
+                future.whenComplete((headObjectResponse, throwable) -> semaphore.release());
+                futureMap.put(objectName, future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("head objects interrupted, bucket {} objects size {}, the cause is ", handledBucketName, objectNames.size(), e);
+            return Optional.empty();
+        }
+        try {
+            CompletableFuture.allOf(futureMap.values().toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            log.error("head objects failed, bucket {} objects size {}, the cause is ", handledBucketName, objectNames.size(), e.getCause());
+            return Optional.empty();
+        }
+
+        Map<String, HeadObjectResponse> headObjectResponseMap = new LinkedHashMap<>(futureMap.size() * 2);
+        futureMap.forEach((objectName, future) -> {
+            HeadObjectResponse headObjectResponse = future.join();
+            if (headObjectResponse != null) {
+                headObjectResponseMap.put(objectName, headObjectResponse);
+            }
+        });
+        return Optional.of(headObjectResponseMap);
+    }
+
+    /**
+     * 批量判断对象是否存在
+     *
+     * @param bucketName  桶名称
+     * @param objectNames 对象名称
+     * @return 对象名称 -> 是否存在，任意一个请求失败(404除外)时为空
+     * @see #headObjects(String, Collection)
+     */
+    @Override
+    public Optional<Map<String, Boolean>> objectsExist(String bucketName, Collection<String> objectNames) {
+        return headObjects(bucketName, objectNames).map(headObjectResponseMap -> {
+            Map<String, Boolean> existsMap = new LinkedHashMap<>(objectNames.size() * 2);
+            for (String objectName : objectNames) {
+                existsMap.put(objectName, headObjectResponseMap.containsKey(objectName));
+            }
+            return existsMap;
+        });
+    }
+
+    /**
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     * @return 对象是否存在
+     */
+    private boolean isObjectExists(String bucketName, String objectName) {
+        return headObjectIfExists(bucketName, objectName) != null;
+    }
+
+    /**
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     * @return 对象的元数据，对象不存在时为null
+     */
+    private HeadObjectResponse headObjectIfExists(String bucketName, String objectName) {
+        String cacheKey = bucketName + FILE_SEPARATOR + objectName;
+        if (objectMetadataCache != null) {
+            // 读取时不更新访问时间，否则经常访问的对象永远不会过期
+            HeadObjectResponse cachedHeadObjectResponse = objectMetadataCache.get(cacheKey, false);
+            if (cachedHeadObjectResponse != null || missingObjectCache.containsKey(cacheKey)) {
+                return cachedHeadObjectResponse;
+            }
+        }
+        HeadObjectResponse headObjectResponse;
+        try {
+            headObjectResponse = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(objectName).build());
+        } catch (S3Exception e) {
+            if (!isNotFound(e)) {
+                throw e;
+            }
+            headObjectResponse = null;
+        }
+        cacheObjectMetadata(cacheKey, headObjectResponse);
+        return headObjectResponse;
+    }
+
+    /**
+     * 有异步客户端时不阻塞当前线程，否则同步请求后返回已完成的future
+     *
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     * @return 对象的元数据，对象不存在时为null
+     */
+    private CompletableFuture<HeadObjectResponse> headObjectAsync(String bucketName, String objectName) {
+        String cacheKey = bucketName + FILE_SEPARATOR + objectName;
+        if (s3AsyncClient == null || isObjectMetadataCached(cacheKey)) {
+            try {
+                return CompletableFuture.completedFuture(headObjectIfExists(bucketName, objectName));
+            } catch (AwsServiceException | SdkClientException e) {
+                CompletableFuture<HeadObjectResponse> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                return future;
+            }
+        }
+        return s3AsyncClient.headObject(HeadObjectRequest.builder().bucket(bucketName).key(objectName).build())
+                .handle((headObjectResponse, throwable) -> {
+                    Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    if (cause != null && !isNotFound(cause)) {
+                        throw new CompletionException(cause);
+                    }
+                    cacheObjectMetadata(cacheKey, headObjectResponse);
+                    return headObjectResponse;
+                });
+    }
+
+    /**
+     * @param cacheKey 桶名称/对象名称
+     * @return 缓存中是否有这个对象的结果(存在或者不存在)
+     */
+    private boolean isObjectMetadataCached(String cacheKey) {
+        return objectMetadataCache != null &&
+                (objectMetadataCache.containsKey(cacheKey) || missingObjectCache.containsKey(cacheKey));
+    }
+
+    /**
+     * @param cacheKey           桶名称/对象名称
+     * @param headObjectResponse 对象的元数据，对象不存在时为null
+     */
+    private void cacheObjectMetadata(String cacheKey, HeadObjectResponse headObjectResponse) {
+        if (objectMetadataCache == null) {
+            return;
+        }
+        S3V2MetadataCacheConfig metadataCacheConfig = s3V2Base.getMetadataCache();
+        if (headObjectResponse == null) {
+            objectMetadataCache.remove(cacheKey);
+            missingObjectCache.put(cacheKey, Boolean.TRUE, metadataCacheConfig.getNegativeTtlMillis());
+        } else {
+            missingObjectCache.remove(cacheKey);
+            objectMetadataCache.put(cacheKey, headObjectResponse, metadataCacheConfig.getTtlMillis());
+        }
+    }
+
+    private static boolean isNotFound(Throwable throwable) {
+        return throwable instanceof NoSuchKeyException ||
+                (throwable instanceof S3Exception && ((S3Exception) throwable).statusCode() == NOT_FOUND);
+    }
+
+    private S3V2DedupConfig getDedupConfig() {
+        return s3V2Base.getDedup() == null ? new S3V2DedupConfig() : s3V2Base.getDedup();
+    }
+
+    /**
+     * 取得去重引用对象指向的数据对象，只跟随一次，而且只跟随blobPrefix下的数据对象，
+     * 避免元数据被篡改或者引用链成环时无限递归，或者被引导读取其他业务对象
+     *
+     * @param bucketName      处理过的桶名称
+     * @param objectName      对象名称
+     * @param metadataMap     对象的元数据
+     * @param followDedupLink 是否跟随引用，已经跟随过一次时为false
+     * @return 数据对象名称，不需要跟随时返回null
+     */
+    private String getDedupBlobKey(String bucketName, String objectName, Map<String, String> metadataMap, boolean followDedupLink) {
+        String blobKey = metadataMap.get(DEDUP_BLOB_METADATA_KEY);
+        if (StrUtil.isEmpty(blobKey) || blobKey.equals(objectName)) {
+            return null;
+        }
+        if (!followDedupLink || !blobKey.startsWith(getDedupConfig().getBlobPrefix())) {
+            log.warn("bucket {} object {} links to {}, which is not followed", bucketName, objectName, blobKey);
+            return null;
+        }
+        return blobKey;
+    }
+
+    /**
+     * 上传去重的数据对象
+     */
+    @FunctionalInterface
+    private interface BlobUploader {
+        /**
+         * @param bucketName 处理过的桶名称
+         * @param blobKey    数据对象名称
+         * @return 是否上传成功
+         * @throws IOException 读取数据失败
+         */
+        boolean upload(String bucketName, String blobKey) throws IOException;
+    }
+
+    /**
+     * 创建分片上传
+     *
+     * @param bucketName  桶名称
+     * @param objectName  对象名称
+     * @param contentType 对象类型，可以为空
+     * @return 上传ID
+     */
+    @Override
+    public Optional<String> createMultipartUpload(String bucketName, String objectName, String contentType) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name not empty");
+
+        CreateMultipartUploadRequest.Builder builder = CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectName);
+        if (StrUtil.isNotEmpty(contentType)) {
+            builder.contentType(contentType);
+        }
+        try {
+            String uploadId = s3Client.createMultipartUpload(builder.build()).uploadId();
+            log.debug("bucket {} object name {}, uploadId {}", bucketName, objectName, uploadId);
+            return Optional.of(uploadId);
+        } catch (AwsServiceException | SdkClientException e) {
+            log.error("create multipart upload failed, bucket {} object name {}, the cause is ", bucketName, objectName, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 使用客户端上报的分片ETag完成分片上传
+     *
+     * @param bucketName        桶名称
+     * @param objectName        对象名称
+     * @param uploadId          上传ID
+     * @param completedPartList 分片编号和ETag
+     * @return CompleteMultipartUploadResponse
+     */
+    @Override
+    public Optional<CompleteMultipartUploadResponse> completeMultipartUpload(String bucketName,
+                                                                             String objectName,
+                                                                             String uploadId,
+                                                                             List<CompletedPart> completedPartList) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name not empty");
+        Assert.notEmpty(uploadId, "uploadId not empty");
+        Assert.notEmpty(completedPartList, "completedPartList not empty");
+
+        // S3要求分片按照编号升序排列，客户端上报的顺序不一定有序
+        List<CompletedPart> sortedPartList = new ArrayList<>(completedPartList);
+        sortedPartList.sort(Comparator.comparing(CompletedPart::partNumber));
+
+        CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(sortedPartList).build())
+                .build();
+        try {
+            CompleteMultipartUploadResponse completeMultipartUploadResponse = s3Client.completeMultipartUpload(completeMultipartUploadRequest);
+            evictCachedObject(bucketName, objectName);
+            log.debug("complete multipart upload success, bucket {} object name {}, uploadId {}, parts {}",
+                    bucketName, objectName, uploadId, sortedPartList.size());
+            return Optional.of(completeMultipartUploadResponse);
+        } catch (AwsServiceException | SdkClientException e) {
+            log.error("complete multipart upload failed, bucket {} object name {}, uploadId {}, the cause is ",
+                    bucketName, objectName, uploadId, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 确保除了最后一个分片之外，每个分片的大小都最少为5MB
+     *
+     * @param requestBodyList 分片集合
+     * @return 校验分片
+     */
+    private boolean checkRequestBodyList(List<RequestBody> requestBodyList) {
+        // 对RequestBody进行非空判断
+        if (CollectionUtil.isEmpty(requestBodyList)) {
+            log.error("part list not be empty");
+            return false;
+        }
+
+        // Amazon S3 规定上传的分片数量必须在1到10000之间，超过会报错Part number must be an integer between 1 and 10000
+        int size = requestBodyList.size();
+        if (size < 1 || size > 10000) {
+            log.error("Part number must be an integer between 1 and 10000");
+            return false;
+        }
+
+        // 获取每一个分片的大小
+        for (int i = 0; i < size; i++) {
+            Optional<Long> longOptional = requestBodyList.get(i).optionalContentLength();
+            if (!longOptional.isPresent()) {
+                return false;
+            }
+            Long partLength = longOptional.get();
+            if (i != size - 1) {
                 if (partLength < DEFAULT_SLICE_SIZE) {
                     log.error("Your proposed upload is smaller than the minimum allowed object size 5MB");
                     return false;
@@ -1210,44 +2191,500 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
     }
 
     @Override
-    public Optional<ResponseInputStream<GetObjectResponse>> getObject(String bucketName, String objectName) throws IOException {
-        bucketName = handlerBucketName(bucketName);
-        Assert.notEmpty(objectName, "objectName not empty");
-        objectName = objectName.replace("\\", FILE_SEPARATOR);
-
-        try {
-            ResponseInputStream<GetObjectResponse> responseInputStream = s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(objectName).build());
-            return Optional.of(responseInputStream);
-        } catch (AwsServiceException | SdkClientException e) {
-            e.printStackTrace();
-            return Optional.empty();
-        }
+    public Map<String, URL> getPresignedUrls(String bucketName, Collection<String> objectNames, Duration signatureTime) {
+        return getPresignedUrls(bucketName, objectNames, signatureTime, false);
     }
 
+    /**
+     * 批量获取预签名的对象的url
+     * 桶的基础路径只通过S3Utilities解析一次，签名key按天派生一次，之后每个对象只需要做一次哈希和一次HMAC
+     *
+     * @param bucketName    桶的名称
+     * @param objectNames   对象名称集合
+     * @param signatureTime 签名url过期时间
+     * @param parallel      是否并行签名，对象数量很多时可以开启
+     * @return 对象名称 -> 预签名的对象的url
+     */
     @Override
-    public void downloadFile(String bucketName, String objectName, String downloadBasePath) throws IOException {
-        Assert.notEmpty(downloadBasePath, "downloadBasePath not empty");
-        Optional<ResponseInputStream<GetObjectResponse>> responseInputStreamOptional = getObject(bucketName, objectName);
-        if (!responseInputStreamOptional.isPresent()) {
-            log.warn("bucket {} object {} not exists, not need download", bucketName, objectName);
-            return;
+    public Map<String, URL> getPresignedUrls(String bucketName, Collection<String> objectNames, Duration signatureTime, boolean parallel) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notNull(signatureTime, "signatureTime not null");
+        if (CollectionUtil.isEmpty(objectNames)) {
+            return new LinkedHashMap<>();
         }
 
+        Map<String, URL> presignedUrlMap = batchPresigner.presignGetObjects(getBucketBaseUrl(bucketName), objectNames, signatureTime, parallel);
+        log.debug("bucket [{}] presigned {} urls, signatureTime {}", bucketName, presignedUrlMap.size(), signatureTime);
+        return presignedUrlMap;
+    }
 
-        if (!downloadBasePath.endsWith("\\") && !downloadBasePath.endsWith(FILE_SEPARATOR)) {
-            downloadBasePath = downloadBasePath + FILE_SEPARATOR;
-        }
-
-        String downloadFilePath = downloadBasePath + objectName.substring(objectName.lastIndexOf(FILE_SEPARATOR) + 1);
-        File file = new File(downloadFilePath);
+    /**
+     * 获取POST表单直传的policy，表单提交到桶的基础路径
+     *
+     * @param bucketName       桶的名称
+     * @param objectName       对象名称，以'/'结尾时作为前缀
+     * @param contentType      文件类型，为空时不限制
+     * @param minContentLength 文件的最小字节数
+     * @param maxContentLength 文件的最大字节数
+     * @param signatureTime    policy的过期时间
+     * @return 表单提交的地址和字段
+     */
+    @Override
+    public Optional<PresignedPostPolicy> getPresignedPostPolicy(String bucketName,
+                                                                String objectName,
+                                                                String contentType,
+                                                                long minContentLength,
+                                                                long maxContentLength,
+                                                                Duration signatureTime) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name not empty");
 
-        if (file.exists()) {
-            log.debug("{} already exists, no need to download", downloadFilePath);
-            return;
-        }
+        PresignedPostPolicy presignedPostPolicy = batchPresigner.presignPostPolicy(getBucketBaseUrl(bucketName), bucketName, objectName,
+                contentType, minContentLength, maxContentLength, signatureTime);
+        log.debug("bucket [{}] object [{}] presigned post policy, expiration {}", bucketName, objectName, presignedPostPolicy.getExpiration());
+        return Optional.of(presignedPostPolicy);
+    }
 
-        if (!file.getParentFile().exists()) {
-            file.getParentFile().mkdirs();
+    /**
+     * 批量获取分片上传的预签名UploadPart url，签名方式和 getPresignedUrls 相同
+     *
+     * @param bucketName    桶的名称
+     * @param objectName    对象名称
+     * @param uploadId      上传ID
+     * @param partCount     分片数量
+     * @param signatureTime 签名url过期时间
+     * @return 分片编号 -> 预签名的PUT url
+     */
+    @Override
+    public Map<Integer, URL> getPresignedUploadPartUrls(String bucketName, String objectName, String uploadId, int partCount, Duration signatureTime) {
+        bucketName = handlerBucketName(bucketName);
+        Map<Integer, URL> presignedUrlMap = batchPresigner.presignUploadParts(getBucketBaseUrl(bucketName), objectName, uploadId, partCount, signatureTime);
+        log.debug("bucket [{}] object [{}] uploadId {} presigned {} part urls, signatureTime {}",
+                bucketName, objectName, uploadId, partCount, signatureTime);
+        return presignedUrlMap;
+    }
+
+    @Override
+    public Optional<URL> resolveAccessUrl(String bucketName, String objectName) {
+        Assert.notEmpty(objectName, "objectName not empty");
+        return Optional.ofNullable(resolveAccessUrls(bucketName, Collections.singletonList(objectName)).get(objectName));
+    }
+
+    /**
+     * 批量获取对象的访问url
+     * 公有空间直接拼接url，私有空间只对缓存未命中的对象进行批量签名
+     *
+     * @param bucketName  桶的名称
+     * @param objectNames 对象名称集合
+     * @return 对象名称 -> 对象的访问url
+     */
+    @Override
+    public Map<String, URL> resolveAccessUrls(String bucketName, Collection<String> objectNames) {
+        bucketName = handlerBucketName(bucketName);
+        Map<String, URL> accessUrlMap = new LinkedHashMap<>();
+        if (CollectionUtil.isEmpty(objectNames)) {
+            return accessUrlMap;
+        }
+
+        if (!s3V2Base.isPrivate()) {
+            String baseUrl = getPublicBaseUrl(bucketName);
+            for (String objectName : objectNames) {
+                Assert.notEmpty(objectName, "objectName not empty");
+                try {
+                    accessUrlMap.put(objectName, new URL(baseUrl + SdkHttpUtils.urlEncodeIgnoreSlashes(objectName)));
+                } catch (MalformedURLException e) {
+                    log.error("bucket [{}] object [{}] build access url failed, the cause is ", bucketName, objectName, e);
+                }
+            }
+            return accessUrlMap;
+        }
+
+        // 私有空间，先从缓存中获取，未命中的再批量签名
+        List<String> missObjectNames = new ArrayList<>();
+        for (String objectName : objectNames) {
+            URL url = accessUrlCache.get(bucketName + FILE_SEPARATOR + objectName, false);
+            accessUrlMap.put(objectName, url);
+            if (url == null) {
+                missObjectNames.add(objectName);
+            }
+        }
+
+        if (!missObjectNames.isEmpty()) {
+            int tokenTime = s3V2Base.getTokenTime() == null || s3V2Base.getTokenTime() <= 0 ? DEFAULT_TOKEN_TIME : s3V2Base.getTokenTime();
+            long cacheTimeout = tokenTime * 1000L / 2;
+            Map<String, URL> presignedUrlMap = getPresignedUrls(bucketName, missObjectNames, Duration.ofSeconds(tokenTime));
+            for (Map.Entry<String, URL> entry : presignedUrlMap.entrySet()) {
+                accessUrlCache.put(bucketName + FILE_SEPARATOR + entry.getKey(), entry.getValue(), cacheTimeout);
+                accessUrlMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return accessUrlMap;
+    }
+
+    /**
+     * 获取公有空间的基础访问路径，以'/'结尾
+     * 默认桶如果配置了domain，则优先使用domain
+     *
+     * @param bucketName 处理过的桶名称
+     * @return 公有空间的基础访问路径
+     */
+    private String getPublicBaseUrl(String bucketName) {
+        String domain = s3V2Base.getDomain();
+        if (StrUtil.isEmpty(domain) || !bucketName.equals(getDefaultBucket())) {
+            return getBucketBaseUrl(bucketName);
+        }
+
+        if (!StrUtil.startWithAnyIgnoreCase(domain, HTTP_PREFIX, HTTPS_PREFIX)) {
+            domain = HTTPS_PREFIX + domain;
+        }
+        return domain.endsWith(FILE_SEPARATOR) ? domain : domain + FILE_SEPARATOR;
+    }
+
+    /**
+     * 获取桶的基础访问路径，以'/'结尾
+     * 这里借助S3Utilities解析一个探测对象的url，这样路径风格(虚拟主机或者路径形式)就和SDK保持一致
+     *
+     * @param bucketName 处理过的桶名称
+     * @return 桶的基础访问路径
+     */
+    private String getBucketBaseUrl(String bucketName) {
+        return bucketBaseUrlMap.computeIfAbsent(bucketName, name -> {
+            String probeUrl = s3Utilities.getUrl(GetUrlRequest.builder()
+                    .bucket(name)
+                    .key(BUCKET_BASE_URL_PROBE_KEY)
+                    .build()).toString();
+            return probeUrl.substring(0, probeUrl.length() - BUCKET_BASE_URL_PROBE_KEY.length());
+        });
+    }
+
+    @Override
+    public Optional<ResponseInputStream<GetObjectResponse>> getObject(String bucketName, String objectName) throws IOException {
+        return getObject(bucketName, objectName, true);
+    }
+
+    /**
+     * @param followDedupLink 是否读取去重引用对象指向的数据对象，只跟随一次
+     */
+    private Optional<ResponseInputStream<GetObjectResponse>> getObject(String bucketName,
+                                                                       String objectName,
+                                                                       boolean followDedupLink) throws IOException {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        objectName = objectName.replace("\\", FILE_SEPARATOR);
+
+        GetObjectRequest.Builder getObjectRequestBuilder = GetObjectRequest.builder().bucket(bucketName).key(objectName);
+        if (isChecksumValidationEnabled()) {
+            getObjectRequestBuilder.checksumMode(ChecksumMode.ENABLED);
+        }
+        String cacheKey = bucketName + FILE_SEPARATOR + objectName;
+        CachedObject cachedObject = objectContentCache == null ? null : objectContentCache.get(cacheKey);
+        if (cachedObject != null && !cachedObject.isExpired()) {
+            return Optional.of(cachedObject.newResponseInputStream());
+        }
+        if (cachedObject != null) {
+            // 缓存过期后带上ETag重新验证，对象没有变化时返回304，不传输内容
+            getObjectRequestBuilder.ifNoneMatch(cachedObject.getETag());
+        }
+        GetObjectRequest getObjectRequest = getObjectRequestBuilder.build();
+        try {
+            // 开启对冲时，首字节迟迟不到会再发出一个相同的请求，落败请求的响应流直接中止，不读取剩余内容
+            ResponseInputStream<GetObjectResponse> responseInputStream = hedgedRequestExecutor == null ?
+                    s3Client.getObject(getObjectRequest) :
+                    hedgedRequestExecutor.execute(() -> s3Client.getObject(getObjectRequest), ResponseInputStream::abort);
+            String blobKey = getDedupBlobKey(bucketName, objectName, responseInputStream.response().metadata(), followDedupLink);
+            if (blobKey != null) {
+                // 去重上传的引用对象本身没有内容，读取它指向的数据对象
+                responseInputStream.close();
+                return getObject(bucketName, blobKey, false);
+            }
+            long contentLength = responseInputStream.response().contentLength();
+            ResponseInputStream<GetObjectResponse> decodedInputStream =
+                    decodeIfNecessary(validateChecksumIfNecessary(responseInputStream));
+            return Optional.of(cacheIfNecessary(cacheKey, decodedInputStream, contentLength));
+        } catch (S3Exception e) {
+            if (cachedObject != null && e.statusCode() == NOT_MODIFIED) {
+                objectContentCache.put(cacheKey, cachedObject.renew(s3V2Base.getObjectCache().getTtlMillis()));
+                return Optional.of(cachedObject.newResponseInputStream());
+            }
+            log.error("get object failed, bucket {} object {}, the cause is ", bucketName, objectName, e);
+            return Optional.empty();
+        } catch (AwsServiceException | SdkClientException e) {
+            log.error("get object failed, bucket {} object {}, the cause is ", bucketName, objectName, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 开启内容缓存并且对象不超过maxObjectSize时，读取全部明文放入缓存
+     * 压缩对象解码后可能远大于S3上的长度，按解码后的字节数判断，超过maxObjectSize后不再缓冲，不缓存
+     * 校验和不一致等读取失败的情况抛出IOException，不会缓存
+     *
+     * @param cacheKey            桶名称/对象名称
+     * @param responseInputStream 解密、解压后的响应流
+     * @param contentLength       S3上对象的长度
+     * @return 缓存时返回读取缓存内容的流，否则原样返回
+     * @throws IOException 读取失败
+     */
+    private ResponseInputStream<GetObjectResponse> cacheIfNecessary(String cacheKey,
+                                                                    ResponseInputStream<GetObjectResponse> responseInputStream,
+                                                                    long contentLength) throws IOException {
+        long maxObjectSize = s3V2Base.getObjectCache().getMaxObjectSize();
+        if (objectContentCache == null || contentLength > maxObjectSize) {
+            return responseInputStream;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        try {
+            while ((read = responseInputStream.read(chunk)) != -1) {
+                buffer.write(chunk, 0, read);
+                if (buffer.size() > maxObjectSize) {
+                    // 已经读取的内容放在剩余的响应流前面，原样返回给调用方
+                    InputStream inputStream = new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), responseInputStream);
+                    return new ResponseInputStream<>(responseInputStream.response(),
+                            AbortableInputStream.create(inputStream, responseInputStream::abort));
+                }
+            }
+        } catch (IOException e) {
+            responseInputStream.close();
+            throw e;
+        }
+        responseInputStream.close();
+        CachedObject cachedObject = new CachedObject(responseInputStream.response(), buffer.toByteArray(), s3V2Base.getObjectCache().getTtlMillis());
+        objectContentCache.put(cacheKey, cachedObject);
+        return cachedObject.newResponseInputStream();
+    }
+
+    /**
+     * 通过当前模板修改或删除对象后，清除本地的缓存，其他节点的修改依赖过期后的重新验证，响应式模板上传后也使用
+     *
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     */
+    void evictCachedObject(String bucketName, String objectName) {
+        String cacheKey = bucketName + FILE_SEPARATOR + objectName;
+        if (objectContentCache != null) {
+            objectContentCache.invalidate(cacheKey);
+        }
+        if (objectMetadataCache != null) {
+            objectMetadataCache.remove(cacheKey);
+            missingObjectCache.remove(cacheKey);
+        }
+    }
+
+    /**
+     * 删除整个桶的对象或者由S3TransferManager写入了无法逐个得知名称的对象后，清除这个桶的所有本地缓存
+     *
+     * @param bucketName 处理过的桶名称
+     */
+    private void evictCachedBucket(String bucketName) {
+        String keyPrefix = bucketName + FILE_SEPARATOR;
+        if (objectContentCache != null) {
+            objectContentCache.invalidatePrefix(keyPrefix);
+        }
+        if (objectMetadataCache != null) {
+            // keySet返回的是快照，可以边遍历边删除
+            objectMetadataCache.keySet().stream().filter(key -> key.startsWith(keyPrefix)).forEach(objectMetadataCache::remove);
+            missingObjectCache.keySet().stream().filter(key -> key.startsWith(keyPrefix)).forEach(missingObjectCache::remove);
+        }
+    }
+
+    @Override
+    public Optional<ResponseInputStream<GetObjectResponse>> getObject(String bucketName, String objectName, long offset, long length) throws IOException {
+        return getObject(bucketName, objectName, offset, length, true);
+    }
+
+    /**
+     * @param followDedupLink 是否读取去重引用对象指向的数据对象，只跟随一次
+     */
+    private Optional<ResponseInputStream<GetObjectResponse>> getObject(String bucketName,
+                                                                       String objectName,
+                                                                       long offset,
+                                                                       long length,
+                                                                       boolean followDedupLink) throws IOException {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        Assert.isTrue(offset >= 0 && length > 0, "offset must not be negative and length must be positive");
+        objectName = objectName.replace("\\", FILE_SEPARATOR);
+
+        try {
+            HeadObjectResponse headObjectResponse = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(objectName).build());
+            Map<String, String> metadataMap = headObjectResponse.metadata();
+            String blobKey = getDedupBlobKey(bucketName, objectName, metadataMap, followDedupLink);
+            if (blobKey != null) {
+                return getObject(bucketName, blobKey, offset, length, false);
+            }
+            if (CompressionCodec.isCompressed(metadataMap)) {
+                log.error("bucket {} object {} is compressed, range read is not supported", bucketName, objectName);
+                return Optional.empty();
+            }
+            ChunkedObjectCipher objectCipher = ChunkedObjectCipher.isEncrypted(metadataMap) ?
+                    ChunkedObjectCipher.fromMetadata(metadataMap, dataKeyProvider) : null;
+            if (offset >= getObjectLength(headObjectResponse, objectCipher)) {
+                log.error("bucket {} object {} range {}-{} is not satisfiable", bucketName, objectName, offset, offset + length - 1);
+                return Optional.empty();
+            }
+            return Optional.of(getObjectRange(bucketName, objectName, headObjectResponse, objectCipher, offset, length));
+        } catch (AwsServiceException | SdkClientException | IllegalArgumentException | IllegalStateException e) {
+            log.error("get object range failed, bucket {} object {} offset {} length {}, the cause is ",
+                    bucketName, objectName, offset, length, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param headObjectResponse 对象的元数据
+     * @param objectCipher       对象的加密器，未加密时为null
+     * @return 对象的明文长度
+     */
+    private long getObjectLength(HeadObjectResponse headObjectResponse, ChunkedObjectCipher objectCipher) {
+        return objectCipher == null ? headObjectResponse.contentLength() : objectCipher.getPlaintextLength(headObjectResponse.contentLength());
+    }
+
+    /**
+     * 读取对象的一段内容，加密过的对象只下载覆盖这一段的密文块
+     * If-Match保证读到的和headObjectResponse是同一个版本的对象，对象被覆盖时抛出412异常
+     *
+     * @param bucketName         处理过的桶名称
+     * @param objectName         对象名称
+     * @param headObjectResponse 对象的元数据
+     * @param objectCipher       对象的加密器，未加密时为null
+     * @param offset             明文的起始位置，必须小于对象的明文长度
+     * @param length             读取的长度
+     * @return 明文的响应流
+     */
+    private ResponseInputStream<GetObjectResponse> getObjectRange(String bucketName,
+                                                                  String objectName,
+                                                                  HeadObjectResponse headObjectResponse,
+                                                                  ChunkedObjectCipher objectCipher,
+                                                                  long offset,
+                                                                  long length) {
+        GetObjectRequest.Builder builder = GetObjectRequest.builder().bucket(bucketName).key(objectName).ifMatch(headObjectResponse.eTag());
+        if (objectCipher == null) {
+            return s3Client.getObject(builder.range(String.format(RANGE_FORMAT, offset, offset + length - 1)).build());
+        }
+
+        long ciphertextLength = headObjectResponse.contentLength();
+        long plaintextLength = objectCipher.getPlaintextLength(ciphertextLength);
+        long end = Math.min(offset + length, plaintextLength) - 1;
+        long firstChunkIndex = objectCipher.getChunkIndex(offset);
+        long lastChunkIndex = objectCipher.getChunkIndex(end);
+        long finalChunkIndex = objectCipher.getChunkCount(ciphertextLength) - 1;
+        long ciphertextStart = objectCipher.getCiphertextOffset(firstChunkIndex);
+        long ciphertextEnd = Math.min(objectCipher.getCiphertextOffset(lastChunkIndex + 1), ciphertextLength) - 1;
+
+        ResponseInputStream<GetObjectResponse> responseInputStream =
+                s3Client.getObject(builder.range(String.format(RANGE_FORMAT, ciphertextStart, ciphertextEnd)).build());
+        GetObjectResponse response = responseInputStream.response().toBuilder()
+                .contentLength(end - offset + 1)
+                .contentRange(String.format(CONTENT_RANGE_FORMAT, offset, end, plaintextLength))
+                .build();
+        InputStream plaintextInputStream = objectCipher.decrypt(responseInputStream, firstChunkIndex, lastChunkIndex, finalChunkIndex,
+                offset - firstChunkIndex * objectCipher.getChunkSize(), end - offset + 1);
+        return new ResponseInputStream<>(response, AbortableInputStream.create(plaintextInputStream, responseInputStream::abort));
+    }
+
+    /**
+     * @param metadataMap 对象的元数据
+     * @return 对象是否经过压缩或者加密，需要解码后才是原始内容
+     */
+    static boolean isEncoded(Map<String, String> metadataMap) {
+        return CompressionCodec.isCompressed(metadataMap) || ChunkedObjectCipher.isEncrypted(metadataMap);
+    }
+
+    /**
+     * 按元数据解密、解压对象的响应流，响应式模板下载时也使用
+     *
+     * @param responseInputStream 原始的响应流
+     * @return 解码后的响应流，中止时中止原始的响应流
+     */
+    ResponseInputStream<GetObjectResponse> decodeIfNecessary(ResponseInputStream<GetObjectResponse> responseInputStream) throws IOException {
+        return decompressIfNecessary(decryptIfNecessary(responseInputStream));
+    }
+
+    /**
+     * 客户端加密过的对象，用元数据中的数据密钥解密，响应中的contentLength换算为明文长度
+     *
+     * @param responseInputStream 原始的响应流
+     * @return 解密后的响应流，中止时中止原始的响应流
+     */
+    private ResponseInputStream<GetObjectResponse> decryptIfNecessary(ResponseInputStream<GetObjectResponse> responseInputStream) throws IOException {
+        GetObjectResponse response = responseInputStream.response();
+        if (!ChunkedObjectCipher.isEncrypted(response.metadata())) {
+            return responseInputStream;
+        }
+        try {
+            ChunkedObjectCipher objectCipher = ChunkedObjectCipher.fromMetadata(response.metadata(), dataKeyProvider);
+            GetObjectResponse.Builder builder = response.toBuilder();
+            if (response.contentLength() != null) {
+                builder.contentLength(objectCipher.getPlaintextLength(response.contentLength()));
+            }
+            return new ResponseInputStream<>(builder.build(),
+                    AbortableInputStream.create(objectCipher.decrypt(responseInputStream), responseInputStream::abort));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            responseInputStream.abort();
+            throw new IOException("decrypt object failed", e);
+        }
+    }
+
+    /**
+     * 上传时压缩过的对象，根据元数据中记录的压缩算法解压，响应中的contentLength仍然是压缩后的长度；
+     * 元数据中的算法不是已知的算法时视为没有压缩，原样返回
+     *
+     * @param responseInputStream 原始的响应流
+     * @return 解压后的响应流，中止时中止原始的响应流
+     */
+    private ResponseInputStream<GetObjectResponse> decompressIfNecessary(ResponseInputStream<GetObjectResponse> responseInputStream) throws IOException {
+        String codecName = responseInputStream.response().metadata().get(CODEC_METADATA_KEY);
+        if (StrUtil.isEmpty(codecName)) {
+            return responseInputStream;
+        }
+        CompressionCodec codec = CompressionCodec.of(codecName);
+        if (codec == null) {
+            log.debug("unknown compression codec [{}] in object metadata, treat the object as not compressed", codecName);
+            return responseInputStream;
+        }
+        if (!codec.isAvailable()) {
+            responseInputStream.abort();
+            throw new IOException(String.format("object is compressed by [%s], which is not available", codecName));
+        }
+        try {
+            return new ResponseInputStream<>(responseInputStream.response(),
+                    AbortableInputStream.create(codec.decompress(responseInputStream), responseInputStream::abort));
+        } catch (IOException e) {
+            responseInputStream.abort();
+            throw e;
+        }
+    }
+
+    @Override
+    public void downloadFile(String bucketName, String objectName, String downloadBasePath) throws IOException {
+        Assert.notEmpty(downloadBasePath, "downloadBasePath not empty");
+        if (diskObjectCache != null) {
+            downloadFileThroughDiskCache(bucketName, objectName, downloadBasePath);
+            return;
+        }
+        Optional<ResponseInputStream<GetObjectResponse>> responseInputStreamOptional = getObject(bucketName, objectName);
+        if (!responseInputStreamOptional.isPresent()) {
+            log.warn("bucket {} object {} not exists, not need download", bucketName, objectName);
+            return;
+        }
+
+
+        if (!downloadBasePath.endsWith("\\") && !downloadBasePath.endsWith(FILE_SEPARATOR)) {
+            downloadBasePath = downloadBasePath + FILE_SEPARATOR;
+        }
+
+        String downloadFilePath = downloadBasePath + objectName.substring(objectName.lastIndexOf(FILE_SEPARATOR) + 1);
+        File file = new File(downloadFilePath);
+
+        if (file.exists()) {
+            log.debug("{} already exists, no need to download", downloadFilePath);
+            return;
+        }
+
+        if (!file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
         }
         try (BufferedInputStream bufferedInputStream = new BufferedInputStream(responseInputStreamOptional.get());
              BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(new FileOutputStream(file))
@@ -1257,6 +2694,132 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
         }
     }
 
+    /**
+     * 开启磁盘缓存时的downloadFile，目标文件已经存在时同样不下载
+     * 对象不存在或者请求失败时和不开启缓存时一样，打印日志后返回
+     */
+    private void downloadFileThroughDiskCache(String bucketName, String objectName, String downloadBasePath) throws IOException {
+        Assert.notEmpty(objectName, "objectName not empty");
+        File file = new File(downloadBasePath, objectName.substring(objectName.lastIndexOf(FILE_SEPARATOR) + 1));
+        if (file.exists()) {
+            log.debug("{} already exists, no need to download", file);
+            return;
+        }
+        if (!file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        try (InputStream inputStream = openDiskCachedFile(null, handlerBucketName(bucketName), objectName, true)) {
+            Files.copy(inputStream, file.toPath());
+        } catch (AwsServiceException | SdkClientException e) {
+            if (isNotFound(e)) {
+                log.warn("bucket {} object {} not exists, not need download", bucketName, objectName);
+            } else {
+                log.warn("bucket {} object {} download failed, the cause is ", bucketName, objectName, e);
+            }
+            return;
+        }
+        log.debug("{} copied from disk cache", file);
+    }
+
+    /**
+     * 打开对象在磁盘缓存中的文件，每次都通过HeadObject确认ETag，对象变化后重新下载
+     * 得到的是和getObject相同的明文，去重上传的引用对象缓存它指向的数据对象
+     *
+     * @param transferManager 文件传输管理器，为null时通过getObject下载
+     * @param bucketName      处理过的桶名称
+     * @param objectName      对象名称
+     * @param followDedupLink 是否缓存去重引用对象指向的数据对象，只跟随一次
+     * @return 缓存文件的输入流
+     * @throws IOException 读写缓存目录或者下载失败
+     */
+    private InputStream openDiskCachedFile(S3TransferManager transferManager,
+                                           String bucketName,
+                                           String objectName,
+                                           boolean followDedupLink) throws IOException {
+        HeadObjectResponse headObjectResponse = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(objectName).build());
+        String blobKey = getDedupBlobKey(bucketName, objectName, headObjectResponse.metadata(), followDedupLink);
+        if (blobKey != null) {
+            return openDiskCachedFile(transferManager, bucketName, blobKey, false);
+        }
+        return diskObjectCache.open(bucketName + FILE_SEPARATOR + objectName, headObjectResponse.eTag(),
+                target -> writeDecodedObject(transferManager, bucketName, objectName, headObjectResponse, target));
+    }
+
+    /**
+     * 不经过磁盘缓存下载对象的明文，和getObject得到的内容相同，去重上传的引用对象下载它指向的数据对象
+     *
+     * @param transferManager 文件传输管理器
+     * @param bucketName      处理过的桶名称
+     * @param objectName      对象名称
+     * @param followDedupLink 是否下载去重引用对象指向的数据对象，只跟随一次
+     * @param target          保存的文件，已经存在时覆盖
+     * @throws IOException 下载或者写入失败
+     */
+    private void downloadDecodedObject(S3TransferManager transferManager,
+                                       String bucketName,
+                                       String objectName,
+                                       boolean followDedupLink,
+                                       Path target) throws IOException {
+        HeadObjectResponse headObjectResponse = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(objectName).build());
+        String blobKey = getDedupBlobKey(bucketName, objectName, headObjectResponse.metadata(), followDedupLink);
+        if (blobKey != null) {
+            downloadDecodedObject(transferManager, bucketName, blobKey, false, target);
+            return;
+        }
+        writeDecodedObject(transferManager, bucketName, objectName, headObjectResponse, target);
+    }
+
+    /**
+     * 把对象的明文写入文件：没有压缩和加密的对象由transferManager并行下载，否则直接请求S3边下载边解码
+     *
+     * @param transferManager    文件传输管理器，为null时通过getObject下载
+     * @param bucketName         处理过的桶名称
+     * @param objectName         对象名称，不是去重引用对象
+     * @param headObjectResponse 对象的元数据
+     * @param target             保存的文件，已经存在时覆盖
+     * @throws IOException 下载或者写入失败
+     */
+    private void writeDecodedObject(S3TransferManager transferManager,
+                                    String bucketName,
+                                    String objectName,
+                                    HeadObjectResponse headObjectResponse,
+                                    Path target) throws IOException {
+        // If-Match保证下载的内容和ETag一致，下载期间对象被覆盖时失败
+        if (transferManager == null || isEncoded(headObjectResponse.metadata())) {
+            // 直接请求S3，不经过内存缓存，内存缓存中可能是其他版本的内容
+            GetObjectRequest.Builder getObjectRequestBuilder = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectName)
+                    .ifMatch(headObjectResponse.eTag());
+            if (isChecksumValidationEnabled()) {
+                getObjectRequestBuilder.checksumMode(ChecksumMode.ENABLED);
+            }
+            ResponseInputStream<GetObjectResponse> responseInputStream;
+            try {
+                responseInputStream = s3Client.getObject(getObjectRequestBuilder.build());
+            } catch (AwsServiceException | SdkClientException e) {
+                throw new IOException(String.format("get object %s/%s failed", bucketName, objectName), e);
+            }
+            String eTag = responseInputStream.response().eTag();
+            if (!headObjectResponse.eTag().equals(eTag)) {
+                responseInputStream.abort();
+                responseInputStream.close();
+                throw new IOException(String.format("object %s/%s changed, expected eTag %s but got %s",
+                        bucketName, objectName, headObjectResponse.eTag(), eTag));
+            }
+            try (InputStream inputStream = decodeIfNecessary(validateChecksumIfNecessary(responseInputStream))) {
+                Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+        }
+        DownloadFileRequest downloadFileRequest = DownloadFileRequest.builder()
+                .getObjectRequest(GetObjectRequest.builder().bucket(bucketName).key(objectName).ifMatch(headObjectResponse.eTag()).build())
+                .transferListeners(createTransferListeners(TransferMetrics.TransferType.DOWNLOAD))
+                .destination(target)
+                .build();
+        transferManager.downloadFile(downloadFileRequest).completionFuture().join();
+    }
+
 
     /**
      * 获取预签名的上传URL
@@ -1352,140 +2915,709 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
 
 
     /**
-     * 合并对象的方法
-     *
-     * @param originBucketName 源分块对象所在的桶
-     * @param destBucketName   需要合并到的桶
-     * @param destObjectName   需要合并对象的名称
-     * @param s3Objects        需要合并的分片对象
+     * 合并对象的方法
+     *
+     * @param originBucketName 源分块对象所在的桶
+     * @param destBucketName   需要合并到的桶
+     * @param destObjectName   需要合并对象的名称
+     * @param s3Objects        需要合并的分片对象
+     */
+    public Optional<CompleteMultipartUploadResponse> composeObject(String originBucketName,
+                                                                   String destBucketName,
+                                                                   String destObjectName,
+                                                                   List<S3Object> s3Objects) {
+        // 参数校验
+        Assert.notEmpty(originBucketName, "originBucketName not empty");
+        Assert.notEmpty(destBucketName, "destBucketName not empty");
+        Assert.notEmpty(destObjectName, "destObjectName not empty");
+        Assert.notEmpty(s3Objects, "s3Objects not empty");
+
+        originBucketName = handlerBucketName(originBucketName);
+        destBucketName = handlerBucketName(destBucketName);
+
+
+        // 新增一个判断，如果需要复制的对象只有一个的话，那我们就调用copyObject()进行复制
+        if (s3Objects.size() == SINGLETON_LIST_SIZE) {
+            Optional<CopyObjectResponse> copyObjectResponseOptional = copyObject(originBucketName, s3Objects.get(0).key(), destBucketName, destObjectName);
+            if (!copyObjectResponseOptional.isPresent()) {
+                return Optional.empty();
+            }
+
+            CopyObjectResponse copyObjectResponse = copyObjectResponseOptional.get();
+            CompleteMultipartUploadResponse completeMultipartUploadResponse = CompleteMultipartUploadResponse.builder()
+                    .bucket(destBucketName)
+                    .key(destObjectName)
+                    .expiration(copyObjectResponse.expiration())
+                    .serverSideEncryption(copyObjectResponse.serverSideEncryption())
+                    .versionId(copyObjectResponse.versionId())
+                    .ssekmsKeyId(copyObjectResponse.ssekmsKeyId())
+                    .bucketKeyEnabled(copyObjectResponse.bucketKeyEnabled())
+                    .requestCharged(copyObjectResponse.requestCharged())
+                    .build();
+            return Optional.of(completeMultipartUploadResponse);
+        }
+
+        // 对传入的对象集进行排序
+        List<S3Object> s3ObjectList = s3Objects
+                .stream()
+                .sorted(Comparator.comparingInt(o -> Integer.parseInt(o.key())))
+                .collect(Collectors.toList());
+
+        String finalOriginBucketName = originBucketName;
+        String finalDestBucketName = destBucketName;
+        return multipartUpload(destBucketName, destObjectName, s3ObjectList, s3Objects1 -> CollectionUtil.isNotEmpty(s3ObjectList),
+                (targetObj, newBucketName, newObjectName, uploadId) ->
+                        targetObj.stream().map(s3Object ->
+                                CompletedPart.builder()
+                                        .partNumber(Integer.parseInt(s3Object.key()))
+                                        .eTag(s3Client.uploadPartCopy(UploadPartCopyRequest.builder()
+                                                .sourceBucket(finalOriginBucketName)
+                                                .sourceKey(s3Object.key())
+                                                .destinationBucket(finalDestBucketName)
+                                                .destinationKey(destObjectName)
+                                                .uploadId(uploadId)
+                                                .partNumber(Integer.parseInt(s3Object.key()))
+                                                .copy()
+                                                .build()).copyPartResult().eTag())
+                                        .build()
+
+                        ).collect(Collectors.toList())
+
+        );
+    }
+
+    @Override
+    public Optional<CompleteMultipartUploadResponse> composeObject(String originBucketName, String destBucketName, String destObjectName) {
+        // 参数校验
+        Assert.notEmpty(originBucketName, "originBucketName not empty");
+        Assert.notEmpty(destBucketName, "destBucketName not empty");
+        Assert.notEmpty(destObjectName, "destObjectName not empty");
+
+        // 查询指定桶中的所有数据
+        Optional<List<S3Object>> optionalS3ObjectList = listObjects(originBucketName);
+        if (!optionalS3ObjectList.isPresent()) {
+            return Optional.empty();
+        }
+
+        List<S3Object> s3ObjectList = optionalS3ObjectList.get();
+        return composeObject(originBucketName, destBucketName, destObjectName, s3ObjectList);
+    }
+
+
+    public void uploadFolder(String bucketName, String baseFolder) throws IOException {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(baseFolder, "baseFolder not empty");
+        // 上传文件需要保持文件的目录结构
+        File parentFile = new File(baseFolder);
+        if (!parentFile.exists()) {
+            throw new IllegalArgumentException(baseFolder + ", not exists");
+        }
+
+        if (parentFile.isFile()) {
+
+
+        } else {
+            // 此时才是目录拷贝
+            Collection<File> fileList = FileUtils.listFiles(parentFile, null, true);
+            if (CollectionUtil.isEmpty(fileList)) {
+
+                // 无文件，无需上传
+                return;
+            }
+
+            String parentPath = parentFile.getCanonicalPath().replace(File.separator, FILE_SEPARATOR);
+            // 这里执行真正的上传逻辑
+            String objectName;
+            String objectPrefix = getUploadObjectNamePrefix();
+            for (File tmpFile : fileList) {
+                // 这里采用单文件直接上传
+                objectName = objectPrefix + FILE_SEPARATOR + tmpFile.getCanonicalPath()
+                        .replace(File.separator, FILE_SEPARATOR)
+                        .replace(parentPath, parentFile.getName());
+
+
+                log.debug("objectName: {}", objectName);
+                if (tmpFile.length() < MAX_SINGLETON_SIZE) {
+                    System.out.println(putObject(bucketName, objectName, null, RequestBody.fromFile(tmpFile)));
+                } else {
+                    // 采用分段上传
+                    System.out.println(multipartUpload(bucketName, objectName, tmpFile));
+                }
+            }
+        }
+
+
+    }
+
+
+    /**
+     * 打包上传目录，目录中的文件按名称排序后依次写入打包对象，每个打包对象达到packSize后开始写入下一个
+     * 打包对象的末尾是文件名称和长度的索引，前缀下的manifest.json记录每个打包对象包含的文件名称范围
+     * 大量小文件时请求数量从每个文件一次减少到每个打包对象一次(或者几个分片)
+     *
+     * @param bucketName 桶名称
+     * @param baseFolder 上传的目录
+     * @param packPrefix 打包对象和清单的前缀
+     * @return 清单，任何一个打包对象上传失败时返回空，之前已经上传的打包对象不会被删除
+     */
+    public Optional<PackManifest> packUploadFolder(String bucketName, String baseFolder, String packPrefix) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(baseFolder, "baseFolder not empty");
+        File parentFile = new File(baseFolder);
+        Assert.isTrue(parentFile.isDirectory(), "{} is not a directory", baseFolder);
+        packPrefix = handlerDirectoryPrefix(packPrefix);
+
+        // 文件名称为相对于上传目录的路径，排序后写入，保证每个打包对象覆盖一段连续的名称
+        TreeMap<String, File> fileMap = listRelativeFiles(parentFile);
+
+        S3V2PackConfig packConfig = getPackConfig();
+        PackManifest manifest = new PackManifest();
+        PackWriter packWriter = null;
+        MultipartUploadOutputStream outputStream = null;
+        String packObjectName = null;
+        try {
+            for (Map.Entry<String, File> fileEntry : fileMap.entrySet()) {
+                if (packWriter == null) {
+                    packObjectName = packPrefix + String.format(PACK_OBJECT_NAME_FORMAT, manifest.getPacks().size());
+                    Map<String, String> metadataMap = new HashMap<>(8);
+                    ChunkedObjectCipher objectCipher = isEncryptionEnabled() ?
+                            ChunkedObjectCipher.create(dataKeyProvider, s3V2Base.getEncryption().getChunkSize()) : null;
+                    if (objectCipher != null) {
+                        objectCipher.writeMetadata(metadataMap);
+                    }
+                    // 打包对象需要支持范围读取，所以只加密不压缩
+                    outputStream = new MultipartUploadOutputStream(s3Client, bucketName, packObjectName, OCTET_STREAM,
+                            metadataMap, MultipartUploadOutputStream.DEFAULT_PART_SIZE, checksumAlgorithm);
+                    packWriter = new PackWriter(objectCipher == null ? outputStream : objectCipher.encrypt(outputStream));
+                }
+                try (InputStream inputStream = new FileInputStream(fileEntry.getValue())) {
+                    packWriter.addEntry(fileEntry.getKey(), inputStream);
+                }
+                if (packWriter.getSize() >= packConfig.getPackSize()) {
+                    finishPack(manifest, packWriter, packObjectName);
+                    packWriter = null;
+                }
+            }
+            if (packWriter != null) {
+                finishPack(manifest, packWriter, packObjectName);
+                packWriter = null;
+            }
+        } catch (IOException e) {
+            if (packWriter != null) {
+                outputStream.abort();
+            }
+            log.error("pack upload failed, bucket {} folder {} pack {}, the cause is ", bucketName, baseFolder, packObjectName, e);
+            return Optional.empty();
+        }
+
+        byte[] manifestBytes = JSONUtil.toJsonStr(manifest).getBytes(StandardCharsets.UTF_8);
+        try {
+            if (!putObject(bucketName, packPrefix + PACK_MANIFEST_NAME, APPLICATION_JSON,
+                    new ByteArrayInputStream(manifestBytes), manifestBytes.length).isPresent()) {
+                return Optional.empty();
+            }
+        } catch (IOException e) {
+            log.error("put pack manifest failed, bucket {} prefix {}, the cause is ", bucketName, packPrefix, e);
+            return Optional.empty();
+        }
+        packManifestCache.remove(bucketName + FILE_SEPARATOR + packPrefix);
+        log.debug("pack upload success, bucket {} prefix {}, {} files in {} packs", bucketName, packPrefix, fileMap.size(), manifest.getPacks().size());
+        return Optional.of(manifest);
+    }
+
+    /**
+     * 读取打包上传的一个文件，只下载这个文件的内容
+     * 清单和打包对象的索引缓存在内存中，缓存命中时只需要一次范围请求，打包对象被覆盖时重新加载一次
+     *
+     * @param bucketName 桶名称
+     * @param packPrefix 打包上传时的前缀
+     * @param entryName  文件相对于上传目录的路径，使用'/'分隔
+     * @return 文件内容，文件不存在时返回空
+     */
+    public Optional<ResponseInputStream<GetObjectResponse>> getPackedObject(String bucketName, String packPrefix, String entryName) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(entryName, "entryName not empty");
+        packPrefix = handlerDirectoryPrefix(packPrefix);
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                Optional<PackManifest.Pack> packOptional = loadPackManifest(bucketName, packPrefix).findPack(entryName);
+                if (!packOptional.isPresent()) {
+                    log.warn("bucket {} prefix {} entry {} not exists", bucketName, packPrefix, entryName);
+                    return Optional.empty();
+                }
+                String packObjectName = packOptional.get().getObjectName();
+                PackHandle packHandle = loadPackHandle(bucketName, packObjectName);
+                Optional<PackEntry> entryOptional = packHandle.index.getEntry(entryName);
+                if (!entryOptional.isPresent()) {
+                    log.warn("bucket {} pack {} entry {} not exists", bucketName, packObjectName, entryName);
+                    return Optional.empty();
+                }
+
+                PackEntry entry = entryOptional.get();
+                if (entry.getLength() == 0) {
+                    GetObjectResponse response = GetObjectResponse.builder().contentLength(0L).eTag(packHandle.headObjectResponse.eTag()).build();
+                    return Optional.of(new ResponseInputStream<>(response, AbortableInputStream.create(new ByteArrayInputStream(new byte[0]))));
+                }
+                return Optional.of(getObjectRange(bucketName, packObjectName, packHandle.headObjectResponse, packHandle.objectCipher,
+                        entry.getOffset(), entry.getLength()));
+            } catch (S3Exception e) {
+                // 打包对象或者清单被重新上传，缓存已经过期
+                if (attempt == 0 && e.statusCode() == PRECONDITION_FAILED) {
+                    packManifestCache.remove(bucketName + FILE_SEPARATOR + packPrefix);
+                    packHandleCache.clear();
+                    continue;
+                }
+                log.error("get packed object failed, bucket {} prefix {} entry {}, the cause is ", bucketName, packPrefix, entryName, e);
+                return Optional.empty();
+            } catch (IOException | SdkClientException | IllegalArgumentException | IllegalStateException e) {
+                log.error("get packed object failed, bucket {} prefix {} entry {}, the cause is ", bucketName, packPrefix, entryName, e);
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * 读取打包对象的索引
+     *
+     * @param bucketName     桶名称
+     * @param packObjectName 打包对象名称
+     * @return 按名称排序的所有文件
+     */
+    public Optional<List<PackEntry>> getPackEntries(String bucketName, String packObjectName) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(packObjectName, "packObjectName not empty");
+        try {
+            return Optional.of(loadPackHandle(bucketName, packObjectName).index.getEntries());
+        } catch (IOException | AwsServiceException | SdkClientException | IllegalArgumentException | IllegalStateException e) {
+            log.error("load pack index failed, bucket {} pack {}, the cause is ", bucketName, packObjectName, e);
+            return Optional.empty();
+        }
+    }
+
+    private S3V2PackConfig getPackConfig() {
+        return s3V2Base.getPack() == null ? new S3V2PackConfig() : s3V2Base.getPack();
+    }
+
+    private static String handlerDirectoryPrefix(String prefix) {
+        if (StrUtil.isEmpty(prefix)) {
+            return StrUtil.EMPTY;
+        }
+        return prefix.endsWith(FILE_SEPARATOR) ? prefix : prefix + FILE_SEPARATOR;
+    }
+
+    /**
+     * @return 相对于目录的路径(使用'/'分隔) -> 文件，按路径排序
+     */
+    private static TreeMap<String, File> listRelativeFiles(File parentFile) {
+        Path parentPath = parentFile.toPath();
+        TreeMap<String, File> fileMap = new TreeMap<>();
+        for (File file : FileUtils.listFiles(parentFile, null, true)) {
+            fileMap.put(parentPath.relativize(file.toPath()).toString().replace(File.separator, FILE_SEPARATOR), file);
+        }
+        return fileMap;
+    }
+
+    /**
+     * 关闭打包对象，写入索引并完成上传
+     */
+    private void finishPack(PackManifest manifest, PackWriter packWriter, String packObjectName) throws IOException {
+        packWriter.close();
+        manifest.getPacks().add(PackManifest.Pack.builder()
+                .objectName(packObjectName)
+                .firstEntryName(packWriter.getFirstEntryName())
+                .lastEntryName(packWriter.getLastEntryName())
+                .entryCount(packWriter.getEntryCount())
+                .contentLength(packWriter.getSize())
+                .build());
+    }
+
+    private PackManifest loadPackManifest(String bucketName, String packPrefix) throws IOException {
+        String cacheKey = bucketName + FILE_SEPARATOR + packPrefix;
+        PackManifest manifest = packManifestCache.get(cacheKey);
+        if (manifest != null) {
+            return manifest;
+        }
+        Optional<ResponseInputStream<GetObjectResponse>> responseOptional = getObject(bucketName, packPrefix + PACK_MANIFEST_NAME);
+        if (!responseOptional.isPresent()) {
+            throw new IllegalStateException(String.format("pack manifest of bucket %s prefix %s not exists", bucketName, packPrefix));
+        }
+        try (ResponseInputStream<GetObjectResponse> responseInputStream = responseOptional.get()) {
+            manifest = JSONUtil.toBean(IOUtils.toString(responseInputStream, StandardCharsets.UTF_8), PackManifest.class);
+        }
+        packManifestCache.put(cacheKey, manifest);
+        return manifest;
+    }
+
+    /**
+     * 加载打包对象的索引，先读取末尾tailReadSize字节，索引不超过这个长度时只需要一次请求
      */
-    public Optional<CompleteMultipartUploadResponse> composeObject(String originBucketName,
-                                                                   String destBucketName,
-                                                                   String destObjectName,
-                                                                   List<S3Object> s3Objects) {
-        // 参数校验
-        Assert.notEmpty(originBucketName, "originBucketName not empty");
-        Assert.notEmpty(destBucketName, "destBucketName not empty");
-        Assert.notEmpty(destObjectName, "destObjectName not empty");
-        Assert.notEmpty(s3Objects, "s3Objects not empty");
-
-        originBucketName = handlerBucketName(originBucketName);
-        destBucketName = handlerBucketName(destBucketName);
+    private PackHandle loadPackHandle(String bucketName, String packObjectName) throws IOException {
+        String cacheKey = bucketName + FILE_SEPARATOR + packObjectName;
+        PackHandle packHandle = packHandleCache.get(cacheKey);
+        if (packHandle != null) {
+            return packHandle;
+        }
 
+        HeadObjectResponse headObjectResponse = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(packObjectName).build());
+        ChunkedObjectCipher objectCipher = ChunkedObjectCipher.isEncrypted(headObjectResponse.metadata()) ?
+                ChunkedObjectCipher.fromMetadata(headObjectResponse.metadata(), dataKeyProvider) : null;
+        long packLength = getObjectLength(headObjectResponse, objectCipher);
+        Assert.isTrue(packLength >= PackIndex.FOOTER_LENGTH, "{} is not a pack object", packObjectName);
+
+        int tailLength = (int) Math.min(packLength, Math.max(getPackConfig().getTailReadSize(), PackIndex.FOOTER_LENGTH));
+        long tailOffset = packLength - tailLength;
+        byte[] tail = readObjectRange(bucketName, packObjectName, headObjectResponse, objectCipher, tailOffset, tailLength);
+        PackIndex.Footer footer = PackIndex.parseFooter(tail, tailLength - PackIndex.FOOTER_LENGTH);
+        if (footer.getIndexOffset() + footer.getIndexLength() + PackIndex.FOOTER_LENGTH != packLength) {
+            throw new IOException(String.format("pack %s index range is invalid", packObjectName));
+        }
 
-        // 新增一个判断，如果需要复制的对象只有一个的话，那我们就调用copyObject()进行复制
-        if (s3Objects.size() == SINGLETON_LIST_SIZE) {
-            Optional<CopyObjectResponse> copyObjectResponseOptional = copyObject(originBucketName, s3Objects.get(0).key(), destBucketName, destObjectName);
-            if (!copyObjectResponseOptional.isPresent()) {
-                return Optional.empty();
-            }
+        PackIndex packIndex;
+        if (footer.getIndexOffset() >= tailOffset) {
+            packIndex = PackIndex.parse(tail, (int) (footer.getIndexOffset() - tailOffset), footer);
+        } else {
+            byte[] index = readObjectRange(bucketName, packObjectName, headObjectResponse, objectCipher,
+                    footer.getIndexOffset(), footer.getIndexLength());
+            packIndex = PackIndex.parse(index, 0, footer);
+        }
+        packHandle = new PackHandle(headObjectResponse, objectCipher, packIndex);
+        packHandleCache.put(cacheKey, packHandle);
+        return packHandle;
+    }
 
-            CopyObjectResponse copyObjectResponse = copyObjectResponseOptional.get();
-            CompleteMultipartUploadResponse completeMultipartUploadResponse = CompleteMultipartUploadResponse.builder()
-                    .bucket(destBucketName)
-                    .key(destObjectName)
-                    .expiration(copyObjectResponse.expiration())
-                    .serverSideEncryption(copyObjectResponse.serverSideEncryption())
-                    .versionId(copyObjectResponse.versionId())
-                    .ssekmsKeyId(copyObjectResponse.ssekmsKeyId())
-                    .bucketKeyEnabled(copyObjectResponse.bucketKeyEnabled())
-                    .requestCharged(copyObjectResponse.requestCharged())
-                    .build();
-            return Optional.of(completeMultipartUploadResponse);
+    private byte[] readObjectRange(String bucketName,
+                                   String objectName,
+                                   HeadObjectResponse headObjectResponse,
+                                   ChunkedObjectCipher objectCipher,
+                                   long offset,
+                                   int length) throws IOException {
+        byte[] bytes = new byte[length];
+        try (ResponseInputStream<GetObjectResponse> responseInputStream =
+                     getObjectRange(bucketName, objectName, headObjectResponse, objectCipher, offset, length)) {
+            IOUtils.readFully(responseInputStream, bytes);
         }
+        return bytes;
+    }
 
-        // 对传入的对象集进行排序
-        List<S3Object> s3ObjectList = s3Objects
-                .stream()
-                .sorted(Comparator.comparingInt(o -> Integer.parseInt(o.key())))
-                .collect(Collectors.toList());
+    /**
+     * 增量上传目录，只上传新增和变化的文件
+     * 文件没有变化的判断：清单中记录的大小和修改时间没有变化并且对象的ETag和上次同步时相同，
+     * 或者对象的大小和文件相同并且ETag等于文件的MD5(没有开启加密时)，需要的MD5在传输线程中并行计算
+     *
+     * @param bucketName       桶名称
+     * @param localDirectory   本地目录
+     * @param prefix           对象前缀，为空时同步到桶的根目录
+     * @param deleteExtraneous 是否删除前缀下本地不存在的对象
+     * @return 同步结果，列举对象失败时返回空
+     */
+    public Optional<SyncResult> syncUp(String bucketName, String localDirectory, String prefix, boolean deleteExtraneous) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(localDirectory, "localDirectory not empty");
+        File directory = new File(localDirectory);
+        Assert.isTrue(directory.isDirectory(), "{} is not a directory", localDirectory);
+        prefix = handlerDirectoryPrefix(prefix);
 
-        String finalOriginBucketName = originBucketName;
-        String finalDestBucketName = destBucketName;
-        return multipartUpload(destBucketName, destObjectName, s3ObjectList, s3Objects1 -> CollectionUtil.isNotEmpty(s3ObjectList),
-                (targetObj, newBucketName, newObjectName, uploadId) ->
-                        targetObj.stream().map(s3Object ->
-                                CompletedPart.builder()
-                                        .partNumber(Integer.parseInt(s3Object.key()))
-                                        .eTag(s3Client.uploadPartCopy(UploadPartCopyRequest.builder()
-                                                .sourceBucket(finalOriginBucketName)
-                                                .sourceKey(s3Object.key())
-                                                .destinationBucket(finalDestBucketName)
-                                                .destinationKey(destObjectName)
-                                                .uploadId(uploadId)
-                                                .partNumber(Integer.parseInt(s3Object.key()))
-                                                .copy()
-                                                .build()).copyPartResult().eTag())
-                                        .build()
+        Map<String, S3Object> remoteObjectMap;
+        try {
+            remoteObjectMap = listSyncObjects(bucketName, prefix);
+        } catch (AwsServiceException | SdkClientException e) {
+            log.error("sync up failed, list bucket {} prefix {}, the cause is ", bucketName, prefix, e);
+            return Optional.empty();
+        }
+        S3V2SyncConfig syncConfig = getSyncConfig();
+        File manifestFile = new File(directory, syncConfig.getManifestFileName());
+        SyncManifest manifest = SyncManifest.load(manifestFile);
+        boolean sameTarget = manifest.isSameTarget(bucketName, prefix);
+        TreeMap<String, File> localFileMap = listSyncFiles(directory, syncConfig);
+
+        String finalBucketName = bucketName;
+        String finalPrefix = prefix;
+        Map<String, Callable<Long>> taskMap = new LinkedHashMap<>();
+        localFileMap.forEach((name, file) -> taskMap.put(name, () -> {
+            long size = file.length();
+            long lastModified = file.lastModified();
+            SyncManifest.Entry entry = manifest.getUnchanged(name, size, lastModified);
+            String md5 = entry != null && entry.getMd5() != null ? entry.getMd5() : DigestUtil.md5Hex(file);
+
+            S3Object remoteObject = remoteObjectMap.get(finalPrefix + name);
+            if (remoteObject != null) {
+                String eTag = unquoteETag(remoteObject.eTag());
+                if ((entry != null && sameTarget && eTag.equals(entry.getETag()))
+                        || (!isEncryptionEnabled() && remoteObject.size() == size && eTag.equalsIgnoreCase(md5))) {
+                    manifest.getEntries().put(name, new SyncManifest.Entry(size, lastModified, md5, eTag));
+                    return SYNC_SKIPPED;
+                }
+            }
 
-                        ).collect(Collectors.toList())
+            String eTag = uploadSyncFile(finalBucketName, finalPrefix + name, file);
+            manifest.getEntries().put(name, new SyncManifest.Entry(size, lastModified, md5, eTag));
+            return size;
+        }));
+        SyncResult syncResult = executeSyncTasks(taskMap, syncConfig);
+
+        if (deleteExtraneous) {
+            List<ObjectIdentifier> objectIdentifierList = remoteObjectMap.keySet().stream()
+                    .filter(key -> !localFileMap.containsKey(key.substring(finalPrefix.length())))
+                    .map(key -> ObjectIdentifier.builder().key(key).build())
+                    .collect(Collectors.toList());
+            for (List<ObjectIdentifier> batch : CollectionUtil.split(objectIdentifierList, MAX_DELETE_OBJECTS)) {
+                Optional<DeleteObjectsResponse> deleteObjectsResponse = deleteObjects(bucketName, batch);
+                if (deleteObjectsResponse.isPresent()) {
+                    syncResult.setDeletedCount(syncResult.getDeletedCount() + deleteObjectsResponse.get().deleted().size());
+                    deleteObjectsResponse.get().errors().forEach(error -> syncResult.getFailedNames().add(error.key().substring(finalPrefix.length())));
+                } else {
+                    batch.forEach(objectIdentifier -> syncResult.getFailedNames().add(objectIdentifier.key().substring(finalPrefix.length())));
+                }
+            }
+        }
 
-        );
+        manifest.getEntries().keySet().retainAll(localFileMap.keySet());
+        saveSyncManifest(manifest, manifestFile, bucketName, prefix);
+        log.debug("sync up {} to bucket {} prefix {}, {}", localDirectory, bucketName, prefix, syncResult);
+        return Optional.of(syncResult);
     }
 
-    @Override
-    public Optional<CompleteMultipartUploadResponse> composeObject(String originBucketName, String destBucketName, String destObjectName) {
-        // 参数校验
-        Assert.notEmpty(originBucketName, "originBucketName not empty");
-        Assert.notEmpty(destBucketName, "destBucketName not empty");
-        Assert.notEmpty(destObjectName, "destObjectName not empty");
+    /**
+     * 增量下载目录，只下载新增和变化的对象，先下载到同一目录下的临时文件，完成后再替换原文件
+     * 对象没有变化的判断：清单中记录的大小和修改时间没有变化并且对象的ETag和上次同步时相同，
+     * 或者对象的大小和文件相同并且ETag(不是分片上传的对象)等于文件的MD5
+     *
+     * @param bucketName       桶名称
+     * @param prefix           对象前缀，为空时同步整个桶
+     * @param localDirectory   本地目录，不存在时创建
+     * @param deleteExtraneous 是否删除本地目录下前缀中不存在的文件
+     * @return 同步结果，列举对象失败时返回空
+     */
+    public Optional<SyncResult> syncDown(String bucketName, String prefix, String localDirectory, boolean deleteExtraneous) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(localDirectory, "localDirectory not empty");
+        File directory = new File(localDirectory);
+        Assert.isTrue(directory.isDirectory() || directory.mkdirs(), "{} is not a directory", localDirectory);
+        prefix = handlerDirectoryPrefix(prefix);
 
-        // 查询指定桶中的所有数据
-        Optional<List<S3Object>> optionalS3ObjectList = listObjects(originBucketName);
-        if (!optionalS3ObjectList.isPresent()) {
+        Map<String, S3Object> remoteObjectMap;
+        try {
+            remoteObjectMap = listSyncObjects(bucketName, prefix);
+        } catch (AwsServiceException | SdkClientException e) {
+            log.error("sync down failed, list bucket {} prefix {}, the cause is ", bucketName, prefix, e);
             return Optional.empty();
         }
+        S3V2SyncConfig syncConfig = getSyncConfig();
+        File manifestFile = new File(directory, syncConfig.getManifestFileName());
+        SyncManifest manifest = SyncManifest.load(manifestFile);
+        boolean sameTarget = manifest.isSameTarget(bucketName, prefix);
+
+        String finalBucketName = bucketName;
+        String finalPrefix = prefix;
+        Map<String, Callable<Long>> taskMap = new LinkedHashMap<>();
+        remoteObjectMap.forEach((key, remoteObject) -> {
+            String name = key.substring(finalPrefix.length());
+            taskMap.put(name, () -> {
+                File file = resolveSyncFile(directory, name);
+                String eTag = unquoteETag(remoteObject.eTag());
+                if (file.isFile()) {
+                    long size = file.length();
+                    long lastModified = file.lastModified();
+                    SyncManifest.Entry entry = manifest.getUnchanged(name, size, lastModified);
+                    if (entry != null && sameTarget && eTag.equals(entry.getETag())) {
+                        return SYNC_SKIPPED;
+                    }
+                    // 分片上传的对象ETag带有 -分片数量 后缀，不是内容的MD5
+                    if (remoteObject.size() == size && !eTag.contains("-")) {
+                        String md5 = entry != null && entry.getMd5() != null ? entry.getMd5() : DigestUtil.md5Hex(file);
+                        if (eTag.equalsIgnoreCase(md5)) {
+                            manifest.getEntries().put(name, new SyncManifest.Entry(size, lastModified, md5, eTag));
+                            return SYNC_SKIPPED;
+                        }
+                    }
+                }
+                return downloadSyncFile(finalBucketName, key, file, name, manifest);
+            });
+        });
+        SyncResult syncResult = executeSyncTasks(taskMap, syncConfig);
+
+        Set<String> remoteNameSet = taskMap.keySet();
+        if (deleteExtraneous) {
+            listSyncFiles(directory, syncConfig).forEach((name, file) -> {
+                if (remoteNameSet.contains(name)) {
+                    return;
+                }
+                if (file.delete()) {
+                    syncResult.setDeletedCount(syncResult.getDeletedCount() + 1);
+                } else {
+                    syncResult.getFailedNames().add(name);
+                }
+            });
+        }
 
-        List<S3Object> s3ObjectList = optionalS3ObjectList.get();
-        return composeObject(originBucketName, destBucketName, destObjectName, s3ObjectList);
+        manifest.getEntries().keySet().retainAll(remoteNameSet);
+        saveSyncManifest(manifest, manifestFile, bucketName, prefix);
+        log.debug("sync down bucket {} prefix {} to {}, {}", bucketName, prefix, localDirectory, syncResult);
+        return Optional.of(syncResult);
     }
 
+    private S3V2SyncConfig getSyncConfig() {
+        return s3V2Base.getSync() == null ? new S3V2SyncConfig() : s3V2Base.getSync();
+    }
 
-    public void uploadFolder(String bucketName, String baseFolder) throws IOException {
-        bucketName = handlerBucketName(bucketName);
-        Assert.notEmpty(baseFolder, "baseFolder not empty");
-        // 上传文件需要保持文件的目录结构
-        File parentFile = new File(baseFolder);
-        if (!parentFile.exists()) {
-            throw new IllegalArgumentException(baseFolder + ", not exists");
+    /**
+     * 列举前缀下的所有对象，忽略以'/'结尾的目录对象
+     */
+    private Map<String, S3Object> listSyncObjects(String bucketName, String prefix) {
+        ListObjectsV2Request.Builder builder = ListObjectsV2Request.builder().bucket(bucketName);
+        if (StrUtil.isNotEmpty(prefix)) {
+            builder.prefix(prefix);
+        }
+        Map<String, S3Object> remoteObjectMap = new TreeMap<>();
+        for (S3Object s3Object : s3Client.listObjectsV2Paginator(builder.build()).contents()) {
+            if (!s3Object.key().endsWith(FILE_SEPARATOR)) {
+                remoteObjectMap.put(s3Object.key(), s3Object);
+            }
         }
+        return remoteObjectMap;
+    }
 
-        if (parentFile.isFile()) {
+    /**
+     * 列举本地目录下需要同步的文件，排除清单文件和未完成的临时文件
+     */
+    private static TreeMap<String, File> listSyncFiles(File directory, S3V2SyncConfig syncConfig) {
+        TreeMap<String, File> fileMap = listRelativeFiles(directory);
+        fileMap.remove(syncConfig.getManifestFileName());
+        fileMap.keySet().removeIf(name -> name.endsWith(SyncManifest.TEMP_FILE_SUFFIX));
+        return fileMap;
+    }
 
+    /**
+     * 对象名称中包含 ../ 时可能写到同步目录之外
+     */
+    private static File resolveSyncFile(File directory, String name) throws IOException {
+        File file = new File(directory, name);
+        if (!file.getCanonicalPath().startsWith(directory.getCanonicalPath() + File.separator)) {
+            throw new IOException(String.format("%s is outside of %s", name, directory));
+        }
+        return file;
+    }
 
+    /**
+     * 小文件直接上传，ETag就是文件的MD5，即使清单丢失也可以比较；大文件和开启加密时分片上传
+     *
+     * @return 对象的ETag，不带引号
+     */
+    private String uploadSyncFile(String bucketName, String objectName, File file) throws IOException {
+        Optional<String> eTag;
+        if (isEncryptionEnabled() || file.length() > DEFAULT_SLICE_SIZE) {
+            eTag = multipartUpload(bucketName, objectName, file).map(CompleteMultipartUploadResponse::eTag);
         } else {
-            // 此时才是目录拷贝
-            Collection<File> fileList = FileUtils.listFiles(parentFile, null, true);
-            if (CollectionUtil.isEmpty(fileList)) {
-
-                // 无文件，无需上传
-                return;
-            }
+            eTag = putObject(bucketName, objectName, null, RequestBody.fromFile(file)).map(PutObjectResponse::eTag);
+        }
+        return unquoteETag(eTag.orElseThrow(() -> new IOException(String.format("upload %s to %s failed", file, objectName))));
+    }
 
-            String parentPath = parentFile.getCanonicalPath().replace(File.separator, FILE_SEPARATOR);
-            // 这里执行真正的上传逻辑
-            String objectName;
-            String objectPrefix = getUploadObjectNamePrefix();
-            for (File tmpFile : fileList) {
-                // 这里采用单文件直接上传
-                objectName = objectPrefix + FILE_SEPARATOR + tmpFile.getCanonicalPath()
-                        .replace(File.separator, FILE_SEPARATOR)
-                        .replace(parentPath, parentFile.getName());
+    /**
+     * 下载到临时文件并计算MD5，完成后替换原文件
+     *
+     * @return 下载的字节数
+     */
+    private long downloadSyncFile(String bucketName, String objectName, File file, String name, SyncManifest manifest) throws IOException {
+        Optional<ResponseInputStream<GetObjectResponse>> responseOptional = getObject(bucketName, objectName);
+        if (!responseOptional.isPresent()) {
+            throw new IOException(String.format("download %s failed", objectName));
+        }
+        File parentFile = file.getParentFile();
+        if (!parentFile.isDirectory() && !parentFile.mkdirs()) {
+            responseOptional.get().abort();
+            throw new IOException(String.format("create directory %s failed", parentFile));
+        }
 
+        Path tmpPath = Files.createTempFile(parentFile.toPath(), ".", SyncManifest.TEMP_FILE_SUFFIX);
+        MessageDigest messageDigest = DigestUtil.digester(DigestAlgorithm.MD5).getDigest();
+        try (ResponseInputStream<GetObjectResponse> responseInputStream = responseOptional.get();
+             DigestInputStream digestInputStream = new DigestInputStream(responseInputStream, messageDigest);
+             OutputStream outputStream = Files.newOutputStream(tmpPath)) {
+            long size = IOUtils.copyLarge(digestInputStream, outputStream);
+            outputStream.close();
+            Files.move(tmpPath, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            manifest.getEntries().put(name, new SyncManifest.Entry(size, file.lastModified(),
+                    HexUtil.encodeHexStr(messageDigest.digest()), unquoteETag(responseInputStream.response().eTag())));
+            return size;
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
 
-                log.debug("objectName: {}", objectName);
-                if (tmpFile.length() < MAX_SINGLETON_SIZE) {
-                    System.out.println(putObject(bucketName, objectName, null, RequestBody.fromFile(tmpFile)));
-                } else {
-                    // 采用分段上传
-                    System.out.println(multipartUpload(bucketName, objectName, tmpFile));
+    /**
+     * 在有界的线程池中执行同步任务，任务返回传输的字节数，没有传输时返回SYNC_SKIPPED
+     */
+    private SyncResult executeSyncTasks(Map<String, Callable<Long>> taskMap, S3V2SyncConfig syncConfig) {
+        SyncResult syncResult = new SyncResult();
+        if (taskMap.isEmpty()) {
+            return syncResult;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, Math.min(syncConfig.getConcurrency(), taskMap.size()));
+        ExecutorService executorService = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-sync-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Future<Long>> futureMap = new LinkedHashMap<>(taskMap.size() * 2);
+            taskMap.forEach((name, task) -> futureMap.put(name, executorService.submit(task)));
+            for (Map.Entry<String, Future<Long>> futureEntry : futureMap.entrySet()) {
+                try {
+                    long bytes = futureEntry.getValue().get();
+                    if (bytes == SYNC_SKIPPED) {
+                        syncResult.setSkippedCount(syncResult.getSkippedCount() + 1);
+                    } else {
+                        syncResult.setTransferredCount(syncResult.getTransferredCount() + 1);
+                        syncResult.setTransferredBytes(syncResult.getTransferredBytes() + bytes);
+                    }
+                } catch (ExecutionException e) {
+                    log.error("sync {} failed, the cause is ", futureEntry.getKey(), e.getCause());
+                    syncResult.getFailedNames().add(futureEntry.getKey());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    syncResult.getFailedNames().add(futureEntry.getKey());
                 }
             }
+        } finally {
+            executorService.shutdownNow();
         }
+        return syncResult;
+    }
 
+    private void saveSyncManifest(SyncManifest manifest, File manifestFile, String bucketName, String prefix) {
+        manifest.setBucketName(bucketName);
+        manifest.setPrefix(prefix);
+        try {
+            manifest.save(manifestFile);
+        } catch (IOException e) {
+            // 清单只用来加速下一次同步，写入失败不影响本次的结果
+            log.warn("save sync manifest {} failed, the cause is ", manifestFile, e);
+        }
+    }
 
+    private static String unquoteETag(String eTag) {
+        return StrUtil.unWrap(eTag, '"');
     }
 
+    /**
+     * 缓存的打包对象，ETag用于保证读取的是加载索引时的版本
+     */
+    private static class PackHandle {
+        private final HeadObjectResponse headObjectResponse;
+
+        private final ChunkedObjectCipher objectCipher;
+
+        private final PackIndex index;
+
+        private PackHandle(HeadObjectResponse headObjectResponse, ChunkedObjectCipher objectCipher, PackIndex index) {
+            this.headObjectResponse = headObjectResponse;
+            this.objectCipher = objectCipher;
+            this.index = index;
+        }
+    }
 
     /**
      * 下载文件夹
@@ -1540,7 +3672,16 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
             }
 
 
-            try (ResponseInputStream<GetObjectResponse> responseInputStream = s3Client.getObject(getObjectRequest);
+            ResponseInputStream<GetObjectResponse> objectInputStream = s3Client.getObject(getObjectRequest);
+            String blobKey = getDedupBlobKey(bucketName, content.key(), objectInputStream.response().metadata(), true);
+            if (blobKey != null) {
+                // 去重上传的引用对象本身没有内容，写入它指向的数据对象
+                objectInputStream.close();
+                objectInputStream = s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(blobKey).build());
+            }
+
+            // 压缩、加密过的对象写入解码后的内容
+            try (ResponseInputStream<GetObjectResponse> responseInputStream = decodeIfNecessary(objectInputStream);
                  BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(file))
             ) {
                 IOUtils.copy(responseInputStream, bos);
@@ -1607,7 +3748,9 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
 
         UploadDirectoryRequest.Builder builder = UploadDirectoryRequest.builder()
                 .source(Paths.get(sourceDirectory))
-                .bucket(bucketName);
+                .bucket(bucketName)
+                .uploadFileRequestTransformer(uploadFileRequestBuilder ->
+                        uploadFileRequestBuilder.transferListeners(createTransferListeners(TransferMetrics.TransferType.UPLOAD)));
 
         if (StrUtil.isNotEmpty(destDirectoryPrefix)) {
             // 设置文件上传到桶中目录
@@ -1637,13 +3780,77 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
         Assert.notNull(transferManager, "transferManager not null");
         Assert.notNull(uploadDirectoryRequest, "uploadDirectoryRequest not null");
 
+        if (isEncryptionEnabled()) {
+            return uploadDirectoryEncoded(uploadDirectoryRequest);
+        }
+
         DirectoryUpload directoryUpload = transferManager.uploadDirectory(uploadDirectoryRequest);
+        try {
+            return asyncDirectoryTransfers(directoryUpload);
+        } finally {
+            // uploadFileRequestTransformer可能修改对象名称，无法得知上传了哪些对象，清除整个桶的缓存
+            evictCachedBucket(handlerBucketName(uploadDirectoryRequest.bucket()));
+        }
+    }
+
+    /**
+     * 开启加密时S3TransferManager无法加密文件内容，按照和它相同的规则(s3Prefix、s3Delimiter、maxDepth、followSymbolicLinks)
+     * 生成对象名称，uploadFileRequestTransformer同样生效，然后逐个文件边读取边加密分片上传
+     *
+     * @param uploadDirectoryRequest 目录上传参数
+     * @return 上传失败的文件数
+     */
+    private Integer uploadDirectoryEncoded(UploadDirectoryRequest uploadDirectoryRequest) {
+        Path source = uploadDirectoryRequest.source();
+        Assert.isTrue(Files.isDirectory(source), "{} is not a directory", source);
+        String delimiter = uploadDirectoryRequest.s3Delimiter().orElse(FILE_SEPARATOR);
+        String prefix = uploadDirectoryRequest.s3Prefix().orElse("");
+        if (!prefix.isEmpty() && !prefix.endsWith(delimiter)) {
+            prefix = prefix + delimiter;
+        }
+        boolean followSymbolicLinks = uploadDirectoryRequest.followSymbolicLinks().orElse(false);
+        FileVisitOption[] visitOptions = followSymbolicLinks ? new FileVisitOption[]{FileVisitOption.FOLLOW_LINKS} : new FileVisitOption[0];
+        LinkOption[] linkOptions = followSymbolicLinks ? new LinkOption[0] : new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+
+        List<Path> fileList;
+        try (Stream<Path> pathStream = Files.walk(source, uploadDirectoryRequest.maxDepth().orElse(Integer.MAX_VALUE), visitOptions)) {
+            fileList = pathStream.filter(path -> Files.isRegularFile(path, linkOptions)).collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            log.error("list directory {} failed, the cause is ", source, e);
+            throw new CompletionException(e);
+        }
 
-        return asyncDirectoryTransfers(directoryUpload);
+        int failedCount = 0;
+        for (Path path : fileList) {
+            String relativePath = source.relativize(path).toString();
+            String key = prefix + (File.separator.equals(delimiter) ? relativePath : relativePath.replace(File.separator, delimiter));
+            UploadFileRequest.Builder uploadFileRequestBuilder = UploadFileRequest.builder()
+                    .source(path)
+                    .putObjectRequest(PutObjectRequest.builder().bucket(uploadDirectoryRequest.bucket()).key(key).build());
+            uploadDirectoryRequest.uploadFileRequestTransformer().accept(uploadFileRequestBuilder);
+            UploadFileRequest uploadFileRequest = uploadFileRequestBuilder.build();
+            PutObjectRequest putObjectRequest = uploadFileRequest.putObjectRequest();
+
+            Optional<String> eTag;
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(uploadFileRequest.source()))) {
+                eTag = putEncodedObject(putObjectRequest.bucket(), putObjectRequest.key(), putObjectRequest.contentType(),
+                        putObjectRequest.metadata(), inputStream);
+            } catch (IOException e) {
+                log.error("encrypted upload failed, bucket {} file {}, the cause is ", putObjectRequest.bucket(), path, e);
+                eTag = Optional.empty();
+            }
+            if (!eTag.isPresent()) {
+                failedCount++;
+                log.warn("Object [{}] failed to transfer", path);
+            }
+        }
+        return failedCount;
     }
 
     /**
      * 目录下载
+     * S3TransferManager写入的是存储的原始数据，每个文件的响应由监听器记录，全部下载完成后把压缩、加密过的对象原地解码，
+     * 去重上传的引用对象重新下载它指向的数据对象，解码或者下载失败的文件会被删除并计入失败数量
      *
      * @param transferManager          文件传输对象
      * @param downloadDirectoryRequest 目录下载请求
@@ -1655,9 +3862,139 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
         Assert.notNull(transferManager, "transferManager not null");
         Assert.notNull(downloadDirectoryRequest, "downloadDirectoryRequest not null");
 
-        DirectoryDownload directoryDownload = transferManager.downloadDirectory(downloadDirectoryRequest);
+        Queue<DownloadedFileListener> listenerQueue = new ConcurrentLinkedQueue<>();
+        Consumer<DownloadFileRequest.Builder> downloadFileRequestTransformer = downloadDirectoryRequest.downloadFileRequestTransformer();
+        DirectoryDownload directoryDownload = transferManager.downloadDirectory(downloadDirectoryRequest.toBuilder()
+                .downloadFileRequestTransformer(downloadFileRequestBuilder -> {
+                    if (downloadFileRequestTransformer != null) {
+                        downloadFileRequestTransformer.accept(downloadFileRequestBuilder);
+                    }
+                    DownloadedFileListener listener = new DownloadedFileListener();
+                    listenerQueue.add(listener);
+                    downloadFileRequestBuilder.addTransferListener(listener);
+                })
+                .build());
+
+        int failedCount = asyncDirectoryTransfers(directoryDownload);
+        for (DownloadedFileListener listener : listenerQueue) {
+            if (!listener.awaitCompletion()) {
+                // 无法确认文件内容是否需要解码
+                failedCount++;
+                continue;
+            }
+            if (listener.response == null) {
+                // 下载失败，已经计入失败数量
+                continue;
+            }
+            Path destination = listener.request.destination();
+            GetObjectRequest getObjectRequest = listener.request.getObjectRequest();
+            String blobKey = getDedupBlobKey(getObjectRequest.bucket(), getObjectRequest.key(), listener.response.metadata(), true);
+            if (blobKey != null) {
+                if (!downloadDedupBlob(transferManager, getObjectRequest.bucket(), blobKey, destination)) {
+                    failedCount++;
+                }
+            } else if (isEncoded(listener.response.metadata()) && !decodeDownloadedFile(destination, listener.response)) {
+                failedCount++;
+            }
+        }
+        return failedCount;
+    }
+
+    /**
+     * 目录下载到去重引用对象时，用它指向的数据对象的明文覆盖下载的空文件
+     *
+     * @param transferManager 文件传输管理器
+     * @param bucketName      桶名称
+     * @param blobKey         数据对象名称
+     * @param file            下载的文件
+     * @return 是否成功，失败时删除下载的空文件
+     */
+    private boolean downloadDedupBlob(S3TransferManager transferManager, String bucketName, String blobKey, Path file) {
+        try {
+            downloadDecodedObject(transferManager, bucketName, blobKey, false, file);
+            return true;
+        } catch (IOException | AwsServiceException | SdkClientException | CompletionException e) {
+            log.error("download dedup blob {} to {} failed, the cause is ", blobKey, file, e);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException deleteException) {
+                log.warn("delete dedup link file {} failed, the cause is ", file, deleteException);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 把S3TransferManager下载的原始数据原地解码，先写入同目录的临时文件再替换
+     *
+     * @param file     下载的文件
+     * @param response 下载时的响应，包含对象的元数据
+     * @return 是否成功，失败时删除原始数据，避免留下无法使用的文件
+     */
+    private boolean decodeDownloadedFile(Path file, GetObjectResponse response) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".decoding");
+            try (ResponseInputStream<GetObjectResponse> decodedInputStream = decodeIfNecessary(
+                    new ResponseInputStream<>(response, AbortableInputStream.create(Files.newInputStream(file))))) {
+                Files.copy(decodedInputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            log.error("decode downloaded file {} failed, the cause is ", file, e);
+            try {
+                if (tempFile != null) {
+                    Files.deleteIfExists(tempFile);
+                }
+                Files.deleteIfExists(file);
+            } catch (IOException deleteException) {
+                log.warn("delete undecoded file {} failed, the cause is ", file, deleteException);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 记录目录下载中单个文件的请求和响应
+     * 监听器的回调和目录下载的完成没有先后保证，所以等待回调结束后再读取
+     */
+    private static class DownloadedFileListener implements TransferListener {
+        private static final long CALLBACK_TIMEOUT_SECONDS = 30;
+
+        private final CountDownLatch completed = new CountDownLatch(1);
 
-        return asyncDirectoryTransfers(directoryDownload);
+        private volatile DownloadFileRequest request;
+
+        private volatile GetObjectResponse response;
+
+        @Override
+        public void transferComplete(Context.TransferComplete context) {
+            request = (DownloadFileRequest) context.request();
+            response = ((CompletedFileDownload) context.completedTransfer()).response();
+            completed.countDown();
+        }
+
+        @Override
+        public void transferFailed(Context.TransferFailed context) {
+            completed.countDown();
+        }
+
+        /**
+         * @return 是否在超时之前收到了完成或者失败的回调
+         */
+        private boolean awaitCompletion() {
+            try {
+                if (!completed.await(CALLBACK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("transfer listener was not notified in {} seconds, skip decoding", CALLBACK_TIMEOUT_SECONDS);
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return true;
+        }
     }
 
     /**
@@ -1735,6 +4072,8 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
                         .destination(file.toPath())
                         .listObjectsV2RequestTransformer(builder ->
                                 builder.bucket(finalBucketName).prefix(finalObjectPrefix).build())
+                        .downloadFileRequestTransformer(downloadFileRequestBuilder ->
+                                downloadFileRequestBuilder.transferListeners(createTransferListeners(TransferMetrics.TransferType.DOWNLOAD)))
                         .build());
     }
 
@@ -1796,13 +4135,14 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
 
 
     /**
-     * 下载单个文件
+     * 下载单个文件，无论是否开启磁盘缓存，保存的都是和getObject相同的明文(解密、解压，跟随去重引用)，
+     * 没有压缩和加密的对象由transferManager并行下载
      *
      * @param transferManager 文件传输管理器
      * @param bucketName      文件所在的桶名
      * @param objectName      所需要下载的对象名
      * @param savePaths       文件下载保存到本地的路径
-     * @return 下载的文件大小
+     * @return 下载的文件大小，即明文的长度
      */
     @Override
     public Long asyncDownloadFile(S3TransferManager transferManager,
@@ -1816,21 +4156,23 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
             transferManager = s3TransferManager;
         }
 
-        String saveName = savePaths + FILE_SEPARATOR + objectName.substring(objectName.lastIndexOf(FILE_SEPARATOR) + 1);
-
-        // 文件下载
-        DownloadFileRequest downloadFileRequest =
-                DownloadFileRequest.builder()
-                        .getObjectRequest(GetObjectRequest.builder().bucket(bucketName).key(objectName).build())
-                        .addTransferListener(LoggingTransferListener.create())
-                        .destination(Paths.get(saveName))
-                        .build();
-
-        FileDownload downloadFile = transferManager.downloadFile(downloadFileRequest);
+        Path savePath = Paths.get(savePaths + FILE_SEPARATOR + objectName.substring(objectName.lastIndexOf(FILE_SEPARATOR) + 1));
 
-        CompletedFileDownload downloadResult = downloadFile.completionFuture().join();
-        log.debug("object name [{}] Content length [{}]", objectName, downloadResult.response().contentLength());
-        return downloadResult.response().contentLength();
+        try {
+            if (diskObjectCache != null) {
+                try (InputStream inputStream = openDiskCachedFile(transferManager, bucketName, objectName, true)) {
+                    Files.copy(inputStream, savePath, StandardCopyOption.REPLACE_EXISTING);
+                }
+                log.debug("object name [{}] copied from disk cache", objectName);
+            } else {
+                downloadDecodedObject(transferManager, bucketName, objectName, true, savePath);
+            }
+            long contentLength = Files.size(savePath);
+            log.debug("object name [{}] Content length [{}]", objectName, contentLength);
+            return contentLength;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
 
@@ -1899,16 +4241,26 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
             throw new IllegalArgumentException(String.format("uploadFilePath [%s] is Directory, not file", uploadFilePath));
         }
 
+        // S3TransferManager直接读取文件，无法加密，改为边读取边加密分片上传
+        if (isEncryptionEnabled()) {
+            String eTag = multipartUploadEncoded(finalBucketName, objectName, file, MultipartUploadOutputStream.DEFAULT_PART_SIZE)
+                    .map(CompleteMultipartUploadResponse::eTag)
+                    .orElseThrow(() -> new CompletionException(new IOException(String.format("encrypted upload of [%s] failed", uploadFilePath))));
+            log.debug("object name [{}] eTag [{}]", objectName, eTag);
+            return eTag;
+        }
+
         UploadFileRequest uploadFileRequest =
                 UploadFileRequest.builder()
                         .putObjectRequest(PutObjectRequest.builder().bucket(finalBucketName).key(objectName).build())
-                        .addTransferListener(LoggingTransferListener.create())
+                        .transferListeners(createTransferListeners(TransferMetrics.TransferType.UPLOAD))
                         .source(file.toPath())
                         .build();
 
         FileUpload fileUpload = transferManager.uploadFile(uploadFileRequest);
 
         CompletedFileUpload uploadResult = fileUpload.completionFuture().join();
+        evictCachedObject(finalBucketName, objectName);
         log.debug("object name [{}] eTag [{}]", objectName, uploadResult.response().eTag());
         return uploadResult.response().eTag();
     }
@@ -1979,6 +4331,7 @@ public class AmazonS3V2Template implements IAmazonS3V2Template {
         Copy copy = transferManager.copy(copyRequest);
 
         CompletedCopy completedCopy = copy.completionFuture().join();
+        evictCachedObject(destBucketName, destObjectName);
         log.debug("copy object from bucket [{}] object [{}] to bucket [{}] object [{}] success",
                 srcBucketName,
                 srcObjectName,
@@ -0,0 +1,2258 @@
+package com.amazon.s3.v2.template;
+
+import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.amazon.s3.v2.config.S3V2Base;
+import com.amazon.s3.v2.core.IAmazonS3V2Template;
+import com.amazon.s3.v2.core.functions.MultipartUploadBiFunction;
+import com.amazon.s3.v2.dedup.ContentTreeHasher;
+import com.amazon.s3.v2.metrics.TransferMetrics;
+import com.amazon.s3.v2.model.DedupUploadResult;
+import com.amazon.s3.v2.model.LocalObjectMetadata;
+import com.amazon.s3.v2.model.PresignedPostPolicy;
+import com.amazon.s3.v2.naming.ObjectKeyStrategy;
+import com.amazon.s3.v2.utils.BucketUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Utilities;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.DownloadDirectoryRequest;
+import software.amazon.awssdk.transfer.s3.model.UploadDirectoryRequest;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.amazon.s3.v2.constant.BusinessV2Constant.*;
+
+/**
+ * @author liuyangfang
+ * @description 基于本地目录的IAmazonS3V2Template实现，用于边缘节点和开发环境
+ * <p>
+ * 目录结构如下，桶对应根目录下的文件夹，对象名称中的'/'对应子目录
+ * {basePath}/{bucket}/{objectName}                 对象内容
+ * {basePath}/.s3meta/{bucket}/{objectName}.json    对象的旁路元数据(contentType、eTag、用户元数据)
+ * {basePath}/.s3tmp/                               写入中的临时文件
+ * {basePath}/.s3uploads/{uploadId}/                分片上传中的分片
+ * <p>
+ * 写入时先写临时文件，再通过原子重命名替换目标文件，读取方不会看到写了一半的对象；
+ * 读取到文件时(下载、拷贝、合并)使用FileChannel#transferTo，由内核直接完成拷贝。
+ * <p>
+ * 本地存储没有S3客户端、跨域、桶策略和预签名的概念，对应的方法返回null或者空结果；
+ * 异步方法中传入的S3TransferManager会被忽略，在调用线程中直接完成传输。
+ * 同一个目录下不能同时存在对象 a 和对象 a/b，这是文件系统本身的限制。
+ * @since 2023/6/22 10:20:18
+ */
+@Slf4j
+public class LocalFileSystemV2Template implements IAmazonS3V2Template {
+    /**
+     * 默认的分片大小5M
+     */
+    private static final int DEFAULT_SLICE_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * 最大的分片数量
+     */
+    private static final int MAX_PART_NUMBER = 10000;
+
+    /**
+     * 写入文件时的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 临时文件重命名到目标路径时，父目录可能正被并发的删除操作清理，此时重试的次数
+     */
+    private static final int MAX_COMMIT_ATTEMPTS = 3;
+
+    private static final String METADATA_DIR = ".s3meta";
+    private static final String TEMP_DIR = ".s3tmp";
+    private static final String UPLOADS_DIR = ".s3uploads";
+    private static final String METADATA_SUFFIX = ".json";
+    private static final String PART_SUFFIX = ".part";
+    private static final String UPLOAD_TARGET_FILE = "target";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final Pattern MD5_HEX_PATTERN = Pattern.compile("[0-9a-f]{32}");
+    private static final Pattern UPLOAD_ID_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    /**
+     * 存储的根目录
+     */
+    private final Path rootPath;
+
+    /**
+     * 旁路元数据的根目录
+     */
+    private final Path metadataRootPath;
+
+    /**
+     * 临时文件目录，和对象在同一个文件系统中，保证重命名是原子的
+     */
+    private final Path tempPath;
+
+    /**
+     * 分片上传的目录
+     */
+    private final Path uploadsPath;
+
+    /**
+     * 基础属性，basePath为存储的根目录
+     */
+    private final S3V2Base s3V2Base;
+
+    /**
+     * 文件传输的统计信息，本地传输不经过S3TransferManager，这里只是保持接口一致
+     */
+    private final TransferMetrics transferMetrics;
+
+    /**
+     * 上传对象名称前缀的生成策略
+     */
+    private final ObjectKeyStrategy objectKeyStrategy;
+
+    public LocalFileSystemV2Template(S3V2Base s3V2Base) {
+        this(s3V2Base, new TransferMetrics());
+    }
+
+    public LocalFileSystemV2Template(S3V2Base s3V2Base, TransferMetrics transferMetrics) {
+        this(s3V2Base, transferMetrics, null);
+    }
+
+    public LocalFileSystemV2Template(S3V2Base s3V2Base, TransferMetrics transferMetrics, ObjectKeyStrategy objectKeyStrategy) {
+        Assert.notNull(s3V2Base, "s3V2Base not null");
+        Assert.notEmpty(s3V2Base.getBasePath(), "local storage, the basePath not empty");
+        Assert.notNull(transferMetrics, "transferMetrics not null");
+        this.s3V2Base = s3V2Base;
+        this.transferMetrics = transferMetrics;
+        this.objectKeyStrategy = objectKeyStrategy == null ? ObjectKeyStrategy.create(s3V2Base.getObjectKey()) : objectKeyStrategy;
+        this.rootPath = Paths.get(s3V2Base.getBasePath()).toAbsolutePath().normalize();
+        this.metadataRootPath = rootPath.resolve(METADATA_DIR);
+        this.tempPath = rootPath.resolve(TEMP_DIR);
+        this.uploadsPath = rootPath.resolve(UPLOADS_DIR);
+
+        try {
+            Files.createDirectories(metadataRootPath);
+            Files.createDirectories(tempPath);
+            Files.createDirectories(uploadsPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("create local storage directory [%s] failed", rootPath), e);
+        }
+
+        // 创建默认存储桶的操作
+        if (StrUtil.isNotEmpty(s3V2Base.getBucket())) {
+            createBucket(s3V2Base.getBucket());
+        }
+    }
+
+    @Override
+    public String getDefaultBucket() {
+        return handlerBucketName(s3V2Base.getBucket());
+    }
+
+    @Override
+    public boolean isBucketExists(String bucketName) throws S3Exception {
+        return Files.isDirectory(resolveBucketPath(handlerBucketName(bucketName)));
+    }
+
+    @Override
+    public Optional<CreateBucketResponse> createBucket(String bucketName) {
+        bucketName = handlerBucketName(bucketName);
+        try {
+            Files.createDirectories(resolveBucketPath(bucketName));
+            log.debug("create bucket {} success", bucketName);
+            return Optional.of(CreateBucketResponse.builder().location(FILE_SEPARATOR + bucketName).build());
+        } catch (IOException e) {
+            log.error("create bucket {} failed, the cause is ", bucketName, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Bucket> getBucketByName(String bucketName) {
+        bucketName = handlerBucketName(bucketName);
+
+        Optional<ListBucketsResponse> listBucketsResponseOptional = listBucket();
+        if (listBucketsResponseOptional.isPresent()) {
+            for (Bucket bucket : listBucketsResponseOptional.get().buckets()) {
+                if (bucket.name().equalsIgnoreCase(bucketName)) {
+                    return Optional.of(bucket);
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * 获取所有的桶，根目录下除了内部目录之外的文件夹都是桶
+     *
+     * @return 所有的桶
+     */
+    @Override
+    public Optional<ListBucketsResponse> listBucket() {
+        List<Bucket> bucketList = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(rootPath, Files::isDirectory)) {
+            for (Path path : directoryStream) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                bucketList.add(Bucket.builder()
+                        .name(name)
+                        .creationDate(attributes.creationTime().toInstant())
+                        .build());
+            }
+        } catch (IOException e) {
+            log.error("get bucket list failed, the cause is ", e);
+            return Optional.empty();
+        }
+
+        bucketList.sort(Comparator.comparing(Bucket::name));
+        return Optional.of(ListBucketsResponse.builder().buckets(bucketList).build());
+    }
+
+    @Override
+    public Optional<ListBucketsResponse> listBucket(ListBucketsRequest listBucketsRequest) {
+        return listBucket();
+    }
+
+    @Override
+    public Optional<DeleteBucketCorsResponse> deleteBucketCors(String bucketName) {
+        return deleteBucketCors(bucketName, null);
+    }
+
+    @Override
+    public Optional<DeleteBucketCorsResponse> deleteBucketCors(String bucketName, String accountId) {
+        log.warn("local storage does not support bucket cors, bucket {}", bucketName);
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<GetBucketCorsResponse> getBucketCors(String bucketName) {
+        return getBucketCors(bucketName, null);
+    }
+
+    @Override
+    public Optional<GetBucketCorsResponse> getBucketCors(String bucketName, String accountId) {
+        log.warn("local storage does not support bucket cors, bucket {}", bucketName);
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<PutBucketCorsResponse> putBucketCors(String bucketName, List<CORSRule> corsRules) {
+        return putBucketCors(bucketName, null, corsRules);
+    }
+
+    @Override
+    public Optional<PutBucketCorsResponse> putBucketCorsByXml(String bucketName, String xmlCorsRules) {
+        return putBucketCorsByXml(bucketName, null, xmlCorsRules);
+    }
+
+    @Override
+    public Optional<PutBucketCorsResponse> putBucketCorsByXml(String bucketName, String accountId, String xmlCorsRules) {
+        return putBucketCors(bucketName, accountId, BucketUtil.xmlToCorsRules(xmlCorsRules));
+    }
+
+    @Override
+    public Optional<PutBucketCorsResponse> putBucketCorsByJson(String bucketName, String jsonCorsRules) {
+        return putBucketCorsByJson(bucketName, null, jsonCorsRules);
+    }
+
+    @Override
+    public Optional<PutBucketCorsResponse> putBucketCorsByJson(String bucketName, String accountId, String jsonCorsRules) {
+        return putBucketCors(bucketName, accountId, BucketUtil.jsonToCorsRules(jsonCorsRules));
+    }
+
+    @Override
+    public Optional<PutBucketCorsResponse> putBucketCors(String bucketName, String accountId, List<CORSRule> corsRules) {
+        log.warn("local storage does not support bucket cors, bucket {}", bucketName);
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<GetBucketPolicyResponse> getBucketPolicy(String bucketName) {
+        log.warn("local storage does not support bucket policy, bucket {}", bucketName);
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<PutBucketPolicyResponse> setBucketPolicy(String bucketName, String policy) {
+        log.warn("local storage does not support bucket policy, bucket {}", bucketName);
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<DeleteBucketPolicyResponse> deleteBucketPolicy(String bucketName) {
+        log.warn("local storage does not support bucket policy, bucket {}", bucketName);
+        return Optional.empty();
+    }
+
+    @Deprecated
+    @Override
+    public Optional<DeleteBucketResponse> deleteObjectsAndVersionsInBucket(String bucketName) {
+        return deleteObjectsAndVersionsInBucketV2(bucketName);
+    }
+
+    /**
+     * 删除桶中的所有对象，然后删除桶本身，本地存储没有多版本
+     *
+     * @param bucketName 桶对象
+     * @return 删除响应结果
+     */
+    @Override
+    public Optional<DeleteBucketResponse> deleteObjectsAndVersionsInBucketV2(String bucketName) {
+        bucketName = handlerBucketName(bucketName);
+        try {
+            deleteRecursively(resolveBucketPath(bucketName));
+            deleteRecursively(metadataRootPath.resolve(bucketName));
+            log.debug("delete bucket {} success", bucketName);
+            return Optional.of(DeleteBucketResponse.builder().build());
+        } catch (IOException | UncheckedIOException e) {
+            log.error("delete bucket {} failed, the cause is ", bucketName, e);
+            return Optional.empty();
+        }
+    }
+
+    @Deprecated
+    @Override
+    public void deleteObjects(String bucketName) {
+        deleteObjectsV2(bucketName);
+    }
+
+    @Override
+    public void deleteObjectsV2(String bucketName) {
+        bucketName = handlerBucketName(bucketName);
+        Optional<List<S3Object>> s3ObjectListOptional = listObjects(bucketName);
+        if (!s3ObjectListOptional.isPresent()) {
+            return;
+        }
+
+        deleteObjects(bucketName, s3ObjectListOptional.get()
+                .stream()
+                .map(s3Object -> ObjectIdentifier.builder().key(s3Object.key()).build())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 根据传入的ObjectIdentifierList进行删除多个对象，和S3一样，不存在的对象也视为删除成功
+     *
+     * @param bucketName           桶名称
+     * @param objectIdentifierList 对象集合
+     */
+    @Override
+    public Optional<DeleteObjectsResponse> deleteObjects(String bucketName, List<ObjectIdentifier> objectIdentifierList) {
+        bucketName = handlerBucketName(bucketName);
+        if (CollectionUtil.isEmpty(objectIdentifierList)) {
+            log.warn("bucket {} , the objectIdentifierList is empty, not need delete", bucketName);
+            return Optional.empty();
+        }
+
+        List<DeletedObject> deletedObjectList = new ArrayList<>(objectIdentifierList.size());
+        List<S3Error> errorList = new ArrayList<>();
+        for (ObjectIdentifier objectIdentifier : objectIdentifierList) {
+            try {
+                deleteObject(bucketName, objectIdentifier.key());
+                deletedObjectList.add(DeletedObject.builder().key(objectIdentifier.key()).build());
+            } catch (IOException | IllegalArgumentException e) {
+                log.error("delete bucket {} object {} failed, the cause is ", bucketName, objectIdentifier.key(), e);
+                errorList.add(S3Error.builder()
+                        .key(objectIdentifier.key())
+                        .code("InternalError")
+                        .message(e.getMessage())
+                        .build());
+            }
+        }
+
+        return Optional.of(DeleteObjectsResponse.builder()
+                .deleted(deletedObjectList)
+                .errors(errorList)
+                .build());
+    }
+
+    /**
+     * 本地存储没有多版本，无需删除
+     *
+     * @param bucketName 桶名称
+     */
+    @Deprecated
+    @Override
+    public void deleteVersions(String bucketName) {
+        deleteVersionsV2(bucketName);
+    }
+
+    /**
+     * 本地存储没有多版本，无需删除
+     *
+     * @param bucketName 桶名称
+     */
+    @Override
+    public void deleteVersionsV2(String bucketName) {
+        log.debug("local storage has no object versions, bucket {}", handlerBucketName(bucketName));
+    }
+
+    /**
+     * 对象拷贝的方法，内容通过transferTo拷贝，元数据(包括eTag)直接复用源对象的
+     *
+     * @param srcBucketName  源文件所在的桶
+     * @param srcObjectName  源文件的对象名
+     * @param destBucketName 需要拷贝到的目标桶
+     * @param destObjectName 在目标桶的对象名
+     * @return 拷贝结果
+     */
+    @Override
+    public Optional<CopyObjectResponse> copyObject(String srcBucketName, String srcObjectName, String destBucketName, String destObjectName) {
+        Assert.notEmpty(srcBucketName, "srcBucketName not empty");
+        Assert.notEmpty(srcObjectName, "srcObjectName not empty");
+        Assert.notEmpty(destBucketName, "destBucketName not empty");
+        Assert.notEmpty(destObjectName, "destObjectName not empty");
+
+        srcBucketName = handlerBucketName(srcBucketName);
+        destBucketName = handlerBucketName(destBucketName);
+
+        try {
+            LocalObjectMetadata metadata = copyObjectInternal(srcBucketName, srcObjectName, destBucketName, destObjectName);
+            return Optional.of(CopyObjectResponse.builder()
+                    .copyObjectResult(CopyObjectResult.builder()
+                            .eTag(metadata.getEtag())
+                            .lastModified(Instant.ofEpochMilli(metadata.getLastModified()))
+                            .build())
+                    .build());
+        } catch (IOException | S3Exception e) {
+            log.error("srcBucketName {} srcObjectName {} destBucketName {} destObjectName {}, copy object failed, the cause is ",
+                    srcBucketName,
+                    srcObjectName,
+                    destBucketName,
+                    destObjectName,
+                    e
+            );
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<CopyObjectResponse> copyObject(String srcBucketName, String srcObjectName, String destBucketName) {
+        return copyObject(srcBucketName, srcObjectName, destBucketName, srcObjectName);
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(MultipartFile multipartFile) throws S3Exception, IOException {
+        return putObject(getDefaultBucket(), multipartFile);
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(String bucketName, MultipartFile multipartFile) throws S3Exception, IOException {
+        Assert.notNull(multipartFile, "multipartFile not null");
+        return putObject(bucketName, multipartFile.getOriginalFilename(), multipartFile);
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(MultipartFile multipartFile, String objectName) throws S3Exception, IOException {
+        return putObject(getDefaultBucket(), objectName, multipartFile);
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(String bucketName, String objectName, MultipartFile multipartFile) throws S3Exception, IOException {
+        Assert.notNull(multipartFile, "multipartFile not null");
+        return putObject(bucketName,
+                objectName,
+                multipartFile.getContentType(),
+                multipartFile.getInputStream(),
+                multipartFile.getSize());
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(String objectName, String contentType, InputStream inputStream, long contentLength) throws S3Exception, IOException {
+        return putObject(getDefaultBucket(), objectName, contentType, inputStream, contentLength);
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(String bucketName,
+                                                 String objectName,
+                                                 String contentType,
+                                                 InputStream inputStream,
+                                                 long contentLength) throws S3Exception, IOException {
+        Assert.notNull(inputStream, "inputStream not empty");
+        Assert.checkBetween(contentLength, 0L, MAX_UPLOAD_SIZE);
+
+        // 和S3保持一致，这里负责关流
+        try (InputStream closeableInputStream = inputStream) {
+            return putObject(bucketName, objectName, contentType, null, closeableInputStream, contentLength);
+        }
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(String bucketName, String objectName, String content) throws S3Exception {
+        return putObject(bucketName, objectName, "text/plain", RequestBody.fromString(content, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(String bucketName, String objectName, String content, Map<String, String> metadataMap) {
+        return putObject(bucketName, objectName, "text/plain", metadataMap, RequestBody.fromString(content, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(String bucketName,
+                                                 String objectName,
+                                                 String contentType,
+                                                 Map<String, String> metadataMap,
+                                                 RequestBody requestBody) {
+        Assert.notNull(requestBody, "requestBody not empty");
+        try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+            return putObject(bucketName, objectName, contentType, metadataMap, inputStream,
+                    requestBody.optionalContentLength().orElse(-1L));
+        } catch (IOException e) {
+            log.error("put object failed bucket [{}] object [{}] contentType [{}] requestBody [{}], the cause is",
+                    bucketName, objectName, contentType, requestBody, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<PutObjectResponse> putObject(String bucketName,
+                                                 String objectName,
+                                                 String contentType,
+                                                 RequestBody requestBody) throws S3Exception {
+        return putObject(bucketName, objectName, contentType, null, requestBody);
+    }
+
+    /**
+     * 上传对象的底层方法，先写入临时文件并计算MD5，然后原子重命名到目标路径
+     *
+     * @param bucketName    桶名称
+     * @param objectName    对象名称
+     * @param contentType   对象类型
+     * @param metadataMap   元数据
+     * @param inputStream   对象内容
+     * @param contentLength 内容长度，未知时为-1
+     * @return 返回结果
+     */
+    private Optional<PutObjectResponse> putObject(String bucketName,
+                                                  String objectName,
+                                                  String contentType,
+                                                  Map<String, String> metadataMap,
+                                                  InputStream inputStream,
+                                                  long contentLength) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name not empty");
+
+        try {
+            checkBucketExists(bucketName);
+            Path tempFile = createTempFile();
+            try {
+                LocalObjectMetadata metadata = writeTempFile(inputStream, contentLength, tempFile);
+                metadata.setContentType(StrUtil.isNotEmpty(contentType) ? contentType : guessContentType(objectName));
+                metadata.setMetadata(MapUtil.isNotEmpty(metadataMap) ? new LinkedHashMap<>(metadataMap) : null);
+                commitObject(tempFile, bucketName, objectName, metadata);
+                return Optional.of(PutObjectResponse.builder().eTag(metadata.getEtag()).build());
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException | S3Exception e) {
+            log.error("put object failed bucket [{}] object [{}] contentType [{}], the cause is",
+                    bucketName, objectName, contentType, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 查询桶的所有对象，按照对象名称的字典序返回
+     * 如果前缀包含目录，只遍历前缀所在的目录
+     *
+     * @param bucketName   桶对象
+     * @param objectPrefix 对象前缀
+     * @return 桶中的所有对象
+     */
+    @Override
+    public Optional<List<S3Object>> listObjects(String bucketName, String objectPrefix) {
+        bucketName = handlerBucketName(bucketName);
+        String prefix = StrUtil.nullToEmpty(objectPrefix).replace("\\", FILE_SEPARATOR);
+        Path bucketPath = resolveBucketPath(bucketName);
+        if (!Files.isDirectory(bucketPath)) {
+            log.error("bucket {} not exists", bucketName);
+            return Optional.empty();
+        }
+
+        Path startPath = bucketPath;
+        int lastSeparatorIndex = prefix.lastIndexOf(FILE_SEPARATOR);
+        if (lastSeparatorIndex > 0) {
+            startPath = bucketPath.resolve(prefix.substring(0, lastSeparatorIndex)).normalize();
+            if (!startPath.startsWith(bucketPath) || !Files.isDirectory(startPath)) {
+                return Optional.of(new ArrayList<>());
+            }
+        }
+
+        List<String> objectNameList;
+        try (Stream<Path> pathStream = Files.walk(startPath)) {
+            objectNameList = pathStream
+                    .filter(Files::isRegularFile)
+                    .map(path -> toObjectName(bucketPath, path))
+                    .filter(objectName -> objectName.startsWith(prefix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            log.error("list bucket {} objects failed, prefix {}, the cause is ", bucketName, prefix, e);
+            return Optional.empty();
+        }
+
+        List<S3Object> s3ObjectList = new ArrayList<>(objectNameList.size());
+        for (String objectName : objectNameList) {
+            try {
+                // 遍历之后对象可能已经被删除
+                Optional<LocalObjectMetadata> metadataOptional = readMetadata(bucketName, objectName);
+                if (!metadataOptional.isPresent()) {
+                    continue;
+                }
+                LocalObjectMetadata metadata = metadataOptional.get();
+                s3ObjectList.add(S3Object.builder()
+                        .key(objectName)
+                        .size(metadata.getContentLength())
+                        .eTag(metadata.getEtag())
+                        .lastModified(Instant.ofEpochMilli(metadata.getLastModified()))
+                        .storageClass(ObjectStorageClass.STANDARD)
+                        .build());
+            } catch (IOException e) {
+                log.error("read bucket {} object {} metadata failed, the cause is ", bucketName, objectName, e);
+            }
+        }
+        return Optional.of(s3ObjectList);
+    }
+
+    @Override
+    public Optional<List<S3Object>> listObjects(String bucketName) {
+        return listObjects(bucketName, null);
+    }
+
+    /**
+     * 合并对象的方法，分片对象的名称为分片序号，按照序号依次拼接
+     *
+     * @param originBucketName 源分块对象所在的桶
+     * @param destBucketName   需要合并到的桶
+     * @param destObjectName   需要合并对象的名称
+     * @param s3Objects        需要合并的分片对象
+     */
+    @Override
+    public Optional<CompleteMultipartUploadResponse> composeObject(String originBucketName,
+                                                                   String destBucketName,
+                                                                   String destObjectName,
+                                                                   List<S3Object> s3Objects) {
+        Assert.notEmpty(originBucketName, "originBucketName not empty");
+        Assert.notEmpty(destBucketName, "destBucketName not empty");
+        Assert.notEmpty(destObjectName, "destObjectName not empty");
+        Assert.notEmpty(s3Objects, "s3Objects not empty");
+
+        originBucketName = handlerBucketName(originBucketName);
+        destBucketName = handlerBucketName(destBucketName);
+
+        if (s3Objects.size() == SINGLETON_LIST_SIZE) {
+            Optional<CopyObjectResponse> copyObjectResponseOptional = copyObject(originBucketName, s3Objects.get(0).key(), destBucketName, destObjectName);
+            if (!copyObjectResponseOptional.isPresent()) {
+                return Optional.empty();
+            }
+
+            return Optional.of(CompleteMultipartUploadResponse.builder()
+                    .bucket(destBucketName)
+                    .key(destObjectName)
+                    .eTag(copyObjectResponseOptional.get().copyObjectResult().eTag())
+                    .build());
+        }
+
+        List<String> partObjectNameList = s3Objects
+                .stream()
+                .map(S3Object::key)
+                .sorted(Comparator.comparingInt(Integer::parseInt))
+                .collect(Collectors.toList());
+
+        try {
+            checkBucketExists(destBucketName);
+            List<Path> sourcePathList = new ArrayList<>(partObjectNameList.size());
+            List<byte[]> partMd5List = new ArrayList<>(partObjectNameList.size());
+            for (String partObjectName : partObjectNameList) {
+                Path sourcePath = resolveObjectPath(originBucketName, partObjectName);
+                if (!Files.isRegularFile(sourcePath)) {
+                    throw noSuchKey(originBucketName, partObjectName);
+                }
+                sourcePathList.add(sourcePath);
+                partMd5List.add(getObjectMd5(originBucketName, partObjectName));
+            }
+
+            LocalObjectMetadata metadata = concatenate(destBucketName, destObjectName, sourcePathList, partMd5List);
+            return Optional.of(CompleteMultipartUploadResponse.builder()
+                    .bucket(destBucketName)
+                    .key(destObjectName)
+                    .eTag(metadata.getEtag())
+                    .location(FILE_SEPARATOR + destBucketName + FILE_SEPARATOR + destObjectName)
+                    .build());
+        } catch (IOException | S3Exception e) {
+            log.error("compose object failed, origin bucket {} dest bucket {} dest object {}, the cause is ",
+                    originBucketName, destBucketName, destObjectName, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<CompleteMultipartUploadResponse> composeObject(String originBucketName, String destBucketName, String destObjectName) {
+        Assert.notEmpty(originBucketName, "originBucketName not empty");
+        Assert.notEmpty(destBucketName, "destBucketName not empty");
+        Assert.notEmpty(destObjectName, "destObjectName not empty");
+
+        Optional<List<S3Object>> optionalS3ObjectList = listObjects(originBucketName);
+        if (!optionalS3ObjectList.isPresent()) {
+            return Optional.empty();
+        }
+
+        return composeObject(originBucketName, destBucketName, destObjectName, optionalS3ObjectList.get());
+    }
+
+    @Override
+    public Optional<ResponseInputStream<GetObjectResponse>> getObject(String bucketName, String objectName) throws IOException {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        objectName = objectName.replace("\\", FILE_SEPARATOR);
+
+        // 先打开文件再读取元数据，文件在此期间被替换时，已经打开的流读取的依然是旧文件
+        InputStream inputStream;
+        try {
+            inputStream = Files.newInputStream(resolveObjectPath(bucketName, objectName));
+        } catch (NoSuchFileException e) {
+            log.error("bucket {} object {} not exists", bucketName, objectName);
+            return Optional.empty();
+        }
+
+        Optional<LocalObjectMetadata> metadataOptional = readMetadata(bucketName, objectName);
+        if (!metadataOptional.isPresent()) {
+            inputStream.close();
+            log.error("bucket {} object {} not exists", bucketName, objectName);
+            return Optional.empty();
+        }
+
+        LocalObjectMetadata metadata = metadataOptional.get();
+        GetObjectResponse getObjectResponse = GetObjectResponse.builder()
+                .contentLength(metadata.getContentLength())
+                .contentType(metadata.getContentType())
+                .eTag(metadata.getEtag())
+                .lastModified(Instant.ofEpochMilli(metadata.getLastModified()))
+                .metadata(metadata.getMetadata())
+                .acceptRanges("bytes")
+                .build();
+        return Optional.of(new ResponseInputStream<>(getObjectResponse, AbortableInputStream.create(inputStream)));
+    }
+
+    @Override
+    public Optional<ResponseInputStream<GetObjectResponse>> getObject(String bucketName, String objectName, long offset, long length) throws IOException {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        Assert.isTrue(offset >= 0 && length > 0, "offset must not be negative and length must be positive");
+        objectName = objectName.replace("\\", FILE_SEPARATOR);
+
+        FileChannel fileChannel;
+        try {
+            fileChannel = FileChannel.open(resolveObjectPath(bucketName, objectName), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            log.error("bucket {} object {} not exists", bucketName, objectName);
+            return Optional.empty();
+        }
+
+        Optional<LocalObjectMetadata> metadataOptional = readMetadata(bucketName, objectName);
+        long contentLength = fileChannel.size();
+        if (!metadataOptional.isPresent() || offset >= contentLength) {
+            fileChannel.close();
+            log.error("bucket {} object {} not exists or range {}-{} is not satisfiable", bucketName, objectName, offset, offset + length - 1);
+            return Optional.empty();
+        }
+
+        LocalObjectMetadata metadata = metadataOptional.get();
+        long end = Math.min(offset + length, contentLength) - 1;
+        GetObjectResponse getObjectResponse = GetObjectResponse.builder()
+                .contentLength(end - offset + 1)
+                .contentRange(String.format(CONTENT_RANGE_FORMAT, offset, end, contentLength))
+                .contentType(metadata.getContentType())
+                .eTag(metadata.getEtag())
+                .lastModified(Instant.ofEpochMilli(metadata.getLastModified()))
+                .metadata(metadata.getMetadata())
+                .acceptRanges("bytes")
+                .build();
+        InputStream inputStream = new BoundedInputStream(Channels.newInputStream(fileChannel.position(offset)), end - offset + 1);
+        return Optional.of(new ResponseInputStream<>(getObjectResponse, AbortableInputStream.create(inputStream)));
+    }
+
+    @Override
+    public Optional<HeadObjectResponse> headObject(String bucketName, String objectName) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        objectName = objectName.replace("\\", FILE_SEPARATOR);
+
+        try {
+            return readMetadata(bucketName, objectName).map(this::toHeadObjectResponse);
+        } catch (IOException e) {
+            log.error("head object failed, bucket {} object {}, the cause is ", bucketName, objectName, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 判断对象是否存在
+     *
+     * @param bucketName 桶名称
+     * @param objectName 对象名称
+     * @return 对象是否存在
+     * @throws UncheckedIOException 读取文件属性或者元数据失败
+     */
+    @Override
+    public boolean objectExists(String bucketName, String objectName) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        objectName = objectName.replace("\\", FILE_SEPARATOR);
+
+        try {
+            return readMetadata(bucketName, objectName).isPresent();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("read bucket [%s] object [%s] metadata failed", bucketName, objectName), e);
+        }
+    }
+
+    /**
+     * 批量获取对象的元数据，本地文件直接依次读取
+     *
+     * @param bucketName  桶名称
+     * @param objectNames 对象名称
+     * @return 对象名称 -> 元数据，只包含存在的对象，任意一个读取失败时为空
+     */
+    @Override
+    public Optional<Map<String, HeadObjectResponse>> headObjects(String bucketName, Collection<String> objectNames) {
+        String handledBucketName = handlerBucketName(bucketName);
+        Assert.notNull(objectNames, "objectNames not null");
+
+        Map<String, HeadObjectResponse> headObjectResponseMap = new LinkedHashMap<>(objectNames.size() * 2);
+        for (String objectName : objectNames) {
+            Assert.notEmpty(objectName, "objectName not empty");
+            try {
+                readMetadata(handledBucketName, objectName.replace("\\", FILE_SEPARATOR))
+                        .ifPresent(metadata -> headObjectResponseMap.put(objectName, toHeadObjectResponse(metadata)));
+            } catch (IOException e) {
+                log.error("head objects failed, bucket {} objects size {}, the cause is ", handledBucketName, objectNames.size(), e);
+                return Optional.empty();
+            }
+        }
+        return Optional.of(headObjectResponseMap);
+    }
+
+    @Override
+    public Optional<Map<String, Boolean>> objectsExist(String bucketName, Collection<String> objectNames) {
+        return headObjects(bucketName, objectNames).map(headObjectResponseMap -> {
+            Map<String, Boolean> existsMap = new LinkedHashMap<>(objectNames.size() * 2);
+            for (String objectName : objectNames) {
+                existsMap.put(objectName, headObjectResponseMap.containsKey(objectName));
+            }
+            return existsMap;
+        });
+    }
+
+    private HeadObjectResponse toHeadObjectResponse(LocalObjectMetadata metadata) {
+        return HeadObjectResponse.builder()
+                .contentLength(metadata.getContentLength())
+                .contentType(metadata.getContentType())
+                .eTag(metadata.getEtag())
+                .lastModified(Instant.ofEpochMilli(metadata.getLastModified()))
+                .metadata(metadata.getMetadata())
+                .acceptRanges("bytes")
+                .build();
+    }
+
+    /**
+     * 获取对象的url
+     * 配置了domain时(例如通过nginx对外提供根目录的访问)返回domain拼接的url，否则返回对象的file url
+     *
+     * @param bucketName 桶名
+     * @param objectName 对象名
+     * @return 对象的url
+     */
+    @Override
+    public Optional<URL> getObjectUrl(String bucketName, String objectName) {
+        Assert.notEmpty(objectName, "objectName not empty");
+        bucketName = handlerBucketName(bucketName);
+        try {
+            String domain = s3V2Base.getDomain();
+            if (StrUtil.isEmpty(domain)) {
+                return Optional.of(resolveObjectPath(bucketName, objectName).toUri().toURL());
+            }
+
+            if (!StrUtil.startWithAnyIgnoreCase(domain, HTTP_PREFIX, HTTPS_PREFIX)) {
+                domain = HTTPS_PREFIX + domain;
+            }
+            String baseUrl = domain.endsWith(FILE_SEPARATOR) ? domain : domain + FILE_SEPARATOR;
+            return Optional.of(new URL(baseUrl + bucketName + FILE_SEPARATOR + SdkHttpUtils.urlEncodeIgnoreSlashes(objectName)));
+        } catch (MalformedURLException e) {
+            log.error("bucket [{}] object [{}]", bucketName, objectName, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName, File file) {
+        return multipartUpload(bucketName, file, DEFAULT_SLICE_SIZE);
+    }
+
+    @Override
+    public Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName, String objectName, File file) {
+        return multipartUpload(bucketName, objectName, file, DEFAULT_SLICE_SIZE);
+    }
+
+    /**
+     * 分片上传文件，每个分片直接从文件的对应区间读取，不会把分片读入内存
+     *
+     * @param bucketName 对象桶
+     * @param objectName 指定文件的存储名称
+     * @param file       上传的文件对象
+     * @param sliceSize  分片大小
+     */
+    @Override
+    public Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName, String objectName, File file, int sliceSize) {
+        return multipartUpload(bucketName,
+                objectName,
+                file,
+                file1 -> file1 != null && file1.exists(),
+                (file2, newBucketName, newObjectName, uploadId) -> {
+                    long contentLength = file2.length();
+                    int sliceParts = (int) Math.ceil(contentLength * 1.0d / sliceSize);
+
+                    List<CompletedPart> completedPartList = new ArrayList<>(sliceParts);
+                    try (FileChannel fileChannel = FileChannel.open(file2.toPath(), StandardOpenOption.READ)) {
+                        long filePosition = 0;
+                        for (int partNumber = 1; filePosition < contentLength; partNumber++) {
+                            long partSize = Math.min(sliceSize, contentLength - filePosition);
+                            fileChannel.position(filePosition);
+                            // 这里不能关闭分片的流，否则会把文件通道一起关闭
+                            InputStream partInputStream = new BoundedInputStream(Channels.newInputStream(fileChannel), partSize);
+                            String etag = uploadPart(newBucketName, newObjectName, uploadId, partNumber, partInputStream, partSize);
+                            log.debug("part {}, upload success", partNumber);
+
+                            completedPartList.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+                            filePosition += partSize;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return completedPartList;
+                }
+        );
+    }
+
+    @Override
+    public Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName, File file, int sliceSize) {
+        Assert.notNull(file, "upload file not null");
+        return multipartUpload(bucketName, file.getName(), file, sliceSize);
+    }
+
+    /**
+     * 分片文件上传的底层封装方法
+     * 函数中可以调用{@link #uploadPart(String, String, String, int, RequestBody)}上传分片
+     *
+     * @param bucketName 桶的名称
+     * @param objectName 对象名称
+     * @param t          这里是需要上传的对象
+     * @param predicate  这里对上传的对象进行参数校验
+     * @param function   这个函数是真正执行上传操作
+     * @param <T>        上传对象的类型
+     * @throws S3Exception S3Exception
+     */
+    @Override
+    public <T> Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName,
+                                                                         String objectName,
+                                                                         T t,
+                                                                         Predicate<T> predicate,
+                                                                         MultipartUploadBiFunction<T, List<CompletedPart>> function)
+            throws S3Exception {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+
+        if (!predicate.test(t)) {
+            throw new IllegalArgumentException("param check failed, " + t);
+        }
+
+        String uploadId;
+        try {
+            uploadId = doCreateMultipartUpload(bucketName, objectName);
+        } catch (IOException e) {
+            log.error("create multipart upload failed, bucket {} object name {}, the cause is ", bucketName, objectName, e);
+            return Optional.empty();
+        }
+        log.debug("bucket {} object name {}, uploadId {}", bucketName, objectName, uploadId);
+
+        try {
+            List<CompletedPart> completedPartList = function.apply(t, bucketName, objectName, uploadId);
+            CompleteMultipartUploadResponse completeMultipartUploadResponse =
+                    doCompleteMultipartUpload(bucketName, objectName, uploadId, completedPartList);
+            log.debug("Upload an object in parts success, bucket {} object name {}, uploadId {}",
+                    bucketName,
+                    objectName,
+                    uploadId);
+            return Optional.of(completeMultipartUploadResponse);
+        } catch (Exception e) {
+            log.error("Upload an object in parts failed, bucket {} object name {}, uploadId {}, the cause is ", bucketName, objectName, uploadId, e);
+            abortMultipartUpload(bucketName, objectName, uploadId);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<CompleteMultipartUploadResponse> multipartUpload(String bucketName,
+                                                                     String objectName,
+                                                                     List<RequestBody> requestBodyList) throws S3Exception {
+        return multipartUpload(bucketName, objectName, requestBodyList, this::checkRequestBodyList,
+                (requestBodies, handlerBucketName, handlerObjectName, uploadId) -> {
+                    List<CompletedPart> completedPartList = new ArrayList<>(requestBodies.size());
+                    for (int index = 0; index < requestBodies.size(); index++) {
+                        int partNumber = index + 1;
+                        String etag = uploadPart(handlerBucketName, handlerObjectName, uploadId, partNumber, requestBodies.get(index));
+                        log.debug("part {}, upload success", partNumber);
+                        completedPartList.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+                    }
+                    return completedPartList;
+                }
+        );
+    }
+
+    /**
+     * 和S3保持一致，确保除了最后一个分片之外，每个分片的大小都最少为5MB
+     * 这样在本地开发通过的代码，切换到S3之后也不会失败
+     *
+     * @param requestBodyList 分片集合
+     * @return 校验分片
+     */
+    private boolean checkRequestBodyList(List<RequestBody> requestBodyList) {
+        if (CollectionUtil.isEmpty(requestBodyList)) {
+            log.error("part list not be empty");
+            return false;
+        }
+
+        int size = requestBodyList.size();
+        if (size > MAX_PART_NUMBER) {
+            log.error("Part number must be an integer between 1 and 10000");
+            return false;
+        }
+
+        for (int i = 0; i < size; i++) {
+            Optional<Long> longOptional = requestBodyList.get(i).optionalContentLength();
+            if (!longOptional.isPresent()) {
+                return false;
+            }
+            if (i != size - 1 && longOptional.get() < DEFAULT_SLICE_SIZE) {
+                log.error("Your proposed upload is smaller than the minimum allowed object size 5MB");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 上传一个分片，相同的分片序号重复上传时后一次覆盖前一次
+     *
+     * @param bucketName  处理过的桶名称
+     * @param objectName  对象名称
+     * @param uploadId    上传ID
+     * @param partNumber  分片序号，从1开始
+     * @param requestBody 分片内容
+     * @return 分片的eTag
+     */
+    public String uploadPart(String bucketName, String objectName, String uploadId, int partNumber, RequestBody requestBody) {
+        Assert.notNull(requestBody, "requestBody not null");
+        try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+            return uploadPart(bucketName, objectName, uploadId, partNumber, inputStream,
+                    requestBody.optionalContentLength().orElse(-1L));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                              InputStream inputStream, long contentLength) throws IOException {
+        Assert.checkBetween(partNumber, 1, MAX_PART_NUMBER);
+        Path uploadPath = resolveUploadPath(bucketName, objectName, uploadId);
+
+        Path tempFile = createTempFile();
+        Path tempMetadataFile = null;
+        try {
+            LocalObjectMetadata metadata = writeTempFile(inputStream, contentLength, tempFile);
+            metadata.setLastModified(System.currentTimeMillis());
+            tempMetadataFile = writeTempMetadataFile(metadata);
+            moveAtomically(tempFile, uploadPath.resolve(partNumber + PART_SUFFIX));
+            moveAtomically(tempMetadataFile, uploadPath.resolve(partNumber + METADATA_SUFFIX));
+            return metadata.getEtag();
+        } finally {
+            Files.deleteIfExists(tempFile);
+            if (tempMetadataFile != null) {
+                Files.deleteIfExists(tempMetadataFile);
+            }
+        }
+    }
+
+    /**
+     * 本地存储直接边读取边写入临时文件，不需要分片
+     */
+    @Override
+    public Optional<String> uploadStream(String bucketName, String objectName, String contentType, InputStream inputStream) {
+        Assert.notNull(inputStream, "inputStream not null");
+        return putObject(bucketName, objectName, contentType, null, inputStream, -1).map(PutObjectResponse::eTag);
+    }
+
+    /**
+     * 本地存储没有上传带宽的问题，业务对象总是数据对象的拷贝，link-mode不生效
+     */
+    @Override
+    public Optional<DedupUploadResult> dedupUpload(String bucketName, String objectName, File file) {
+        Assert.isTrue(file != null && file.isFile(), "upload file not exists");
+        try {
+            String contentHash = new ContentTreeHasher(s3V2Base.getDedup().getHashChunkSize()).hash(file);
+            return dedupUpload(bucketName, objectName, file.length(), contentHash, file.toPath());
+        } catch (IOException e) {
+            log.error("dedup upload file {} failed, the cause is ", file, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<DedupUploadResult> dedupUpload(String bucketName, String objectName, MultipartFile multipartFile) {
+        Assert.notNull(multipartFile, "multipartFile not null");
+        Path tempFile = null;
+        try {
+            // 先落到临时文件，计算摘要和写入数据对象都从临时文件读取
+            tempFile = createTempFile();
+            multipartFile.transferTo(tempFile);
+            String contentHash = new ContentTreeHasher(s3V2Base.getDedup().getHashChunkSize()).hash(tempFile.toFile());
+            return dedupUpload(bucketName, objectName, multipartFile.getSize(), contentHash, tempFile);
+        } catch (IOException e) {
+            log.error("dedup upload multipartFile {} failed, the cause is ", multipartFile.getOriginalFilename(), e);
+            return Optional.empty();
+        } finally {
+            if (tempFile != null) {
+                FileUtil.del(tempFile);
+            }
+        }
+    }
+
+    private Optional<DedupUploadResult> dedupUpload(String bucketName,
+                                                    String objectName,
+                                                    long contentLength,
+                                                    String contentHash,
+                                                    Path filePath) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        String blobKey = s3V2Base.getDedup().getBlobPrefix() + contentHash;
+
+        boolean deduplicated = Files.isRegularFile(resolveObjectPath(bucketName, blobKey));
+        if (!deduplicated && putFile(bucketName, blobKey, filePath) == null) {
+            return Optional.empty();
+        }
+        if (!copyObject(bucketName, blobKey, bucketName, objectName).isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(DedupUploadResult.builder()
+                .objectName(objectName)
+                .blobKey(blobKey)
+                .contentHash(contentHash)
+                .contentLength(contentLength)
+                .deduplicated(deduplicated)
+                .build());
+    }
+
+    /**
+     * 本地存储的对象类型在读取时根据对象名称推断，这里忽略contentType
+     */
+    @Override
+    public Optional<String> createMultipartUpload(String bucketName, String objectName, String contentType) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+
+        try {
+            return Optional.of(doCreateMultipartUpload(bucketName, objectName));
+        } catch (IOException | S3Exception e) {
+            log.error("create multipart upload failed, bucket {} object name {}, the cause is ", bucketName, objectName, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<CompleteMultipartUploadResponse> completeMultipartUpload(String bucketName,
+                                                                             String objectName,
+                                                                             String uploadId,
+                                                                             List<CompletedPart> completedPartList) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        Assert.notEmpty(uploadId, "uploadId not empty");
+        Assert.notEmpty(completedPartList, "completedPartList not empty");
+
+        List<CompletedPart> sortedPartList = new ArrayList<>(completedPartList);
+        sortedPartList.sort(Comparator.comparing(CompletedPart::partNumber));
+        try {
+            return Optional.of(doCompleteMultipartUpload(bucketName, objectName, uploadId, sortedPartList));
+        } catch (IOException | S3Exception e) {
+            log.error("complete multipart upload failed, bucket {} object name {}, uploadId {}, the cause is ",
+                    bucketName, objectName, uploadId, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<AbortMultipartUploadResponse> abortMultipartUpload(String bucketName,
+                                                                       String objectName,
+                                                                       String uploadId) throws S3Exception {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name is not empty");
+        Assert.notEmpty(uploadId, "uploadId is not empty");
+
+        try {
+            deleteRecursively(resolveUploadPath(bucketName, objectName, uploadId));
+            return Optional.of(AbortMultipartUploadResponse.builder().build());
+        } catch (IOException | UncheckedIOException e) {
+            log.error("abortMultipartUpload failed, bucket {}, objectName {}, uploadId {}, the cause is ",
+                    bucketName, objectName, uploadId, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<List<Part>> listParts(String bucketName, String objectName, String uploadId) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name is not empty");
+        Assert.notEmpty(uploadId, "uploadId is not empty");
+
+        try {
+            Path uploadPath = resolveUploadPath(bucketName, objectName, uploadId);
+            List<Part> partList = new ArrayList<>();
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(uploadPath, "*" + PART_SUFFIX)) {
+                for (Path partPath : directoryStream) {
+                    String fileName = partPath.getFileName().toString();
+                    int partNumber = Integer.parseInt(fileName.substring(0, fileName.length() - PART_SUFFIX.length()));
+                    LocalObjectMetadata metadata = readPartMetadata(uploadPath, partNumber);
+                    partList.add(Part.builder()
+                            .partNumber(partNumber)
+                            .eTag(metadata.getEtag())
+                            .size(metadata.getContentLength())
+                            .lastModified(Instant.ofEpochMilli(metadata.getLastModified()))
+                            .build());
+                }
+            }
+            partList.sort(Comparator.comparing(Part::partNumber));
+            return Optional.of(partList);
+        } catch (IOException | S3Exception e) {
+            log.error("list parts failed, bucket {}, objectName {}, uploadId {}, the cause is ",
+                    bucketName, objectName, uploadId, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 创建分片上传，分片上传的目录中记录了目标对象，用于后续校验
+     *
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     * @return 上传ID
+     */
+    private String doCreateMultipartUpload(String bucketName, String objectName) throws IOException {
+        checkBucketExists(bucketName);
+        // 提前校验对象名称
+        resolveObjectPath(bucketName, objectName);
+
+        String uploadId = UUID.randomUUID().toString(true);
+        Path uploadPath = uploadsPath.resolve(uploadId);
+        Files.createDirectories(uploadPath);
+        Files.write(uploadPath.resolve(UPLOAD_TARGET_FILE), uploadTarget(bucketName, objectName).getBytes(StandardCharsets.UTF_8));
+        return uploadId;
+    }
+
+    /**
+     * 完成分片上传，分片按照序号依次拼接成目标对象，eTag和S3一样为 MD5(所有分片MD5拼接)-分片数量
+     *
+     * @param bucketName        处理过的桶名称
+     * @param objectName        对象名称
+     * @param uploadId          上传ID
+     * @param completedPartList 上传完成的分片
+     * @return 完成分片上传的结果
+     */
+    private CompleteMultipartUploadResponse doCompleteMultipartUpload(String bucketName,
+                                                                      String objectName,
+                                                                      String uploadId,
+                                                                      List<CompletedPart> completedPartList) throws IOException {
+        if (CollectionUtil.isEmpty(completedPartList)) {
+            throw s3Exception(400, "MalformedXML", "You must specify at least one part");
+        }
+
+        Path uploadPath = resolveUploadPath(bucketName, objectName, uploadId);
+        List<Path> partPathList = new ArrayList<>(completedPartList.size());
+        List<byte[]> partMd5List = new ArrayList<>(completedPartList.size());
+        int previousPartNumber = 0;
+        for (CompletedPart completedPart : completedPartList) {
+            int partNumber = completedPart.partNumber();
+            if (partNumber <= previousPartNumber) {
+                throw s3Exception(400, "InvalidPartOrder", "The list of parts was not in ascending order");
+            }
+            previousPartNumber = partNumber;
+
+            Path partPath = uploadPath.resolve(partNumber + PART_SUFFIX);
+            LocalObjectMetadata metadata = readPartMetadata(uploadPath, partNumber);
+            if (!Files.isRegularFile(partPath)
+                    || (StrUtil.isNotEmpty(completedPart.eTag()) && !unquote(completedPart.eTag()).equals(unquote(metadata.getEtag())))) {
+                throw s3Exception(400, "InvalidPart", String.format("part %d could not be found or eTag not match", partNumber));
+            }
+            partPathList.add(partPath);
+            partMd5List.add(HexUtil.decodeHex(unquote(metadata.getEtag())));
+        }
+
+        LocalObjectMetadata metadata = concatenate(bucketName, objectName, partPathList, partMd5List);
+        deleteRecursively(uploadPath);
+        return CompleteMultipartUploadResponse.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .eTag(metadata.getEtag())
+                .location(FILE_SEPARATOR + bucketName + FILE_SEPARATOR + objectName)
+                .build();
+    }
+
+    /**
+     * 将多个文件依次拼接成一个对象，拼接使用transferTo完成
+     *
+     * @param bucketName     处理过的桶名称
+     * @param objectName     对象名称
+     * @param sourcePathList 需要拼接的文件
+     * @param partMd5List    每个文件的MD5，用于计算分片上传格式的eTag
+     * @return 对象的元数据
+     */
+    private LocalObjectMetadata concatenate(String bucketName, String objectName,
+                                            List<Path> sourcePathList, List<byte[]> partMd5List) throws IOException {
+        MessageDigest md5 = newMd5();
+        partMd5List.forEach(md5::update);
+
+        Path tempFile = createTempFile();
+        try {
+            long contentLength = 0;
+            try (FileChannel targetChannel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                for (Path sourcePath : sourcePathList) {
+                    try (FileChannel sourceChannel = FileChannel.open(sourcePath, StandardOpenOption.READ)) {
+                        contentLength += transferFully(sourceChannel, targetChannel);
+                    }
+                }
+            }
+
+            LocalObjectMetadata metadata = LocalObjectMetadata.builder()
+                    .contentType(guessContentType(objectName))
+                    .etag(quote(HexUtil.encodeHexStr(md5.digest()) + FILENAME_LINK + sourcePathList.size()))
+                    .contentLength(contentLength)
+                    .build();
+            commitObject(tempFile, bucketName, objectName, metadata);
+            return metadata;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void downloadFile(String bucketName, String objectName, String downloadBasePath) throws IOException {
+        Assert.notEmpty(downloadBasePath, "downloadBasePath not empty");
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        objectName = objectName.replace("\\", FILE_SEPARATOR);
+
+        Path objectPath = resolveObjectPath(bucketName, objectName);
+        if (!Files.isRegularFile(objectPath)) {
+            log.warn("bucket {} object {} not exists, not need download", bucketName, objectName);
+            return;
+        }
+
+        Path downloadPath = Paths.get(downloadBasePath, objectName.substring(objectName.lastIndexOf(FILE_SEPARATOR) + 1));
+        if (Files.exists(downloadPath)) {
+            log.debug("{} already exists, no need to download", downloadPath);
+            return;
+        }
+
+        copyToFile(objectPath, downloadPath);
+        log.debug("{} download success", downloadPath);
+    }
+
+    @Override
+    public void downloadDirectory(String bucketName, String objectPrefix, String downloadBasePath) throws IOException {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(downloadBasePath, "downloadBasePath not empty");
+
+        String replacePrefix = null;
+        if (StrUtil.isNotEmpty(objectPrefix)) {
+            objectPrefix = objectPrefix.replace("\\", FILE_SEPARATOR);
+            replacePrefix = objectPrefix.substring(0, Math.max(objectPrefix.lastIndexOf(FILE_SEPARATOR), 0));
+        }
+
+        Optional<List<S3Object>> s3ObjectListOptional = listObjects(bucketName, objectPrefix);
+        if (!s3ObjectListOptional.isPresent() || CollectionUtil.isEmpty(s3ObjectListOptional.get())) {
+            log.debug("bucket {}, object prefix {} is empty, not need download", bucketName, objectPrefix);
+            return;
+        }
+
+        for (S3Object s3Object : s3ObjectListOptional.get()) {
+            String relativeName = StrUtil.isNotEmpty(replacePrefix) ? s3Object.key().substring(replacePrefix.length()) : s3Object.key();
+            Path downloadPath = Paths.get(downloadBasePath, relativeName);
+            copyToFile(resolveObjectPath(bucketName, s3Object.key()), downloadPath);
+            log.debug("{} download success", downloadPath);
+        }
+    }
+
+    @Override
+    public Integer asyncUploadDirectory(String sourceDirectory, String bucketName) {
+        return asyncUploadDirectory((S3TransferManager) null, sourceDirectory, bucketName);
+    }
+
+    @Override
+    public Integer asyncUploadDirectory(String sourceDirectory, String bucketName, String destDirectoryPrefix) {
+        return asyncUploadDirectory(null, sourceDirectory, bucketName, destDirectoryPrefix);
+    }
+
+    @Override
+    public Integer asyncUploadDirectory(S3TransferManager transferManager, String sourceDirectory, String bucketName) {
+        return asyncUploadDirectory(transferManager, sourceDirectory, bucketName, null);
+    }
+
+    @Override
+    public Integer asyncUploadDirectory(S3TransferManager transferManager, String sourceDirectory, String bucketName, String destDirectoryPrefix) {
+        Assert.notEmpty(sourceDirectory, "sourceDirectory not empty");
+        bucketName = handlerBucketName(bucketName);
+
+        UploadDirectoryRequest.Builder builder = UploadDirectoryRequest.builder()
+                .source(Paths.get(sourceDirectory))
+                .bucket(bucketName);
+        if (StrUtil.isNotEmpty(destDirectoryPrefix)) {
+            builder.s3Prefix(destDirectoryPrefix);
+        }
+        return asyncUploadDirectory(transferManager, builder.build());
+    }
+
+    @Override
+    public Integer asyncUploadDirectory(UploadDirectoryRequest uploadDirectoryRequest) {
+        return asyncUploadDirectory(null, uploadDirectoryRequest);
+    }
+
+    /**
+     * 上传目录，对象名称的规则和S3TransferManager保持一致: s3Prefix + 分隔符 + 文件相对于源目录的路径
+     *
+     * @param transferManager        本地存储忽略该参数
+     * @param uploadDirectoryRequest 目录上传参数构建
+     * @return 上传失败的文件数
+     */
+    @Override
+    public Integer asyncUploadDirectory(S3TransferManager transferManager, UploadDirectoryRequest uploadDirectoryRequest) {
+        Assert.notNull(uploadDirectoryRequest, "uploadDirectoryRequest not null");
+        String bucketName = handlerBucketName(uploadDirectoryRequest.bucket());
+        Path sourcePath = uploadDirectoryRequest.source();
+        String delimiter = uploadDirectoryRequest.s3Delimiter().orElse(FILE_SEPARATOR);
+        String prefix = uploadDirectoryRequest.s3Prefix().orElse("");
+        if (!prefix.isEmpty() && !prefix.endsWith(delimiter)) {
+            prefix = prefix + delimiter;
+        }
+
+        FileVisitOption[] fileVisitOptions = uploadDirectoryRequest.followSymbolicLinks().orElse(false) ?
+                new FileVisitOption[]{FileVisitOption.FOLLOW_LINKS} : new FileVisitOption[0];
+        List<Path> filePathList;
+        try (Stream<Path> pathStream = Files.walk(sourcePath, uploadDirectoryRequest.maxDepth().orElse(Integer.MAX_VALUE), fileVisitOptions)) {
+            filePathList = pathStream.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalArgumentException(String.format("list directory [%s] failed", sourcePath), e);
+        }
+
+        int failedTransfers = 0;
+        for (Path filePath : filePathList) {
+            String objectName = prefix + sourcePath.relativize(filePath).toString().replace(File.separator, delimiter);
+            if (putFile(bucketName, objectName, filePath) == null) {
+                log.warn("Object [{}] failed to transfer", objectName);
+                failedTransfers++;
+            }
+        }
+        return failedTransfers;
+    }
+
+    /**
+     * 目录下载，文件保存的路径和S3TransferManager保持一致: 保存目录 + 对象名称去掉前缀之后的部分
+     *
+     * @param transferManager          本地存储忽略该参数
+     * @param downloadDirectoryRequest 目录下载请求
+     * @return 下载失败的文件数量
+     */
+    @Override
+    public Integer asyncDownloadDirectory(S3TransferManager transferManager, DownloadDirectoryRequest downloadDirectoryRequest) {
+        Assert.notNull(downloadDirectoryRequest, "downloadDirectoryRequest not null");
+        String bucketName = handlerBucketName(downloadDirectoryRequest.bucket());
+        Path destinationPath = downloadDirectoryRequest.destination().toAbsolutePath().normalize();
+
+        ListObjectsV2Request.Builder listObjectsBuilder = ListObjectsV2Request.builder().bucket(bucketName);
+        Consumer<ListObjectsV2Request.Builder> listObjectsRequestTransformer = downloadDirectoryRequest.listObjectsRequestTransformer();
+        if (listObjectsRequestTransformer != null) {
+            listObjectsRequestTransformer.accept(listObjectsBuilder);
+        }
+        String prefix = StrUtil.nullToEmpty(listObjectsBuilder.build().prefix());
+
+        Optional<List<S3Object>> s3ObjectListOptional = listObjects(bucketName, prefix);
+        if (!s3ObjectListOptional.isPresent()) {
+            return 0;
+        }
+
+        int failedTransfers = 0;
+        for (S3Object s3Object : s3ObjectListOptional.get()) {
+            if (downloadDirectoryRequest.filter() != null && !downloadDirectoryRequest.filter().test(s3Object)) {
+                continue;
+            }
+
+            String relativeName = StrUtil.removePrefix(s3Object.key().substring(prefix.length()), FILE_SEPARATOR);
+            Path downloadPath = destinationPath.resolve(relativeName.replace(FILE_SEPARATOR, File.separator)).normalize();
+            try {
+                if (!downloadPath.startsWith(destinationPath)) {
+                    throw new IllegalArgumentException(String.format("object [%s] resolves outside of the destination", s3Object.key()));
+                }
+                copyToFile(resolveObjectPath(bucketName, s3Object.key()), downloadPath);
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Object [{}] failed to transfer, the cause is ", s3Object.key(), e);
+                failedTransfers++;
+            }
+        }
+        return failedTransfers;
+    }
+
+    @Override
+    public Integer asyncDownloadDirectory(String saveDirectory, String objectPrefix) {
+        return asyncDownloadDirectory(getDefaultBucket(), saveDirectory, objectPrefix);
+    }
+
+    @Override
+    public Integer asyncDownloadDirectory(String bucketName, String saveDirectory, String objectPrefix) {
+        return asyncDownloadDirectory(null, bucketName, saveDirectory, objectPrefix);
+    }
+
+    @Override
+    public Integer asyncDownloadDirectory(S3TransferManager transferManager, String saveDirectory, String objectPrefix) {
+        return asyncDownloadDirectory(transferManager, getDefaultBucket(), saveDirectory, objectPrefix);
+    }
+
+    @Override
+    public Integer asyncDownloadDirectory(S3TransferManager transferManager, String bucketName, String saveDirectory, String objectPrefix) {
+        final String finalBucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(saveDirectory, "save to local, the saveDirectory not empty");
+        File file = new File(saveDirectory);
+        if (file.isFile()) {
+            throw new IllegalArgumentException(String.format("%s is not directory", saveDirectory));
+        }
+
+        return asyncDownloadDirectory(transferManager,
+                DownloadDirectoryRequest.builder()
+                        .bucket(finalBucketName)
+                        .destination(file.toPath())
+                        .listObjectsV2RequestTransformer(builder -> builder.bucket(finalBucketName).prefix(objectPrefix))
+                        .build());
+    }
+
+    @Override
+    public Long asyncDownloadFile(String objectName, String savePaths) {
+        return asyncDownloadFile((S3TransferManager) null, objectName, savePaths);
+    }
+
+    @Override
+    public Long asyncDownloadFile(S3TransferManager transferManager, String objectName, String savePaths) {
+        return asyncDownloadFile(transferManager, getDefaultBucket(), objectName, savePaths);
+    }
+
+    @Override
+    public Long asyncDownloadFile(String bucketName, String objectName, String savePaths) {
+        return asyncDownloadFile(null, bucketName, objectName, savePaths);
+    }
+
+    /**
+     * 下载单个文件，已经存在的文件会被覆盖
+     *
+     * @param transferManager 本地存储忽略该参数
+     * @param bucketName      文件所在的桶名
+     * @param objectName      所需要下载的对象名
+     * @param savePaths       文件下载保存到本地的路径
+     * @return 下载的文件大小
+     */
+    @Override
+    public Long asyncDownloadFile(S3TransferManager transferManager, String bucketName, String objectName, String savePaths) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        Assert.notEmpty(savePaths, "download file, the savePaths not empty");
+
+        Path downloadPath = Paths.get(savePaths, objectName.substring(objectName.lastIndexOf(FILE_SEPARATOR) + 1));
+        try {
+            long contentLength = copyToFile(resolveObjectPath(bucketName, objectName), downloadPath);
+            log.debug("object name [{}] Content length [{}]", objectName, contentLength);
+            return contentLength;
+        } catch (NoSuchFileException e) {
+            throw noSuchKey(bucketName, objectName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String asyncUploadFile(String objectName, String uploadFilePath) {
+        return asyncUploadFile(getDefaultBucket(), objectName, uploadFilePath);
+    }
+
+    @Override
+    public String asyncUploadFile(String bucketName, String objectName, String uploadFilePath) {
+        return asyncUploadFile(null, bucketName, objectName, uploadFilePath);
+    }
+
+    @Override
+    public String asyncUploadFile(S3TransferManager transferManager, String objectName, String uploadFilePath) {
+        return asyncUploadFile(transferManager, getDefaultBucket(), objectName, uploadFilePath);
+    }
+
+    @Override
+    public String asyncUploadFile(S3TransferManager transferManager, String bucketName, String objectName, String uploadFilePath) {
+        bucketName = handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "objectName not empty");
+        Assert.notEmpty(uploadFilePath, "uploadFilePath not empty");
+
+        Path filePath = Paths.get(uploadFilePath);
+        if (Files.isDirectory(filePath)) {
+            throw new IllegalArgumentException(String.format("uploadFilePath [%s] is Directory, not file", uploadFilePath));
+        }
+
+        String etag = putFile(bucketName, objectName, filePath);
+        log.debug("object name [{}] eTag [{}]", objectName, etag);
+        return etag;
+    }
+
+    @Override
+    public String asyncCopyObject(String srcBucketName, String srcObjectName, String destBucketName) {
+        return asyncCopyObject(srcBucketName, srcObjectName, destBucketName, srcObjectName);
+    }
+
+    @Override
+    public String asyncCopyObject(String srcBucketName, String srcObjectName, String destBucketName, String destObjectName) {
+        return asyncCopyObject(null, srcBucketName, srcObjectName, destBucketName, destObjectName);
+    }
+
+    @Override
+    public String asyncCopyObject(S3TransferManager transferManager, String srcBucketName, String srcObjectName, String destBucketName, String destObjectName) {
+        srcBucketName = handlerBucketName(srcBucketName);
+        destBucketName = handlerBucketName(destBucketName);
+        Assert.notEmpty(srcObjectName, "srcObjectName not empty");
+        if (StrUtil.isEmpty(destObjectName)) {
+            destObjectName = srcObjectName;
+        }
+
+        try {
+            LocalObjectMetadata metadata = copyObjectInternal(srcBucketName, srcObjectName, destBucketName, destObjectName);
+            log.debug("copy object from bucket [{}] object [{}] to bucket [{}] object [{}] success",
+                    srcBucketName,
+                    srcObjectName,
+                    destBucketName,
+                    destObjectName);
+            return metadata.getEtag();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 本地存储没有S3客户端
+     *
+     * @return null
+     */
+    @Override
+    public S3Client getS3Client() {
+        return null;
+    }
+
+    /**
+     * 本地存储没有S3客户端
+     *
+     * @return null
+     */
+    @Override
+    public S3AsyncClient getS3AsyncClient() {
+        return null;
+    }
+
+    /**
+     * 本地存储没有S3TransferManager
+     *
+     * @return null
+     */
+    @Override
+    public S3TransferManager getS3TransferManager() {
+        return null;
+    }
+
+    /**
+     * 本地存储没有预签名
+     *
+     * @return null
+     */
+    @Override
+    public S3Presigner getS3Presigner() {
+        return null;
+    }
+
+    /**
+     * 本地存储没有S3Utilities
+     *
+     * @return null
+     */
+    @Override
+    public S3Utilities getS3Utilities() {
+        return null;
+    }
+
+    @Override
+    public S3V2Base getS3V2Base() {
+        return s3V2Base;
+    }
+
+    @Override
+    public TransferMetrics getTransferMetrics() {
+        return transferMetrics;
+    }
+
+    @Override
+    public String handlerUploadObjectName(String objectName) {
+        return handlerUploadObjectName(objectName, DEFAULT_UPLOAD_BASE_DIR);
+    }
+
+    @Override
+    public String handlerUploadObjectName(String objectName, String baseDir) {
+        if (StrUtil.isEmpty(objectName)) {
+            return objectName;
+        }
+
+        return getUploadObjectNamePrefix(baseDir) + FILENAME_LINK + objectName;
+    }
+
+    @Override
+    public String getUploadObjectNamePrefix() {
+        return getUploadObjectNamePrefix(DEFAULT_UPLOAD_BASE_DIR);
+    }
+
+    @Override
+    public String getUploadObjectNamePrefix(String baseDir) {
+        if (StrUtil.isEmpty(baseDir)) {
+            baseDir = DEFAULT_UPLOAD_BASE_DIR;
+        }
+
+        return objectKeyStrategy.getUploadObjectNamePrefix(baseDir);
+    }
+
+    /**
+     * 本地存储不支持预签名
+     */
+    @Override
+    public Optional<PresignedGetObjectRequest> getPresignedUrl(String bucketName, String objectName, Duration signatureTime) {
+        log.warn("local storage does not support presigned url, bucket {} object {}", bucketName, objectName);
+        return Optional.empty();
+    }
+
+    @Override
+    public Map<String, URL> getPresignedUrls(String bucketName, Collection<String> objectNames, Duration signatureTime) {
+        return getPresignedUrls(bucketName, objectNames, signatureTime, false);
+    }
+
+    /**
+     * 本地存储不支持预签名
+     */
+    @Override
+    public Map<String, URL> getPresignedUrls(String bucketName, Collection<String> objectNames, Duration signatureTime, boolean parallel) {
+        log.warn("local storage does not support presigned url, bucket {}", bucketName);
+        return new LinkedHashMap<>();
+    }
+
+    @Override
+    public Optional<URL> resolveAccessUrl(String bucketName, String objectName) {
+        return getObjectUrl(bucketName, objectName);
+    }
+
+    /**
+     * 批量获取对象的访问url，本地存储没有签名，私有空间和公有空间都返回{@link #getObjectUrl(String, String)}
+     *
+     * @param bucketName  桶的名称
+     * @param objectNames 对象名称集合
+     * @return 对象名称 -> 对象的访问url
+     */
+    @Override
+    public Map<String, URL> resolveAccessUrls(String bucketName, Collection<String> objectNames) {
+        Map<String, URL> accessUrlMap = new LinkedHashMap<>();
+        if (CollectionUtil.isEmpty(objectNames)) {
+            return accessUrlMap;
+        }
+
+        for (String objectName : objectNames) {
+            getObjectUrl(bucketName, objectName).ifPresent(url -> accessUrlMap.put(objectName, url));
+        }
+        return accessUrlMap;
+    }
+
+    /**
+     * 本地存储不支持预签名
+     */
+    @Override
+    public Optional<PresignedPutObjectRequest> getPresignedPutUrl(String bucketName, String objectName, String contentType, Duration signatureTime) {
+        log.warn("local storage does not support presigned url, bucket {} object {}", bucketName, objectName);
+        return Optional.empty();
+    }
+
+    /**
+     * 本地存储不支持预签名
+     */
+    @Override
+    public Optional<PresignedPostPolicy> getPresignedPostPolicy(String bucketName, String objectName, String contentType,
+                                                                long minContentLength, long maxContentLength, Duration signatureTime) {
+        log.warn("local storage does not support presigned post policy, bucket {} object {}", bucketName, objectName);
+        return Optional.empty();
+    }
+
+    /**
+     * 本地存储不支持预签名
+     */
+    @Override
+    public Map<Integer, URL> getPresignedUploadPartUrls(String bucketName, String objectName, String uploadId, int partCount, Duration signatureTime) {
+        log.warn("local storage does not support presigned url, bucket {} object {}", bucketName, objectName);
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * 处理桶名称，和S3保持一致转成小写并校验，本地存储不需要拼接腾讯云的AppleID
+     *
+     * @param bucketName 桶名称
+     * @return 转成小写后的桶名称
+     */
+    private String handlerBucketName(String bucketName) {
+        Assert.notEmpty(bucketName, "bucket name is not empty");
+
+        String lowerCaseBucketName = bucketName.toLowerCase(Locale.ENGLISH);
+        if (!BucketUtil.isValid(lowerCaseBucketName)) {
+            throw new IllegalArgumentException(String.format("bucket [%s] is invalid, please check it", bucketName));
+        }
+        return lowerCaseBucketName;
+    }
+
+    private Path resolveBucketPath(String bucketName) {
+        return rootPath.resolve(bucketName);
+    }
+
+    /**
+     * 解析对象的路径，对象名称不能跳出桶所在的目录
+     *
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     * @return 对象的路径
+     */
+    private Path resolveObjectPath(String bucketName, String objectName) {
+        Assert.notEmpty(objectName, "objectName not empty");
+        if (objectName.endsWith(FILE_SEPARATOR)) {
+            throw new IllegalArgumentException(String.format("object [%s] is a directory, not supported by local storage", objectName));
+        }
+
+        Path bucketPath = resolveBucketPath(bucketName);
+        Path objectPath = bucketPath.resolve(objectName).normalize();
+        if (!objectPath.startsWith(bucketPath) || objectPath.equals(bucketPath)) {
+            throw new IllegalArgumentException(String.format("object [%s] is invalid, please check it", objectName));
+        }
+        return objectPath;
+    }
+
+    private Path resolveMetadataPath(String bucketName, String objectName) {
+        Path objectPath = resolveObjectPath(bucketName, objectName);
+        Path metadataBucketPath = metadataRootPath.resolve(bucketName);
+        return metadataBucketPath.resolve(resolveBucketPath(bucketName).relativize(objectPath) + METADATA_SUFFIX);
+    }
+
+    /**
+     * 解析分片上传的目录，并校验上传ID和目标对象是否匹配
+     *
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     * @param uploadId   上传ID
+     * @return 分片上传的目录
+     */
+    private Path resolveUploadPath(String bucketName, String objectName, String uploadId) throws IOException {
+        if (!UPLOAD_ID_PATTERN.matcher(uploadId).matches()) {
+            throw noSuchUpload(uploadId);
+        }
+
+        Path uploadPath = uploadsPath.resolve(uploadId);
+        try {
+            String uploadTarget = new String(Files.readAllBytes(uploadPath.resolve(UPLOAD_TARGET_FILE)), StandardCharsets.UTF_8);
+            if (!uploadTarget.equals(uploadTarget(bucketName, objectName))) {
+                throw noSuchUpload(uploadId);
+            }
+        } catch (NoSuchFileException e) {
+            throw noSuchUpload(uploadId);
+        }
+        return uploadPath;
+    }
+
+    private String uploadTarget(String bucketName, String objectName) {
+        return bucketName + FILE_SEPARATOR + objectName;
+    }
+
+    private String toObjectName(Path bucketPath, Path objectPath) {
+        return bucketPath.relativize(objectPath).toString().replace(File.separator, FILE_SEPARATOR);
+    }
+
+    private void checkBucketExists(String bucketName) {
+        if (!Files.isDirectory(resolveBucketPath(bucketName))) {
+            throw (S3Exception) NoSuchBucketException.builder()
+                    .message(String.format("The specified bucket [%s] does not exist", bucketName))
+                    .statusCode(404)
+                    .build();
+        }
+    }
+
+    /**
+     * 读取对象的元数据
+     * 旁路文件缺失或者和对象不一致时(例如直接拷贝到目录中的文件)，只使用文件本身的属性，此时eTag为空
+     *
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     * @return 对象不存在时返回空
+     */
+    private Optional<LocalObjectMetadata> readMetadata(String bucketName, String objectName) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(resolveObjectPath(bucketName, objectName), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        if (!attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+
+        LocalObjectMetadata metadata = readMetadataFile(resolveMetadataPath(bucketName, objectName));
+        if (metadata == null || metadata.getContentLength() != attributes.size()) {
+            metadata = LocalObjectMetadata.builder()
+                    .contentType(guessContentType(objectName))
+                    .contentLength(attributes.size())
+                    .lastModified(attributes.lastModifiedTime().toMillis())
+                    .build();
+        }
+        return Optional.of(metadata);
+    }
+
+    private LocalObjectMetadata readPartMetadata(Path uploadPath, int partNumber) throws IOException {
+        LocalObjectMetadata metadata = readMetadataFile(uploadPath.resolve(partNumber + METADATA_SUFFIX));
+        if (metadata == null) {
+            throw s3Exception(400, "InvalidPart", String.format("part %d could not be found", partNumber));
+        }
+        return metadata;
+    }
+
+    private LocalObjectMetadata readMetadataFile(Path metadataPath) throws IOException {
+        try {
+            return JSONUtil.toBean(new String(Files.readAllBytes(metadataPath), StandardCharsets.UTF_8), LocalObjectMetadata.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取对象内容的MD5，优先使用元数据中的eTag，eTag不是MD5时(分片上传的对象)重新计算
+     *
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     * @return 对象内容的MD5
+     */
+    private byte[] getObjectMd5(String bucketName, String objectName) throws IOException {
+        Optional<LocalObjectMetadata> metadataOptional = readMetadata(bucketName, objectName);
+        if (!metadataOptional.isPresent()) {
+            throw noSuchKey(bucketName, objectName);
+        }
+
+        String etag = unquote(metadataOptional.get().getEtag());
+        if (etag != null && MD5_HEX_PATTERN.matcher(etag).matches()) {
+            return HexUtil.decodeHex(etag);
+        }
+
+        MessageDigest md5 = newMd5();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = Files.newInputStream(resolveObjectPath(bucketName, objectName))) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                md5.update(buffer, 0, read);
+            }
+        }
+        return md5.digest();
+    }
+
+    private LocalObjectMetadata copyObjectInternal(String srcBucketName, String srcObjectName,
+                                                   String destBucketName, String destObjectName) throws IOException {
+        checkBucketExists(destBucketName);
+        Path sourcePath = resolveObjectPath(srcBucketName, srcObjectName);
+        Optional<LocalObjectMetadata> metadataOptional = readMetadata(srcBucketName, srcObjectName);
+        if (!metadataOptional.isPresent()) {
+            throw noSuchKey(srcBucketName, srcObjectName);
+        }
+
+        LocalObjectMetadata metadata = metadataOptional.get();
+        Path tempFile = createTempFile();
+        try {
+            try (FileChannel sourceChannel = FileChannel.open(sourcePath, StandardOpenOption.READ);
+                 FileChannel targetChannel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                metadata.setContentLength(transferFully(sourceChannel, targetChannel));
+            }
+            commitObject(tempFile, destBucketName, destObjectName, metadata);
+            return metadata;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 上传本地文件
+     *
+     * @return 上传成功返回eTag，失败返回null
+     */
+    private String putFile(String bucketName, String objectName, Path filePath) {
+        try (InputStream inputStream = Files.newInputStream(filePath)) {
+            return putObject(bucketName, objectName, null, null, inputStream, Files.size(filePath))
+                    .map(PutObjectResponse::eTag)
+                    .orElse(null);
+        } catch (IOException e) {
+            log.error("put file [{}] to bucket [{}] object [{}] failed, the cause is ", filePath, bucketName, objectName, e);
+            return null;
+        }
+    }
+
+    /**
+     * 删除对象及其元数据，并清理删除后为空的父目录
+     *
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     */
+    private void deleteObject(String bucketName, String objectName) throws IOException {
+        Path objectPath = resolveObjectPath(bucketName, objectName);
+        Path metadataPath = resolveMetadataPath(bucketName, objectName);
+        if (Files.isDirectory(objectPath)) {
+            return;
+        }
+        Files.deleteIfExists(objectPath);
+        Files.deleteIfExists(metadataPath);
+        deleteEmptyParents(objectPath, resolveBucketPath(bucketName));
+        deleteEmptyParents(metadataPath, metadataRootPath.resolve(bucketName));
+    }
+
+    private void deleteEmptyParents(Path path, Path stopPath) {
+        Path parent = path.getParent();
+        while (parent != null && parent.startsWith(stopPath) && !parent.equals(stopPath)) {
+            try {
+                Files.delete(parent);
+            } catch (IOException e) {
+                // 目录不为空或者已经被删除
+                return;
+            }
+            parent = parent.getParent();
+        }
+    }
+
+    private void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (Stream<Path> pathStream = Files.walk(path)) {
+            List<Path> pathList = pathStream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path deletePath : pathList) {
+                Files.deleteIfExists(deletePath);
+            }
+        }
+    }
+
+    private Path createTempFile() throws IOException {
+        return Files.createTempFile(tempPath, "s3-", ".tmp");
+    }
+
+    /**
+     * 将输入流写入临时文件，同时计算MD5
+     *
+     * @param inputStream   输入流
+     * @param contentLength 期望的长度，未知时为-1
+     * @param tempFile      临时文件
+     * @return 包含eTag和长度的元数据
+     */
+    private LocalObjectMetadata writeTempFile(InputStream inputStream, long contentLength, Path tempFile) throws IOException {
+        MessageDigest md5 = newMd5();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long writtenLength = 0;
+        InputStream boundedInputStream = contentLength >= 0 ? new BoundedInputStream(inputStream, contentLength) : inputStream;
+        try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+            int read;
+            while ((read = boundedInputStream.read(buffer)) != -1) {
+                md5.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+                writtenLength += read;
+            }
+        }
+
+        if (contentLength >= 0 && writtenLength != contentLength) {
+            throw new EOFException(String.format("expected %d bytes but the stream ended after %d bytes", contentLength, writtenLength));
+        }
+
+        return LocalObjectMetadata.builder()
+                .etag(quote(HexUtil.encodeHexStr(md5.digest())))
+                .contentLength(writtenLength)
+                .build();
+    }
+
+    private Path writeTempMetadataFile(LocalObjectMetadata metadata) throws IOException {
+        Path tempMetadataFile = createTempFile();
+        Files.write(tempMetadataFile, JSONUtil.toJsonStr(metadata).getBytes(StandardCharsets.UTF_8));
+        return tempMetadataFile;
+    }
+
+    /**
+     * 将写好的临时文件提交为对象，先替换对象内容，再替换旁路元数据
+     * 两次重命名之间读取到的元数据长度和对象不一致时，会退化为只使用文件本身的属性
+     *
+     * @param tempFile   临时文件
+     * @param bucketName 处理过的桶名称
+     * @param objectName 对象名称
+     * @param metadata   对象的元数据
+     */
+    private void commitObject(Path tempFile, String bucketName, String objectName, LocalObjectMetadata metadata) throws IOException {
+        metadata.setLastModified(System.currentTimeMillis());
+        Path objectPath = resolveObjectPath(bucketName, objectName);
+        Path metadataPath = resolveMetadataPath(bucketName, objectName);
+        Path tempMetadataFile = writeTempMetadataFile(metadata);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    Files.createDirectories(objectPath.getParent());
+                    Files.createDirectories(metadataPath.getParent());
+                    moveAtomically(tempFile, objectPath);
+                    moveAtomically(tempMetadataFile, metadataPath);
+                    return;
+                } catch (NoSuchFileException e) {
+                    // 父目录被并发的删除操作清理了，重新创建
+                    if (attempt >= MAX_COMMIT_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tempMetadataFile);
+        }
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 使用transferTo将文件拷贝到目标路径，目标文件存在时覆盖
+     *
+     * @return 拷贝的字节数
+     */
+    private long copyToFile(Path sourcePath, Path targetPath) throws IOException {
+        Path parentPath = targetPath.toAbsolutePath().getParent();
+        if (parentPath != null) {
+            Files.createDirectories(parentPath);
+        }
+
+        try (FileChannel sourceChannel = FileChannel.open(sourcePath, StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(targetPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return transferFully(sourceChannel, targetChannel);
+        }
+    }
+
+    /**
+     * transferTo单次调用不保证传输全部内容，这里循环直到传输完成
+     *
+     * @return 传输的字节数
+     */
+    private long transferFully(FileChannel sourceChannel, FileChannel targetChannel) throws IOException {
+        long size = sourceChannel.size();
+        long position = 0;
+        while (position < size) {
+            long transferred = sourceChannel.transferTo(position, size - position, targetChannel);
+            if (transferred <= 0) {
+                throw new EOFException(String.format("file truncated while transferring, expected %d bytes but got %d", size, position));
+            }
+            position += transferred;
+        }
+        return size;
+    }
+
+    private String guessContentType(String objectName) {
+        String contentType = FileUtil.getMimeType(objectName);
+        return StrUtil.isNotEmpty(contentType) ? contentType : DEFAULT_CONTENT_TYPE;
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String quote(String etag) {
+        return "\"" + etag + "\"";
+    }
+
+    private static String unquote(String etag) {
+        return etag == null ? null : StrUtil.unWrap(etag, '"');
+    }
+
+    private static S3Exception noSuchKey(String bucketName, String objectName) {
+        return (S3Exception) NoSuchKeyException.builder()
+                .message(String.format("The specified key [%s] does not exist in bucket [%s]", objectName, bucketName))
+                .statusCode(404)
+                .build();
+    }
+
+    private static S3Exception noSuchUpload(String uploadId) {
+        return (S3Exception) NoSuchUploadException.builder()
+                .message(String.format("The specified upload [%s] does not exist", uploadId))
+                .statusCode(404)
+                .build();
+    }
+
+    private static S3Exception s3Exception(int statusCode, String errorCode, String message) {
+        return (S3Exception) S3Exception.builder()
+                .message(message)
+                .statusCode(statusCode)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).errorMessage(message).build())
+                .build();
+    }
+}
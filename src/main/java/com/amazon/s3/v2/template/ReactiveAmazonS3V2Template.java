@@ -0,0 +1,539 @@
+package com.amazon.s3.v2.template;
+
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.StrUtil;
+import com.amazon.s3.v2.crypto.ChunkedObjectCipher;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscriber;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.amazon.s3.v2.constant.BusinessV2Constant.OCTET_STREAM;
+
+/**
+ * @author liuyangfang
+ * @description 基于S3AsyncClient的响应式模板，适用于WebFlux
+ * <p>
+ * 上传时把Flux&lt;DataBuffer&gt;切分成固定大小的分片，分片依次上传，上传完成之前不会继续请求上游的数据，
+ * 同一时间最多持有三个分片(正在上传、预取、正在填充)；总数据量不足一个分片时直接用putObject上传。
+ * 上传成功后清除同步模板中这个对象的内容缓存和元数据缓存。
+ * 开启加密时数据先经过分块加密再切分分片，元数据和同步模板加密上传的对象一致，可以用AmazonS3V2Template#getObject解密读取。
+ * 下载时直接返回SDK的响应流，下游的请求量会传递到网络层，不会整体读入内存；
+ * 元数据表明对象经过加密或者压缩时，在boundedElastic线程中按块解密、解压，返回的是原始内容，同样不会整体读入内存。
+ * <p>
+ * 所有操作都是惰性的，订阅时才会发出请求；上传出错或者被取消时会中止已经创建的分片上传，
+ * 取消时createMultipartUpload还没有返回的，等它返回后再中止，不会留下未完成的分片上传。
+ * @since 2023/6/27 9:40:12
+ */
+@Slf4j
+public class ReactiveAmazonS3V2Template {
+    /**
+     * 默认的分片大小，S3规定除最后一个分片外分片最小为5MB
+     */
+    public static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private static final int MAX_PART_NUMBER = 10000;
+
+    /**
+     * 解码后每次向下游发送的数据大小
+     */
+    private static final int DECODED_CHUNK_SIZE = 64 * 1024;
+
+    private final AmazonS3V2Template amazonS3V2Template;
+
+    private final S3AsyncClient s3AsyncClient;
+
+    private final int partSize;
+
+    public ReactiveAmazonS3V2Template(AmazonS3V2Template amazonS3V2Template) {
+        this(amazonS3V2Template, DEFAULT_PART_SIZE);
+    }
+
+    public ReactiveAmazonS3V2Template(AmazonS3V2Template amazonS3V2Template, int partSize) {
+        Assert.notNull(amazonS3V2Template, "amazonS3V2Template not null");
+        Assert.notNull(amazonS3V2Template.getS3AsyncClient(), "s3AsyncClient not null");
+        Assert.isTrue(partSize >= MIN_PART_SIZE, "partSize must not be less than 5MB");
+        this.amazonS3V2Template = amazonS3V2Template;
+        this.s3AsyncClient = amazonS3V2Template.getS3AsyncClient();
+        this.partSize = partSize;
+    }
+
+    /**
+     * 上传到默认桶
+     *
+     * @param objectName  对象名称
+     * @param contentType 对象类型
+     * @param content     对象内容，DataBuffer读取后会被释放
+     * @return 对象的eTag
+     */
+    public Mono<String> upload(String objectName, String contentType, Flux<DataBuffer> content) {
+        return upload(amazonS3V2Template.getDefaultBucket(), objectName, contentType, content);
+    }
+
+    /**
+     * 上传长度未知的数据，自动切分为分片上传
+     *
+     * @param bucketName  桶名称
+     * @param objectName  对象名称
+     * @param contentType 对象类型
+     * @param content     对象内容，DataBuffer读取后会被释放
+     * @return 对象的eTag
+     */
+    public Mono<String> upload(String bucketName, String objectName, String contentType, Flux<DataBuffer> content) {
+        String handledBucketName = amazonS3V2Template.handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name not empty");
+        Assert.notNull(content, "content not null");
+
+        return Mono.defer(() -> {
+            ReactiveMultipartUpload upload = new ReactiveMultipartUpload(handledBucketName, objectName, contentType,
+                    amazonS3V2Template.createObjectCipher());
+            return content
+                    .concatMapIterable(upload::append)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(upload.remaining())))
+                    .concatMap(upload::onPart, 1)
+                    .then(Mono.defer(upload::finish))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .onErrorResume(e -> {
+                        log.error("reactive upload failed, bucket {} object name {}, the cause is ", handledBucketName, objectName, e);
+                        return upload.abort().then(Mono.error(e));
+                    })
+                    .doOnCancel(upload::cancel);
+        });
+    }
+
+    /**
+     * 获取对象的响应流，可以从中读取对象的元数据
+     * 加密或者压缩过的对象返回解码后的内容，响应中的contentLength与AmazonS3V2Template#getObject一致：
+     * 加密对象换算为明文长度，压缩对象仍然是压缩后的长度
+     *
+     * @param bucketName 桶名称
+     * @param objectName 对象名称
+     * @return 响应流
+     */
+    public Mono<ResponsePublisher<GetObjectResponse>> getObject(String bucketName, String objectName) {
+        String handledBucketName = amazonS3V2Template.handlerBucketName(bucketName);
+        Assert.notEmpty(objectName, "object name not empty");
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(handledBucketName)
+                .key(objectName)
+                .build();
+        return Mono.fromFuture(() -> s3AsyncClient.getObject(getObjectRequest, AsyncResponseTransformer.<GetObjectResponse>toPublisher()))
+                .flatMap(responsePublisher -> AmazonS3V2Template.isEncoded(responsePublisher.response().metadata()) ?
+                        decode(responsePublisher) : Mono.just(responsePublisher))
+                .doOnError(e -> log.error("reactive get object failed, bucket {} object name {}, the cause is ",
+                        handledBucketName, objectName, e));
+    }
+
+    /**
+     * 把响应流转为阻塞的输入流交给同步模板解码，解码在boundedElastic线程中进行，获取数据密钥也可能是阻塞调用
+     *
+     * @param responsePublisher 存储的原始内容
+     * @return 解码后的响应流，下游取消时中止原始的响应流
+     */
+    private Mono<ResponsePublisher<GetObjectResponse>> decode(ResponsePublisher<GetObjectResponse> responsePublisher) {
+        return Mono.fromCallable(() -> {
+            Stream<ByteBuffer> stream = Flux.from(responsePublisher).toStream();
+            ResponseInputStream<GetObjectResponse> decodedInputStream = amazonS3V2Template.decodeIfNecessary(
+                    new ResponseInputStream<>(responsePublisher.response(),
+                            AbortableInputStream.create(new ByteBufferInputStream(stream.iterator()), stream::close)));
+            Flux<ByteBuffer> content = Flux.<ByteBuffer>generate(sink -> {
+                        byte[] buffer = new byte[DECODED_CHUNK_SIZE];
+                        try {
+                            int read = decodedInputStream.read(buffer);
+                            if (read < 0) {
+                                sink.complete();
+                            } else {
+                                sink.next(ByteBuffer.wrap(buffer, 0, read));
+                            }
+                        } catch (IOException e) {
+                            sink.error(new UncheckedIOException(e));
+                        }
+                    })
+                    .doFinally(signal -> decodedInputStream.abort())
+                    .subscribeOn(Schedulers.boundedElastic());
+            return new ResponsePublisher<>(decodedInputStream.response(), SdkPublisher.adapt(content));
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 下载对象
+     *
+     * @param bucketName 桶名称
+     * @param objectName 对象名称
+     * @return 对象内容
+     */
+    public Flux<ByteBuffer> download(String bucketName, String objectName) {
+        return getObject(bucketName, objectName).flatMapMany(Flux::from);
+    }
+
+    /**
+     * 下载对象，可以直接作为WebFlux的响应体
+     *
+     * @param bucketName        桶名称
+     * @param objectName        对象名称
+     * @param dataBufferFactory 例如response.bufferFactory()
+     * @return 对象内容
+     */
+    public Flux<DataBuffer> download(String bucketName, String objectName, DataBufferFactory dataBufferFactory) {
+        Assert.notNull(dataBufferFactory, "dataBufferFactory not null");
+        return download(bucketName, objectName).map(dataBufferFactory::wrap);
+    }
+
+    /**
+     * 逐个读取ByteBuffer的输入流，hasNext会阻塞等待网络数据
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final Iterator<ByteBuffer> iterator;
+
+        private ByteBuffer current;
+
+        private ByteBufferInputStream(Iterator<ByteBuffer> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                while (current == null || !current.hasRemaining()) {
+                    if (!iterator.hasNext()) {
+                        return -1;
+                    }
+                    current = iterator.next();
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("read object content failed", e);
+            }
+            int read = Math.min(len, current.remaining());
+            current.get(b, off, read);
+            return read;
+        }
+    }
+
+    /**
+     * 已知长度的分片请求体，SDK重试时重新订阅，每次都从分片开头读取，不拷贝分片内容
+     */
+    private static AsyncRequestBody partRequestBody(ByteBuffer part) {
+        return new AsyncRequestBody() {
+            @Override
+            public Optional<Long> contentLength() {
+                return Optional.of((long) part.remaining());
+            }
+
+            @Override
+            public String contentType() {
+                return OCTET_STREAM;
+            }
+
+            @Override
+            public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+                Mono.fromSupplier(part::duplicate).subscribe(subscriber);
+            }
+        };
+    }
+
+    /**
+     * 一次上传的状态，只在一个订阅内按顺序访问
+     */
+    private class ReactiveMultipartUpload {
+        private final String bucketName;
+
+        private final String objectName;
+
+        private final String contentType;
+
+        private final List<CompletedPart> completedPartList = new ArrayList<>();
+
+        /**
+         * 对象的元数据，开启加密时记录加密信息
+         */
+        private final Map<String, String> metadataMap = new HashMap<>(8);
+
+        /**
+         * 开启加密时把数据写入加密流，加密后的数据再写入分片，没有开启时为null
+         */
+        private final OutputStream encryptingOutputStream;
+
+        /**
+         * 加密流写出的已经填满的分片，每次append后取走
+         */
+        private List<ByteBuffer> fullParts = new ArrayList<>(1);
+
+        private ByteBuffer filling;
+
+        /**
+         * 第一个分片先保留，收到第二个分片时才创建分片上传，只有一个分片时直接用putObject上传
+         */
+        private ByteBuffer firstPart;
+
+        private int partCount;
+
+        private volatile String uploadId;
+
+        private volatile boolean cancelled;
+
+        private ReactiveMultipartUpload(String bucketName, String objectName, String contentType, ChunkedObjectCipher objectCipher) {
+            this.bucketName = bucketName;
+            this.objectName = objectName;
+            this.contentType = contentType;
+            if (objectCipher == null) {
+                this.encryptingOutputStream = null;
+                return;
+            }
+            objectCipher.writeMetadata(metadataMap);
+            this.encryptingOutputStream = objectCipher.encrypt(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    fill(ByteBuffer.wrap(b, off, len));
+                }
+            });
+        }
+
+        /**
+         * 把DataBuffer的内容拷贝到正在填充的分片中，开启加密时先加密
+         *
+         * @return 已经填满的分片
+         */
+        private List<ByteBuffer> append(DataBuffer dataBuffer) {
+            try {
+                if (encryptingOutputStream == null) {
+                    fill(dataBuffer.asByteBuffer());
+                } else {
+                    byte[] bytes = new byte[dataBuffer.readableByteCount()];
+                    dataBuffer.read(bytes);
+                    encryptingOutputStream.write(bytes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                DataBufferUtils.release(dataBuffer);
+            }
+            return takeFullParts();
+        }
+
+        private void fill(ByteBuffer source) {
+            while (source.hasRemaining()) {
+                if (filling == null) {
+                    filling = ByteBuffer.allocate(partSize);
+                }
+                int length = Math.min(source.remaining(), filling.remaining());
+                ByteBuffer slice = source.duplicate();
+                slice.limit(slice.position() + length);
+                filling.put(slice);
+                source.position(source.position() + length);
+                if (!filling.hasRemaining()) {
+                    filling.flip();
+                    fullParts.add(filling);
+                    filling = null;
+                }
+            }
+        }
+
+        private List<ByteBuffer> takeFullParts() {
+            if (fullParts.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<ByteBuffer> parts = fullParts;
+            fullParts = new ArrayList<>(1);
+            return parts;
+        }
+
+        /**
+         * 开启加密时先写入最后一个加密块，最后一个加密块可能正好填满一个分片
+         *
+         * @return 剩余的分片，最后一个分片可能没有填满
+         */
+        private List<ByteBuffer> remaining() {
+            if (encryptingOutputStream != null) {
+                try {
+                    encryptingOutputStream.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            List<ByteBuffer> parts = takeFullParts();
+            if (filling == null || filling.position() == 0) {
+                return parts;
+            }
+            filling.flip();
+            if (parts.isEmpty()) {
+                parts = new ArrayList<>(1);
+            }
+            parts.add(filling);
+            filling = null;
+            return parts;
+        }
+
+        private Mono<Void> onPart(ByteBuffer part) {
+            int partNumber = ++partCount;
+            if (partNumber > MAX_PART_NUMBER) {
+                return Mono.error(new IllegalStateException("upload exceeds " + MAX_PART_NUMBER + " parts of " + partSize + " bytes"));
+            }
+            if (partNumber == 1) {
+                firstPart = part;
+                return Mono.empty();
+            }
+            Mono<Void> prepare = Mono.empty();
+            if (partNumber == 2) {
+                ByteBuffer first = firstPart;
+                firstPart = null;
+                prepare = createMultipartUpload().then(Mono.defer(() -> uploadPart(1, first)));
+            }
+            return prepare.then(Mono.defer(() -> uploadPart(partNumber, part)));
+        }
+
+        private Mono<String> finish() {
+            if (uploadId == null) {
+                ByteBuffer body = firstPart != null ? firstPart : ByteBuffer.allocate(0);
+                firstPart = null;
+                PutObjectRequest.Builder builder = PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .metadata(metadataMap);
+                if (StrUtil.isNotEmpty(contentType)) {
+                    builder.contentType(contentType);
+                }
+                return Mono.fromFuture(() -> s3AsyncClient.putObject(builder.build(), partRequestBody(body)))
+                        .map(response -> {
+                            amazonS3V2Template.evictCachedObject(bucketName, objectName);
+                            return response.eTag();
+                        });
+            }
+            CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectName)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedPartList).build())
+                    .build();
+            return Mono.fromFuture(() -> s3AsyncClient.completeMultipartUpload(completeMultipartUploadRequest))
+                    .map(response -> {
+                        log.debug("reactive upload success, bucket {} object name {}, uploadId {}, parts {}",
+                                bucketName, objectName, uploadId, completedPartList.size());
+                        uploadId = null;
+                        amazonS3V2Template.evictCachedObject(bucketName, objectName);
+                        return response.eTag();
+                    });
+        }
+
+        private Mono<Void> createMultipartUpload() {
+            CreateMultipartUploadRequest.Builder builder = CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectName)
+                    .metadata(metadataMap);
+            if (StrUtil.isNotEmpty(contentType)) {
+                builder.contentType(contentType);
+            }
+            return Mono.defer(() -> {
+                CompletableFuture<String> created = s3AsyncClient.createMultipartUpload(builder.build())
+                        .thenApply(response -> {
+                            uploadId = response.uploadId();
+                            // 请求发出后被取消，订阅方已经不在了，这里负责中止
+                            if (cancelled) {
+                                abort().subscribe();
+                            }
+                            return response.uploadId();
+                        });
+                // 取消订阅时只取消下游的future，创建请求继续完成，拿到uploadId后才能中止
+                return Mono.fromFuture(created.thenApply(Function.identity())).then();
+            });
+        }
+
+        private Mono<Void> uploadPart(int partNumber, ByteBuffer part) {
+            UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectName)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .build();
+            return Mono.fromFuture(() -> s3AsyncClient.uploadPart(uploadPartRequest, partRequestBody(part)))
+                    .doOnNext(response -> {
+                        completedPartList.add(CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build());
+                        log.debug("part {}, upload success", partNumber);
+                    })
+                    .then();
+        }
+
+        private void cancel() {
+            cancelled = true;
+            abort().subscribe();
+        }
+
+        /**
+         * @return 当前的uploadId，同时清空，保证只中止一次
+         */
+        private synchronized String takeUploadId() {
+            String current = uploadId;
+            uploadId = null;
+            return current;
+        }
+
+        private Mono<Void> abort() {
+            String abortUploadId = takeUploadId();
+            if (abortUploadId == null) {
+                return Mono.empty();
+            }
+            AbortMultipartUploadRequest abortMultipartUploadRequest = AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectName)
+                    .uploadId(abortUploadId)
+                    .build();
+            return Mono.fromFuture(() -> s3AsyncClient.abortMultipartUpload(abortMultipartUploadRequest))
+                    .doOnError(e -> log.error("abort reactive upload failed, bucket {} object name {}, uploadId {}, the cause is ",
+                            bucketName, objectName, abortUploadId, e))
+                    .onErrorResume(e -> Mono.empty())
+                    .then();
+        }
+    }
+}
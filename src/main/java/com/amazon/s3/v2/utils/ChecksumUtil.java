@@ -0,0 +1,102 @@
+package com.amazon.s3.v2.utils;
+
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+/**
+ * @author liuyangfang
+ * @description 校验和请求参数的工具类，每种算法对应请求和响应中不同的字段
+ * @since 2023/7/1 11:20:37
+ */
+public final class ChecksumUtil {
+    private static final ChecksumAlgorithm[] SUPPORTED_ALGORITHMS = {
+            ChecksumAlgorithm.CRC32_C, ChecksumAlgorithm.CRC32, ChecksumAlgorithm.SHA1, ChecksumAlgorithm.SHA256
+    };
+
+    private ChecksumUtil() {
+    }
+
+    /**
+     * 设置分片的校验和，S3收到分片后校验，不一致时返回400 BadDigest
+     */
+    public static UploadPartRequest.Builder checksum(UploadPartRequest.Builder builder, ChecksumAlgorithm algorithm, String checksum) {
+        switch (algorithm) {
+            case CRC32_C:
+                return builder.checksumCRC32C(checksum);
+            case CRC32:
+                return builder.checksumCRC32(checksum);
+            case SHA1:
+                return builder.checksumSHA1(checksum);
+            case SHA256:
+                return builder.checksumSHA256(checksum);
+            default:
+                throw new IllegalArgumentException("unsupported checksum algorithm " + algorithm);
+        }
+    }
+
+    /**
+     * 完成分片上传时每个分片也需要带上校验和
+     */
+    public static CompletedPart.Builder checksum(CompletedPart.Builder builder, ChecksumAlgorithm algorithm, String checksum) {
+        switch (algorithm) {
+            case CRC32_C:
+                return builder.checksumCRC32C(checksum);
+            case CRC32:
+                return builder.checksumCRC32(checksum);
+            case SHA1:
+                return builder.checksumSHA1(checksum);
+            case SHA256:
+                return builder.checksumSHA256(checksum);
+            default:
+                throw new IllegalArgumentException("unsupported checksum algorithm " + algorithm);
+        }
+    }
+
+    public static PutObjectRequest.Builder checksum(PutObjectRequest.Builder builder, ChecksumAlgorithm algorithm, String checksum) {
+        switch (algorithm) {
+            case CRC32_C:
+                return builder.checksumCRC32C(checksum);
+            case CRC32:
+                return builder.checksumCRC32(checksum);
+            case SHA1:
+                return builder.checksumSHA1(checksum);
+            case SHA256:
+                return builder.checksumSHA256(checksum);
+            default:
+                throw new IllegalArgumentException("unsupported checksum algorithm " + algorithm);
+        }
+    }
+
+    /**
+     * @return 响应中带有校验和的算法，请求没有开启checksumMode或者对象上传时没有校验和时为null
+     */
+    public static ChecksumAlgorithm algorithmOf(GetObjectResponse response) {
+        for (ChecksumAlgorithm algorithm : SUPPORTED_ALGORITHMS) {
+            if (checksum(response, algorithm) != null) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 响应中的校验和，请求没有开启checksumMode或者对象上传时没有校验和时为null
+     */
+    public static String checksum(GetObjectResponse response, ChecksumAlgorithm algorithm) {
+        switch (algorithm) {
+            case CRC32_C:
+                return response.checksumCRC32C();
+            case CRC32:
+                return response.checksumCRC32();
+            case SHA1:
+                return response.checksumSHA1();
+            case SHA256:
+                return response.checksumSHA256();
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.amazon.s3.v2.utils;
+
+import cn.hutool.core.util.StrUtil;
+import software.amazon.awssdk.http.SdkHttpRequest;
+
+import java.net.URI;
+
+/**
+ * @author liuyangfang
+ * @description 处理 endPoint 的工具类
+ * @since 2023/6/26 10:12:35
+ */
+public final class EndpointUtil {
+
+    private EndpointUtil() {
+    }
+
+    /**
+     * 判断请求是否发往指定的 endPoint，虚拟主机风格的请求host带有桶名前缀
+     *
+     * @param request  请求
+     * @param endpoint endPoint
+     * @return true: 发往该 endPoint
+     */
+    public static boolean isTargeting(SdkHttpRequest request, URI endpoint) {
+        String host = request.host();
+        return host.equalsIgnoreCase(endpoint.getHost()) || StrUtil.endWithIgnoreCase(host, "." + endpoint.getHost());
+    }
+
+    /**
+     * 把发往from的请求改写为发往to，保留虚拟主机风格的桶名前缀，需要先用 {@link #isTargeting(SdkHttpRequest, URI)} 判断
+     *
+     * @param request 请求
+     * @param from    原 endPoint
+     * @param to      新 endPoint
+     * @return 改写后的请求
+     */
+    public static SdkHttpRequest rewrite(SdkHttpRequest request, URI from, URI to) {
+        String host = request.host();
+        String prefix = host.substring(0, host.length() - from.getHost().length());
+        return request.toBuilder()
+                .protocol(to.getScheme())
+                .host(prefix + to.getHost())
+                .port(to.getPort())
+                .build();
+    }
+
+    /**
+     * 请求实际发往的 endPoint，经过多 endPoint 选择和内网改写之后的host和端口，去掉虚拟主机风格的桶名前缀
+     *
+     * @param request 即将发送的请求
+     * @param bucket  桶名称，可以为空
+     * @return host:port
+     */
+    public static String getTargetEndpoint(SdkHttpRequest request, String bucket) {
+        String host = request.host();
+        if (StrUtil.isNotEmpty(bucket) && host.length() > bucket.length() + 1
+                && StrUtil.startWithIgnoreCase(host, bucket + ".")) {
+            host = host.substring(bucket.length() + 1);
+        }
+        return host + ":" + request.port();
+    }
+
+    /**
+     * @param endpoint endPoint
+     * @return endPoint的端口，没有显式指定时按协议返回默认端口
+     */
+    public static int getPort(URI endpoint) {
+        if (endpoint.getPort() > 0) {
+            return endpoint.getPort();
+        }
+        return "http".equalsIgnoreCase(endpoint.getScheme()) ? 80 : 443;
+    }
+}
@@ -0,0 +1,159 @@
+package com.amazon.s3.v2.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author liuyangfang
+ * @description 分块加密的往返、范围解密以及截断、篡改检测
+ * @since 2023/6/29 10:12:36
+ */
+class ChunkedObjectCipherTest {
+    private static final int CHUNK_SIZE = 1000;
+
+    private final Random random = new Random(42);
+
+    private final DataKeyProvider dataKeyProvider = newDataKeyProvider("k1");
+
+    @Test
+    void roundTrip() throws IOException {
+        for (int length : new int[]{0, 1, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, CHUNK_SIZE * 3, 123457}) {
+            byte[] plaintext = randomBytes(length);
+            ChunkedObjectCipher cipher = ChunkedObjectCipher.create(dataKeyProvider, CHUNK_SIZE);
+            byte[] ciphertext = encrypt(cipher, plaintext);
+
+            assertEquals(length, cipher.getPlaintextLength(ciphertext.length));
+            assertFalse(length > 0 && Arrays.equals(plaintext, Arrays.copyOf(ciphertext, length)), "ciphertext must differ from plaintext");
+            assertArrayEquals(plaintext, readAll(restore(cipher).decrypt(new ByteArrayInputStream(ciphertext))), "length " + length);
+        }
+    }
+
+    @Test
+    void rangeDecrypt() throws IOException {
+        byte[] plaintext = randomBytes(CHUNK_SIZE * 5 + 123);
+        ChunkedObjectCipher cipher = ChunkedObjectCipher.create(dataKeyProvider, CHUNK_SIZE);
+        byte[] ciphertext = encrypt(cipher, plaintext);
+        ChunkedObjectCipher restored = restore(cipher);
+
+        int[][] ranges = {{0, 1}, {0, CHUNK_SIZE}, {CHUNK_SIZE - 1, 2}, {CHUNK_SIZE, CHUNK_SIZE}, {1500, 2700},
+                {plaintext.length - 1, 1}, {plaintext.length - 200, 1000}, {0, plaintext.length}};
+        for (int[] range : ranges) {
+            int offset = range[0];
+            int end = Math.min(offset + range[1], plaintext.length) - 1;
+            long firstChunkIndex = restored.getChunkIndex(offset);
+            long lastChunkIndex = restored.getChunkIndex(end);
+            long finalChunkIndex = restored.getChunkCount(ciphertext.length) - 1;
+            int ciphertextStart = (int) restored.getCiphertextOffset(firstChunkIndex);
+            int ciphertextEnd = (int) Math.min(restored.getCiphertextOffset(lastChunkIndex + 1), ciphertext.length);
+
+            InputStream inputStream = restored.decrypt(new ByteArrayInputStream(Arrays.copyOfRange(ciphertext, ciphertextStart, ciphertextEnd)),
+                    firstChunkIndex, lastChunkIndex, finalChunkIndex, offset - firstChunkIndex * CHUNK_SIZE, end - offset + 1);
+            assertArrayEquals(Arrays.copyOfRange(plaintext, offset, end + 1), readAll(inputStream), "range " + offset + "-" + end);
+        }
+    }
+
+    @Test
+    void truncationIsDetected() throws IOException {
+        byte[] plaintext = randomBytes(CHUNK_SIZE * 3);
+        ChunkedObjectCipher cipher = ChunkedObjectCipher.create(dataKeyProvider, CHUNK_SIZE);
+        byte[] ciphertext = encrypt(cipher, plaintext);
+        ChunkedObjectCipher restored = restore(cipher);
+
+        // 在块边界截断，剩下的每一块都能单独通过认证，只能靠最后一块的标记发现
+        byte[] chunkBoundary = Arrays.copyOf(ciphertext, cipher.getEncryptedChunkSize() * 2);
+        assertThrows(IOException.class, () -> readAll(restored.decrypt(new ByteArrayInputStream(chunkBoundary))));
+
+        byte[] midChunk = Arrays.copyOf(ciphertext, ciphertext.length - 10);
+        assertThrows(IOException.class, () -> readAll(restored.decrypt(new ByteArrayInputStream(midChunk))));
+    }
+
+    @Test
+    void tamperingIsDetected() throws IOException {
+        byte[] plaintext = randomBytes(CHUNK_SIZE * 2 + 10);
+        ChunkedObjectCipher cipher = ChunkedObjectCipher.create(dataKeyProvider, CHUNK_SIZE);
+        byte[] ciphertext = encrypt(cipher, plaintext);
+        ChunkedObjectCipher restored = restore(cipher);
+
+        byte[] flipped = ciphertext.clone();
+        flipped[CHUNK_SIZE + 100] ^= 1;
+        assertThrows(IOException.class, () -> readAll(restored.decrypt(new ByteArrayInputStream(flipped))));
+
+        // 交换两个完整的块，每块的IV绑定了块序号，不能通过认证
+        int encryptedChunkSize = cipher.getEncryptedChunkSize();
+        byte[] swapped = ciphertext.clone();
+        System.arraycopy(ciphertext, 0, swapped, encryptedChunkSize, encryptedChunkSize);
+        System.arraycopy(ciphertext, encryptedChunkSize, swapped, 0, encryptedChunkSize);
+        assertThrows(IOException.class, () -> readAll(restored.decrypt(new ByteArrayInputStream(swapped))));
+    }
+
+    @Test
+    void wrongMasterKeyIsRejected() throws IOException {
+        ChunkedObjectCipher cipher = ChunkedObjectCipher.create(dataKeyProvider, CHUNK_SIZE);
+        encrypt(cipher, randomBytes(10));
+        Map<String, String> metadataMap = new HashMap<>(8);
+        cipher.writeMetadata(metadataMap);
+        assertTrue(ChunkedObjectCipher.isEncrypted(metadataMap));
+
+        DataKeyProvider otherProvider = newDataKeyProvider("k1");
+        assertThrows(RuntimeException.class, () -> ChunkedObjectCipher.fromMetadata(metadataMap, otherProvider));
+        assertThrows(IllegalStateException.class, () -> ChunkedObjectCipher.fromMetadata(metadataMap, null));
+    }
+
+    private DataKeyProvider newDataKeyProvider(String keyId) {
+        Map<String, String> masterKeys = new HashMap<>(2);
+        masterKeys.put(keyId, Base64.getEncoder().encodeToString(randomBytes(32)));
+        return new MasterKeyDataKeyProvider(masterKeys, keyId);
+    }
+
+    /**
+     * 和读取对象时一样，从元数据还原加密器
+     */
+    private ChunkedObjectCipher restore(ChunkedObjectCipher cipher) {
+        Map<String, String> metadataMap = new HashMap<>(8);
+        cipher.writeMetadata(metadataMap);
+        return ChunkedObjectCipher.fromMetadata(metadataMap, dataKeyProvider);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] encrypt(ChunkedObjectCipher cipher, byte[] plaintext) throws IOException {
+        ByteArrayOutputStream ciphertext = new ByteArrayOutputStream();
+        try (OutputStream outputStream = cipher.encrypt(ciphertext)) {
+            // 分多次写入，覆盖跨块的写入
+            for (int offset = 0; offset < plaintext.length; offset += 333) {
+                outputStream.write(plaintext, offset, Math.min(333, plaintext.length - offset));
+            }
+        }
+        return ciphertext.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[517];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+}